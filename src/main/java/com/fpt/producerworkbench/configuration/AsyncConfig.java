@@ -25,9 +25,11 @@
 //}
 package com.fpt.producerworkbench.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import java.util.concurrent.Executor;
 
@@ -45,4 +47,51 @@ public class AsyncConfig {
         ex.initialize();
         return ex;
     }
+
+    /**
+     * Pool riêng cho ffmpeg (xử lý audio track), tách khỏi taskExecutor dùng chung
+     * để upload track hàng loạt không chiếm hết thread của email / notification.
+     * Mặc định số worker = số CPU core.
+     */
+    @Bean("audioProcessingExecutor")
+    public ThreadPoolTaskExecutor audioProcessingExecutor(
+            @Value("${audio.processing.worker-threads:0}") int workerThreads) {
+        int threads = workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setThreadNamePrefix("pwb-audio-");
+        ex.setCorePoolSize(threads);
+        ex.setMaxPoolSize(threads);
+        ex.setQueueCapacity(threads);
+        ex.initialize();
+        return ex;
+    }
+
+    /**
+     * Virtual thread cho các bước AI chỉ chờ I/O (Gemini, Pinecone, Redis)
+     * chạy song song trong cùng 1 request, không chiếm platform thread.
+     * Đạt concurrency limit thì từ chối ngay (TaskRejectedException) thay vì chặn thread gửi task,
+     * caller tự chọn fallback.
+     */
+    @Bean("aiTaskExecutor")
+    public SimpleAsyncTaskExecutor aiTaskExecutor(
+            @Value("${ai.context.max-concurrency:64}") int maxConcurrency) {
+        SimpleAsyncTaskExecutor ex = new SimpleAsyncTaskExecutor("pwb-ai-");
+        ex.setVirtualThreads(true);
+        ex.setConcurrencyLimit(maxConcurrency);
+        ex.setRejectTasksWhenLimitReached(true);
+        return ex;
+    }
+
+    /**
+     * Virtual thread cho các lookup Spotify độc lập (các batch artist) chạy song song;
+     * concurrency limit thấp để không vượt rate limit của Spotify.
+     */
+    @Bean("spotifyTaskExecutor")
+    public SimpleAsyncTaskExecutor spotifyTaskExecutor(
+            @Value("${spotify.max-concurrency:4}") int maxConcurrency) {
+        SimpleAsyncTaskExecutor ex = new SimpleAsyncTaskExecutor("pwb-spotify-");
+        ex.setVirtualThreads(true);
+        ex.setConcurrencyLimit(maxConcurrency);
+        return ex;
+    }
 }
@@ -8,9 +8,13 @@ import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.multipart.MultipartConfiguration;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.transfer.s3.S3TransferManager;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Configuration
 @RequiredArgsConstructor
 public class AwsConfig {
@@ -36,6 +40,7 @@ public class AwsConfig {
     /**
      * S3AsyncClient bất đồng bộ, nền tảng cho S3TransferManager.
      * Cấu hình accelerate(true) để bật S3 Transfer Acceleration cho việc upload.
+     * Bật multipart với part size / buffer giới hạn để upload stream lớn không giữ cả file trên heap.
      */
     @Bean
     public S3AsyncClient s3AsyncClient() {
@@ -48,9 +53,27 @@ public class AwsConfig {
                 .region(Region.of(awsProperties.getRegion()))
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
                 .accelerate(true) // Bật Transfer Acceleration
+                .multipartEnabled(true)
+                .multipartConfiguration(MultipartConfiguration.builder()
+                        .minimumPartSizeInBytes(awsProperties.getS3().getMultipartPartSize())
+                        .apiCallBufferSizeInBytes(awsProperties.getS3().getMultipartBufferSize())
+                        .build())
                 .build();
     }
 
+    /**
+     * Thread pool đọc InputStream của MultipartFile và đẩy vào S3 khi upload nhiều file song song.
+     */
+    @Bean(name = "s3UploadExecutor", destroyMethod = "shutdown")
+    public ExecutorService s3UploadExecutor() {
+        return Executors.newFixedThreadPool(awsProperties.getS3().getUploadConcurrency(), runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("pwb-s3-upload-" + thread.threadId());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     /**
      * S3TransferManager là tiện ích cấp cao để tối ưu hóa việc upload/download,
      * tự động quản lý multipart và thực thi song song.
@@ -18,5 +18,8 @@ public class AwsProperties {
     public static class S3 {
         private String bucketName;
         private Long maxFileSize = 10L * 1024 * 1024; // 10MB
+        private Long multipartPartSize = 8L * 1024 * 1024; // 8MB mỗi part
+        private Long multipartBufferSize = 32L * 1024 * 1024; // buffer tối đa cho các part đang upload
+        private Integer uploadConcurrency = 4; // số file upload song song
     }
 }
\ No newline at end of file
@@ -6,7 +6,7 @@ import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
 
 @Configuration
 @RequiredArgsConstructor
@@ -14,23 +14,31 @@ public class BedrockConfiguration {
 
     private final AwsProperties awsProperties;
 
+    /**
+     * Client async để dùng InvokeModelWithResponseStream (streaming token)
+     */
     @Bean
-    public BedrockRuntimeClient bedrockRuntimeClient(
+    public BedrockRuntimeAsyncClient bedrockRuntimeAsyncClient(
             org.springframework.core.env.Environment env
     ) {
+        return BedrockRuntimeAsyncClient.builder()
+                .region(resolveRegion(env))
+                .credentialsProvider(credentialsProvider())
+                .build();
+    }
 
+    private Region resolveRegion(org.springframework.core.env.Environment env) {
         String region = env.getProperty("bedrock.region",
                 (awsProperties.getRegion() == null ? "ap-southeast-1" : awsProperties.getRegion()));
+        return Region.of(region);
+    }
 
-        // Tạo credentials từ AwsProperties
+    // Tạo credentials từ AwsProperties
+    private StaticCredentialsProvider credentialsProvider() {
         AwsBasicCredentials credentials = AwsBasicCredentials.create(
                 awsProperties.getAccessKeyId(),
                 awsProperties.getSecretAccessKey()
         );
-
-        return BedrockRuntimeClient.builder()
-                .region(Region.of(region))
-                .credentialsProvider(StaticCredentialsProvider.create(credentials))
-                .build();
+        return StaticCredentialsProvider.create(credentials);
     }
 }
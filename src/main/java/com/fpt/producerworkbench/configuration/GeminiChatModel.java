@@ -9,6 +9,9 @@ import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.model.Generation;
 import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
@@ -27,15 +30,15 @@ import java.util.Map;
 public class GeminiChatModel implements ChatModel {
     
     private final GeminiConfig geminiConfig;
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient geminiWebClient;
     private final ObjectMapper objectMapper;
     
     public GeminiChatModel(
             GeminiConfig geminiConfig,
-            WebClient.Builder webClientBuilder,
+            WebClient geminiWebClient,
             ObjectMapper objectMapper) {
         this.geminiConfig = geminiConfig;
-        this.webClientBuilder = webClientBuilder;
+        this.geminiWebClient = geminiWebClient;
         this.objectMapper = objectMapper;
         
         log.info("✅ GeminiChatModel initialized with model: {}", geminiConfig.getModel());
@@ -76,14 +79,29 @@ public class GeminiChatModel implements ChatModel {
     }
     
     /**
-     * Streaming chat completion (not implemented yet)
+     * Streaming chat completion via streamGenerateContent (SSE)
+     * Mỗi chunk Gemini trả về được chuyển thành 1 ChatResponse chứa phần text mới
      */
     @Override
     public Flux<ChatResponse> stream(Prompt prompt) {
-        throw new UnsupportedOperationException(
-            "Streaming not yet supported for Gemini ChatModel. " +
-            "Use call() method for synchronous responses."
-        );
+        String userMessage = extractUserMessage(prompt);
+        Map<String, Object> requestBody = buildGeminiRequest(userMessage);
+        String apiUrl = geminiConfig.buildStreamGenerateContentUrl();
+        
+        log.debug("🤖 Gemini ChatModel stream: {} chars", userMessage.length());
+        
+        return geminiWebClient.post()
+            .uri(apiUrl)
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .bodyValue(requestBody)
+            .retrieve()
+            .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+            .mapNotNull(ServerSentEvent::data)
+            .map(this::parseGeminiStreamChunk)
+            .filter(text -> !text.isEmpty())
+            .map(text -> new ChatResponse(List.of(
+                new Generation(new AssistantMessage(text))
+            )));
     }
     
     /**
@@ -131,25 +149,46 @@ public class GeminiChatModel implements ChatModel {
     }
     
     /**
-     * Call Gemini API via WebClient (same as existing services)
+     * Call Gemini API via shared pooled WebClient (API key + content type are default headers)
      */
     private String callGeminiApi(Map<String, Object> requestBody) {
-        WebClient webClient = webClientBuilder.build();
-        
         String apiUrl = geminiConfig.buildGenerateContentUrl();
         
         log.debug("   Calling Gemini API: {}", apiUrl);
         
-        return webClient.post()
+        return geminiWebClient.post()
             .uri(apiUrl)
-            .header("Content-Type", "application/json")
-            .header("X-goog-api-key", geminiConfig.getApiKey())
             .bodyValue(requestBody)
             .retrieve()
             .bodyToMono(String.class)
             .block();
     }
     
+    /**
+     * Parse 1 chunk streaming: chunk cuối có thể chỉ chứa finishReason/usage mà không có text
+     */
+    private String parseGeminiStreamChunk(String chunk) {
+        try {
+            JsonNode chunkJson = objectMapper.readTree(chunk);
+            
+            if (chunkJson.has("error")) {
+                String errorMessage = chunkJson.path("error").path("message").asText("Unknown error");
+                log.error("❌ Gemini stream error: {}", errorMessage);
+                throw new RuntimeException("Gemini API error: " + errorMessage);
+            }
+            
+            StringBuilder text = new StringBuilder();
+            chunkJson.path("candidates").path(0).path("content").path("parts")
+                .forEach(part -> text.append(part.path("text").asText("")));
+            return text.toString();
+            
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Invalid Gemini stream chunk: " + e.getMessage(), e);
+        }
+    }
+    
     /**
      * Parse Gemini API response (matches existing error handling)
      */
@@ -33,6 +33,15 @@ public class GeminiConfig {
                 baseUrl, model);
     }
     
+    /**
+     * Build URL for streaming text generation (Server-Sent Events)
+     * API key must be passed via X-goog-api-key header for security
+     */
+    public String buildStreamGenerateContentUrl() {
+        return String.format("%s/models/%s:streamGenerateContent?alt=sse",
+                baseUrl, model);
+    }
+    
     /**
      * Build URL for single embedding (WITHOUT API key)
      * API key must be passed via X-goog-api-key header for security
@@ -11,6 +11,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -42,6 +43,9 @@ public class GeminiEmbeddingConfig {
     @Slf4j
     public static class GeminiEmbeddingModel extends AbstractEmbeddingModel {
         
+        // Giới hạn số request trong 1 lần gọi batchEmbedContents
+        private static final int MAX_BATCH_SIZE = 100;
+        
         private final GeminiConfig geminiConfig;
         private final WebClient webClient = WebClient.builder().build();
 
@@ -56,10 +60,16 @@ public class GeminiEmbeddingConfig {
                 
                 log.debug("🔍 Generating embeddings for {} text(s)", texts.size());
                 
-                // Call Gemini API for each text
-                List<Embedding> embeddings = texts.stream()
-                        .map(this::generateEmbedding)
-                        .collect(Collectors.toList());
+                if (texts.size() == 1) {
+                    return new EmbeddingResponse(List.of(generateEmbedding(texts.get(0))));
+                }
+                
+                // Nhiều text -> batchEmbedContents (1 request cho tối đa MAX_BATCH_SIZE text)
+                List<Embedding> embeddings = new ArrayList<>(texts.size());
+                for (int start = 0; start < texts.size(); start += MAX_BATCH_SIZE) {
+                    List<String> chunk = texts.subList(start, Math.min(start + MAX_BATCH_SIZE, texts.size()));
+                    embeddings.addAll(generateEmbeddings(chunk, start));
+                }
                 
                 return new EmbeddingResponse(embeddings);
                 
@@ -80,6 +90,56 @@ public class GeminiEmbeddingConfig {
             return embedding.getOutput();
         }
 
+        /**
+         * Generate embeddings for multiple texts in 1 batchEmbedContents call
+         */
+        private List<Embedding> generateEmbeddings(List<String> texts, int indexOffset) {
+            try {
+                String model = "models/" + geminiConfig.getEmbeddingModel();
+                List<Map<String, Object>> requests = texts.stream()
+                        .map(text -> Map.<String, Object>of(
+                            "model", model,
+                            "content", Map.of("parts", List.of(Map.of("text", text)))
+                        ))
+                        .collect(Collectors.toList());
+                
+                @SuppressWarnings("unchecked")
+                Map<String, Object> response = webClient.post()
+                        .uri(geminiConfig.buildBatchEmbeddingUrl())
+                        .header("Content-Type", "application/json")
+                        .header("X-goog-api-key", geminiConfig.getApiKey())
+                        .bodyValue(Map.of("requests", requests))
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .block();
+                
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> embeddingList = (List<Map<String, Object>>) response.get("embeddings");
+                if (embeddingList == null || embeddingList.size() != texts.size()) {
+                    throw new IllegalStateException("Expected " + texts.size() + " embeddings but got "
+                            + (embeddingList == null ? 0 : embeddingList.size()));
+                }
+                
+                List<Embedding> embeddings = new ArrayList<>(embeddingList.size());
+                for (int i = 0; i < embeddingList.size(); i++) {
+                    @SuppressWarnings("unchecked")
+                    List<Double> values = (List<Double>) embeddingList.get(i).get("values");
+                    float[] floatValues = new float[values.size()];
+                    for (int j = 0; j < values.size(); j++) {
+                        floatValues[j] = values.get(j).floatValue();
+                    }
+                    embeddings.add(new Embedding(floatValues, indexOffset + i));
+                }
+                
+                log.debug("   ✅ Generated {} embeddings in 1 batch request", embeddings.size());
+                return embeddings;
+                
+            } catch (Exception e) {
+                log.error("❌ Failed to call Gemini batch embedding API: {}", e.getMessage(), e);
+                throw new RuntimeException("Failed to call Gemini batch embedding API", e);
+            }
+        }
+
         /**
          * Generate embedding for a single text using Gemini API
          */
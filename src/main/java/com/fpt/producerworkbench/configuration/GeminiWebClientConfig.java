@@ -0,0 +1,47 @@
+package com.fpt.producerworkbench.configuration;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * WebClient dùng chung cho các lời gọi Gemini REST API.
+ * Connection pool keep-alive tới generativelanguage.googleapis.com được tái sử dụng
+ * thay vì build WebClient mới (và bắt tay TLS lại) ở mỗi request.
+ */
+@Configuration
+public class GeminiWebClientConfig {
+
+    @Bean
+    public WebClient geminiWebClient(
+            WebClient.Builder webClientBuilder,
+            GeminiConfig geminiConfig,
+            @Value("${gemini.http.max-connections:50}") int maxConnections,
+            @Value("${gemini.http.response-timeout-seconds:60}") long responseTimeoutSeconds) {
+
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("gemini")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofSeconds(10))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+                .responseTimeout(Duration.ofSeconds(responseTimeoutSeconds));
+
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .defaultHeader("X-goog-api-key", geminiConfig.getApiKey())
+                .build();
+    }
+}
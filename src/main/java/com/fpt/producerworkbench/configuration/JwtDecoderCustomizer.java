@@ -1,13 +1,10 @@
 package com.fpt.producerworkbench.configuration;
 
-import com.fpt.producerworkbench.exception.AppException;
-import com.fpt.producerworkbench.exception.ErrorCode;
-import com.fpt.producerworkbench.service.JwtService;
-import com.nimbusds.jose.JOSEException;
-import com.nimbusds.jose.crypto.MACVerifier;
+import com.fpt.producerworkbench.service.impl.TokenRevocationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.BadJwtException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtException;
@@ -15,36 +12,75 @@ import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.spec.SecretKeySpec;
+import java.time.Instant;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Decode JWT một lần duy nhất (parse + verify MAC + validate exp bằng Nimbus),
+ * sau đó kiểm tra thu hồi qua {@link TokenRevocationService} (in-memory, không truy vấn DB).
+ * Token đã verify được cache cho tới khi hết hạn.
+ */
 @Component
 @RequiredArgsConstructor
 public class JwtDecoderCustomizer implements JwtDecoder {
 
+    private static final int MAX_CACHED_TOKENS = 10_000;
+
     @Value("${jwt.secret-key}")
     private String secretKey;
 
-    private final JwtService jwtService;
+    private final TokenRevocationService tokenRevocationService;
+
+    private final Map<String, Jwt> verifiedTokens = new ConcurrentHashMap<>();
 
-    private NimbusJwtDecoder nimbusJwtDecoder;
+    private volatile NimbusJwtDecoder nimbusJwtDecoder;
 
     @Override
     public Jwt decode(String token) throws JwtException {
-        var response = jwtService.verifyToken(token, false);
-        try {
-            boolean isValid = response.verify(new MACVerifier(secretKey.getBytes()));
-            if(!isValid) throw new JwtException("Invalid token");
-        } catch (JOSEException e) {
-            throw new AppException(ErrorCode.TOKEN_INVALID);
+        if (token == null || token.isBlank()) {
+            throw new BadJwtException("Empty token");
+        }
+
+        Jwt jwt = verifiedTokens.get(token);
+        if (jwt == null || isExpired(jwt)) {
+            if (jwt != null) {
+                verifiedTokens.remove(token);
+            }
+            jwt = getNimbusJwtDecoder().decode(token);
+            cache(token, jwt);
+        }
+
+        if (tokenRevocationService.isRevoked(jwt.getId())) {
+            verifiedTokens.remove(token);
+            throw new BadJwtException("Token has been revoked");
         }
 
+        return jwt;
+    }
+
+    private NimbusJwtDecoder getNimbusJwtDecoder() {
         if (Objects.isNull(nimbusJwtDecoder)) {
             SecretKeySpec secretKeySpec = new SecretKeySpec(secretKey.getBytes(), "HS512");
             nimbusJwtDecoder = NimbusJwtDecoder.withSecretKey(secretKeySpec)
                     .macAlgorithm(MacAlgorithm.HS512)
                     .build();
         }
+        return nimbusJwtDecoder;
+    }
+
+    private void cache(String token, Jwt jwt) {
+        if (verifiedTokens.size() >= MAX_CACHED_TOKENS) {
+            verifiedTokens.values().removeIf(this::isExpired);
+            if (verifiedTokens.size() >= MAX_CACHED_TOKENS) {
+                return;
+            }
+        }
+        verifiedTokens.put(token, jwt);
+    }
 
-        return nimbusJwtDecoder.decode(token);
+    private boolean isExpired(Jwt jwt) {
+        return jwt.getExpiresAt() != null && !jwt.getExpiresAt().isAfter(Instant.now());
     }
 }
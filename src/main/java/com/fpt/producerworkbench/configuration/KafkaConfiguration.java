@@ -0,0 +1,33 @@
+package com.fpt.producerworkbench.configuration;
+
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+@Configuration
+public class KafkaConfiguration {
+
+    /**
+     * Listener container factory cho batch listener (nhận List record mỗi lần poll)
+     * Kế thừa toàn bộ cấu hình spring.kafka.* (deserializer, ack-mode manual, ...)
+     * Lỗi được retry với backoff 0.5s, 1s, 2s; với BatchListenerFailedException chỉ record lỗi
+     * bị bỏ qua khi hết lượt retry, các record còn lại của batch được giao lại.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+
+        ExponentialBackOff backOff = new ExponentialBackOff(500L, 2.0);
+        backOff.setMaxElapsedTime(3_500L);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(backOff));
+        return factory;
+    }
+}
@@ -56,6 +56,8 @@ public class PrimaryDataSourceConfig {
         dataSource.setMaximumPoolSize(10);
         dataSource.setMinimumIdle(5);
         dataSource.setConnectionTimeout(30000);
+        // Gộp các INSERT batch thành multi-row INSERT (MySQL Connector/J)
+        dataSource.addDataSourceProperty("rewriteBatchedStatements", "true");
         
         return dataSource;
     }
@@ -75,6 +77,8 @@ public class PrimaryDataSourceConfig {
         properties.put("hibernate.dialect", "org.hibernate.dialect.MySQLDialect");
         properties.put("hibernate.show_sql", false);
         properties.put("hibernate.format_sql", true);
+        properties.put("hibernate.jdbc.batch_size", 50);
+        properties.put("hibernate.order_inserts", true);
         
         LocalContainerEntityManagerFactoryBean em = builder
                 .dataSource(dataSource)
@@ -1,6 +1,5 @@
 package com.fpt.producerworkbench.configuration;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -10,17 +9,20 @@ import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Redis-backed implementation of Spring AI ChatMemory interface
  * 
- * Stores conversation history in Redis with TTL for automatic cleanup.
+ * Stores each conversation as a Redis List (one compact JSON entry per message) with TTL.
+ * add() = RPUSH + LTRIM (bounded window) + EXPIRE in one pipeline, get(lastN) = LRANGE,
+ * so each AI turn costs O(1) regardless of history length.
  * Uses simple DTO to avoid Jackson polymorphic deserialization issues.
  */
 @Slf4j
@@ -29,39 +31,50 @@ public class RedisChatMemory implements ChatMemory {
     private final RedisTemplate<String, Object> redisTemplate;
     private final Duration ttl;
     private final String keyPrefix;
+    private final int maxMessages;
     private final ObjectMapper objectMapper;
     
     public RedisChatMemory(
             RedisTemplate<String, Object> redisTemplate,
             Duration ttl,
-            String keyPrefix) {
+            String keyPrefix,
+            int maxMessages,
+            ObjectMapper objectMapper) {
         this.redisTemplate = redisTemplate;
         this.ttl = ttl;
         this.keyPrefix = keyPrefix;
-        this.objectMapper = new ObjectMapper();
+        this.maxMessages = maxMessages;
+        this.objectMapper = objectMapper;
     }
     
     @Override
     public void add(String conversationId, List<Message> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
         String key = keyPrefix + conversationId;
         
         try {
-            // Get existing messages
-            List<Message> existing = get(conversationId, Integer.MAX_VALUE);
-            existing.addAll(messages);
-            
-            // Convert to DTOs
-            List<MessageDTO> dtos = existing.stream()
-                .map(MessageDTO::fromMessage)
-                .collect(Collectors.toList());
-            
-            // Serialize to JSON
-            String json = objectMapper.writeValueAsString(dtos);
+            // Serialize only the new messages
+            List<Object> entries = new ArrayList<>(messages.size());
+            for (Message message : messages) {
+                entries.add(objectMapper.writeValueAsString(MessageDTO.fromMessage(message)));
+            }
             
-            // Store in Redis with TTL
-            redisTemplate.opsForValue().set(key, json, ttl);
+            // Append, keep last maxMessages and refresh TTL in a single round trip
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    ops.opsForList().rightPushAll(key, entries);
+                    ops.opsForList().trim(key, -maxMessages, -1);
+                    ops.expire(key, ttl);
+                    return null;
+                }
+            });
             
-            log.debug("Saved {} messages to conversation: {}", existing.size(), conversationId);
+            log.debug("Appended {} messages to conversation: {}", messages.size(), conversationId);
         } catch (Exception e) {
             log.error("Failed to save messages for conversation: {}", conversationId, e);
             throw new RuntimeException("Failed to save chat memory", e);
@@ -70,27 +83,24 @@ public class RedisChatMemory implements ChatMemory {
     
     @Override
     public List<Message> get(String conversationId, int lastN) {
+        if (lastN <= 0) {
+            return new ArrayList<>();
+        }
         String key = keyPrefix + conversationId;
         
         try {
-            String json = (String) redisTemplate.opsForValue().get(key);
-            if (json == null) {
+            // Return last N messages (sliding window)
+            long start = lastN >= maxMessages ? 0 : -lastN;
+            List<Object> entries = redisTemplate.opsForList().range(key, start, -1);
+            if (entries == null || entries.isEmpty()) {
                 return new ArrayList<>();
             }
             
-            // Deserialize from JSON
-            List<MessageDTO> dtos = objectMapper.readValue(json, 
-                new TypeReference<List<MessageDTO>>() {});
-            
-            // Convert DTOs back to Messages
-            List<Message> allMessages = dtos.stream()
-                .map(MessageDTO::toMessage)
-                .collect(Collectors.toList());
-            
-            // Return last N messages (sliding window)
-            int size = allMessages.size();
-            int fromIndex = Math.max(0, size - lastN);
-            return allMessages.subList(fromIndex, size);
+            List<Message> result = new ArrayList<>(entries.size());
+            for (Object entry : entries) {
+                result.add(objectMapper.readValue(entry.toString(), MessageDTO.class).toMessage());
+            }
+            return result;
             
         } catch (Exception e) {
             log.error("Failed to retrieve messages for conversation: {}", conversationId, e);
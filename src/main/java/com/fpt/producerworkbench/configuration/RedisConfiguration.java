@@ -1,10 +1,21 @@
 package com.fpt.producerworkbench.configuration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fpt.producerworkbench.service.impl.LiveSessionMembershipCache;
+import com.fpt.producerworkbench.service.impl.SemanticResponseCache;
+import com.fpt.producerworkbench.service.impl.TrackCommentTimelineIndex;
+import com.fpt.producerworkbench.service.impl.TokenRevocationService;
+import com.fpt.producerworkbench.service.impl.WebSocketSessionRedisService;
+import com.fpt.producerworkbench.websocket.RedisBrokerBackplane;
 import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
@@ -28,14 +39,54 @@ public class RedisConfiguration {
     /**
      * Redis-backed ChatMemory for Spring AI conversations
      * TTL: 24 hours (matches WebSocket session TTL)
-     * Key prefix: "ai:chat:" (unique to avoid conflicts)
+     * Key prefix: "ai:chat:list:" (Redis List; old "ai:chat:" String keys expire by TTL)
+     * Window: last ai.chat.memory.max-messages messages per conversation
      */
     @Bean
-    public ChatMemory redisChatMemory(RedisTemplate<String, Object> redisTemplate) {
+    public ChatMemory redisChatMemory(
+            RedisTemplate<String, Object> redisTemplate,
+            ObjectMapper objectMapper,
+            @Value("${ai.chat.memory.max-messages:100}") int maxMessages) {
         return new RedisChatMemory(
             redisTemplate,
             Duration.ofHours(24),
-            "ai:chat:"
+            "ai:chat:list:",
+            maxMessages,
+            objectMapper
         );
     }
+
+    /**
+     * Redis pub/sub listener container
+     * Channel "jwt:revoked": đồng bộ danh sách token bị thu hồi giữa các node
+     * Channel "presence:changed": invalidate near-cache trạng thái online của user
+     * Channel "live-session:membership:changed": invalidate cache thành viên live session
+     * Channel "track-comment:timeline:changed": invalidate timeline index comment của track/Client Room
+     * Channel "ws:broker": fan-out STOMP giữa các node (chỉ khi websocket.broker.mode=redis)
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            TokenRevocationService tokenRevocationService,
+            WebSocketSessionRedisService webSocketSessionRedisService,
+            LiveSessionMembershipCache liveSessionMembershipCache,
+            SemanticResponseCache semanticResponseCache,
+            TrackCommentTimelineIndex trackCommentTimelineIndex,
+            ObjectProvider<RedisBrokerBackplane> brokerBackplane) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(tokenRevocationService,
+                new ChannelTopic(TokenRevocationService.REVOCATION_CHANNEL));
+        container.addMessageListener(webSocketSessionRedisService,
+                new ChannelTopic(WebSocketSessionRedisService.PRESENCE_CHANNEL));
+        container.addMessageListener(liveSessionMembershipCache,
+                new ChannelTopic(LiveSessionMembershipCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(semanticResponseCache,
+                new ChannelTopic(SemanticResponseCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(trackCommentTimelineIndex,
+                new ChannelTopic(TrackCommentTimelineIndex.INVALIDATION_CHANNEL));
+        brokerBackplane.ifAvailable(backplane -> container.addMessageListener(backplane,
+                new ChannelTopic(RedisBrokerBackplane.BACKPLANE_CHANNEL)));
+        return container;
+    }
 }
@@ -1,6 +1,7 @@
 package com.fpt.producerworkbench.controller;
 
 import com.fpt.producerworkbench.dto.request.AIContextRequest;
+import com.fpt.producerworkbench.dto.response.AIContextStreamEvent;
 import com.fpt.producerworkbench.dto.response.AIContextualResponse;
 import com.fpt.producerworkbench.dto.response.ApiResponse;
 import com.fpt.producerworkbench.dto.response.ConversationHistoryResponse;
@@ -17,8 +18,11 @@ import com.fpt.producerworkbench.utils.SecurityUtils;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -87,6 +91,37 @@ public class AIContextController {
                 .build();
     }
 
+    /**
+     * Streaming AI guidance (Server-Sent Events)
+     * POST /api/ai/context/guidance/stream
+     * 
+     * Events: meta (intent + guides) -> token (đoạn text mới) -> follow-up (câu hỏi gợi ý) -> done
+     * Request body giống /guidance
+     */
+    @PostMapping(value = "/guidance/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<AIContextStreamEvent>> streamGuidance(
+            @Valid @RequestBody AIContextRequest request,
+            Authentication authentication) {
+        
+        Long userId = securityUtils.getCurrentUserId();
+        log.info("📡 Streaming query from user {}: {}", userId, request.getQuery());
+        
+        request.setSessionId(generateSessionId(userId));
+        
+        if (request.getUserRole() == null && authentication != null) {
+            String role = authentication.getAuthorities().stream()
+                    .findFirst()
+                    .map(auth -> auth.getAuthority())
+                    .orElse("USER");
+            request.setUserRole(role);
+        }
+        
+        return aiContextService.streamContextualGuidance(request)
+                .map(event -> ServerSentEvent.builder(event)
+                        .event(event.getType())
+                        .build());
+    }
+
     /**
      * [PUBLIC - Testing] Quick help - Simplified version
      * GET /api/ai/context/quick-help?query=...
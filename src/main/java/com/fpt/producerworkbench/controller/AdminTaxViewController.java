@@ -1,11 +1,14 @@
 package com.fpt.producerworkbench.controller;
 
 import com.fpt.producerworkbench.common.PayoutSource;
+import com.fpt.producerworkbench.common.TaxPeriodType;
 import com.fpt.producerworkbench.dto.response.ApiResponse;
 import com.fpt.producerworkbench.dto.response.PageResponse;
 import com.fpt.producerworkbench.dto.response.AdminTaxOverviewResponse;
 import com.fpt.producerworkbench.dto.response.AdminTaxPayoutResponse;
+import com.fpt.producerworkbench.dto.response.TaxSummaryJobStatusResponse;
 import com.fpt.producerworkbench.service.AdminTaxService;
+import com.fpt.producerworkbench.service.TaxSummaryJobService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -19,6 +22,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/admin/taxes")
@@ -26,6 +30,7 @@ import java.time.LocalDate;
 public class AdminTaxViewController {
 
     private final AdminTaxService adminTaxService;
+    private final TaxSummaryJobService taxSummaryJobService;
 
     @GetMapping("/overview")
     public ResponseEntity<ApiResponse<AdminTaxOverviewResponse>> getOverview(
@@ -45,6 +50,26 @@ public class AdminTaxViewController {
                 .build());
     }
 
+    @GetMapping("/summary-jobs")
+    public ResponseEntity<ApiResponse<List<TaxSummaryJobStatusResponse>>> getSummaryJobs() {
+        return ResponseEntity.ok(ApiResponse.<List<TaxSummaryJobStatusResponse>>builder()
+                .result(taxSummaryJobService.getJobStatuses())
+                .build());
+    }
+
+    /**
+     * Chạy lại job tổng hợp của 1 kỳ (vd. có payout đến muộn). Job chạy nền, theo dõi qua /summary-jobs.
+     */
+    @PostMapping("/summary-jobs/rerun")
+    public ResponseEntity<ApiResponse<Void>> rerunSummaryJob(
+            @RequestParam("periodType") TaxPeriodType periodType,
+            @RequestParam("year") int year,
+            @RequestParam(value = "period", required = false) Integer period
+    ) {
+        taxSummaryJobService.rerunSummaryJob(periodType, year, period);
+        return ResponseEntity.accepted().body(ApiResponse.<Void>builder().build());
+    }
+
     @GetMapping("/payouts")
     public ResponseEntity<ApiResponse<PageResponse<AdminTaxPayoutResponse>>> getPayouts(
             @RequestParam(value = "from", required = false)
@@ -6,6 +6,7 @@ import com.fpt.producerworkbench.dto.response.ExplanationResponse;
 import com.fpt.producerworkbench.exception.AppException;
 import com.fpt.producerworkbench.exception.ErrorCode;
 import com.fpt.producerworkbench.service.AiExplanationService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
@@ -52,7 +53,7 @@ public class AiExplanationController {
      */
     @PostMapping
     public ApiResponse<ExplanationResponse> getExplanation(
-            @RequestBody ExplanationRequest request) {
+            @Valid @RequestBody ExplanationRequest request) {
         
         log.info("📝 Received explanation request for: '{}'", request.getHighlightedText());
         
@@ -5,6 +5,7 @@ import com.fpt.producerworkbench.common.UserRole;
 import com.fpt.producerworkbench.dto.request.ProjectCreateRequest;
 import com.fpt.producerworkbench.dto.request.UpdateProjectMemberRoleRequest;
 import com.fpt.producerworkbench.dto.response.ApiResponse;
+import com.fpt.producerworkbench.dto.response.CursorPageResponse;
 import com.fpt.producerworkbench.dto.response.ProjectDetailResponse;
 import com.fpt.producerworkbench.dto.response.ProjectExpenseChartResponse;
 import com.fpt.producerworkbench.dto.response.ProjectExpenseDetailResponse;
@@ -125,6 +126,34 @@ public class ProjectController {
                 .build());
     }
 
+    /**
+     * "My Projects" dạng cursor cho infinite scroll (sắp xếp mới nhất trước).
+     * Trang đầu không truyền cursor; các trang sau truyền nextCursor của trang trước.
+     */
+    @GetMapping("/my-projects/cursor")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<CursorPageResponse<ProjectSummaryResponse>>> getMyProjectsByCursor(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) ProjectStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+
+        if (size <= 0 || size > 100) {
+            throw new AppException(ErrorCode.INVALID_PARAMETER_FORMAT, "Size phải từ 1 đến 100");
+        }
+
+        User currentUser = userRepository.findByEmail(jwt.getSubject())
+                .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+
+        CursorPageResponse<ProjectSummaryResponse> myProjects =
+                myProjectsService.getMyProjectsByCursor(currentUser, search, status, cursor, size);
+
+        return ResponseEntity.ok(ApiResponse.<CursorPageResponse<ProjectSummaryResponse>>builder()
+                .result(myProjects)
+                .build());
+    }
+
     @GetMapping("/projects/{projectId}/members")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<ApiResponse<ProjectMembersViewResponse>> getProjectMembers(
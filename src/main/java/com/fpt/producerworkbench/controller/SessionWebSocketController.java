@@ -2,14 +2,15 @@ package com.fpt.producerworkbench.controller;
 
 import com.fpt.producerworkbench.dto.websocket.*;
 import com.fpt.producerworkbench.entity.LiveSession;
-import com.fpt.producerworkbench.entity.User;
 import com.fpt.producerworkbench.exception.AppException;
 import com.fpt.producerworkbench.exception.ErrorCode;
 import com.fpt.producerworkbench.repository.LiveSessionRepository;
-import com.fpt.producerworkbench.repository.SessionParticipantRepository;
-import com.fpt.producerworkbench.repository.UserRepository;
 import com.fpt.producerworkbench.service.JoinRequestService;
 import com.fpt.producerworkbench.service.WebSocketService;
+import com.fpt.producerworkbench.service.impl.LiveSessionActivityTracker;
+import com.fpt.producerworkbench.service.impl.LiveSessionMembershipCache;
+import com.fpt.producerworkbench.service.impl.PlaybackSyncEngine;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
@@ -31,10 +32,11 @@ import java.util.UUID;
 public class SessionWebSocketController {
 
     private final WebSocketService webSocketService;
-    private final UserRepository userRepository;
     private final JoinRequestService joinRequestService;
     private final LiveSessionRepository sessionRepository;
-    private final SessionParticipantRepository participantRepository;
+    private final LiveSessionMembershipCache membershipCache;
+    private final PlaybackSyncEngine playbackSyncEngine;
+    private final LiveSessionActivityTracker activityTracker;
 
     /**
      * Handle chat messages
@@ -49,6 +51,7 @@ public class SessionWebSocketController {
 
         log.info("📨 Received chat message in session {}", sessionId);
 
+        Timer.Sample sample = Timer.start();
         try {
             // ✅ Get userId from session attributes (stored during CONNECT)
             Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
@@ -59,28 +62,30 @@ public class SessionWebSocketController {
                 return;
             }
 
-            // ✅ Get user from database
-            User sender = userRepository.findById(userId)
-                    .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+            // ✅ Get user from membership cache (DB chỉ khi cache miss)
+            LiveSessionMembershipCache.UserProfile sender = membershipCache.getUserProfile(userId);
 
             // Build complete message
             ChatMessage completeMessage = ChatMessage.builder()
                     .messageId(UUID.randomUUID().toString())
                     .sessionId(sessionId)
-                    .senderId(sender.getId())
-                    .senderName(sender.getFirstName() + " " + sender.getLastName())
-                    .senderAvatarUrl(sender.getAvatarUrl())
+                    .senderId(sender.userId())
+                    .senderName(sender.displayName())
+                    .senderAvatarUrl(sender.avatarUrl())
                     .content(message.getContent())
                     .type(message.getType() != null ? message.getType() : "TEXT")
                     .timestamp(LocalDateTime.now())
                     .build();
 
             webSocketService.broadcastChatMessage(sessionId, completeMessage);
+            activityTracker.touch(sessionId);
 
-            log.info("✅ Chat message broadcasted from {} (ID: {})", sender.getEmail(), userId);
+            log.info("✅ Chat message broadcasted from user {}", userId);
 
         } catch (Exception e) {
             log.error("❌ Error handling chat message: {}", e.getMessage(), e);
+        } finally {
+            sample.stop(membershipCache.frameTimer("chat"));
         }
     }
 
@@ -101,6 +106,7 @@ public class SessionWebSocketController {
 
         log.info("🎵 Received playback event in session {}: {} from user", sessionId, event.getAction());
 
+        Timer.Sample sample = Timer.start();
         try {
             Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
 
@@ -116,19 +122,14 @@ public class SessionWebSocketController {
                 return;
             }
 
-            // Validate user exists
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
-
-            // Validate session exists
-            LiveSession session = sessionRepository.findById(sessionId)
-                    .orElseThrow(() -> new AppException(ErrorCode.SESSION_NOT_FOUND));
+            // Validate user + session qua membership cache (DB chỉ khi cache miss)
+            LiveSessionMembershipCache.UserProfile user = membershipCache.getUserProfile(userId);
+            LiveSessionMembershipCache.Membership membership = membershipCache.getMembership(sessionId);
 
             // Check if user is participant in the session
-            boolean isParticipant = participantRepository.existsBySessionIdAndUserId(sessionId, userId);
-            boolean isHost = session.isHost(userId);
+            boolean isHost = membership.isHost(userId);
 
-            if (!isParticipant && !isHost) {
+            if (!membership.isMember(userId)) {
                 log.warn("⚠️ User {} attempted to control playback but is not a participant in session {}", userId, sessionId);
                 webSocketService.sendToUser(userId, "/queue/error",
                         com.fpt.producerworkbench.dto.websocket.SystemNotification.builder()
@@ -144,10 +145,12 @@ public class SessionWebSocketController {
             // - Nếu action = "PLAY" và có fileId/fileUrl mới (chọn track mới) → chỉ host được
             // - Nếu action = "PLAY"/"PAUSE"/"STOP" mà không đổi track → tất cả participants đều được
             
+            // Track hiện tại lấy từ membership cache (invalidate trên toàn cluster khi DB thay đổi),
+            // không lấy từ PlaybackSyncEngine vì trạng thái đó chỉ có trên node local
+            Long currentFileId = membership.currentPlayingFileId();
             boolean isSelectingNewTrack = "PLAY".equalsIgnoreCase(event.getAction()) 
                     && event.getFileId() != null 
-                    && (session.getCurrentPlayingFileId() == null 
-                            || !event.getFileId().equals(session.getCurrentPlayingFileId()));
+                    && (currentFileId == null || !event.getFileId().equals(currentFileId));
 
             if (isSelectingNewTrack && !isHost) {
                 log.warn("⚠️ User {} attempted to select new track but is not host of session {}", userId, sessionId);
@@ -162,21 +165,19 @@ public class SessionWebSocketController {
             }
 
             // Set user info in event
-            event.setTriggeredByUserId(user.getId());
-            event.setTriggeredByUserName(user.getFirstName() + " " + user.getLastName());
-
-            // Update current playing file ID if selecting new track
-            if (isSelectingNewTrack && event.getFileId() != null) {
-                session.setCurrentPlayingFileId(event.getFileId());
-                session.setPlaybackStartedAt(java.time.LocalDateTime.now());
-                sessionRepository.save(session);
-                log.info("✅ Updated current playing file ID to {} in session {}", event.getFileId(), sessionId);
+            event.setTriggeredByUserId(user.userId());
+            event.setTriggeredByUserName(user.displayName());
+
+            // Track mới: cập nhật cache local, DB được ghi write-behind bởi PlaybackSyncEngine
+            if (isSelectingNewTrack) {
+                membershipCache.updateCurrentTrack(sessionId, event.getFileId());
+                log.info("✅ Current playing file ID -> {} in session {}", event.getFileId(), sessionId);
             }
 
-            // Broadcast to all participants in the session
-            webSocketService.broadcastPlaybackEvent(sessionId, event);
-            log.info("✅ Playback event broadcasted by {} (host: {}): {}", 
-                    user.getEmail(), isHost, event.getAction());
+            // Gộp vào trạng thái phát của phòng, broadcast ở tick kế tiếp
+            playbackSyncEngine.submit(sessionId, event, isSelectingNewTrack);
+            activityTracker.touch(sessionId);
+            log.debug("Playback event accepted from user {} (host: {}): {}", userId, isHost, event.getAction());
 
         } catch (AppException e) {
             log.error("❌ AppException handling playback event: {}", e.getMessage());
@@ -192,6 +193,8 @@ public class SessionWebSocketController {
             }
         } catch (Exception e) {
             log.error("❌ Error handling playback event: {}", e.getMessage(), e);
+        } finally {
+            sample.stop(membershipCache.frameTimer("playback"));
         }
     }
 
@@ -218,6 +221,20 @@ public class SessionWebSocketController {
 
         log.info("🔌 User {} connected to session: {}", email, sessionId);
 
+        // Nạp trước membership cache để các frame playback/chat sau đó không phải truy vấn DB
+        try {
+            membershipCache.getMembership(sessionId);
+        } catch (AppException e) {
+            log.warn("⚠️ Cannot warm membership cache for session {}: {}", sessionId, e.getMessage());
+        }
+
+        // Người vào sau nhận ngay trạng thái phát hiện tại của phòng
+        Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
+        PlaybackEvent snapshot = playbackSyncEngine.getSnapshot(sessionId);
+        if (userId != null && snapshot != null) {
+            webSocketService.sendToUser(userId, "/queue/playback-snapshot", snapshot);
+        }
+
         return "Connected to session: " + sessionId;
     }
 
@@ -247,6 +264,7 @@ public class SessionWebSocketController {
             @Payload String action,
             SimpMessageHeaderAccessor headerAccessor) {  // ✅ Changed
 
+        Timer.Sample sample = Timer.start();
         try {
             Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
 
@@ -255,19 +273,21 @@ public class SessionWebSocketController {
                 return;
             }
 
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+            LiveSessionMembershipCache.UserProfile user = membershipCache.getUserProfile(userId);
 
             webSocketService.broadcastParticipantEvent(sessionId,
                     com.fpt.producerworkbench.dto.websocket.ParticipantEvent.builder()
                             .action("TYPING_" + action.toUpperCase())
-                            .userId(user.getId())
-                            .userName(user.getFirstName() + " " + user.getLastName())
+                            .userId(user.userId())
+                            .userName(user.displayName())
                             .build()
             );
+            activityTracker.touch(sessionId);
 
         } catch (Exception e) {
             log.error("❌ Error handling typing indicator: {}", e.getMessage(), e);
+        } finally {
+            sample.stop(membershipCache.frameTimer("typing"));
         }
 
     }
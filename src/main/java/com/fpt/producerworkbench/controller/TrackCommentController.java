@@ -6,6 +6,7 @@ import com.fpt.producerworkbench.dto.request.TrackCommentUpdateRequest;
 import com.fpt.producerworkbench.dto.response.ApiResponse;
 import com.fpt.producerworkbench.dto.response.TrackCommentResponse;
 import com.fpt.producerworkbench.dto.response.TrackCommentStatisticsResponse;
+import com.fpt.producerworkbench.dto.response.TrackCommentTimelineResponse;
 import com.fpt.producerworkbench.exception.AppException;
 import com.fpt.producerworkbench.exception.ErrorCode;
 import com.fpt.producerworkbench.service.TrackCommentService;
@@ -30,6 +31,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class TrackCommentController {
 
+    private static final int MAX_TIMELINE_BUCKETS = 1000;
+
     private final TrackCommentService trackCommentService;
 
     /**
@@ -248,6 +251,33 @@ public class TrackCommentController {
                 .build();
     }
 
+    /**
+     * Lấy timeline comment cho player trong 1 lần gọi:
+     * số comment theo bucket trên toàn bộ track (vẽ marker) và comment trong khoảng [from, to) (prefetch)
+     */
+    @GetMapping("/tracks/{trackId}/comments/timeline")
+    public ApiResponse<TrackCommentTimelineResponse> getCommentTimeline(
+            @PathVariable Long trackId,
+            @RequestParam(defaultValue = "100") int buckets,
+            @RequestParam(required = false) Integer from,
+            @RequestParam(required = false) Integer to,
+            Authentication authentication) {
+
+        if (trackId == null || trackId <= 0) {
+            throw new AppException(ErrorCode.INVALID_PARAMETER_FORMAT, "Track ID không hợp lệ");
+        }
+        validateTimelineParams(buckets, from, to);
+
+        TrackCommentTimelineResponse response = trackCommentService.getCommentTimeline(
+                authentication, trackId, buckets, from, to);
+
+        return ApiResponse.<TrackCommentTimelineResponse>builder()
+                .code(HttpStatus.OK.value())
+                .message("Lấy timeline comment thành công")
+                .result(response)
+                .build();
+    }
+
     // ==================== Client Room Comments ====================
 
     /**
@@ -353,6 +383,32 @@ public class TrackCommentController {
                 .build();
     }
 
+    /**
+     * Lấy timeline comment trong Client Room cho player
+     */
+    @GetMapping("/client-deliveries/{deliveryId}/comments/timeline")
+    public ApiResponse<TrackCommentTimelineResponse> getClientRoomCommentTimeline(
+            @PathVariable Long deliveryId,
+            @RequestParam(defaultValue = "100") int buckets,
+            @RequestParam(required = false) Integer from,
+            @RequestParam(required = false) Integer to,
+            Authentication authentication) {
+
+        if (deliveryId == null || deliveryId <= 0) {
+            throw new AppException(ErrorCode.INVALID_PARAMETER_FORMAT, "Delivery ID không hợp lệ");
+        }
+        validateTimelineParams(buckets, from, to);
+
+        TrackCommentTimelineResponse response = trackCommentService.getClientRoomCommentTimeline(
+                authentication, deliveryId, buckets, from, to);
+
+        return ApiResponse.<TrackCommentTimelineResponse>builder()
+                .code(HttpStatus.OK.value())
+                .message("Lấy timeline comment trong Client Room thành công")
+                .result(response)
+                .build();
+    }
+
     /**
      * Lấy thống kê comment trong Client Room theo status
      */
@@ -374,7 +430,17 @@ public class TrackCommentController {
                 .result(response)
                 .build();
     }
-}
-
-
 
+    private void validateTimelineParams(int buckets, Integer from, Integer to) {
+        if (buckets <= 0 || buckets > MAX_TIMELINE_BUCKETS) {
+            throw new AppException(ErrorCode.INVALID_PARAMETER_FORMAT,
+                    "Số bucket phải từ 1 đến " + MAX_TIMELINE_BUCKETS);
+        }
+        if ((from == null) != (to == null)) {
+            throw new AppException(ErrorCode.INVALID_PARAMETER_FORMAT, "Cần truyền cả from và to");
+        }
+        if (from != null && (from < 0 || to <= from)) {
+            throw new AppException(ErrorCode.INVALID_PARAMETER_FORMAT, "Khoảng thời gian không hợp lệ");
+        }
+    }
+}
@@ -17,6 +17,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -128,18 +129,30 @@ public class UserGuideController {
     }
 
     /**
-     * [PUBLIC - Testing] Reindex all guides
+     * Progress of the current (or last) reindex / batch index job
+     * GET /api/user-guides/reindex-all/progress
+     */
+    @GetMapping("/reindex-all/progress")
+    public ApiResponse<Map<String, Object>> reindexProgress() {
+        return ApiResponse.<Map<String, Object>>builder()
+                .message("Reindex progress")
+                .result(userGuideIndexingService.getReindexProgress())
+                .build();
+    }
+
+    /**
+     * [PUBLIC - Testing] Reindex all guides (background job, theo dõi qua /reindex-all/progress)
      * POST /api/user-guides/reindex-all
      */
     @PostMapping("/reindex-all")
-    public ApiResponse<Map<String, Object>> reindexAll() {
+    public ResponseEntity<ApiResponse<Map<String, Object>>> reindexAll() {
         log.info("Reindexing all guides");
         Map<String, Object> result = userGuideIndexingService.reindexAllGuides();
         
-        return ApiResponse.<Map<String, Object>>builder()
-                .message("Reindexing completed")
+        return ResponseEntity.accepted().body(ApiResponse.<Map<String, Object>>builder()
+                .message("Reindexing started")
                 .result(result)
-                .build();
+                .build());
     }
 
     /**
@@ -1,5 +1,7 @@
 package com.fpt.producerworkbench.dto.request;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,11 +26,16 @@ public class ExplanationRequest {
      */
     private String contextText;
     
+    public static final int DEFAULT_RELATED_TERMS = 3;
+    public static final int MAX_RELATED_TERMS = 10;
+
     /**
-     * Số lượng related terms cần trả về (default 3)
+     * Số lượng related terms cần trả về (default 3, tối đa 10)
      */
+    @Min(value = 1, message = "maxRelatedTerms must be at least 1")
+    @Max(value = MAX_RELATED_TERMS, message = "maxRelatedTerms must not exceed 10")
     @Builder.Default
-    private Integer maxRelatedTerms = 3;
+    private Integer maxRelatedTerms = DEFAULT_RELATED_TERMS;
     
     /**
      * Ngôn ngữ explanation (default: vi)
@@ -0,0 +1,46 @@
+package com.fpt.producerworkbench.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * 1 event SSE của AI guidance dạng streaming
+ * - meta: intent + guides (gửi trước token đầu tiên)
+ * - token: đoạn text mới của câu trả lời
+ * - follow-up: 1 câu hỏi gợi ý (parse dần từ section FOLLOW_UP)
+ * - done: kết thúc stream, kèm timing
+ * - error: stream bị lỗi
+ */
+@Setter
+@Getter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AIContextStreamEvent {
+
+    public static final String TYPE_META = "meta";
+    public static final String TYPE_TOKEN = "token";
+    public static final String TYPE_FOLLOW_UP = "follow-up";
+    public static final String TYPE_DONE = "done";
+    public static final String TYPE_ERROR = "error";
+
+    String type;
+
+    // token: đoạn text mới, follow-up: câu hỏi, error: thông báo lỗi
+    String text;
+
+    // meta
+    String intent;
+    List<UserGuideResponse> relevantGuides;
+    String model;
+
+    // done
+    List<String> suggestedActions;
+    Long timeToFirstTokenMs;
+    Long processingTimeMs;
+}
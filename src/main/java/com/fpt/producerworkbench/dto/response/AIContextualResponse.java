@@ -4,10 +4,11 @@ import lombok.*;
 import lombok.experimental.FieldDefaults;
 
 import java.util.List;
+import java.util.Map;
 
 @Setter
 @Getter
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -33,5 +34,6 @@ public class AIContextualResponse {
 
     // Processing metadata
     Long processingTimeMs;
+    Map<String, Long> stageTimingsMs; // intent, retrieval, generation, memory
     String model; // e.g., "gemini-1.5-flash"
 }
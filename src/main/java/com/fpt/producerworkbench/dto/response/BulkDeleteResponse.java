@@ -0,0 +1,16 @@
+package com.fpt.producerworkbench.dto.response;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@Builder
+public class BulkDeleteResponse {
+    private String prefix;
+    private int deletedCount;
+    private Map<String, String> failedKeys; // key -> lỗi từ S3
+}
@@ -11,7 +11,7 @@ import java.util.List;
  * Response chứa explanation được generate bởi RAG system
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ExplanationResponse {
@@ -6,7 +6,7 @@ import lombok.Getter;
 import java.util.Set;
 
 @Getter
-@Builder
+@Builder(toBuilder = true)
 public class ProducerSummaryResponse {
     private Long userId;
     private String fullName;
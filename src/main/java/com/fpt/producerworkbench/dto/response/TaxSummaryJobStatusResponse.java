@@ -0,0 +1,27 @@
+package com.fpt.producerworkbench.dto.response;
+
+import com.fpt.producerworkbench.common.TaxPeriodType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaxSummaryJobStatusResponse {
+    private TaxPeriodType periodType;
+    private int year;
+    private Integer period; // tháng hoặc quý, null với YEARLY
+    private String status; // RUNNING, COMPLETED, FAILED
+    private long lastUserId; // checkpoint: user cuối cùng đã xử lý xong
+    private long processedCount;
+    private long succeededCount;
+    private long failedCount;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private double usersPerSecond;
+}
@@ -0,0 +1,62 @@
+package com.fpt.producerworkbench.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * Timeline comment của track cho player: số comment theo từng bucket thời gian (để vẽ marker trên waveform)
+ * và danh sách comment gốc trong khoảng [from, to) (để prefetch đoạn sắp phát)
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TrackCommentTimelineResponse {
+
+    /**
+     * ID của track
+     */
+    Long trackId;
+
+    /**
+     * ID của ClientDelivery (chỉ có với Client Room)
+     */
+    Long clientDeliveryId;
+
+    /**
+     * Độ dài dùng để chia bucket (giây) - duration của track, hoặc timestamp lớn nhất nếu track chưa có duration
+     */
+    Integer duration;
+
+    /**
+     * Độ rộng mỗi bucket (giây)
+     */
+    Double bucketSeconds;
+
+    /**
+     * Số comment gốc có timestamp trong mỗi bucket, bucket i = [i * bucketSeconds, (i + 1) * bucketSeconds)
+     */
+    List<Integer> bucketCounts;
+
+    /**
+     * Tổng số comment gốc gắn timestamp
+     */
+    Integer totalComments;
+
+    /**
+     * Khoảng thời gian [from, to) của danh sách comments (giây)
+     */
+    Integer from;
+    Integer to;
+
+    /**
+     * Comment gốc trong khoảng [from, to), sắp xếp theo timestamp
+     */
+    List<TrackCommentResponse> comments;
+}
@@ -28,6 +28,7 @@ public class JoinRequest implements Serializable {
     private LocalDateTime requestedAt;
     private LocalDateTime expiresAt; // Auto-expire sau 5 phút
     private String wsSessionId; // WebSocket session ID để track connection
+    private Long hostId; // Host của session, cache để gửi thông báo không cần truy vấn DB
     
     // ✅ For auto-approval (when user has joined before)
     private Boolean approved; // true if auto-approved (user has history)
@@ -6,7 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class PlaybackEvent {
@@ -29,4 +29,6 @@ public class PlaybackEvent {
     private Long trackId; // Alias for fileId
     private String trackName; // Alias for fileName
     private String hlsPlaybackUrl; // Alias for fileUrl
+
+    private Long serverTimestamp; // Epoch millis (server) tại thời điểm position hợp lệ
 }
@@ -3,6 +3,7 @@ package com.fpt.producerworkbench.entity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
@@ -16,7 +17,10 @@ import java.util.Date;
 @NoArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
-@Table(name = "invalidated_tokens")
+@Table(name = "invalidated_tokens", indexes = {
+        @Index(name = "idx_invalidated_tokens_expiry_time", columnList = "expiry_time"),
+        @Index(name = "idx_invalidated_tokens_revoked_at", columnList = "revoked_at")
+})
 public class InvalidatedToken {
 
     @Id
@@ -24,4 +28,8 @@ public class InvalidatedToken {
 
     @Column(name = "expiry_time", nullable = false)
     Date expiryTime;
+
+    // Thời điểm thu hồi, dùng làm watermark khi đồng bộ lại danh sách thu hồi in-memory
+    @Column(name = "revoked_at")
+    Date revokedAt;
 }
@@ -13,7 +13,9 @@ import java.time.LocalDateTime;
 import java.util.Date;
 
 @Entity
-@Table(name = "live_sessions")
+@Table(name = "live_sessions", indexes = {
+        @Index(name = "idx_live_sessions_status_activity", columnList = "status, last_activity_time")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -6,7 +6,10 @@ import lombok.*;
 import java.util.Set;
 
 @Entity
-@Table(name = "portfolios")
+@Table(name = "portfolios", indexes = {
+        // Prefilter bounding box khi tìm producer theo vị trí
+        @Index(name = "idx_portfolios_lat_lon", columnList = "latitude, longitude")
+})
 @Getter
 @Setter
 @Builder
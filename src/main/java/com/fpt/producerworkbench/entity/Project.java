@@ -10,7 +10,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "projects")
+@Table(name = "projects", indexes = {
+        // "My Projects": project do user tạo, keyset theo (created_at, id)
+        @Index(name = "idx_projects_creator_created", columnList = "creator_id, created_at, id")
+})
 @Getter
 @Setter
 @Builder
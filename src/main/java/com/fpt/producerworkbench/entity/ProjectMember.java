@@ -7,7 +7,10 @@ import lombok.*;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "project_members")
+@Table(name = "project_members", indexes = {
+        // Covering index cho lookup membership của user trong "My Projects" (không cần đọc bảng)
+        @Index(name = "idx_project_members_user_project_role", columnList = "user_id, project_id, project_role")
+})
 @Getter
 @Setter
 @Builder
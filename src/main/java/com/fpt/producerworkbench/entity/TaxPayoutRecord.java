@@ -16,7 +16,10 @@ import com.fpt.producerworkbench.common.PayoutStatus;
  * Mỗi lần user nhận tiền vào balance phải được ghi nhận
  */
 @Entity
-@Table(name = "tax_payout_records")
+@Table(name = "tax_payout_records", indexes = {
+    // user_id đứng trước để keyset (ORDER BY user_id) đi theo index, payout_date lọc ngay trên index
+    @Index(name = "idx_tax_payout_user_date", columnList = "user_id, payout_date")
+})
 @Getter
 @Setter
 @Builder
@@ -5,12 +5,16 @@ import com.fpt.producerworkbench.common.TrackStatus;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.util.Date;
+
 /**
  * Entity đại diện cho một sản phẩm nhạc (Track) trong milestone
  * Dùng cho phòng nội bộ giữa Owner và COLLABORATOR
  */
 @Entity
-@Table(name = "tracks")
+@Table(name = "tracks", indexes = {
+        @Index(name = "idx_tracks_processing_status", columnList = "processing_status")
+})
 @Getter
 @Setter
 @Builder
@@ -113,6 +117,18 @@ public class Track extends AbstractEntity<Long> {
     @Column(name = "error_message", columnDefinition = "TEXT")
     private String errorMessage;
 
+    /**
+     * Node đang giữ quyền xử lý audio (null nếu chưa node nào nhận)
+     */
+    @Column(name = "processing_owner", length = 64)
+    private String processingOwner;
+
+    /**
+     * Heartbeat gần nhất của node đang xử lý; quá hạn thì node khác được nhận lại track
+     */
+    @Column(name = "processing_heartbeat_at")
+    private Date processingHeartbeatAt;
+
     /**
      * Content type của file master (audio/wav, audio/mp3, ...)
      */
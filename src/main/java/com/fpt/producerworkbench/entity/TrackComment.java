@@ -14,7 +14,9 @@ import lombok.*;
     @Index(name = "idx_user_id", columnList = "user_id"),
     @Index(name = "idx_parent_comment_id", columnList = "parent_comment_id"),
     @Index(name = "idx_status", columnList = "status"),
-    @Index(name = "idx_client_delivery_id", columnList = "client_delivery_id")
+    @Index(name = "idx_client_delivery_id", columnList = "client_delivery_id"),
+    @Index(name = "idx_track_comments_track_timestamp", columnList = "track_id, timestamp"),
+    @Index(name = "idx_track_comments_delivery_timestamp", columnList = "client_delivery_id, timestamp")
 })
 @Getter
 @Setter
@@ -96,6 +96,10 @@ public class UserGuide {
     @Column(length = 50)
     private String pineconeNamespace = "user-guides";
     
+    // SHA-256 của nội dung + metadata đã embed lên Pinecone (bỏ qua re-index khi không đổi)
+    @Column(length = 64)
+    private String embeddingContentHash;
+    
     // Stats
     @Column(nullable = false)
     @Builder.Default
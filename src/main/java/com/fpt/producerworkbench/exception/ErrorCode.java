@@ -199,6 +199,7 @@ public enum ErrorCode {
     EMBEDDING_GENERATION_FAILED(10007, "Lỗi khi tạo embedding vector", HttpStatus.INTERNAL_SERVER_ERROR),
     INVALID_EXPLANATION_REQUEST(10008, "Yêu cầu giải thích không hợp lệ", HttpStatus.BAD_REQUEST),
     AI_SERVICE_UNAVAILABLE(10009, "Dịch vụ AI tạm thời không khả dụng", HttpStatus.SERVICE_UNAVAILABLE),
+    SPOTIFY_RATE_LIMITED(10010, "Spotify đang giới hạn request, vui lòng thử lại sau", HttpStatus.TOO_MANY_REQUESTS),
 
     SESSION_NOT_FOUND(5009, "Không tìm thấy phiên", HttpStatus.NOT_FOUND),
     SESSION_NOT_ACTIVE(5010, "Phiên không hoạt động", HttpStatus.BAD_REQUEST),
@@ -301,6 +302,7 @@ public enum ErrorCode {
     GUIDE_IMAGE_UPLOAD_FAILED(18006, "Lỗi khi upload ảnh cho guide.", HttpStatus.INTERNAL_SERVER_ERROR),
     POSTGRESQL_CONNECTION_FAILED(18007, "Không thể kết nối PostgreSQL.", HttpStatus.INTERNAL_SERVER_ERROR),
     AI_CONTEXT_GENERATION_FAILED(18008, "Lỗi khi generate AI contextual response.", HttpStatus.INTERNAL_SERVER_ERROR),
+    GUIDE_REINDEX_IN_PROGRESS(18009, "Đang có tiến trình re-index guide khác chạy.", HttpStatus.CONFLICT),
 
     WITHDRAWAL_NOT_FOUND(10005, "Không tìm thấy yêu cầu rút tiền", HttpStatus.NOT_FOUND),
     INVALID_BANK_CODE(10001, "Mã ngân hàng không hợp lệ", HttpStatus.BAD_REQUEST),
@@ -0,0 +1,18 @@
+package com.fpt.producerworkbench.exception;
+
+import lombok.Getter;
+
+/**
+ * Spotify trả 429 hoặc vẫn còn trong khoảng Retry-After: request không được gửi đi.
+ * Tách riêng để caller chọn giữa dữ liệu cache cũ và báo lỗi.
+ */
+@Getter
+public class SpotifyRateLimitedException extends AppException {
+
+    private final long retryAfterMs;
+
+    public SpotifyRateLimitedException(long retryAfterMs) {
+        super(ErrorCode.SPOTIFY_RATE_LIMITED);
+        this.retryAfterMs = retryAfterMs;
+    }
+}
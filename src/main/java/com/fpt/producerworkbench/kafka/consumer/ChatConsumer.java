@@ -5,11 +5,13 @@ import com.fpt.producerworkbench.service.ChatMessageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Objects;
+
 import static com.fpt.producerworkbench.constant.KafkaGroup.CHAT_GROUP;
 import static com.fpt.producerworkbench.constant.KafkaTopic.CHAT_MESSAGE;
 
@@ -21,15 +23,56 @@ public class ChatConsumer {
 
     private final ChatMessageService chatMessageService;
 
-    @KafkaListener(topics = CHAT_MESSAGE, groupId = CHAT_GROUP)
-    @Retryable(
-            retryFor = Exception.class,
-            maxAttempts = 4,
-            backoff = @Backoff(delay = 500, multiplier = 2)
+    /**
+     * Batch listener: nhận tối đa chat.consumer.max-poll-records record mỗi lần poll,
+     * lưu cả batch trong 1 transaction và acknowledge 1 lần cho cả batch.
+     * <p>
+     * Nếu lưu cả batch thất bại thì lưu lại từng record (mỗi record 1 transaction). Record lỗi được báo bằng
+     * BatchListenerFailedException kèm index: error handler của container commit các record trước nó,
+     * retry từ record lỗi và chỉ bỏ qua record đó khi hết lượt retry, không kéo theo cả batch.
+     * Không dùng @Retryable ở đây: retry cả method sẽ lưu trùng các record đã lưu ở bước từng record.
+     */
+    @KafkaListener(
+            topics = CHAT_MESSAGE,
+            groupId = CHAT_GROUP,
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = "max.poll.records=${chat.consumer.max-poll-records:100}"
     )
-    public void listenChatMessage(ChatRequest request, Acknowledgment acknowledgment) {
-        chatMessageService.createMessage(request);
+    public void listenChatMessages(List<ChatRequest> requests, Acknowledgment acknowledgment) {
+        // Record lỗi deserialize được ErrorHandlingDeserializer trả về null
+        List<ChatRequest> validRequests = requests.stream()
+                .filter(Objects::nonNull)
+                .toList();
+
+        if (validRequests.size() < requests.size()) {
+            log.warn("Skipped {} chat records that could not be deserialized", requests.size() - validRequests.size());
+        }
+
+        if (!validRequests.isEmpty()) {
+            try {
+                chatMessageService.createMessages(validRequests);
+            } catch (Exception e) {
+                log.warn("Saving chat batch of {} failed, falling back to one record at a time: {}",
+                        validRequests.size(), e.getMessage());
+                saveOneByOne(requests);
+            }
+        }
         acknowledgment.acknowledge();
     }
 
+    private void saveOneByOne(List<ChatRequest> requests) {
+        for (int i = 0; i < requests.size(); i++) {
+            ChatRequest request = requests.get(i);
+            if (request == null) {
+                continue;
+            }
+            try {
+                chatMessageService.createMessages(List.of(request));
+            } catch (Exception e) {
+                // index theo batch gốc (kể cả record null) để error handler seek đúng offset
+                throw new BatchListenerFailedException("Failed to save chat message from " + request.getSender(), e, i);
+            }
+        }
+    }
+
 }
@@ -3,8 +3,10 @@ package com.fpt.producerworkbench.repository;
 import com.fpt.producerworkbench.entity.Conversation;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +19,10 @@ public interface ConversationRepository extends JpaRepository<Conversation, Stri
     @Query("SELECT c FROM Conversation c JOIN c.participants p WHERE p.user.id = :userId")
     List<Conversation> findByParticipantsUserId(Long userId);
 
+    // Load nhiều conversation kèm participants + user trong 1 query (dùng cho batch consumer)
+    @Query("SELECT DISTINCT c FROM Conversation c LEFT JOIN FETCH c.participants p LEFT JOIN FETCH p.user WHERE c.id IN :ids")
+    List<Conversation> findAllWithParticipantsByIdIn(@Param("ids") Collection<String> ids);
+
     // Tìm tất cả conversations theo milestoneId
     List<Conversation> findByMilestoneId(Long milestoneId);
 
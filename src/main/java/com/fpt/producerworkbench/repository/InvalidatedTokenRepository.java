@@ -2,7 +2,33 @@ package com.fpt.producerworkbench.repository;
 
 import com.fpt.producerworkbench.entity.InvalidatedToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
 
 @Repository
-public interface InvalidatedTokenRepository extends JpaRepository<InvalidatedToken, String> {}
+public interface InvalidatedTokenRepository extends JpaRepository<InvalidatedToken, String> {
+
+    @Query("SELECT t FROM InvalidatedToken t WHERE t.expiryTime > :now")
+    List<InvalidatedToken> findAllNotExpired(@Param("now") Date now);
+
+    /**
+     * Token bị thu hồi từ thời điểm {@code since} và chưa hết hạn (range scan trên idx_invalidated_tokens_revoked_at)
+     */
+    @Query("SELECT t FROM InvalidatedToken t WHERE t.revokedAt >= :since AND t.expiryTime > :now")
+    List<InvalidatedToken> findRevokedSince(@Param("since") Date since, @Param("now") Date now);
+
+    /**
+     * Xóa tối đa {@code limit} token đã hết hạn (range scan trên idx_invalidated_tokens_expiry_time).
+     * Mỗi lần gọi là 1 transaction ngắn để không khóa bảng lâu.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM invalidated_tokens WHERE expiry_time <= :now LIMIT :limit", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") Date now, @Param("limit") int limit);
+}
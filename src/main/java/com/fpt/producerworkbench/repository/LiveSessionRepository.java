@@ -2,14 +2,19 @@ package com.fpt.producerworkbench.repository;
 
 import com.fpt.producerworkbench.common.SessionStatus;
 import com.fpt.producerworkbench.entity.LiveSession;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -86,4 +91,49 @@ public interface LiveSessionRepository extends JpaRepository<LiveSession, String
             Pageable pageable
     );
 
+    /**
+     * Ghi track đang phát (write-behind từ PlaybackSyncEngine), không load entity
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE LiveSession s SET s.currentPlayingFileId = :fileId, s.playbackStartedAt = :startedAt " +
+            "WHERE s.id = :sessionId")
+    int updateCurrentPlayback(
+            @Param("sessionId") String sessionId,
+            @Param("fileId") Long fileId,
+            @Param("startedAt") LocalDateTime startedAt
+    );
+
+    /**
+     * Session theo status có hoạt động cuối trước cutoff (dùng idx_live_sessions_status_activity).
+     * Session chưa có lastActivityTime thì so theo actualStart.
+     */
+    @Query("SELECT s.id FROM LiveSession s WHERE s.status = :status " +
+            "AND (s.lastActivityTime < :cutoff " +
+            "     OR (s.lastActivityTime IS NULL AND s.actualStart < :cutoff))")
+    List<String> findIdsInactiveSince(
+            @Param("status") SessionStatus status,
+            @Param("cutoff") LocalDateTime cutoff
+    );
+
+    /**
+     * Khóa (SELECT ... FOR UPDATE) các session còn ở trạng thái :status trong danh sách,
+     * để bulk update sau đó biết chính xác những session nào được cập nhật
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM LiveSession s WHERE s.id IN :sessionIds AND s.status = :status")
+    List<LiveSession> lockByIdsAndStatus(
+            @Param("sessionIds") Collection<String> sessionIds,
+            @Param("status") SessionStatus status
+    );
+
+    @Modifying
+    @Query("UPDATE LiveSession s SET s.status = :newStatus, s.actualEnd = :endedAt, s.currentParticipants = 0 " +
+            "WHERE s.id IN :sessionIds AND s.status = :currentStatus")
+    int updateStatusByIds(
+            @Param("sessionIds") Collection<String> sessionIds,
+            @Param("currentStatus") SessionStatus currentStatus,
+            @Param("newStatus") SessionStatus newStatus,
+            @Param("endedAt") LocalDateTime endedAt
+    );
 }
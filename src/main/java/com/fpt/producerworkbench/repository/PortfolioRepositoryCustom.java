@@ -11,4 +11,14 @@ public interface PortfolioRepositoryCustom {
             Specification<Portfolio> spec,
             Double lat, Double lon,
             Pageable pageable);
+
+    /**
+     * Như findWithDistance nhưng dùng lại tổng số phần tử đã biết (VD: từ trang trước)
+     * thay vì chạy lại count query; knownTotal null = đếm khi cần.
+     */
+    Page<PortfolioWithDistanceResponse> findWithDistance(
+            Specification<Portfolio> spec,
+            Double lat, Double lon,
+            Pageable pageable,
+            Long knownTotal);
 }
@@ -11,6 +11,8 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 public interface ProjectRepository extends JpaRepository<Project, Long> {
@@ -42,35 +44,58 @@ public interface ProjectRepository extends JpaRepository<Project, Long> {
     @Query("UPDATE Project p SET p.client.id = :clientId WHERE p.id = :projectId")
     void updateClientById(@Param("projectId") Long projectId, @Param("clientId") Long clientId);
 
-    @Query("SELECT new com.fpt.producerworkbench.dto.response.ProjectSummaryResponse(" +
-            "p.id, p.title, p.description, p.status, p.type, pm.projectRole, " +
+    /**
+     * Projects mà user là owner hoặc member trong 1 query (LEFT JOIN membership của chính user,
+     * mỗi user có tối đa 1 membership / project nên không bị trùng dòng).
+     * Role: OWNER nếu user là creator, ngược lại lấy role trong project_members.
+     */
+    @Query(value = "SELECT new com.fpt.producerworkbench.dto.response.ProjectSummaryResponse(" +
+            "p.id, p.title, p.description, p.status, p.type, " +
+            "CASE WHEN p.creator.id = :userId THEN com.fpt.producerworkbench.common.ProjectRole.OWNER " +
+            "ELSE pm.projectRole END, " +
             "CONCAT(p.creator.firstName, ' ', p.creator.lastName), " +
             "p.createdAt, " +
             "p.client.id, " +
             "CASE WHEN EXISTS (SELECT 1 FROM ProjectReview pr WHERE pr.project.id = p.id) THEN true ELSE false END) " +
-            "FROM Project p JOIN ProjectMember pm ON p.id = pm.project.id " +
-            "WHERE pm.user.id = :userId " +
+            "FROM Project p LEFT JOIN ProjectMember pm ON pm.project.id = p.id AND pm.user.id = :userId " +
+            "WHERE (p.creator.id = :userId OR pm.id IS NOT NULL) " +
+            "AND (:search IS NULL OR LOWER(p.title) LIKE LOWER(CONCAT('%', :search, '%'))) " +
+            "AND (:status IS NULL OR p.status = :status)",
+            countQuery = "SELECT COUNT(p) FROM Project p " +
+            "LEFT JOIN ProjectMember pm ON pm.project.id = p.id AND pm.user.id = :userId " +
+            "WHERE (p.creator.id = :userId OR pm.id IS NOT NULL) " +
             "AND (:search IS NULL OR LOWER(p.title) LIKE LOWER(CONCAT('%', :search, '%'))) " +
             "AND (:status IS NULL OR p.status = :status)")
-    Page<ProjectSummaryResponse> findProjectSummariesByMemberId(
+    Page<ProjectSummaryResponse> findMyProjectSummaries(
             @Param("userId") Long userId,
             @Param("search") String search,
             @Param("status") ProjectStatus status,
             Pageable pageable);
+
+    /**
+     * Keyset pagination cho "My Projects" (infinite scroll): sắp xếp createdAt DESC, id DESC
+     * và lấy các project đứng sau cursor (cursorCreatedAt, cursorId). Cursor null = trang đầu.
+     */
     @Query("SELECT new com.fpt.producerworkbench.dto.response.ProjectSummaryResponse(" +
             "p.id, p.title, p.description, p.status, p.type, " +
-            "com.fpt.producerworkbench.common.ProjectRole.OWNER, " +
+            "CASE WHEN p.creator.id = :userId THEN com.fpt.producerworkbench.common.ProjectRole.OWNER " +
+            "ELSE pm.projectRole END, " +
             "CONCAT(p.creator.firstName, ' ', p.creator.lastName), " +
             "p.createdAt, " +
             "p.client.id, " +
             "CASE WHEN EXISTS (SELECT 1 FROM ProjectReview pr WHERE pr.project.id = p.id) THEN true ELSE false END) " +
-            "FROM Project p " +
-            "WHERE p.creator.id = :userId " +
+            "FROM Project p LEFT JOIN ProjectMember pm ON pm.project.id = p.id AND pm.user.id = :userId " +
+            "WHERE (p.creator.id = :userId OR pm.id IS NOT NULL) " +
             "AND (:search IS NULL OR LOWER(p.title) LIKE LOWER(CONCAT('%', :search, '%'))) " +
-            "AND (:status IS NULL OR p.status = :status)")
-    Page<ProjectSummaryResponse> findProjectSummariesByOwnerId(
+            "AND (:status IS NULL OR p.status = :status) " +
+            "AND (:cursorCreatedAt IS NULL OR p.createdAt < :cursorCreatedAt " +
+            "OR (p.createdAt = :cursorCreatedAt AND p.id < :cursorId)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProjectSummaryResponse> findMyProjectSummariesAfter(
             @Param("userId") Long userId,
             @Param("search") String search,
             @Param("status") ProjectStatus status,
+            @Param("cursorCreatedAt") Date cursorCreatedAt,
+            @Param("cursorId") Long cursorId,
             Pageable pageable);
 }
@@ -9,6 +9,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,6 +44,27 @@ public interface SessionParticipantRepository extends JpaRepository<SessionParti
             @Param("userId") Long userId
     );
 
+    @Query("SELECT p.session.id, COUNT(p) FROM SessionParticipant p " +
+            "WHERE p.session.id IN :sessionIds AND p.isOnline = true GROUP BY p.session.id")
+    List<Object[]> countOnlineGroupedBySessionIds(@Param("sessionIds") Collection<String> sessionIds);
+
+    /**
+     * Bulk version of SessionParticipant.markAsOffline: also adds the time since joinedAt to totalSessionTime (seconds)
+     */
+    @Modifying
+    @Query(value = "UPDATE session_participants SET is_online = false, left_at = :leftAt, " +
+            "total_session_time = COALESCE(total_session_time, 0) + " +
+            "CASE WHEN joined_at IS NULL THEN 0 ELSE TIMESTAMPDIFF(SECOND, joined_at, :leftAt) END " +
+            "WHERE session_id IN (:sessionIds) AND is_online = true",
+            nativeQuery = true)
+    int markOfflineBySessionIds(
+            @Param("sessionIds") Collection<String> sessionIds,
+            @Param("leftAt") Instant leftAt
+    );
+
+    @Query("SELECT p.user.id FROM SessionParticipant p WHERE p.session.id = :sessionId")
+    List<Long> findUserIdsBySessionId(@Param("sessionId") String sessionId);
+
     @Modifying
     @Query("DELETE FROM SessionParticipant p WHERE p.session.id = :sessionId")
     void deleteBySessionId(@Param("sessionId") String sessionId);
@@ -25,6 +25,18 @@ public interface TaxPayoutRecordRepository extends JpaRepository<TaxPayoutRecord
         LocalDate startDate, 
         LocalDate endDate
     );
+
+    // Keyset pagination: user có payout trong kỳ, id > afterUserId, tăng dần
+    @Query("SELECT DISTINCT tpr.user.id FROM TaxPayoutRecord tpr WHERE " +
+           "tpr.payoutDate BETWEEN :startDate AND :endDate " +
+           "AND tpr.user.id > :afterUserId " +
+           "ORDER BY tpr.user.id")
+    List<Long> findUserIdsWithPayoutsAfter(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        @Param("afterUserId") Long afterUserId,
+        Pageable pageable
+    );
     
     @Query("SELECT tpr FROM TaxPayoutRecord tpr WHERE tpr.user.id = :userId " +
            "AND tpr.taxPeriodYear = :year " +
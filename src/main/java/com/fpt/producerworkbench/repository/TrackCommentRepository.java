@@ -20,10 +20,13 @@ public interface TrackCommentRepository extends JpaRepository<TrackComment, Long
      * Sắp xếp theo timestamp tăng dần để hiển thị theo thứ tự timeline
      * Chỉ lấy comment không có clientDelivery (Internal Room)
      */
-    @Query("SELECT tc FROM TrackComment tc WHERE tc.track.id = :trackId " +
+    @Query(value = "SELECT tc FROM TrackComment tc JOIN FETCH tc.user WHERE tc.track.id = :trackId " +
            "AND tc.clientDelivery IS NULL " +
            "AND tc.parentComment IS NULL AND tc.isDeleted = false " +
-           "ORDER BY tc.timestamp ASC, tc.createdAt ASC")
+           "ORDER BY tc.timestamp ASC, tc.createdAt ASC",
+           countQuery = "SELECT COUNT(tc) FROM TrackComment tc WHERE tc.track.id = :trackId " +
+           "AND tc.clientDelivery IS NULL " +
+           "AND tc.parentComment IS NULL AND tc.isDeleted = false")
     Page<TrackComment> findRootCommentsByTrackId(@Param("trackId") Long trackId, Pageable pageable);
 
     /**
@@ -35,6 +38,32 @@ public interface TrackCommentRepository extends JpaRepository<TrackComment, Long
            "AND tc.isDeleted = false ORDER BY tc.createdAt ASC")
     List<TrackComment> findRepliesByParentCommentId(@Param("parentCommentId") Long parentCommentId);
 
+    /**
+     * Đếm số reply của nhiều comment trong 1 query
+     * Mỗi dòng: [parentCommentId, tổng số reply, số reply trong Client Room]
+     */
+    @Query("SELECT tc.parentComment.id, COUNT(tc), " +
+           "SUM(CASE WHEN tc.clientDelivery IS NOT NULL THEN 1 ELSE 0 END) " +
+           "FROM TrackComment tc WHERE tc.parentComment.id IN :parentCommentIds " +
+           "AND tc.isDeleted = false GROUP BY tc.parentComment.id")
+    List<Object[]> countRepliesGroupedByParentCommentIds(@Param("parentCommentIds") List<Long> parentCommentIds);
+
+    /**
+     * Lấy toàn bộ comment (gốc + reply) của một track trong Internal Room kèm user
+     * Dùng để dựng cây reply trong bộ nhớ thay vì query từng cấp
+     */
+    @Query("SELECT tc FROM TrackComment tc JOIN FETCH tc.user WHERE tc.track.id = :trackId " +
+           "AND tc.clientDelivery IS NULL " +
+           "AND tc.isDeleted = false ORDER BY tc.createdAt ASC, tc.id ASC")
+    List<TrackComment> findThreadByTrackIdInternal(@Param("trackId") Long trackId);
+
+    /**
+     * Lấy toàn bộ comment (gốc + reply) của một ClientDelivery kèm user
+     */
+    @Query("SELECT tc FROM TrackComment tc JOIN FETCH tc.user WHERE tc.clientDelivery.id = :clientDeliveryId " +
+           "AND tc.isDeleted = false ORDER BY tc.createdAt ASC, tc.id ASC")
+    List<TrackComment> findThreadByClientDeliveryId(@Param("clientDeliveryId") Long clientDeliveryId);
+
     /**
      * Đếm số lượng reply của một comment
      */
@@ -107,22 +136,43 @@ public interface TrackCommentRepository extends JpaRepository<TrackComment, Long
      * Lấy tất cả comment gốc tại một timestamp cụ thể (trong Internal Room)
      * Chỉ lấy comment không có clientDelivery
      */
-    @Query("SELECT tc FROM TrackComment tc WHERE tc.track.id = :trackId " +
+    @Query("SELECT tc FROM TrackComment tc JOIN FETCH tc.user WHERE tc.track.id = :trackId " +
            "AND tc.clientDelivery IS NULL " +
            "AND tc.timestamp = :timestamp AND tc.parentComment IS NULL " +
            "AND tc.isDeleted = false ORDER BY tc.createdAt ASC")
     List<TrackComment> findByTrackIdAndTimestamp(@Param("trackId") Long trackId, 
                                                   @Param("timestamp") Integer timestamp);
 
+    /**
+     * Lấy timestamp của toàn bộ comment gốc trong Internal Room (đã sắp xếp) để dựng timeline index
+     */
+    @Query("SELECT tc.timestamp FROM TrackComment tc WHERE tc.track.id = :trackId " +
+           "AND tc.clientDelivery IS NULL AND tc.parentComment IS NULL " +
+           "AND tc.isDeleted = false AND tc.timestamp IS NOT NULL ORDER BY tc.timestamp ASC")
+    List<Integer> findRootTimestampsByTrackIdInternal(@Param("trackId") Long trackId);
+
+    /**
+     * Lấy comment gốc trong Internal Room có timestamp thuộc [fromTimestamp, toTimestamp)
+     */
+    @Query("SELECT tc FROM TrackComment tc JOIN FETCH tc.user WHERE tc.track.id = :trackId " +
+           "AND tc.clientDelivery IS NULL AND tc.parentComment IS NULL AND tc.isDeleted = false " +
+           "AND tc.timestamp >= :fromTimestamp AND tc.timestamp < :toTimestamp " +
+           "ORDER BY tc.timestamp ASC, tc.createdAt ASC")
+    List<TrackComment> findRootCommentsByTrackIdInTimestampRange(@Param("trackId") Long trackId,
+                                                                  @Param("fromTimestamp") Integer fromTimestamp,
+                                                                  @Param("toTimestamp") Integer toTimestamp);
+
     // ==================== Client Room Comments ====================
 
     /**
      * Lấy tất cả comment gốc trong Client Room (có clientDelivery)
      * Sắp xếp theo timestamp tăng dần
      */
-    @Query("SELECT tc FROM TrackComment tc WHERE tc.clientDelivery.id = :clientDeliveryId " +
+    @Query(value = "SELECT tc FROM TrackComment tc JOIN FETCH tc.user WHERE tc.clientDelivery.id = :clientDeliveryId " +
            "AND tc.parentComment IS NULL AND tc.isDeleted = false " +
-           "ORDER BY tc.timestamp ASC, tc.createdAt ASC")
+           "ORDER BY tc.timestamp ASC, tc.createdAt ASC",
+           countQuery = "SELECT COUNT(tc) FROM TrackComment tc WHERE tc.clientDelivery.id = :clientDeliveryId " +
+           "AND tc.parentComment IS NULL AND tc.isDeleted = false")
     Page<TrackComment> findRootCommentsByClientDeliveryId(@Param("clientDeliveryId") Long clientDeliveryId, Pageable pageable);
 
     /**
@@ -143,12 +193,32 @@ public interface TrackCommentRepository extends JpaRepository<TrackComment, Long
     /**
      * Lấy comment tại một timestamp cụ thể trong Client Room
      */
-    @Query("SELECT tc FROM TrackComment tc WHERE tc.clientDelivery.id = :clientDeliveryId " +
+    @Query("SELECT tc FROM TrackComment tc JOIN FETCH tc.user WHERE tc.clientDelivery.id = :clientDeliveryId " +
            "AND tc.timestamp = :timestamp AND tc.parentComment IS NULL " +
            "AND tc.isDeleted = false ORDER BY tc.createdAt ASC")
     List<TrackComment> findByClientDeliveryIdAndTimestamp(@Param("clientDeliveryId") Long clientDeliveryId, 
                                                            @Param("timestamp") Integer timestamp);
 
+    /**
+     * Lấy timestamp của toàn bộ comment gốc trong Client Room (đã sắp xếp) để dựng timeline index
+     */
+    @Query("SELECT tc.timestamp FROM TrackComment tc WHERE tc.clientDelivery.id = :clientDeliveryId " +
+           "AND tc.parentComment IS NULL AND tc.isDeleted = false " +
+           "AND tc.timestamp IS NOT NULL ORDER BY tc.timestamp ASC")
+    List<Integer> findRootTimestampsByClientDeliveryId(@Param("clientDeliveryId") Long clientDeliveryId);
+
+    /**
+     * Lấy comment gốc trong Client Room có timestamp thuộc [fromTimestamp, toTimestamp)
+     */
+    @Query("SELECT tc FROM TrackComment tc JOIN FETCH tc.user WHERE tc.clientDelivery.id = :clientDeliveryId " +
+           "AND tc.parentComment IS NULL AND tc.isDeleted = false " +
+           "AND tc.timestamp >= :fromTimestamp AND tc.timestamp < :toTimestamp " +
+           "ORDER BY tc.timestamp ASC, tc.createdAt ASC")
+    List<TrackComment> findRootCommentsByClientDeliveryIdInTimestampRange(
+            @Param("clientDeliveryId") Long clientDeliveryId,
+            @Param("fromTimestamp") Integer fromTimestamp,
+            @Param("toTimestamp") Integer toTimestamp);
+
     /**
      * Đếm tổng số comment trong Client Room
      */
@@ -7,7 +7,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -57,5 +59,94 @@ public interface TrackMilestoneRepository extends JpaRepository<Track, Long> {
             @Param("trackId") Long trackId,
             @Param("oldStatus") ProcessingStatus oldStatus,
             @Param("newStatus") ProcessingStatus newStatus);
-}
 
+    /**
+     * Track PROCESSING chưa có node nhận hoặc node nhận đã ngừng heartbeat (crash / bị tắt)
+     */
+    @Query("SELECT t FROM Track t JOIN FETCH t.user " +
+           "WHERE t.processingStatus = :status AND t.s3OriginalKey IS NOT NULL " +
+           "AND (t.processingOwner IS NULL OR t.processingHeartbeatAt IS NULL OR t.processingHeartbeatAt < :staleBefore)")
+    List<Track> findUnclaimedProcessing(
+            @Param("status") ProcessingStatus status,
+            @Param("staleBefore") Date staleBefore);
+
+    /**
+     * Nhận quyền xử lý track một cách atomic: chỉ thành công nếu track vẫn PROCESSING và
+     * chưa có node nào giữ, node hiện tại đang giữ, hoặc heartbeat của node đang giữ đã quá hạn.
+     *
+     * @return 1 nếu nhận được, 0 nếu node khác đang xử lý hoặc track không còn PROCESSING
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Track t SET t.processingOwner = :owner, t.processingHeartbeatAt = :now " +
+           "WHERE t.id = :trackId AND t.processingStatus = :status " +
+           "AND (t.processingOwner IS NULL OR t.processingOwner = :owner " +
+           "OR t.processingHeartbeatAt IS NULL OR t.processingHeartbeatAt < :staleBefore)")
+    int claimProcessing(
+            @Param("trackId") Long trackId,
+            @Param("status") ProcessingStatus status,
+            @Param("owner") String owner,
+            @Param("now") Date now,
+            @Param("staleBefore") Date staleBefore);
+
+    /**
+     * Nhận quyền xử lý bất kể node đang giữ (track vừa được trigger xử lý lại, kết quả cũ không còn giá trị)
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Track t SET t.processingOwner = :owner, t.processingHeartbeatAt = :now " +
+           "WHERE t.id = :trackId AND t.processingStatus = :status")
+    int takeOverProcessing(
+            @Param("trackId") Long trackId,
+            @Param("status") ProcessingStatus status,
+            @Param("owner") String owner,
+            @Param("now") Date now);
+
+    /**
+     * Gia hạn heartbeat cho mọi track PROCESSING mà node đang giữ
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Track t SET t.processingHeartbeatAt = :now " +
+           "WHERE t.processingOwner = :owner AND t.processingStatus = :status")
+    int touchProcessingHeartbeat(
+            @Param("owner") String owner,
+            @Param("status") ProcessingStatus status,
+            @Param("now") Date now);
+
+    /**
+     * Ghi kết quả xử lý audio (READY) nếu node vẫn đang giữ track; không merge entity detached
+     *
+     * @return 0 nếu track đã được node khác nhận lại hoặc không còn PROCESSING (kết quả bị bỏ)
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Track t SET t.processingStatus = :readyStatus, t.errorMessage = NULL, " +
+           "t.hlsPrefix = :hlsPrefix, t.duration = :duration, " +
+           "t.voiceTagAudioKey = COALESCE(:voiceTagAudioKey, t.voiceTagAudioKey), " +
+           "t.processingOwner = NULL, t.processingHeartbeatAt = NULL " +
+           "WHERE t.id = :trackId AND t.processingOwner = :owner AND t.processingStatus = :processingStatus")
+    int completeProcessing(
+            @Param("trackId") Long trackId,
+            @Param("owner") String owner,
+            @Param("hlsPrefix") String hlsPrefix,
+            @Param("duration") Integer duration,
+            @Param("voiceTagAudioKey") String voiceTagAudioKey,
+            @Param("processingStatus") ProcessingStatus processingStatus,
+            @Param("readyStatus") ProcessingStatus readyStatus);
+
+    /**
+     * Đánh dấu FAILED nếu node vẫn đang giữ track
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Track t SET t.processingStatus = :failedStatus, t.errorMessage = :errorMessage, " +
+           "t.processingOwner = NULL, t.processingHeartbeatAt = NULL " +
+           "WHERE t.id = :trackId AND t.processingOwner = :owner AND t.processingStatus = :processingStatus")
+    int failProcessing(
+            @Param("trackId") Long trackId,
+            @Param("owner") String owner,
+            @Param("errorMessage") String errorMessage,
+            @Param("processingStatus") ProcessingStatus processingStatus,
+            @Param("failedStatus") ProcessingStatus failedStatus);
+}
@@ -2,9 +2,15 @@ package com.fpt.producerworkbench.repository;
 
 import com.fpt.producerworkbench.entity.InspirationTrack;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface TrackRepository extends JpaRepository<InspirationTrack, Long> {
     List<InspirationTrack> findByProject_IdAndUploader_IdOrderByCreatedAtDesc(Long projectId, Long uploaderId);
+
+    @Query("SELECT t.uploader.email FROM InspirationTrack t WHERE t.id = :trackId")
+    Optional<String> findUploaderEmailById(@Param("trackId") Long trackId);
 }
@@ -11,6 +11,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -22,6 +23,12 @@ public class PortfolioRepositoryCustomImpl implements PortfolioRepositoryCustom
 
     @Override
     public Page<PortfolioWithDistanceResponse> findWithDistance(Specification<Portfolio> spec, Double lat, Double lon, Pageable pageable) {
+        return findWithDistance(spec, lat, lon, pageable, null);
+    }
+
+    @Override
+    public Page<PortfolioWithDistanceResponse> findWithDistance(Specification<Portfolio> spec, Double lat, Double lon,
+                                                                Pageable pageable, Long knownTotal) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Tuple> query = cb.createTupleQuery();
         Root<Portfolio> root = query.from(Portfolio.class);
@@ -59,9 +66,11 @@ public class PortfolioRepositoryCustomImpl implements PortfolioRepositoryCustom
                 })
                 .collect(Collectors.toList());
 
-        long total = countQuery(spec);
-
-        return new PageImpl<>(dtos, pageable, total);
+        if (knownTotal != null) {
+            return new PageImpl<>(dtos, pageable, knownTotal);
+        }
+        // Chỉ chạy count khi không suy ra được tổng từ trang hiện tại (trang đầu chưa đầy, trang cuối)
+        return PageableExecutionUtils.getPage(dtos, pageable, () -> countQuery(spec));
     }
 
 
@@ -46,6 +46,55 @@ public class ProducerSpecification {
         };
     }
 
+    private static final double KM_PER_DEGREE_LATITUDE = 111.32;
+
+    /**
+     * Prefilter theo bounding box quanh tâm (lat, lon): so sánh khoảng trên cột latitude/longitude
+     * nên dùng được index (latitude, longitude), loại phần lớn portfolio trước khi tính
+     * ST_Distance_Sphere chính xác trong isWithinRadius.
+     */
+    public static Specification<Portfolio> isWithinBoundingBox(Double lat, Double lon, Double radiusInKm) {
+        return (root, query, criteriaBuilder) -> {
+            if (lat == null || lon == null || radiusInKm == null || radiusInKm <= 0) {
+                return null;
+            }
+
+            double deltaLat = radiusInKm / KM_PER_DEGREE_LATITUDE;
+            double minLat = lat - deltaLat;
+            double maxLat = lat + deltaLat;
+            Predicate latitudeRange = criteriaBuilder.between(root.get("latitude"), minLat, maxLat);
+
+            // Box chạm cực: mọi kinh độ đều có thể nằm trong bán kính
+            double cosLat = Math.cos(Math.toRadians(lat));
+            if (minLat <= -90 || maxLat >= 90 || cosLat <= 0) {
+                return latitudeRange;
+            }
+
+            double deltaLon = radiusInKm / (KM_PER_DEGREE_LATITUDE * cosLat);
+            if (deltaLon >= 180) {
+                return latitudeRange;
+            }
+
+            double minLon = lon - deltaLon;
+            double maxLon = lon + deltaLon;
+            Predicate longitudeRange;
+            if (minLon < -180) {
+                // Box vắt qua kinh tuyến 180: tách thành 2 khoảng
+                longitudeRange = criteriaBuilder.or(
+                        criteriaBuilder.greaterThanOrEqualTo(root.get("longitude"), minLon + 360),
+                        criteriaBuilder.lessThanOrEqualTo(root.get("longitude"), maxLon));
+            } else if (maxLon > 180) {
+                longitudeRange = criteriaBuilder.or(
+                        criteriaBuilder.greaterThanOrEqualTo(root.get("longitude"), minLon),
+                        criteriaBuilder.lessThanOrEqualTo(root.get("longitude"), maxLon - 360));
+            } else {
+                longitudeRange = criteriaBuilder.between(root.get("longitude"), minLon, maxLon);
+            }
+
+            return criteriaBuilder.and(latitudeRange, longitudeRange);
+        };
+    }
+
     public static Specification<Portfolio> isWithinRadius(Double lat, Double lon, Double radiusInKm) {
         return (root, query, criteriaBuilder) -> {
             if (lat == null || lon == null || radiusInKm == null || radiusInKm <= 0) {
@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,6 +30,18 @@ public interface UserGuideRepository extends JpaRepository<UserGuide, Long> {
      */
     List<UserGuide> findByIsActiveTrue();
     
+    /**
+     * IDs of all active guides (reindex job loads guides batch by batch)
+     */
+    @Query("SELECT g.id FROM UserGuide g WHERE g.isActive = true ORDER BY g.id")
+    List<Long> findActiveIds();
+
+    /**
+     * Load guides together with their steps in one query (avoids N+1 when building embeddings)
+     */
+    @Query("SELECT DISTINCT g FROM UserGuide g LEFT JOIN FETCH g.steps WHERE g.id IN :ids")
+    List<UserGuide> findAllWithStepsByIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Find guides by category
      */
@@ -101,6 +114,13 @@ public interface UserGuideRepository extends JpaRepository<UserGuide, Long> {
     @Query("UPDATE UserGuide g SET g.unhelpfulCount = g.unhelpfulCount + 1 WHERE g.id = :id")
     void incrementUnhelpfulCount(@Param("id") Long id);
     
+    /**
+     * Update hash of the indexed content (reindex job, without loading the entity again)
+     */
+    @Modifying
+    @Query("UPDATE UserGuide g SET g.embeddingContentHash = :hash WHERE g.id = :id")
+    void updateEmbeddingContentHash(@Param("id") Long id, @Param("hash") String hash);
+    
     /**
      * Count guides by category
      */
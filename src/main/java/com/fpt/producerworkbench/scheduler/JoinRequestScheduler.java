@@ -3,7 +3,6 @@ package com.fpt.producerworkbench.scheduler;
 import com.fpt.producerworkbench.dto.websocket.JoinRequest;
 import com.fpt.producerworkbench.dto.websocket.JoinRequestResponse;
 import com.fpt.producerworkbench.dto.websocket.SystemNotification;
-import com.fpt.producerworkbench.entity.LiveSession;
 import com.fpt.producerworkbench.repository.LiveSessionRepository;
 import com.fpt.producerworkbench.service.WebSocketService;
 import com.fpt.producerworkbench.service.impl.JoinRequestRedisService;
@@ -16,7 +15,6 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 @Component
 @RequiredArgsConstructor
@@ -27,53 +25,34 @@ public class JoinRequestScheduler {
     private final WebSocketService webSocketService;
     private final LiveSessionRepository sessionRepository;
 
-    /**
-     * Cleanup expired requests mỗi phút
-     * Redis TTL tự động xóa, job này chỉ để send notifications
-     */
-    @Scheduled(fixedRate = 60000) // 1 phút
-    public void cleanupExpiredRequests() {
-        try {
-            int cleanedCount = redisService.cleanupExpiredRequests();
-            if (cleanedCount > 0) {
-                log.info("🧹 Scheduled cleanup: {} expired join requests", cleanedCount);
-            }
-        } catch (Exception e) {
-            log.error("❌ Error in scheduled cleanup: {}", e.getMessage(), e);
-        }
-    }
+    private static final int BATCH_SIZE = 100;
 
     /**
-     * Notify về requests sắp expire (30 giây/lần)
-     * Gửi warning khi còn < 1 phút
+     * Gửi cảnh báo sắp hết hạn (còn < 1 phút) và thông báo hết hạn đúng lúc đến hạn.
+     * Thời điểm đến hạn nằm trong Redis sorted set (score = epoch millis), mỗi lần chỉ lấy
+     * các phần tử đã tới hạn theo batch, không scan keyspace.
      */
-    @Scheduled(fixedRate = 30000) // 30 giây
-    public void notifyUpcomingExpiry() {
+    @Scheduled(fixedDelay = 1000) // 1 giây
+    public void processDueNotifications() {
         try {
-            // Scan all session pending keys
-            Set<String> sessionKeys = redisService.scanSessionKeys();
-
-            for (String sessionKey : sessionKeys) {
-                String sessionId = extractSessionId(sessionKey);
-                List<JoinRequest> requests = redisService.getPendingRequests(sessionId);
-
-                for (JoinRequest request : requests) {
-                    long secondsRemaining = Duration.between(
-                            LocalDateTime.now(),
-                            request.getExpiresAt()
-                    ).getSeconds();
-
-                    // Nếu còn < 60 giây và chưa notify
-                    if (secondsRemaining > 0 && secondsRemaining < 60) {
+            List<JoinRequest> warnings;
+            do {
+                warnings = redisService.claimDueWarnings(BATCH_SIZE);
+                for (JoinRequest request : warnings) {
+                    long secondsRemaining = Duration.between(LocalDateTime.now(), request.getExpiresAt()).getSeconds();
+                    if (secondsRemaining > 0) {
                         notifyExpiringRequest(request, secondsRemaining);
                     }
-                    
-                    // Nếu đã expired, send expired notification
-                    else if (secondsRemaining <= 0) {
-                        notifyExpiredRequest(request);
-                    }
                 }
-            }
+            } while (warnings.size() == BATCH_SIZE);
+
+            List<JoinRequest> expired;
+            do {
+                expired = redisService.claimDueExpiries(BATCH_SIZE);
+                for (JoinRequest request : expired) {
+                    notifyExpiredRequest(request);
+                }
+            } while (expired.size() == BATCH_SIZE);
         } catch (Exception e) {
             log.error("❌ Error in expiry notification: {}", e.getMessage(), e);
         }
@@ -91,9 +70,8 @@ public class JoinRequestScheduler {
         );
 
         // Notify owner
-        LiveSession session = sessionRepository.findById(request.getSessionId()).orElse(null);
-        if (session != null) {
-            Long hostId = session.getHost().getId();
+        Long hostId = resolveHostId(request);
+        if (hostId != null) {
             webSocketService.sendToUser(hostId, "/queue/notification",
                     SystemNotification.builder()
                             .type("WARNING")
@@ -114,9 +92,8 @@ public class JoinRequestScheduler {
         );
 
         // ✅ Notify owner with requestId in data
-        LiveSession session = sessionRepository.findById(request.getSessionId()).orElse(null);
-        if (session != null) {
-            Long hostId = session.getHost().getId();
+        Long hostId = resolveHostId(request);
+        if (hostId != null) {
             webSocketService.sendToUser(hostId, "/queue/notification",
                     SystemNotification.builder()
                             .type("INFO")
@@ -134,8 +111,13 @@ public class JoinRequestScheduler {
         log.info("⏰ Join request {} expired and cleaned up", request.getRequestId());
     }
 
-    private String extractSessionId(String sessionKey) {
-        // Extract from "session:{sessionId}:pending-requests"
-        return sessionKey.replace("session:", "").replace(":pending-requests", "");
+    private Long resolveHostId(JoinRequest request) {
+        if (request.getHostId() != null) {
+            return request.getHostId();
+        }
+        // Request tạo trước khi có hostId trong payload
+        return sessionRepository.findById(request.getSessionId())
+                .map(session -> session.getHost().getId())
+                .orElse(null);
     }
 }
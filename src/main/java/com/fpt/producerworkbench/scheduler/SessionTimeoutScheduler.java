@@ -5,6 +5,9 @@ import com.fpt.producerworkbench.entity.LiveSession;
 import com.fpt.producerworkbench.repository.LiveSessionRepository;
 import com.fpt.producerworkbench.repository.SessionParticipantRepository;
 import com.fpt.producerworkbench.service.WebSocketService;
+import com.fpt.producerworkbench.service.impl.LiveSessionActivityTracker;
+import com.fpt.producerworkbench.service.impl.LiveSessionMembershipCache;
+import com.fpt.producerworkbench.service.impl.PlaybackSyncEngine;
 import com.fpt.producerworkbench.dto.websocket.SessionStateChangeEvent;
 import com.fpt.producerworkbench.dto.websocket.SystemNotification;
 import lombok.RequiredArgsConstructor;
@@ -12,9 +15,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Component
 @RequiredArgsConstructor
@@ -24,12 +33,19 @@ public class SessionTimeoutScheduler {
     private final LiveSessionRepository sessionRepository;
     private final SessionParticipantRepository participantRepository;
     private final WebSocketService webSocketService;
+    private final LiveSessionActivityTracker activityTracker;
+    private final LiveSessionMembershipCache membershipCache;
+    private final PlaybackSyncEngine playbackSyncEngine;
 
     private static final int INACTIVITY_TIMEOUT_MINUTES = 10;
 
     /**
      * Check for inactive ACTIVE sessions every 5 minutes
      * Auto-end sessions with no online participants for > 10 minutes
+     * - Chỉ lấy session ACTIVE có lastActivityTime quá hạn (indexed query)
+     * - Bỏ qua session còn STOMP activity gần đây (Redis) hoặc còn participant online (1 query GROUP BY)
+     * - Kết thúc session + offline participants bằng bulk update, chỉ trên các session vẫn ACTIVE
+     *   (đã khóa FOR UPDATE); chỉ các session này được dọn cache và nhận thông báo, sau khi commit
      */
     @Scheduled(fixedRate = 300000) // 5 minutes = 300,000 ms
     @Transactional
@@ -37,94 +53,82 @@ public class SessionTimeoutScheduler {
         log.debug("🔍 Checking for inactive sessions...");
 
         try {
-            // Find all ACTIVE sessions
-            List<LiveSession> activeSessions = sessionRepository.findAll()
-                    .stream()
-                    .filter(s -> s.getStatus() == SessionStatus.ACTIVE)
-                    .toList();
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime cutoff = now.minusMinutes(INACTIVITY_TIMEOUT_MINUTES);
 
-            if (activeSessions.isEmpty()) {
-                log.debug("✅ No active sessions to check");
+            List<String> candidateIds = sessionRepository.findIdsInactiveSince(SessionStatus.ACTIVE, cutoff);
+            if (candidateIds.isEmpty()) {
+                log.debug("✅ No inactive sessions to end");
                 return;
             }
 
-            log.info("📊 Found {} active sessions to check for inactivity", activeSessions.size());
+            // Session vẫn có chat/playback qua WebSocket sau cutoff
+            long cutoffMillis = cutoff.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            Set<String> skipIds = new HashSet<>(activityTracker.findActiveSince(candidateIds, cutoffMillis));
 
-            for (LiveSession session : activeSessions) {
-                checkAndEndInactiveSession(session);
+            // Session còn participant online
+            for (Object[] row : participantRepository.countOnlineGroupedBySessionIds(candidateIds)) {
+                if (((Number) row[1]).longValue() > 0) {
+                    skipIds.add((String) row[0]);
+                }
             }
 
-        } catch (Exception e) {
-            log.error("❌ Error checking inactive sessions: {}", e.getMessage(), e);
-        }
-    }
-
-    private void checkAndEndInactiveSession(LiveSession session) {
-        try {
-            // Check if session has online participants
-            long onlineCount = participantRepository.findOnlineParticipantsBySessionId(session.getId()).size();
-
-            if (onlineCount > 0) {
-                log.debug("✅ Session {} has {} online participants, skipping", session.getId(), onlineCount);
+            List<String> inactiveIds = candidateIds.stream()
+                    .filter(id -> !skipIds.contains(id))
+                    .toList();
+            if (inactiveIds.isEmpty()) {
+                log.debug("✅ No inactive sessions to end");
                 return;
             }
 
-            // No online participants - check last activity time
-            LocalDateTime lastActivity = session.getLastActivityTime();
-            
-            if (lastActivity == null) {
-                // Fallback to actualStart if lastActivityTime not set
-                lastActivity = session.getActualStart();
-            }
-
-            if (lastActivity == null) {
-                log.warn("⚠️ Session {} has no activity time recorded, skipping", session.getId());
+            // Session có thể vừa được host kết thúc / có hoạt động lại giữa lúc đọc và lúc update
+            List<String> endedIds = sessionRepository.lockByIdsAndStatus(inactiveIds, SessionStatus.ACTIVE).stream()
+                    .map(LiveSession::getId)
+                    .toList();
+            if (endedIds.isEmpty()) {
+                log.debug("✅ No inactive sessions to end");
                 return;
             }
 
-            // Calculate inactivity duration
-            LocalDateTime now = LocalDateTime.now();
-            long inactiveMinutes = java.time.Duration.between(lastActivity, now).toMinutes();
-
-            log.debug("📊 Session {} inactive for {} minutes (threshold: {})", 
-                    session.getId(), inactiveMinutes, INACTIVITY_TIMEOUT_MINUTES);
+            log.info("🔴 Auto-ending {} sessions due to {} minutes of inactivity",
+                    endedIds.size(), INACTIVITY_TIMEOUT_MINUTES);
 
-            // Auto-end if inactive for > 10 minutes
-            if (inactiveMinutes >= INACTIVITY_TIMEOUT_MINUTES) {
-                log.info("🔴 Auto-ending session {} due to {} minutes of inactivity", 
-                        session.getId(), inactiveMinutes);
+            sessionRepository.updateStatusByIds(endedIds, SessionStatus.ACTIVE, SessionStatus.ENDED, now);
+            participantRepository.markOfflineBySessionIds(endedIds, Instant.now());
+            endedIds.forEach(membershipCache::invalidate);
 
-                endInactiveSession(session);
-            }
+            afterCommit(() -> {
+                activityTracker.remove(endedIds);
+                playbackSyncEngine.remove(endedIds);
+                endedIds.forEach(this::notifySessionAutoEnded);
+            });
 
         } catch (Exception e) {
-            log.error("❌ Error processing session {}: {}", session.getId(), e.getMessage(), e);
+            log.error("❌ Error checking inactive sessions: {}", e.getMessage(), e);
         }
     }
 
-    @Transactional
-    protected void endInactiveSession(LiveSession session) {
-        try {
-            SessionStatus oldStatus = session.getStatus();
-
-            // Update session status
-            session.setStatus(SessionStatus.ENDED);
-            session.setActualEnd(LocalDateTime.now());
-            session.setCurrentParticipants(0);
-            sessionRepository.save(session);
-
-            // Mark all participants as offline
-            participantRepository.findBySessionId(session.getId()).forEach(p -> {
-                if (p.getIsOnline()) {
-                    p.markAsOffline();
-                    participantRepository.save(p);
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
                 }
             });
+            return;
+        }
+        action.run();
+    }
+
+    private void notifySessionAutoEnded(String sessionId) {
+        try {
+            SessionStatus oldStatus = SessionStatus.ACTIVE;
 
             // ✅ Broadcast session ended
-            webSocketService.broadcastSessionStateChange(session.getId(),
+            webSocketService.broadcastSessionStateChange(sessionId,
                     SessionStateChangeEvent.builder()
-                            .sessionId(session.getId())
+                            .sessionId(sessionId)
                             .oldStatus(oldStatus)
                             .newStatus(SessionStatus.ENDED)
                             .triggeredBy("System")
@@ -134,7 +138,7 @@ public class SessionTimeoutScheduler {
             );
 
             // ✅ Send system notification
-            webSocketService.broadcastSystemNotification(session.getId(),
+            webSocketService.broadcastSystemNotification(sessionId,
                     SystemNotification.builder()
                             .type("WARNING")
                             .title("Session Auto-Ended")
@@ -144,10 +148,10 @@ public class SessionTimeoutScheduler {
                             .build()
             );
 
-            log.info("✅ Session {} auto-ended successfully", session.getId());
+            log.info("✅ Session {} auto-ended successfully", sessionId);
 
         } catch (Exception e) {
-            log.error("❌ Failed to auto-end session {}: {}", session.getId(), e.getMessage(), e);
+            log.error("❌ Failed to auto-end session {}: {}", sessionId, e.getMessage(), e);
         }
     }
 }
@@ -1,66 +1,43 @@
 package com.fpt.producerworkbench.scheduler;
 
 import com.fpt.producerworkbench.common.TaxPeriodType;
-import com.fpt.producerworkbench.entity.User;
-import com.fpt.producerworkbench.repository.UserRepository;
-import com.fpt.producerworkbench.service.TaxSummaryService;
+import com.fpt.producerworkbench.service.TaxSummaryJobService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
-import java.util.List;
 
 /**
- * Scheduled tasks for automatic tax summary generation
+ * Scheduled tasks for automatic tax summary generation.
+ * Job chạy trên executor riêng của TaxSummaryJobService: scheduler mặc định chỉ có 1 thread,
+ * chạy job trực tiếp ở đây sẽ chặn mọi @Scheduled khác (heartbeat, resync, dọn cache...).
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class TaxScheduledTasks {
     
-    private final TaxSummaryService taxSummaryService;
-    private final UserRepository userRepository;
+    private final TaxSummaryJobService taxSummaryJobService;
     
     /**
      * Chạy vào 00:00 ngày 1 hàng tháng
-     * Tạo summary tháng trước cho tất cả users
+     * Tạo summary tháng trước cho các user có thu nhập trong tháng
      */
     @Scheduled(cron = "0 0 0 1 * ?")
     public void generateMonthlySummaries() {
-        LocalDate now = LocalDate.now();
-        int year = now.getYear();
-        int lastMonth = now.minusMonths(1).getMonthValue();
+        LocalDate lastMonthDate = LocalDate.now().minusMonths(1);
+        int year = lastMonthDate.getYear();
+        int lastMonth = lastMonthDate.getMonthValue();
         
         log.info("Starting monthly tax summary generation for {}/{}", lastMonth, year);
-        
-        List<User> activeUsers = userRepository.findAll(); // TODO: add findAllActive method
-        int successCount = 0;
-        int failCount = 0;
-        
-        for (User user : activeUsers) {
-            try {
-                taxSummaryService.calculateUserTaxSummary(
-                        user.getId(),
-                        TaxPeriodType.MONTHLY,
-                        year,
-                        lastMonth
-                );
-                successCount++;
-            } catch (Exception e) {
-                log.error("Failed to generate summary for user: " + user.getId(), e);
-                failCount++;
-            }
-        }
-        
-        log.info("Monthly summary generation completed. Success: {}, Failed: {}",
-                successCount, failCount);
+        taxSummaryJobService.submitSummaryJob(TaxPeriodType.MONTHLY, year, lastMonth);
     }
     
     /**
      * Chạy vào 00:00 ngày 1 của tháng đầu quý
-     * Tạo summary quý trước cho tất cả users
+     * Tạo summary quý trước cho các user có thu nhập trong quý
      */
     @Scheduled(cron = "0 0 0 1 1,4,7,10 ?")
     public void generateQuarterlySummaries() {
@@ -74,52 +51,18 @@ public class TaxScheduledTasks {
         }
         
         log.info("Starting quarterly tax summary generation for Q{}/{}", lastQuarter, year);
-        
-        List<User> activeUsers = userRepository.findAll();
-        
-        for (User user : activeUsers) {
-            try {
-                taxSummaryService.calculateUserTaxSummary(
-                        user.getId(),
-                        TaxPeriodType.QUARTERLY,
-                        year,
-                        lastQuarter
-                );
-            } catch (Exception e) {
-                log.error("Failed to generate quarterly summary for user: " + user.getId(), e);
-            }
-        }
-        
-        log.info("Quarterly summary generation completed");
+        taxSummaryJobService.submitSummaryJob(TaxPeriodType.QUARTERLY, year, lastQuarter);
     }
     
     /**
      * Chạy vào 00:00 ngày 1/1 hàng năm
-     * Tạo summary năm trước cho tất cả users
+     * Tạo summary năm trước cho các user có thu nhập trong năm
      */
     @Scheduled(cron = "0 0 0 1 1 ?")
     public void generateAnnualSummaries() {
         int lastYear = LocalDate.now().getYear() - 1;
         
         log.info("Starting annual tax summary generation for {}", lastYear);
-        
-        List<User> activeUsers = userRepository.findAll();
-        
-        for (User user : activeUsers) {
-            try {
-                taxSummaryService.calculateUserTaxSummary(
-                        user.getId(),
-                        TaxPeriodType.YEARLY,
-                        lastYear,
-                        null
-                );
-            } catch (Exception e) {
-                log.error("Failed to generate annual summary for user: " + user.getId(), e);
-            }
-        }
-        
-        log.info("Annual summary generation completed");
+        taxSummaryJobService.submitSummaryJob(TaxPeriodType.YEARLY, lastYear, null);
     }
 }
-
-
@@ -1,13 +1,13 @@
 package com.fpt.producerworkbench.scheduler;
 
-import com.fpt.producerworkbench.entity.InvalidatedToken;
 import com.fpt.producerworkbench.repository.InvalidatedTokenRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import java.util.Date;
 
 @Component
 @RequiredArgsConstructor
@@ -16,12 +16,27 @@ public class TokenCleanupScheduler {
 
     final InvalidatedTokenRepository invalidatedTokenRepository;
 
+    @Value("${jwt.cleanup.batch-size:5000}")
+    private int batchSize;
+
+    /**
+     * Chỉ xóa token đã hết hạn (token chưa hết hạn vẫn phải giữ để chặn tái sử dụng),
+     * theo từng batch giới hạn qua index expiry_time thay vì load toàn bộ bảng.
+     * expiry_time là max(exp, iat + refreshable-duration) nên token bị xóa không còn refresh được.
+     */
     @Scheduled(fixedRate = 3600000) // Chạy mỗi giờ
     public void cleanupExpiredTokens(){
         log.info("Start Scheduler Delete Token Expired");
-        List<InvalidatedToken> invalidatedTokens = invalidatedTokenRepository.findAll();
-        if(! invalidatedTokens.isEmpty()){
-            invalidatedTokenRepository.deleteAll();
+        Date now = new Date();
+        long total = 0;
+        int deleted;
+        do {
+            deleted = invalidatedTokenRepository.deleteExpiredBatch(now, batchSize);
+            total += deleted;
+        } while (deleted >= batchSize);
+
+        if (total > 0) {
+            log.info("Deleted {} expired invalidated tokens", total);
         }
     }
 }
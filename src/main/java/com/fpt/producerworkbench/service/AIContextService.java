@@ -1,7 +1,9 @@
 package com.fpt.producerworkbench.service;
 
 import com.fpt.producerworkbench.dto.request.AIContextRequest;
+import com.fpt.producerworkbench.dto.response.AIContextStreamEvent;
 import com.fpt.producerworkbench.dto.response.AIContextualResponse;
+import reactor.core.publisher.Flux;
 
 /**
  * Service interface for AI-powered contextual guidance
@@ -24,6 +26,15 @@ public interface AIContextService {
      */
     AIContextualResponse getContextualGuidance(AIContextRequest request);
 
+    /**
+     * Streaming variant of {@link #getContextualGuidance(AIContextRequest)}
+     * Emits meta (intent + guides), token chunks, follow-up questions and a final done event
+     * 
+     * @param request AI context request with user query
+     * @return Stream of guidance events
+     */
+    Flux<AIContextStreamEvent> streamContextualGuidance(AIContextRequest request);
+
     /**
      * Analyze user query intent
      * 
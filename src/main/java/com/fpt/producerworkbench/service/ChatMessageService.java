@@ -4,10 +4,13 @@ import com.fpt.producerworkbench.dto.request.ChatRequest;
 import com.fpt.producerworkbench.dto.response.ChatResponse;
 import com.fpt.producerworkbench.dto.response.PageResponse;
 
+import java.util.List;
 import java.util.Map;
 
 public interface ChatMessageService {
     ChatResponse createMessage(ChatRequest request);
+
+    List<ChatResponse> createMessages(List<ChatRequest> requests);
     
     PageResponse<ChatResponse> getMessageByConversationId(int page, int size, String conversationId);
     
@@ -17,6 +17,11 @@ public interface FFmpegService {
      * Trộn voice tag vào master audio mỗi ~25 giây sử dụng FFmpeg
      */
     void mixVoiceTagIntoAudio(File masterFile, File voiceTagFile, File outputFile, int intervalSeconds);
+
+    /**
+     * Trộn voice tag vào master audio khi đã biết trước duration của master (bỏ qua lần chạy ffprobe)
+     */
+    void mixVoiceTagIntoAudio(File masterFile, File voiceTagFile, File outputFile, int intervalSeconds, int masterDuration);
     
     /**
      * Convert audio sang HLS (m3u8 + segments) sử dụng FFmpeg
@@ -1,10 +1,12 @@
 package com.fpt.producerworkbench.service;
 
+import com.fpt.producerworkbench.dto.response.BulkDeleteResponse;
 import com.fpt.producerworkbench.dto.response.FileMetaDataResponse;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface FileStorageService {
     String uploadFile(MultipartFile file, String objectKey);
@@ -27,10 +29,14 @@ public interface FileStorageService {
 
     void downloadFile(String objectKey, File destinationFile);
 
+    void uploadDirectory(File directory, String prefix);
+
     String generateUploadPresignedUrl(String objectKey, String contentType, long expiresInSeconds);
 
     void deletePrefix(String prefix);
 
+    CompletableFuture<BulkDeleteResponse> deletePrefixAsync(String prefix);
+
     String generateStreamingUrl(String objectKey);
 
     String extractS3KeyFromUrl(String urlOrKey);
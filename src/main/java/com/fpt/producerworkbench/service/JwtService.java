@@ -3,7 +3,16 @@ package com.fpt.producerworkbench.service;
 import com.fpt.producerworkbench.entity.User;
 import com.nimbusds.jwt.SignedJWT;
 
+import java.text.ParseException;
+import java.util.Date;
+
 public interface JwtService {
     String generateToken(User user);
     SignedJWT verifyToken(String token, boolean isRefresh);
+
+    /**
+     * Thời điểm token không còn dùng được cho cả request lẫn /refresh:
+     * max(exp, iat + refreshable-duration). Bản ghi thu hồi phải được giữ đến thời điểm này.
+     */
+    Date getRevocationExpiry(SignedJWT signedJWT) throws ParseException;
 }
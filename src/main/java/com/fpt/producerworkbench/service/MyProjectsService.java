@@ -1,6 +1,7 @@
 package com.fpt.producerworkbench.service;
 
 import com.fpt.producerworkbench.common.ProjectStatus;
+import com.fpt.producerworkbench.dto.response.CursorPageResponse;
 import com.fpt.producerworkbench.dto.response.ProjectSummaryResponse;
 import com.fpt.producerworkbench.entity.User;
 import org.springframework.data.domain.Page;
@@ -9,4 +10,7 @@ import org.springframework.data.domain.Pageable;
 public interface MyProjectsService {
 
     Page<ProjectSummaryResponse> getMyProjects(User currentUser, String search, ProjectStatus status, Pageable pageable);
-}
\ No newline at end of file
+
+    CursorPageResponse<ProjectSummaryResponse> getMyProjectsByCursor(User currentUser, String search,
+            ProjectStatus status, String cursor, int size);
+}
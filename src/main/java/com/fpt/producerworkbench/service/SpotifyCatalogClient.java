@@ -0,0 +1,37 @@
+package com.fpt.producerworkbench.service;
+
+import java.util.List;
+
+/**
+ * Truy vấn metadata thô từ Spotify catalog (không cache).
+ * SpotifyService cache kết quả và gộp lookup artist theo batch.
+ * Khi Spotify đang giới hạn request, các method ném SpotifyRateLimitedException.
+ */
+public interface SpotifyCatalogClient {
+
+    /**
+     * Số artist tối đa trong 1 request Get Several Artists của Spotify
+     */
+    int MAX_ARTISTS_PER_REQUEST = 50;
+
+    /**
+     * Artists của track, rỗng nếu track không tồn tại
+     */
+    List<ArtistRef> getTrackArtists(String trackId) throws Exception;
+
+    /**
+     * Artists của album, rỗng nếu album không tồn tại
+     */
+    List<ArtistRef> getAlbumArtists(String albumId) throws Exception;
+
+    /**
+     * Thông tin của tối đa MAX_ARTISTS_PER_REQUEST artist trong 1 request; artist không tồn tại bị bỏ qua
+     */
+    List<ArtistInfo> getArtists(List<String> artistIds) throws Exception;
+
+    record ArtistRef(String id, String name) {
+    }
+
+    record ArtistInfo(String id, String name, List<String> genres, String imageUrl) {
+    }
+}
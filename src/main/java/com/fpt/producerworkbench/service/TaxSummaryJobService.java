@@ -0,0 +1,32 @@
+package com.fpt.producerworkbench.service;
+
+import com.fpt.producerworkbench.common.TaxPeriodType;
+import com.fpt.producerworkbench.dto.response.TaxSummaryJobStatusResponse;
+
+import java.util.List;
+
+/**
+ * Job batch tạo tax summary theo kỳ cho các user có phát sinh thu nhập
+ */
+public interface TaxSummaryJobService {
+
+    /**
+     * Chạy (hoặc tiếp tục từ checkpoint) job tạo summary cho kỳ
+     */
+    void runSummaryJob(TaxPeriodType periodType, int year, Integer monthOrQuarter);
+
+    /**
+     * Đưa job vào executor riêng của tax summary rồi trả về ngay, không chiếm thread của caller
+     */
+    void submitSummaryJob(TaxPeriodType periodType, int year, Integer monthOrQuarter);
+
+    /**
+     * Chạy lại kỳ đã COMPLETED / FAILED từ đầu (vd. có payout đến muộn), job chạy nền
+     */
+    void rerunSummaryJob(TaxPeriodType periodType, int year, Integer monthOrQuarter);
+
+    /**
+     * Trạng thái các job đã/đang chạy
+     */
+    List<TaxSummaryJobStatusResponse> getJobStatuses();
+}
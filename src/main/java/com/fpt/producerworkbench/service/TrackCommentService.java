@@ -5,6 +5,7 @@ import com.fpt.producerworkbench.dto.request.TrackCommentStatusUpdateRequest;
 import com.fpt.producerworkbench.dto.request.TrackCommentUpdateRequest;
 import com.fpt.producerworkbench.dto.response.TrackCommentResponse;
 import com.fpt.producerworkbench.dto.response.TrackCommentStatisticsResponse;
+import com.fpt.producerworkbench.dto.response.TrackCommentTimelineResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
@@ -106,6 +107,20 @@ public interface TrackCommentService {
      */
     List<TrackCommentResponse> getCommentsByTimestamp(Authentication auth, Long trackId, Integer timestamp);
 
+    /**
+     * Lấy timeline comment cho player: số comment theo bucket trên toàn bộ duration
+     * và (nếu có from/to) các comment gốc trong khoảng [from, to)
+     * 
+     * @param auth Authentication
+     * @param trackId ID của track
+     * @param buckets Số bucket chia theo duration
+     * @param from Đầu khoảng thời gian (giây, bao gồm), null nếu không lấy comment
+     * @param to Cuối khoảng thời gian (giây, không bao gồm), null nếu không lấy comment
+     * @return Timeline comment
+     */
+    TrackCommentTimelineResponse getCommentTimeline(Authentication auth, Long trackId, int buckets,
+            Integer from, Integer to);
+
     // ==================== Client Room Comments ====================
 
     /**
@@ -148,6 +163,19 @@ public interface TrackCommentService {
      */
     List<TrackCommentResponse> getClientRoomCommentsByTimestamp(Authentication auth, Long deliveryId, Integer timestamp);
 
+    /**
+     * Lấy timeline comment trong Client Room cho player
+     * 
+     * @param auth Authentication
+     * @param deliveryId ID của ClientDelivery
+     * @param buckets Số bucket chia theo duration
+     * @param from Đầu khoảng thời gian (giây, bao gồm), null nếu không lấy comment
+     * @param to Cuối khoảng thời gian (giây, không bao gồm), null nếu không lấy comment
+     * @return Timeline comment
+     */
+    TrackCommentTimelineResponse getClientRoomCommentTimeline(Authentication auth, Long deliveryId, int buckets,
+            Integer from, Integer to);
+
     /**
      * Lấy thống kê comment trong Client Room theo status
      * 
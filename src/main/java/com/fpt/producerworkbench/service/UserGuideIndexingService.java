@@ -141,13 +141,20 @@ public interface UserGuideIndexingService {
     UserGuideStatsResponse getIndexStats();
 
     /**
-     * Reindex all active guides to Pinecone
-     * Used for maintenance or after Pinecone index reset
+     * Start reindexing all active guides to Pinecone in the background
+     * Used for maintenance or after Pinecone index reset; follow it with {@link #getReindexProgress()}
      * 
-     * @return Map with success/failure counts
+     * @return Initial progress of the started job
      */
     Map<String, Object> reindexAllGuides();
 
+    /**
+     * Get progress of the current (or last) reindex job
+     * 
+     * @return Progress info (batches done/total, indexed, failed, running)
+     */
+    Map<String, Object> getReindexProgress();
+
     /**
      * Index multiple guides in batch
      * 
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fpt.producerworkbench.configuration.GeminiConfig;
 import com.fpt.producerworkbench.dto.request.AIContextRequest;
 import com.fpt.producerworkbench.dto.request.UserGuideSearchRequest;
+import com.fpt.producerworkbench.dto.response.AIContextStreamEvent;
 import com.fpt.producerworkbench.dto.response.AIContextualResponse;
 import com.fpt.producerworkbench.dto.response.UserGuideResponse;
 import com.fpt.producerworkbench.dto.response.UserGuideSearchResponse;
@@ -12,28 +13,102 @@ import com.fpt.producerworkbench.exception.AppException;
 import com.fpt.producerworkbench.exception.ErrorCode;
 import com.fpt.producerworkbench.service.AIContextService;
 import com.fpt.producerworkbench.service.UserGuideIndexingService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class AIContextServiceImpl implements AIContextService {
 
     private final UserGuideIndexingService userGuideIndexingService;
     private final GeminiConfig geminiConfig;
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient geminiWebClient;
     private final ObjectMapper objectMapper;
     private final ChatClient aiChatClient;
     private final org.springframework.ai.chat.memory.ChatMemory redisChatMemory;
+    private final SimpleAsyncTaskExecutor aiTaskExecutor;
+    private final SemanticResponseCache semanticResponseCache;
+    private final MeterRegistry meterRegistry;
+
+    public AIContextServiceImpl(
+            UserGuideIndexingService userGuideIndexingService,
+            GeminiConfig geminiConfig,
+            WebClient geminiWebClient,
+            ObjectMapper objectMapper,
+            ChatClient aiChatClient,
+            org.springframework.ai.chat.memory.ChatMemory redisChatMemory,
+            @Qualifier("aiTaskExecutor") SimpleAsyncTaskExecutor aiTaskExecutor,
+            SemanticResponseCache semanticResponseCache,
+            MeterRegistry meterRegistry) {
+        this.userGuideIndexingService = userGuideIndexingService;
+        this.geminiConfig = geminiConfig;
+        this.geminiWebClient = geminiWebClient;
+        this.objectMapper = objectMapper;
+        this.aiChatClient = aiChatClient;
+        this.redisChatMemory = redisChatMemory;
+        this.aiTaskExecutor = aiTaskExecutor;
+        this.semanticResponseCache = semanticResponseCache;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Namespace semantic cache của quick help, bị xóa khi user guide được index lại
+     */
+    public static final String QUICK_HELP_CACHE_NAMESPACE = "quick-help";
+
+    @Value("${ai.context.intent-timeout-ms:3000}")
+    private long intentTimeoutMs;
+
+    @Value("${ai.context.retrieval-timeout-ms:5000}")
+    private long retrievalTimeoutMs;
 
+    private static final String DEFAULT_INTENT = "how-to";
 
+    /**
+     * Từ khóa (VI + EN) cho bộ phân loại intent cục bộ.
+     * Chỉ dùng kết quả local khi query khớp đúng 1 intent, còn lại mới gọi Gemini.
+     */
+    private static final Map<String, Pattern> INTENT_KEYWORDS = new LinkedHashMap<>();
+
+    static {
+        INTENT_KEYWORDS.put("troubleshoot", keywordPattern(
+                "lỗi", "bị lỗi", "không được", "không thể", "không hoạt động", "không hiện", "sai",
+                "error", "bug", "fail", "failed", "not working", "can't", "cannot", "broken"));
+        INTENT_KEYWORDS.put("find-feature", keywordPattern(
+                "ở đâu", "chỗ nào", "nằm ở", "tìm", "nút", "menu", "where", "find", "locate"));
+        INTENT_KEYWORDS.put("best-practice", keywordPattern(
+                "nên", "có nên", "mẹo", "kinh nghiệm", "tốt nhất", "best practice", "tips", "should"));
+        INTENT_KEYWORDS.put("how-to", keywordPattern(
+                "làm sao", "làm thế nào", "cách", "hướng dẫn", "các bước", "how to", "how do", "how can"));
+    }
+
+    private static Pattern keywordPattern(String... keywords) {
+        String alternatives = Arrays.stream(keywords)
+                .map(Pattern::quote)
+                .collect(Collectors.joining("|"));
+        return Pattern.compile("(?<![\\p{L}\\p{N}])(" + alternatives + ")(?![\\p{L}\\p{N}])",
+                Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
 
     /**
      * Prompt template for intent analysis
@@ -116,19 +191,27 @@ public class AIContextServiceImpl implements AIContextService {
 
     @Override
     public AIContextualResponse getContextualGuidance(AIContextRequest request) {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
         log.info("🤖 Generating contextual guidance for: '{}'", request.getQuery());
 
         try {
-            // Step 1: Analyze intent
-            String intent = analyzeIntent(request.getQuery());
-            log.info("   Intent detected: {}", intent);
+            // Step 1 + 2: Intent classification và vector retrieval độc lập nhau -> chạy song song trên virtual thread
+            CompletableFuture<Timed<String>> intentFuture = analyzeIntentAsync(request);
+            CompletableFuture<Timed<UserGuideSearchResponse>> guidesFuture = searchGuidesAsync(request);
 
-            // Step 2: Search guides with images (parallel to QuestionAnswerAdvisor RAG)
-            UserGuideSearchResponse guidesWithImages = searchGuidesWithImages(request);
-            log.info("📸 Found {} guides with images", 
+            Timed<String> intentResult = intentFuture.join();
+            Timed<UserGuideSearchResponse> guidesResult = guidesFuture.join();
+
+            String intent = intentResult.value();
+            UserGuideSearchResponse guidesWithImages = guidesResult.value();
+            log.info("   Intent detected: {}", intent);
+            log.info("📸 Found {} guides with images",
                 guidesWithImages != null ? guidesWithImages.getTotalResults() : 0);
 
+            Map<String, Long> stageTimings = new LinkedHashMap<>();
+            stageTimings.put("intent", intentResult.elapsedMs());
+            stageTimings.put("retrieval", guidesResult.elapsedMs());
+
             // Step 3: Build enhanced prompt with images
             String enhancedPrompt = buildPromptWithImages(request, intent, guidesWithImages);
             log.info("📝 Built prompt: {} chars", enhancedPrompt.length());
@@ -138,6 +221,7 @@ public class AIContextServiceImpl implements AIContextService {
             // We manually added images in the prompt above
             log.info("🔄 Calling ChatClient with sessionId: {}", request.getSessionId());
             
+            long generationStart = System.nanoTime();
             String aiResponse;
             try {
                 aiResponse = aiChatClient.prompt()
@@ -153,28 +237,21 @@ public class AIContextServiceImpl implements AIContextService {
                 log.error("❌ ChatClient call failed: {}", chatError.getMessage(), chatError);
                 throw new RuntimeException("ChatClient error: " + chatError.getMessage(), chatError);
             }
+            stageTimings.put("generation", elapsedMs(generationStart));
 
             // Step 5: MANUALLY SAVE messages to Redis
             // MessageChatMemoryAdvisor only LOADS messages, doesn't auto-save!
-            try {
-                List<org.springframework.ai.chat.messages.Message> conversationMessages = List.of(
-                    new org.springframework.ai.chat.messages.UserMessage(request.getQuery()),
-                    new org.springframework.ai.chat.messages.AssistantMessage(aiResponse)
-                );
-                redisChatMemory.add(request.getSessionId(), conversationMessages);
-                log.info("💾 Saved conversation to Redis (session: {})", request.getSessionId());
-            } catch (Exception saveError) {
-                log.warn("⚠️ Failed to save conversation to Redis: {}", saveError.getMessage());
-                // Don't fail the request if save fails
-            }
+            long memoryStart = System.nanoTime();
+            saveConversation(request, aiResponse);
+            stageTimings.put("memory", elapsedMs(memoryStart));
 
             // Step 6: Parse follow-up questions from AI response
             List<String> followUpQuestions = parseFollowUpQuestions(aiResponse);
             log.info("💡 Extracted {} follow-up questions", followUpQuestions.size());
 
             // Step 7: Build response with guides
-            long processingTime = System.currentTimeMillis() - startTime;
-            log.info("⏱️ Total processing time: {}ms", processingTime);
+            long processingTime = elapsedMs(startTime);
+            log.info("⏱️ Total processing time: {}ms, stages: {}", processingTime, stageTimings);
 
             return AIContextualResponse.builder()
                     .answer(cleanAnswerFromFollowUp(aiResponse)) // Remove FOLLOW_UP section
@@ -183,6 +260,7 @@ public class AIContextServiceImpl implements AIContextService {
                     .relevantGuides(guidesWithImages != null ? guidesWithImages.getGuides() : null)
                     .suggestedActions(followUpQuestions.isEmpty() ? null : followUpQuestions)
                     .processingTimeMs(processingTime)
+                    .stageTimingsMs(stageTimings)
                     .model(geminiConfig.getModel())
                     .build();
 
@@ -192,6 +270,233 @@ public class AIContextServiceImpl implements AIContextService {
         }
     }
     
+    /**
+     * Streaming variant: intent + retrieval vẫn chạy song song, sau đó token của ChatClient
+     * được đẩy ra ngay khi Gemini trả về. Section FOLLOW_UP được parse dần theo từng dòng,
+     * hội thoại chỉ được lưu vào Redis khi stream hoàn tất.
+     */
+    @Override
+    public Flux<AIContextStreamEvent> streamContextualGuidance(AIContextRequest request) {
+        long startTime = System.nanoTime();
+        log.info("🤖 Streaming contextual guidance for: '{}'", request.getQuery());
+
+        return Mono.fromFuture(analyzeIntentAsync(request))
+                .zipWith(Mono.fromFuture(searchGuidesAsync(request)))
+                .flatMapMany(stages -> {
+                    String intent = stages.getT1().value();
+                    UserGuideSearchResponse guidesWithImages = stages.getT2().value();
+                    String enhancedPrompt = buildPromptWithImages(request, intent, guidesWithImages);
+
+                    FollowUpStreamParser parser = new FollowUpStreamParser();
+                    StringBuilder fullResponse = new StringBuilder();
+                    AtomicLong firstTokenNanos = new AtomicLong();
+
+                    AIContextStreamEvent meta = AIContextStreamEvent.builder()
+                            .type(AIContextStreamEvent.TYPE_META)
+                            .intent(intent)
+                            .relevantGuides(guidesWithImages != null ? guidesWithImages.getGuides() : null)
+                            .model(geminiConfig.getModel())
+                            .build();
+
+                    Flux<AIContextStreamEvent> tokens = aiChatClient.prompt()
+                            .user(u -> u.text("{prompt_content}").param("prompt_content", enhancedPrompt))
+                            .advisors(advisorSpec -> advisorSpec
+                                    .param("conversationId", request.getSessionId())
+                            )
+                            .stream()
+                            .content()
+                            .doOnNext(chunk -> {
+                                if (firstTokenNanos.compareAndSet(0, System.nanoTime())) {
+                                    firstTokenTimer().record(Duration.ofNanos(firstTokenNanos.get() - startTime));
+                                }
+                                fullResponse.append(chunk);
+                            })
+                            .concatMapIterable(parser::accept);
+
+                    Flux<AIContextStreamEvent> completion = Flux.defer(() -> {
+                        String aiResponse = fullResponse.toString();
+                        // Lưu Redis trên boundedElastic (hàng đợi, không chặn), không block event loop của WebClient
+                        Mono.fromRunnable(() -> saveConversation(request, aiResponse))
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .subscribe();
+
+                        List<AIContextStreamEvent> events = new ArrayList<>(parser.finish());
+                        long processingTime = elapsedMs(startTime);
+                        Long timeToFirstToken = firstTokenNanos.get() > 0
+                                ? TimeUnit.NANOSECONDS.toMillis(firstTokenNanos.get() - startTime)
+                                : null;
+                        log.info("⏱️ Streamed guidance in {}ms (first token after {}ms)", processingTime, timeToFirstToken);
+
+                        events.add(AIContextStreamEvent.builder()
+                                .type(AIContextStreamEvent.TYPE_DONE)
+                                .suggestedActions(parser.getQuestions().isEmpty() ? null : parser.getQuestions())
+                                .timeToFirstTokenMs(timeToFirstToken)
+                                .processingTimeMs(processingTime)
+                                .build());
+                        return Flux.fromIterable(events);
+                    });
+
+                    return Flux.concat(Flux.just(meta), tokens, completion);
+                })
+                .onErrorResume(e -> {
+                    log.error("❌ Failed to stream contextual guidance: {}", e.getMessage(), e);
+                    return Flux.just(AIContextStreamEvent.builder()
+                            .type(AIContextStreamEvent.TYPE_ERROR)
+                            .text(ErrorCode.UNCATEGORIZED_EXCEPTION.getMessage())
+                            .build());
+                });
+    }
+
+    /**
+     * aiTaskExecutor từ chối task khi đạt concurrency limit (không chặn thread gửi), khi đó dùng ngay giá trị fallback.
+     * completeOnTimeout chỉ giới hạn thời gian chờ; bản thân Gemini call có timeout riêng để task không chạy tiếp.
+     */
+    private CompletableFuture<Timed<String>> analyzeIntentAsync(AIContextRequest request) {
+        Timed<String> fallback = new Timed<>(DEFAULT_INTENT, intentTimeoutMs);
+        return submitOrFallback(() -> timed(() -> analyzeIntent(request.getQuery())), fallback)
+                .completeOnTimeout(fallback, intentTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private CompletableFuture<Timed<UserGuideSearchResponse>> searchGuidesAsync(AIContextRequest request) {
+        Timed<UserGuideSearchResponse> fallback = new Timed<>(null, retrievalTimeoutMs);
+        return submitOrFallback(() -> timed(() -> searchGuidesWithImages(request)), fallback)
+                .completeOnTimeout(fallback, retrievalTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private <T> CompletableFuture<T> submitOrFallback(Supplier<T> task, T fallback) {
+        try {
+            return CompletableFuture.supplyAsync(task, aiTaskExecutor);
+        } catch (TaskRejectedException e) {
+            log.warn("⚠️ aiTaskExecutor is at its concurrency limit, using fallback");
+            return CompletableFuture.completedFuture(fallback);
+        }
+    }
+
+    /**
+     * MANUALLY SAVE messages to Redis
+     * MessageChatMemoryAdvisor only LOADS messages, doesn't auto-save!
+     */
+    private void saveConversation(AIContextRequest request, String aiResponse) {
+        try {
+            List<org.springframework.ai.chat.messages.Message> conversationMessages = List.of(
+                new org.springframework.ai.chat.messages.UserMessage(request.getQuery()),
+                new org.springframework.ai.chat.messages.AssistantMessage(aiResponse)
+            );
+            redisChatMemory.add(request.getSessionId(), conversationMessages);
+            log.info("💾 Saved conversation to Redis (session: {})", request.getSessionId());
+        } catch (Exception saveError) {
+            log.warn("⚠️ Failed to save conversation to Redis: {}", saveError.getMessage());
+            // Don't fail the request if save fails
+        }
+    }
+
+    private Timer firstTokenTimer() {
+        return Timer.builder("ai.context.stream.first.token")
+                .description("Thời gian tới token đầu tiên của AI guidance streaming")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Tách câu trả lời và section FOLLOW_UP từ các chunk streaming.
+     * Phần cuối buffer có thể là nửa đầu của marker nên được giữ lại tới chunk sau;
+     * sau marker, mỗi dòng "- câu hỏi" hoàn chỉnh được phát thành 1 event follow-up.
+     */
+    private static final class FollowUpStreamParser {
+
+        private static final String MARKER = "---FOLLOW_UP---";
+
+        private final StringBuilder pending = new StringBuilder();
+        private final List<String> questions = new ArrayList<>();
+        private boolean inFollowUp;
+
+        List<AIContextStreamEvent> accept(String chunk) {
+            pending.append(chunk);
+            List<AIContextStreamEvent> events = new ArrayList<>();
+
+            if (!inFollowUp) {
+                int markerIndex = pending.indexOf(MARKER);
+                if (markerIndex < 0) {
+                    int safeLength = pending.length() - partialMarkerLength();
+                    if (safeLength > 0) {
+                        emitAnswer(pending.substring(0, safeLength), events);
+                        pending.delete(0, safeLength);
+                    }
+                    return events;
+                }
+                emitAnswer(pending.substring(0, markerIndex), events);
+                pending.delete(0, markerIndex + MARKER.length());
+                inFollowUp = true;
+            }
+
+            int newline;
+            while ((newline = pending.indexOf("\n")) >= 0) {
+                emitQuestion(pending.substring(0, newline), events);
+                pending.delete(0, newline + 1);
+            }
+            return events;
+        }
+
+        List<AIContextStreamEvent> finish() {
+            List<AIContextStreamEvent> events = new ArrayList<>();
+            if (inFollowUp) {
+                emitQuestion(pending.toString(), events);
+            } else {
+                emitAnswer(pending.toString(), events);
+            }
+            pending.setLength(0);
+            return events;
+        }
+
+        List<String> getQuestions() {
+            return questions;
+        }
+
+        private int partialMarkerLength() {
+            for (int length = Math.min(MARKER.length() - 1, pending.length()); length > 0; length--) {
+                if (pending.substring(pending.length() - length).equals(MARKER.substring(0, length))) {
+                    return length;
+                }
+            }
+            return 0;
+        }
+
+        private void emitAnswer(String text, List<AIContextStreamEvent> events) {
+            if (!text.isEmpty()) {
+                events.add(AIContextStreamEvent.builder()
+                        .type(AIContextStreamEvent.TYPE_TOKEN)
+                        .text(text)
+                        .build());
+            }
+        }
+
+        private void emitQuestion(String line, List<AIContextStreamEvent> events) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("-") || trimmed.startsWith("*")) {
+                String question = trimmed.substring(1).trim();
+                if (!question.isEmpty()) {
+                    questions.add(question);
+                    events.add(AIContextStreamEvent.builder()
+                            .type(AIContextStreamEvent.TYPE_FOLLOW_UP)
+                            .text(question)
+                            .build());
+                }
+            }
+        }
+    }
+
+    private static <T> Timed<T> timed(Supplier<T> supplier) {
+        long start = System.nanoTime();
+        T value = supplier.get();
+        return new Timed<>(value, elapsedMs(start));
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private record Timed<T>(T value, long elapsedMs) {
+    }
+
     /**
      * Search guides with images from PostgreSQL
      */
@@ -342,9 +647,16 @@ public class AIContextServiceImpl implements AIContextService {
 
     @Override
     public String analyzeIntent(String query) {
+        Optional<String> localIntent = classifyIntentLocally(query);
+        if (localIntent.isPresent()) {
+            log.info("   ✅ Detected intent (local): {}", localIntent.get());
+            return localIntent.get();
+        }
+
         try {
             String prompt = String.format(INTENT_ANALYSIS_PROMPT, query);
-            String response = callGeminiAPI(prompt);
+            // Timeout đặt trên chính request: hết hạn thì WebClient hủy request, thread (và permit của aiTaskExecutor) được trả ngay
+            String response = callGeminiAPI(prompt, Duration.ofMillis(intentTimeoutMs));
 
             // Clean response - remove whitespace, quotes, and convert to lowercase
             String intent = response.trim()
@@ -362,24 +674,57 @@ public class AIContextServiceImpl implements AIContextService {
             }
 
             log.warn("⚠️ Unknown intent '{}' from response '{}', defaulting to 'how-to'", intent, response);
-            return "how-to";
+            return DEFAULT_INTENT;
 
         } catch (Exception e) {
             log.error("❌ Intent analysis failed: {}", e.getMessage(), e);
-            return "how-to"; // Default fallback
+            return DEFAULT_INTENT; // Default fallback
         }
     }
 
+    /**
+     * Phân loại intent bằng từ khóa, bỏ qua round trip tới Gemini cho các câu hỏi rõ ràng.
+     * Trả về empty nếu không khớp intent nào hoặc khớp nhiều hơn 1 intent (để LLM quyết định).
+     */
+    private Optional<String> classifyIntentLocally(String query) {
+        if (query == null || query.isBlank()) {
+            return Optional.empty();
+        }
+
+        String matched = null;
+        for (Map.Entry<String, Pattern> entry : INTENT_KEYWORDS.entrySet()) {
+            if (entry.getValue().matcher(query).find()) {
+                if (matched != null) {
+                    return Optional.empty();
+                }
+                matched = entry.getKey();
+            }
+        }
+        return Optional.ofNullable(matched);
+    }
+
     @Override
     public AIContextualResponse getQuickHelp(String query) {
+        long startTime = System.nanoTime();
+
         // Quick help - simpler version without full context
-        return getContextualGuidance(
-                AIContextRequest.builder()
-                        .query(query)
-                        .maxGuides(2)
-                        .includeRelatedGuides(false)
-                        .build()
+        // Câu hỏi tương đương (semantic) trả về câu trả lời đã cache, không gọi Gemini/Pinecone
+        AIContextualResponse response = semanticResponseCache.getOrCompute(
+                QUICK_HELP_CACHE_NAMESPACE,
+                query,
+                () -> getContextualGuidance(
+                        AIContextRequest.builder()
+                                .query(query)
+                                .maxGuides(2)
+                                .includeRelatedGuides(false)
+                                .build()
+                ),
+                r -> r.getAnswer() != null && !r.getAnswer().isBlank()
         );
+
+        return response.toBuilder()
+                .processingTimeMs(elapsedMs(startTime))
+                .build();
     }
 
     /**
@@ -426,17 +771,16 @@ public class AIContextServiceImpl implements AIContextService {
     }
 
     /**
-     * Call Gemini API for text generation
+     * Call Gemini API for text generation.
+     * Quá timeout thì subscription bị hủy (WebClient đóng request) và TimeoutException được ném ra.
      */
-    private String callGeminiAPI(String prompt) {
+    private String callGeminiAPI(String prompt, Duration timeout) {
         try {
             // Log request details
             log.debug("🔍 Gemini API Request:");
             log.debug("   Prompt length: {} chars", prompt.length());
             log.debug("   First 200 chars: {}", prompt.substring(0, Math.min(200, prompt.length())));
             
-            WebClient webClient = webClientBuilder.build();
-
             Map<String, Object> requestBody = Map.of(
                     "contents", List.of(
                             Map.of("parts", List.of(
@@ -452,13 +796,12 @@ public class AIContextServiceImpl implements AIContextService {
             
             log.debug("   API URL: {}", apiUrl);
             
-            String response = webClient.post()
+            String response = geminiWebClient.post()
                     .uri(apiUrl)
-                    .header("Content-Type", "application/json")
-                    .header("X-goog-api-key", geminiConfig.getApiKey())
                     .bodyValue(requestBody)
                     .retrieve()
                     .bodyToMono(String.class)
+                    .timeout(timeout)
                     .block();
 
             // Log response details
@@ -609,7 +952,7 @@ public class AIContextServiceImpl implements AIContextService {
             prompt.append("{ \"selected\": [1, 3] }");
             
             // Call AI
-            String aiResponse = callGeminiAPI(prompt.toString());
+            String aiResponse = callGeminiAPI(prompt.toString(), Duration.ofMillis(retrievalTimeoutMs));
             String jsonResponse = extractJsonFromMarkdown(aiResponse);
             JsonNode responseJson = objectMapper.readTree(jsonResponse);
             
@@ -37,8 +37,13 @@ public class AiExplanationServiceImpl implements AiExplanationService {
     
     private final VectorDbIndexingService vectorDbIndexingService;
     private final GeminiConfig geminiConfig;
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient geminiWebClient;
     private final ObjectMapper objectMapper;
+    private final SemanticResponseCache semanticResponseCache;
+
+    private static final String EXPLANATION_CACHE_NAMESPACE = "term-explanation";
+
+    private static final String EXPLANATION_UNAVAILABLE = "Xin lỗi, không thể tạo explanation lúc này. Vui lòng thử lại sau.";
     
     /**
      * Prompt template cho Gemini để generate explanation
@@ -64,10 +69,33 @@ public class AiExplanationServiceImpl implements AiExplanationService {
             """;
     
     /**
-     * Generate explanation cho highlighted text sử dụng RAG
+     * Generate explanation cho highlighted text sử dụng RAG.
+     * Thuật ngữ tương đương (semantic) đã giải thích trước đó được trả từ cache.
      */
     public ExplanationResponse generateExplanation(ExplanationRequest request) {
         long startTime = System.currentTimeMillis();
+
+        // maxRelatedTerms nằm trong namespace (và tag metric của cache) nên phải bị chặn trong [1, MAX_RELATED_TERMS]
+        int maxRelatedTerms = request.getMaxRelatedTerms() == null
+                ? ExplanationRequest.DEFAULT_RELATED_TERMS
+                : Math.clamp(request.getMaxRelatedTerms(), 1, ExplanationRequest.MAX_RELATED_TERMS);
+        request.setMaxRelatedTerms(maxRelatedTerms);
+
+        ExplanationResponse response = semanticResponseCache.getOrCompute(
+                EXPLANATION_CACHE_NAMESPACE + ":" + maxRelatedTerms,
+                request.getHighlightedText(),
+                () -> generateExplanationUncached(request),
+                r -> !EXPLANATION_UNAVAILABLE.equals(r.getExplanation())
+        );
+
+        return response.toBuilder()
+                .originalText(request.getHighlightedText())
+                .processingTimeMs(System.currentTimeMillis() - startTime)
+                .build();
+    }
+
+    private ExplanationResponse generateExplanationUncached(ExplanationRequest request) {
+        long startTime = System.currentTimeMillis();
         
         log.info("🔍 Generating explanation for: '{}'", request.getHighlightedText());
         
@@ -169,11 +197,8 @@ public class AiExplanationServiceImpl implements AiExplanationService {
             log.debug("📤 Sending prompt to Gemini REST API...");
             
             // Call Gemini API
-            WebClient webClient = webClientBuilder.build();
-            String response = webClient.post()
+            String response = geminiWebClient.post()
                     .uri(url)
-                    .header("Content-Type", "application/json")
-                    .header("x-goog-api-key", geminiConfig.getApiKey())
                     .bodyValue(requestBody)
                     .retrieve()
                     .bodyToMono(String.class)
@@ -192,7 +217,7 @@ public class AiExplanationServiceImpl implements AiExplanationService {
             
         } catch (Exception e) {
             log.error("❌ Error calling Gemini API", e);
-            return "Xin lỗi, không thể tạo explanation lúc này. Vui lòng thử lại sau.";
+            return EXPLANATION_UNAVAILABLE;
         }
     }
 }
@@ -0,0 +1,193 @@
+package com.fpt.producerworkbench.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hàng đợi job xử lý audio track chạy trên audioProcessingExecutor.
+ * - Fair scheduling theo user: mỗi user có hàng đợi riêng, worker rảnh lấy job theo vòng (round-robin)
+ *   nên 1 user upload hàng loạt không chặn track của user khác.
+ * - Retry với exponential backoff khi pipeline lỗi.
+ * - Metrics: audio.processing.queue.depth, audio.processing.active, audio.processing.jobs
+ */
+@Service
+@Slf4j(topic = "AUDIO-PROCESSING-QUEUE")
+public class AudioProcessingJobQueue {
+
+    private final ThreadPoolTaskExecutor audioProcessingExecutor;
+    private final int maxWorkers;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "pwb-audio-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Các field dưới được bảo vệ bởi lock (this)
+    private final Map<Long, Deque<Job>> pendingByUser = new HashMap<>();
+    private final Set<Long> userRotation = new LinkedHashSet<>();
+    private final Set<Long> pendingTrackIds = new HashSet<>();
+    private int pendingCount = 0;
+    private int runningCount = 0;
+
+    private final Counter succeededCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+
+    public AudioProcessingJobQueue(
+            @Qualifier("audioProcessingExecutor") ThreadPoolTaskExecutor audioProcessingExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${audio.processing.max-attempts:3}") int maxAttempts,
+            @Value("${audio.processing.initial-backoff-ms:5000}") long initialBackoffMs) {
+        this.audioProcessingExecutor = audioProcessingExecutor;
+        this.maxWorkers = audioProcessingExecutor.getMaxPoolSize();
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = initialBackoffMs;
+
+        Gauge.builder("audio.processing.queue.depth", this, AudioProcessingJobQueue::getPendingCount)
+                .description("Số job xử lý audio đang chờ")
+                .register(meterRegistry);
+        Gauge.builder("audio.processing.active", this, AudioProcessingJobQueue::getRunningCount)
+                .description("Số job xử lý audio đang chạy")
+                .register(meterRegistry);
+        this.succeededCounter = Counter.builder("audio.processing.jobs").tag("result", "success").register(meterRegistry);
+        this.retriedCounter = Counter.builder("audio.processing.jobs").tag("result", "retry").register(meterRegistry);
+        this.failedCounter = Counter.builder("audio.processing.jobs").tag("result", "failed").register(meterRegistry);
+    }
+
+    /**
+     * Đưa track vào hàng đợi. Bỏ qua nếu track đang chờ trong hàng đợi
+     * (pipeline luôn đọc lại track khi bắt đầu chạy nên không cần xử lý 2 lần).
+     *
+     * @param userId    chủ sở hữu job (dùng cho fair scheduling)
+     * @param trackId   track cần xử lý
+     * @param task      pipeline xử lý, ném exception nếu thất bại
+     * @param onFailure callback khi đã hết số lần retry
+     */
+    public void submit(Long userId, Long trackId, Runnable task, Consumer<Exception> onFailure) {
+        enqueue(new Job(userId, trackId, task, onFailure, 1));
+    }
+
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    public synchronized int getRunningCount() {
+        return runningCount;
+    }
+
+    private void enqueue(Job job) {
+        synchronized (this) {
+            if (!pendingTrackIds.add(job.trackId())) {
+                log.info("Track {} đã nằm trong hàng đợi xử lý, bỏ qua", job.trackId());
+                return;
+            }
+            pendingByUser.computeIfAbsent(job.userId(), k -> new ArrayDeque<>()).addLast(job);
+            userRotation.add(job.userId());
+            pendingCount++;
+        }
+        log.info("Enqueued track {} (user {}, attempt {}/{})", job.trackId(), job.userId(), job.attempt(), maxAttempts);
+        dispatch();
+    }
+
+    private void dispatch() {
+        while (true) {
+            Job job;
+            synchronized (this) {
+                if (runningCount >= maxWorkers || userRotation.isEmpty()) {
+                    return;
+                }
+                Long userId = userRotation.iterator().next();
+                userRotation.remove(userId);
+
+                Deque<Job> jobs = pendingByUser.get(userId);
+                job = jobs.pollFirst();
+                if (jobs.isEmpty()) {
+                    pendingByUser.remove(userId);
+                } else {
+                    // Đưa user xuống cuối vòng để user khác được phục vụ trước
+                    userRotation.add(userId);
+                }
+                pendingTrackIds.remove(job.trackId());
+                pendingCount--;
+                runningCount++;
+            }
+
+            try {
+                audioProcessingExecutor.execute(() -> run(job));
+            } catch (Exception e) {
+                log.error("Không thể submit job cho track {}: {}", job.trackId(), e.getMessage());
+                synchronized (this) {
+                    runningCount--;
+                }
+                handleFailure(job, e);
+                return;
+            }
+        }
+    }
+
+    private void run(Job job) {
+        try {
+            job.task().run();
+            succeededCounter.increment();
+        } catch (Exception e) {
+            handleFailure(job, e);
+        } finally {
+            synchronized (this) {
+                runningCount--;
+            }
+            dispatch();
+        }
+    }
+
+    private void handleFailure(Job job, Exception e) {
+        if (job.attempt() < maxAttempts) {
+            long backoffMs = initialBackoffMs * (1L << (job.attempt() - 1));
+            log.warn("Xử lý track {} thất bại (lần {}/{}): {}. Retry sau {} ms",
+                    job.trackId(), job.attempt(), maxAttempts, e.getMessage(), backoffMs);
+            retriedCounter.increment();
+            retryScheduler.schedule(() -> enqueue(job.nextAttempt()), backoffMs, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        log.error("Xử lý track {} thất bại sau {} lần: {}", job.trackId(), job.attempt(), e.getMessage());
+        failedCounter.increment();
+        try {
+            job.onFailure().accept(e);
+        } catch (Exception callbackError) {
+            log.error("Lỗi khi đánh dấu track {} thất bại: {}", job.trackId(), callbackError.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+    }
+
+    private record Job(Long userId, Long trackId, Runnable task, Consumer<Exception> onFailure, int attempt) {
+        Job nextAttempt() {
+            return new Job(userId, trackId, task, onFailure, attempt + 1);
+        }
+    }
+}
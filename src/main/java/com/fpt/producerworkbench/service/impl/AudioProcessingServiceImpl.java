@@ -6,18 +6,26 @@ import com.fpt.producerworkbench.exception.AppException;
 import com.fpt.producerworkbench.exception.ErrorCode;
 import com.fpt.producerworkbench.repository.TrackMilestoneRepository;
 import com.fpt.producerworkbench.service.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Implementation của AudioProcessingService sử dụng:
@@ -25,6 +33,9 @@ import java.util.UUID;
  * - FFmpeg cho mixing voice tag và convert HLS
  * - ffprobe cho lấy duration
  * - AWS S3 cho storage
+ * <p>
+ * Mỗi track PROCESSING được 1 node nhận (processing_owner + heartbeat) trước khi đưa vào hàng đợi,
+ * nên khi chạy nhiều replica, track không bị transcode / upload nhiều lần.
  */
 @Service
 @RequiredArgsConstructor
@@ -36,6 +47,8 @@ public class AudioProcessingServiceImpl implements AudioProcessingService {
     private final VoiceTagTtsService voiceTagTtsService;
     private final FFmpegService ffmpegService;
     private final FileStorageService fileStorageService;
+    private final AudioProcessingJobQueue audioProcessingJobQueue;
+    private final MeterRegistry meterRegistry;
 
     @Value("${storage.base-dir:/var/pwb-files}")
     private String storageBaseDir;
@@ -43,75 +56,158 @@ public class AudioProcessingServiceImpl implements AudioProcessingService {
     @Value("${ffmpeg.voice-tag.interval-seconds:25}")
     private int voiceTagIntervalSeconds;
 
-    @Async
-    @Transactional
+    @Value("${audio.processing.claim-stale-seconds:300}")
+    private long claimStaleSeconds;
+
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    /**
+     * Đưa track vào hàng đợi xử lý riêng (audioProcessingExecutor, fair theo user, có retry).
+     * Track vừa được trigger nên node hiện tại nhận quyền xử lý kể cả khi node khác đang xử lý bản cũ.
+     */
     @Override
     public void processTrackAudio(Long trackId) {
+        Track track = trackRepository.findById(trackId)
+                .orElseThrow(() -> new AppException(ErrorCode.BAD_REQUEST, "Track không tồn tại"));
+
+        if (trackRepository.takeOverProcessing(trackId, ProcessingStatus.PROCESSING, NODE_ID, new Date()) == 0) {
+            log.warn("Track {} không ở trạng thái PROCESSING, bỏ qua xử lý audio", trackId);
+            return;
+        }
+        submit(track.getUser().getId(), trackId);
+    }
+
+    /**
+     * Khi khởi động và định kỳ sau đó, nhận lại các track PROCESSING không có node nào xử lý
+     * (node trước đó crash / bị tắt nên heartbeat quá hạn) và đưa vào hàng đợi.
+     * Mỗi track được claim atomic nên chỉ 1 replica nhận được.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${audio.processing.resume-interval-ms:60000}",
+            fixedDelayString = "${audio.processing.resume-interval-ms:60000}")
+    public void resumeInterruptedProcessing() {
+        Date now = new Date();
+        Date staleBefore = staleBefore(now);
+        int resumed = 0;
+        for (Track track : trackRepository.findUnclaimedProcessing(ProcessingStatus.PROCESSING, staleBefore)) {
+            if (trackRepository.claimProcessing(track.getId(), ProcessingStatus.PROCESSING,
+                    NODE_ID, now, staleBefore) == 1) {
+                submit(track.getUser().getId(), track.getId());
+                resumed++;
+            }
+        }
+
+        if (resumed > 0) {
+            log.info("Đã nhận lại {} track PROCESSING vào hàng đợi xử lý audio", resumed);
+        }
+    }
+
+    /**
+     * Gia hạn heartbeat cho các track node đang giữ (đang chờ trong hàng đợi hoặc đang xử lý)
+     */
+    @Scheduled(fixedDelayString = "${audio.processing.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        trackRepository.touchProcessingHeartbeat(NODE_ID, ProcessingStatus.PROCESSING, new Date());
+    }
+
+    private void submit(Long userId, Long trackId) {
+        audioProcessingJobQueue.submit(
+                userId,
+                trackId,
+                () -> runProcessingPipeline(trackId),
+                e -> markFailed(trackId, e));
+    }
+
+    private Date staleBefore(Date now) {
+        return new Date(now.getTime() - claimStaleSeconds * 1000);
+    }
+
+    /**
+     * Pipeline xử lý trên thư mục làm việc local: master chỉ download 1 lần,
+     * ffprobe / mix voice tag / HLS chạy nối tiếp trên file local,
+     * HLS segments được upload song song bằng S3TransferManager.uploadDirectory.
+     * Ném exception nếu thất bại để job queue retry.
+     */
+    private void runProcessingPipeline(Long trackId) {
         log.info("Bắt đầu xử lý audio cho track ID: {}", trackId);
-        
+
+        // Job có thể đã chờ lâu trong hàng đợi / retry: xác nhận node vẫn giữ track trước khi xử lý
+        Date now = new Date();
+        if (trackRepository.claimProcessing(trackId, ProcessingStatus.PROCESSING, NODE_ID, now, staleBefore(now)) == 0) {
+            log.info("Track {} đã được node khác nhận hoặc không còn PROCESSING, bỏ qua", trackId);
+            return;
+        }
+
         Track track = trackRepository.findById(trackId)
                 .orElseThrow(() -> new AppException(ErrorCode.BAD_REQUEST, "Track không tồn tại"));
         
+        File workDir = null;
         try {
+            workDir = createWorkDirectory("track-" + trackId + "-");
 
-            String audioForHls;
+            File masterFile = new File(workDir, "master" + getFileExtension(track.getS3OriginalKey()));
+            runStage("download", () -> fileStorageService.downloadFile(track.getS3OriginalKey(), masterFile));
+            log.info("Downloaded master ({} bytes) cho track {}", masterFile.length(), trackId);
+
+            int duration = recordStage("probe", () -> ffmpegService.getAudioDuration(masterFile));
+
+            File audioForHls;
+            String voiceTagAudioKey = null;
 
             if (Boolean.TRUE.equals(track.getVoiceTagEnabled()) && track.getVoiceTagText() != null) {
                 log.info("Track {} bật voice tag. Bắt đầu TTS và mixing...", trackId);
                 
-                String voiceTagKey = generateVoiceTagAudio(track.getVoiceTagText(), trackId);
-                track.setVoiceTagAudioKey(voiceTagKey);
+                File voiceTagFile = new File(workDir, "voice-tag.mp3");
+                voiceTagAudioKey = recordStage("tts",
+                        () -> synthesizeVoiceTag(track.getVoiceTagText(), trackId, voiceTagFile));
                 
-                // Trộn voice tag vào master
-                audioForHls = mixVoiceTagIntoAudio(track.getS3OriginalKey(), voiceTagKey, trackId);
+                // Trộn voice tag vào master (local, không upload file trung gian)
+                File mixedFile = new File(workDir, "mixed.m4a");
+                runStage("mix", () -> ffmpegService.mixVoiceTagIntoAudio(
+                        masterFile, voiceTagFile, mixedFile, voiceTagIntervalSeconds, duration));
+                log.info("FFmpeg mixed audio successfully, size: {} bytes", mixedFile.length());
+                audioForHls = mixedFile;
             } else {
                 log.info("Track {} không bật voice tag. Dùng trực tiếp master.", trackId);
-                audioForHls = track.getS3OriginalKey();
+                audioForHls = masterFile;
             }
 
-            String hlsPrefix = convertToHls(audioForHls, trackId);
-            track.setHlsPrefix(hlsPrefix);
-
-            Integer duration = getAudioDuration(track.getS3OriginalKey());
-            track.setDuration(duration);
+            File hlsDir = new File(workDir, "hls");
+            runStage("hls", () -> ffmpegService.convertToHLS(audioForHls, hlsDir, 10));
 
-            track.setProcessingStatus(ProcessingStatus.READY);
-            track.setErrorMessage(null);
-            trackRepository.save(track);
+            String hlsPrefix = fileKeyGenerator.generateTrackHlsPrefix(trackId);
+            runStage("upload", () -> uploadHlsDirectory(hlsDir, hlsPrefix));
+
+            // Ghi kết quả bằng update atomic trong transaction riêng (không save entity detached),
+            // chỉ khi node vẫn giữ track
+            int updated = trackRepository.completeProcessing(trackId, NODE_ID, hlsPrefix, duration,
+                    voiceTagAudioKey, ProcessingStatus.PROCESSING, ProcessingStatus.READY);
+            if (updated == 0) {
+                log.warn("Track {} đã được node khác nhận lại trong lúc xử lý, bỏ kết quả", trackId);
+                return;
+            }
 
             log.info("Hoàn thành xử lý audio cho track ID: {}", trackId);
 
         } catch (Exception e) {
             log.error("Lỗi khi xử lý audio cho track ID {}: {}", trackId, e.getMessage(), e);
-            
-            track.setProcessingStatus(ProcessingStatus.FAILED);
-            track.setErrorMessage("Lỗi xử lý audio: " + e.getMessage());
-            trackRepository.save(track);
+            throw e instanceof RuntimeException re ? re : new RuntimeException(e);
+        } finally {
+            cleanupTempDirectory(workDir);
         }
     }
 
+    private void markFailed(Long trackId, Exception e) {
+        trackRepository.failProcessing(trackId, NODE_ID, "Lỗi xử lý audio: " + e.getMessage(),
+                ProcessingStatus.PROCESSING, ProcessingStatus.FAILED);
+    }
+
     @Override
     public String generateVoiceTagAudio(String text, Long trackId) {
-        log.info("Tạo voice tag audio cho track {} bằng Google Cloud TTS (tiếng Việt)", trackId);
-        log.info("Text: {}", text);
-
         File tempFile = null;
         try {
             tempFile = createTempFile("voice-tag-", ".mp3");
-            
-            try (InputStream audioStream = voiceTagTtsService.synthesizeVoiceTag(text);
-                 FileOutputStream fos = new FileOutputStream(tempFile)) {
-                audioStream.transferTo(fos);
-            }
-
-            log.info("Google TTS synthesized audio, size: {} bytes", tempFile.length());
-
-            String voiceTagKey = fileKeyGenerator.generateTrackVoiceTagKey(trackId);
-            fileStorageService.uploadFile(tempFile, voiceTagKey, "audio/mpeg");
-
-            log.info("Voice tag uploaded to S3: {}", voiceTagKey);
-            return voiceTagKey;
-
+            return synthesizeVoiceTag(text, trackId, tempFile);
         } catch (Exception e) {
             log.error("Lỗi khi tạo voice tag cho track {}: {}", trackId, e.getMessage(), e);
             throw new RuntimeException("Không thể tạo voice tag audio", e);
@@ -248,18 +344,79 @@ public class AudioProcessingServiceImpl implements AudioProcessingService {
     }
 
     /**
-     * Xóa thư mục tạm và tất cả files bên trong
+     * Đo thời gian từng stage của pipeline (metric audio.processing.stage)
+     */
+    private <T> T recordStage(String stage, StageCall<T> call) throws Exception {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return call.call();
+        } finally {
+            sample.stop(meterRegistry.timer("audio.processing.stage", "stage", stage));
+        }
+    }
+
+    private void runStage(String stage, StageRunnable runnable) throws Exception {
+        recordStage(stage, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    private interface StageCall<T> {
+        T call() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface StageRunnable {
+        void run() throws Exception;
+    }
+
+    /**
+     * Tạo thư mục làm việc tạm trong thư mục storage
+     */
+    private File createWorkDirectory(String prefix) throws Exception {
+        File tempDir = new File(storageBaseDir, "temp");
+        if (!tempDir.exists() && !tempDir.mkdirs()) {
+            throw new RuntimeException("Không thể tạo temp directory: " + tempDir.getAbsolutePath());
+        }
+        return Files.createTempDirectory(tempDir.toPath(), prefix).toFile();
+    }
+
+    /**
+     * Tạo voice tag bằng TTS vào file local cho trước và upload lên S3
+     */
+    private String synthesizeVoiceTag(String text, Long trackId, File outputFile) throws Exception {
+        log.info("Tạo voice tag audio cho track {} bằng Google Cloud TTS (tiếng Việt)", trackId);
+        log.info("Text: {}", text);
+
+        try (InputStream audioStream = voiceTagTtsService.synthesizeVoiceTag(text);
+             FileOutputStream fos = new FileOutputStream(outputFile)) {
+            audioStream.transferTo(fos);
+        }
+
+        log.info("Google TTS synthesized audio, size: {} bytes", outputFile.length());
+
+        String voiceTagKey = fileKeyGenerator.generateTrackVoiceTagKey(trackId);
+        fileStorageService.uploadFile(outputFile, voiceTagKey, "audio/mpeg");
+
+        log.info("Voice tag uploaded to S3: {}", voiceTagKey);
+        return voiceTagKey;
+    }
+
+    /**
+     * Xóa thư mục tạm và tất cả files / thư mục con bên trong
      */
     private void cleanupTempDirectory(File dir) {
         if (dir != null && dir.exists() && dir.isDirectory()) {
-            try {
-                File[] files = dir.listFiles();
-                if (files != null) {
-                    for (File file : files) {
-                        Files.delete(file.toPath());
+            try (Stream<Path> paths = Files.walk(dir.toPath())) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (Exception e) {
+                        log.warn("Không thể xóa {}: {}", path, e.getMessage());
                     }
-                }
-                Files.delete(dir.toPath());
+                });
                 log.debug("Deleted temp directory: {}", dir.getAbsolutePath());
             } catch (Exception e) {
                 log.warn("Không thể xóa temp directory {}: {}", dir.getAbsolutePath(), e.getMessage());
@@ -279,32 +436,15 @@ public class AudioProcessingServiceImpl implements AudioProcessingService {
     }
 
     /**
-     * Upload tất cả files trong HLS directory lên S3
+     * Upload tất cả files trong HLS directory lên S3 (song song qua S3TransferManager)
      */
-    private void uploadHlsDirectory(File hlsDir, String s3Prefix) throws Exception {
+    private void uploadHlsDirectory(File hlsDir, String s3Prefix) {
         File[] files = hlsDir.listFiles();
         if (files == null || files.length == 0) {
             throw new RuntimeException("HLS directory rỗng: " + hlsDir.getAbsolutePath());
         }
 
-        for (File file : files) {
-            if (file.isFile()) {
-                String fileName = file.getName();
-                String s3Key = s3Prefix + fileName;
-                
-                String contentType;
-                if (fileName.endsWith(".m3u8")) {
-                    contentType = "application/vnd.apple.mpegurl";
-                } else if (fileName.endsWith(".ts")) {
-                    contentType = "video/mp2t";
-                } else {
-                    contentType = "application/octet-stream";
-                }
-
-                fileStorageService.uploadFile(file, s3Key, contentType);
-                log.debug("Uploaded HLS file: {} -> {}", fileName, s3Key);
-            }
-        }
+        fileStorageService.uploadDirectory(hlsDir, s3Prefix);
 
         log.info("Uploaded {} HLS files to S3", files.length);
     }
@@ -6,12 +6,10 @@ import com.fpt.producerworkbench.dto.request.*;
 import com.fpt.producerworkbench.dto.response.AuthenticationResponse;
 import com.fpt.producerworkbench.dto.response.ExchangeTokenResponse;
 import com.fpt.producerworkbench.dto.response.IntrospectResponse;
-import com.fpt.producerworkbench.entity.InvalidatedToken;
 import com.fpt.producerworkbench.entity.Portfolio;
 import com.fpt.producerworkbench.entity.User;
 import com.fpt.producerworkbench.exception.AppException;
 import com.fpt.producerworkbench.exception.ErrorCode;
-import com.fpt.producerworkbench.repository.InvalidatedTokenRepository;
 import com.fpt.producerworkbench.repository.PortfolioRepository;
 import com.fpt.producerworkbench.repository.UserRepository;
 import com.fpt.producerworkbench.repository.http_client.OutboundIdentityClient;
@@ -60,7 +58,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
     protected final String GRANT_TYPE = "authorization_code";
 
     UserRepository userRepository;
-    InvalidatedTokenRepository invalidatedTokenRepository;
+    TokenRevocationService tokenRevocationService;
     JwtService jwtService;
     AuthenticationManager authenticationManager;
     OutboundIdentityClient outboundIdentityClient;
@@ -147,16 +145,10 @@ public class AuthenticationServiceImpl implements AuthenticationService {
             var signToken = jwtService.verifyToken(request.getToken(), true);
 
             String jit = signToken.getJWTClaimsSet().getJWTID();
-            Date expiryTime = signToken.getJWTClaimsSet().getExpirationTime();
+            // Giữ bản ghi thu hồi đến hết hạn refresh, không chỉ đến exp của access token
+            Date expiryTime = jwtService.getRevocationExpiry(signToken);
 
-            if (!invalidatedTokenRepository.existsById(jit)) {
-                InvalidatedToken invalidatedToken = InvalidatedToken.builder()
-                        .id(jit)
-                        .expiryTime(expiryTime)
-                        .build();
-
-                invalidatedTokenRepository.save(invalidatedToken);
-            } else {
+            if (!tokenRevocationService.revoke(jit, expiryTime)) {
                 log.info("Token has already been invalidated");
             }
 
@@ -174,11 +166,9 @@ public class AuthenticationServiceImpl implements AuthenticationService {
         try {
             jit = signJWT.getJWTClaimsSet().getJWTID();
 
-            var expiryTime = signJWT.getJWTClaimsSet().getExpirationTime();
+            var expiryTime = jwtService.getRevocationExpiry(signJWT);
 
-            InvalidatedToken invalidatedToken =
-                    InvalidatedToken.builder().id(jit).expiryTime(expiryTime).build();
-            invalidatedTokenRepository.save(invalidatedToken);
+            tokenRevocationService.revoke(jit, expiryTime);
 
             var email = signJWT.getJWTClaimsSet().getSubject();
             var user = userRepository
@@ -28,6 +28,8 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -60,41 +62,88 @@ public class ChatMessageServiceImpl implements ChatMessageService {
                 .findById(request.getConversationId())
                 .orElseThrow(() -> new AppException(ErrorCode.CONVERSATION_NOT_FOUND));
 
-        ChatMessage chatMessage = buildChatMessage(request, currentUser);
+        ChatMessage chatMessage = buildChatMessage(request, currentUser, conversation);
+        chatMessageRepository.saveAndFlush(chatMessage);
 
-        List<ParticipantInfo> participantInfos = conversation.getParticipants();
-        Set<String> userIds = participantInfos.stream()
-                .map(participantInfo -> participantInfo.getUser().getEmail())
-                .collect(Collectors.toSet());
+        Set<String> onlineUserIds = resolveOnlineUserIds(getParticipantEmails(conversation));
+        afterCommit(() -> deliverMessage(chatMessage, conversation, currentUser, request.getTempId(), onlineUserIds));
 
-        Set<WebSocketSession> socketSessions = socketSessionRedisService.getSessionByUserIds(userIds);
+        return ChatMessageMapper.toSenderResponse(chatMessage, request.getTempId());
+    }
 
-        Set<String> onlineUserIds = socketSessions.stream()
-                .map(WebSocketSession::getUserId)
-                .collect(Collectors.toSet());
+    /**
+     * Lưu và phân phối cả batch tin nhắn (dùng cho Kafka batch listener):
+     * sender / conversation (kèm participants) / online sessions được resolve 1 lần cho cả batch,
+     * tin nhắn được insert bằng JDBC batch. Request không hợp lệ bị bỏ qua, không làm hỏng cả batch.
+     * WebSocket / email / push chỉ được gửi sau khi transaction commit, để batch bị rollback
+     * (và được consumer retry) không gửi trùng tin nhắn.
+     */
+    @Transactional
+    public List<ChatResponse> createMessages(List<ChatRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return List.of();
+        }
 
-        onlineUserIds.forEach(userId -> {
-            ChatResponse userResponse = ChatMessageMapper.toWebSocketResponse(
-                    chatMessage, userId, request.getTempId());
+        List<String> senderEmails = requests.stream()
+                .map(ChatRequest::getSender)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<String, User> senders = userRepository.findAllByEmailIn(senderEmails).stream()
+                .collect(Collectors.toMap(User::getEmail, user -> user, (first, second) -> first));
+
+        Set<String> conversationIds = requests.stream()
+                .map(ChatRequest::getConversationId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, Conversation> conversations = conversationRepository.findAllWithParticipantsByIdIn(conversationIds)
+                .stream()
+                .collect(Collectors.toMap(Conversation::getId, conversation -> conversation));
+
+        List<ChatMessage> chatMessages = new ArrayList<>();
+        List<ChatRequest> acceptedRequests = new ArrayList<>();
+        for (ChatRequest request : requests) {
+            User sender = senders.get(request.getSender());
+            Conversation conversation = conversations.get(request.getConversationId());
+            if (sender == null || conversation == null) {
+                log.warn("Skipped chat message: sender {} or conversation {} not found",
+                        request.getSender(), request.getConversationId());
+                continue;
+            }
+            try {
+                chatMessages.add(buildChatMessage(request, sender, conversation));
+                acceptedRequests.add(request);
+            } catch (AppException e) {
+                log.warn("Skipped invalid chat message from {}: {}", request.getSender(), e.getMessage());
+            }
+        }
 
-            messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/messages", userResponse);
-            log.info("Sent message to user: {} (me: {})", userId, userResponse.isMe());
-        });
+        // Id là UUID nên saveAll không insert ngay: flush để lỗi DB xảy ra trước khi đăng ký phân phối
+        chatMessageRepository.saveAllAndFlush(chatMessages);
 
-        Set<String> offlineUserIds = userIds.stream()
-                .filter(userId -> !onlineUserIds.contains(userId))
-                .filter(userId -> !userId.equals(currentUser.getEmail()))
+        Set<String> allParticipantEmails = chatMessages.stream()
+                .map(ChatMessage::getConversation)
+                .distinct()
+                .flatMap(conversation -> getParticipantEmails(conversation).stream())
                 .collect(Collectors.toSet());
+        Set<String> onlineUserIds = resolveOnlineUserIds(allParticipantEmails);
 
-        if (!offlineUserIds.isEmpty()) {
-            sendEmailNotificationToOfflineUsers(offlineUserIds, currentUser, chatMessage, conversation);
+        List<ChatResponse> responses = new ArrayList<>(chatMessages.size());
+        for (int i = 0; i < chatMessages.size(); i++) {
+            responses.add(ChatMessageMapper.toSenderResponse(chatMessages.get(i), acceptedRequests.get(i).getTempId()));
         }
 
-        // Send push notifications to all recipients (except sender)
-        // Push notifications work even when user is online but tab is not focused
-        sendPushNotificationToRecipients(participantInfos, currentUser, chatMessage, conversation);
+        afterCommit(() -> {
+            for (int i = 0; i < chatMessages.size(); i++) {
+                ChatMessage chatMessage = chatMessages.get(i);
+                deliverMessage(chatMessage, chatMessage.getConversation(), chatMessage.getSender(),
+                        acceptedRequests.get(i).getTempId(), onlineUserIds);
+            }
+        });
 
-        return ChatMessageMapper.toSenderResponse(chatMessage, request.getTempId());
+        log.info("Persisted {} chat messages across {} conversations (batch of {})",
+                chatMessages.size(), conversations.size(), requests.size());
+        return responses;
     }
 
     public PageResponse<ChatResponse> getMessageByConversationId(int page, int size, String conversationId) {
@@ -151,10 +200,7 @@ public class ChatMessageServiceImpl implements ChatMessageService {
 
         log.info("Checking online status for conversation {}: participants = {}", conversationId, userEmails);
 
-        Set<WebSocketSession> onlineSessions = socketSessionRedisService.getSessionByUserIds(userEmails);
-        Set<String> onlineUserEmails = onlineSessions.stream()
-                .map(WebSocketSession::getUserId)
-                .collect(Collectors.toSet());
+        Set<String> onlineUserEmails = socketSessionRedisService.getOnlineUserIds(userEmails);
 
         log.info("Online users from Redis: {}", onlineUserEmails);
 
@@ -169,15 +215,12 @@ public class ChatMessageServiceImpl implements ChatMessageService {
         return onlineStatus;
     }
 
-    private ChatMessage buildChatMessage(ChatRequest request, User sender) {
+    private ChatMessage buildChatMessage(ChatRequest request, User sender, Conversation conversation) {
         MessageType messageType = request.getMessageType();
 
         if (messageType != MessageType.TEXT && request.getMediaAttachments() == null) {
             throw new AppException(ErrorCode.MEDIA_URL_NOT_BLANK);
         }
-        Conversation conversation = conversationRepository
-                .findById(request.getConversationId())
-                .orElseThrow(() -> new RuntimeException("Conversation not found: " + request.getConversationId()));
 
         ChatMessage chatMessage = new ChatMessage();
         chatMessage.setConversation(conversation);
@@ -211,17 +254,74 @@ public class ChatMessageServiceImpl implements ChatMessageService {
                     .toList();
             chatMessage.setMessageMedia(messageMedia);
         }
-        chatMessageRepository.save(chatMessage);
         return chatMessage;
     }
 
-    private void sendEmailNotificationToOfflineUsers(Set<String> offlineUserEmails,
+    private Set<String> getParticipantEmails(Conversation conversation) {
+        return conversation.getParticipants().stream()
+                .map(participantInfo -> participantInfo.getUser().getEmail())
+                .collect(Collectors.toSet());
+    }
+
+    private Set<String> resolveOnlineUserIds(Set<String> userIds) {
+        return socketSessionRedisService.getOnlineUserIds(userIds);
+    }
+
+    /**
+     * Chạy sau khi transaction hiện tại commit (chạy ngay nếu không có transaction)
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+            return;
+        }
+        action.run();
+    }
+
+    /**
+     * Gửi tin nhắn qua WebSocket cho participant online, email cho participant offline
+     * và push notification cho tất cả người nhận
+     */
+    private void deliverMessage(ChatMessage chatMessage,
+                                Conversation conversation,
+                                User sender,
+                                String tempId,
+                                Set<String> onlineUserIds) {
+        List<ParticipantInfo> participantInfos = conversation.getParticipants();
+        List<User> offlineUsers = new ArrayList<>();
+
+        for (ParticipantInfo participantInfo : participantInfos) {
+            User participant = participantInfo.getUser();
+            String userId = participant.getEmail();
+
+            if (onlineUserIds.contains(userId)) {
+                ChatResponse userResponse = ChatMessageMapper.toWebSocketResponse(chatMessage, userId, tempId);
+                messagingTemplate.convertAndSendToUser(userId, "/queue/messages", userResponse);
+                log.info("Sent message to user: {} (me: {})", userId, userResponse.isMe());
+            } else if (!userId.equals(sender.getEmail())) {
+                offlineUsers.add(participant);
+            }
+        }
+
+        if (!offlineUsers.isEmpty()) {
+            sendEmailNotificationToOfflineUsers(offlineUsers, sender, chatMessage, conversation);
+        }
+
+        // Send push notifications to all recipients (except sender)
+        // Push notifications work even when user is online but tab is not focused
+        sendPushNotificationToRecipients(participantInfos, sender, chatMessage, conversation);
+    }
+
+    private void sendEmailNotificationToOfflineUsers(List<User> offlineUsers,
                                                      User sender,
                                                      ChatMessage chatMessage,
                                                      Conversation conversation) {
         try {
-            List<User> offlineUsers = userRepository.findAllByEmailIn(new ArrayList<>(offlineUserEmails));
-
             for (User offlineUser : offlineUsers) {
                 try {
                     String messageContent = prepareMessageContentForEmail(chatMessage);
@@ -1,11 +1,14 @@
 package com.fpt.producerworkbench.service.impl;
 
 import com.fpt.producerworkbench.service.FFmpegService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -15,9 +18,14 @@ import java.util.concurrent.TimeUnit;
  * Implementation của FFmpegService sử dụng ProcessBuilder để chạy ffmpeg/ffprobe CLI
  */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class FFmpegServiceImpl implements FFmpegService {
 
+    private static final long CPU_SAMPLE_INTERVAL_MS = 1000;
+
+    private final MeterRegistry meterRegistry;
+
     @Value("${ffmpeg.path:ffmpeg}")
     private String ffmpegPath;
 
@@ -64,11 +72,14 @@ public class FFmpegServiceImpl implements FFmpegService {
 
     @Override
     public void mixVoiceTagIntoAudio(File masterFile, File voiceTagFile, File outputFile, int intervalSeconds) {
+        mixVoiceTagIntoAudio(masterFile, voiceTagFile, outputFile, intervalSeconds, getAudioDuration(masterFile));
+    }
+
+    @Override
+    public void mixVoiceTagIntoAudio(File masterFile, File voiceTagFile, File outputFile, int intervalSeconds, int masterDuration) {
         log.info("Bắt đầu mix voice tag vào audio. Master: {}, VoiceTag: {}, Output: {}, Initial delay: {}s, Interval: {}s, Volume boost: {}x",
                 masterFile.getName(), voiceTagFile.getName(), outputFile.getName(), voiceTagInitialDelaySeconds, intervalSeconds, voiceTagVolumeBoost);
 
-        // Lấy duration của master để tính số lần chèn tag
-        int masterDuration = getAudioDuration(masterFile);
         // Tính số lần chèn tag dựa trên: (masterDuration - initialDelay) / interval
         // Ví dụ: Master 100s, initial 25s, interval 25s → (100-25)/25 = 3 lần
         int effectiveDuration = Math.max(0, masterDuration - voiceTagInitialDelaySeconds);
@@ -192,20 +203,34 @@ public class FFmpegServiceImpl implements FFmpegService {
         ProcessBuilder pb = new ProcessBuilder(command);
         pb.redirectErrorStream(true);
         
+        long startNanos = System.nanoTime();
         Process process = pb.start();
 
-        // Đọc output
+        // Đọc output, đồng thời lấy mẫu CPU time của process (chỉ đọc được khi process còn sống)
         StringBuilder output = new StringBuilder();
+        Duration cpuTime = Duration.ZERO;
+        long lastSampleMs = 0;
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 output.append(line).append("\n");
                 log.debug("{} output: {}", commandName, line);
+
+                long nowMs = System.currentTimeMillis();
+                if (nowMs - lastSampleMs >= CPU_SAMPLE_INTERVAL_MS) {
+                    cpuTime = process.info().totalCpuDuration().orElse(cpuTime);
+                    lastSampleMs = nowMs;
+                }
             }
         }
+        cpuTime = process.info().totalCpuDuration().orElse(cpuTime);
 
         // Wait với timeout
         boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+
+        meterRegistry.timer("ffmpeg.command.duration", "command", commandName)
+                .record(Duration.ofNanos(System.nanoTime() - startNanos));
+        meterRegistry.timer("ffmpeg.cpu.time", "command", commandName).record(cpuTime);
         
         if (!finished) {
             process.destroyForcibly();
@@ -1,6 +1,7 @@
 package com.fpt.producerworkbench.service.impl;
 
 import com.fpt.producerworkbench.configuration.AwsProperties;
+import com.fpt.producerworkbench.dto.response.BulkDeleteResponse;
 import com.fpt.producerworkbench.dto.response.FileMetaDataResponse;
 import com.fpt.producerworkbench.exception.AppException;
 import com.fpt.producerworkbench.exception.ErrorCode;
@@ -10,60 +11,75 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.BlockingInputStreamAsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
-import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
-import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.CompletedDirectoryUpload;
 import software.amazon.awssdk.transfer.s3.model.CompletedFileUpload;
+import software.amazon.awssdk.transfer.s3.model.CompletedUpload;
+import software.amazon.awssdk.transfer.s3.model.DirectoryUpload;
 import software.amazon.awssdk.transfer.s3.model.FileUpload;
+import software.amazon.awssdk.transfer.s3.model.UploadDirectoryRequest;
+import software.amazon.awssdk.transfer.s3.model.Upload;
 import software.amazon.awssdk.transfer.s3.model.UploadFileRequest;
+import software.amazon.awssdk.transfer.s3.model.UploadRequest;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FileStorageServiceImpl implements FileStorageService {
 
+    // Giới hạn số key của 1 request DeleteObjects
+    private static final int DELETE_BATCH_SIZE = 1000;
+
     private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
     private final S3TransferManager s3TransferManager;
     private final S3Presigner s3Presigner;
     private final AwsProperties awsProperties;
+    private final ExecutorService s3UploadExecutor;
 
     @Value("${cloudfront.domain}")
     private String cloudfrontDomain;
 
+    /**
+     * Stream thẳng InputStream của MultipartFile lên S3 (multipart upload với buffer giới hạn),
+     * không copy toàn bộ file ra heap / file tạm.
+     */
     @Override
     public String uploadFile(MultipartFile multipartFile, String objectKey) {
 
         validateUploadFile(multipartFile);
-        File file = convertMultiPartToFile(multipartFile);
 
         try {
-
-            UploadFileRequest uploadRequest = UploadFileRequest.builder()
-                    .putObjectRequest(req -> req
-                            .bucket(awsProperties.getS3().getBucketName())
-                            .key(objectKey)
-                            .contentType(multipartFile.getContentType()))
-                    .source(file.toPath())
-                    .build();
-
-            FileUpload fileUpload = s3TransferManager.uploadFile(uploadRequest);
-
-            CompletedFileUpload completedUpload = fileUpload.completionFuture().join();
+            CompletedUpload completedUpload = streamUpload(multipartFile, objectKey).join();
             log.info("Upload thành công file '{}'. ETag: {}", objectKey, completedUpload.response().eTag());
 
             return objectKey;
@@ -71,13 +87,13 @@ public class FileStorageServiceImpl implements FileStorageService {
         } catch (Exception e) {
             log.error("Lỗi không xác định khi upload file '{}': {}", objectKey, e.getMessage());
             throw new AppException(ErrorCode.UPLOAD_FAILED);
-        } finally {
-            if (file.exists()) {
-                file.delete();
-            }
         }
     }
 
+    /**
+     * Upload nhiều file song song (tối đa aws.s3.upload-concurrency file cùng lúc).
+     * Mỗi file được lưu dưới prefix objectKey với tên duy nhất.
+     */
     @Override
     public List<FileMetaDataResponse> uploadFiles(List<MultipartFile> files, String objectKey) {
         if (files == null || files.isEmpty()) {
@@ -85,34 +101,44 @@ public class FileStorageServiceImpl implements FileStorageService {
             return new ArrayList<>();
         }
 
-        List<FileMetaDataResponse> fileMetaData = new ArrayList<>();
-        String bucketName = awsProperties.getS3().getBucketName();
+        String prefix = objectKey.endsWith("/") ? objectKey : objectKey + "/";
+        List<CompletableFuture<FileMetaDataResponse>> uploads = new ArrayList<>();
 
-        for (MultipartFile file : files) {
-            File fileConverted = convertMultiPartToFile(file);
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
             validateUploadFile(file);
-
-            try {
-                UploadFileRequest uploadRequest = UploadFileRequest.builder()
-                        .putObjectRequest(req -> req
-                                .bucket(bucketName)
-                                .key(objectKey)
-                                .contentType(file.getContentType()))
-                        .source(fileConverted.toPath())
-                        .build();
-
-                FileUpload fileUpload = s3TransferManager.uploadFile(uploadRequest);
-
-                CompletedFileUpload completedUpload = fileUpload.completionFuture().join();
-                log.info("Upload thành công file '{}'. ETag: {}", objectKey, completedUpload.response().eTag());
-            } catch (Exception e) {
-                log.error("Lỗi khi tải file '{}': {}", file.getOriginalFilename(), e.getMessage());
-                throw new AppException(ErrorCode.UPLOAD_FAILED);
+            if (file.isEmpty()) {
+                continue;
             }
 
+            String fileKey = prefix + UUID.randomUUID() + "-" + file.getOriginalFilename();
+            int displayOrder = i + 1;
+
+            uploads.add(CompletableFuture
+                    .supplyAsync(() -> streamUpload(file, fileKey), s3UploadExecutor)
+                    .thenCompose(future -> future)
+                    .thenApply(completedUpload -> {
+                        log.info("Upload thành công file '{}'. ETag: {}", fileKey, completedUpload.response().eTag());
+                        return FileMetaDataResponse.builder()
+                                .name(file.getOriginalFilename())
+                                .contentType(file.getContentType())
+                                .size(file.getSize())
+                                .url(generatePermanentUrl(fileKey))
+                                .displayOrder(displayOrder)
+                                .build();
+                    }));
         }
 
-        return fileMetaData;
+        try {
+            CompletableFuture.allOf(uploads.toArray(new CompletableFuture[0])).join();
+        } catch (Exception e) {
+            log.error("Lỗi khi tải nhiều file lên prefix '{}': {}", prefix, e.getMessage());
+            throw new AppException(ErrorCode.UPLOAD_FAILED);
+        }
+
+        return uploads.stream()
+                .map(CompletableFuture::join)
+                .toList();
     }
 
     @Override
@@ -338,6 +364,42 @@ public class FileStorageServiceImpl implements FileStorageService {
         }
     }
 
+    @Override
+    public void uploadDirectory(File directory, String prefix) {
+        try {
+            UploadDirectoryRequest uploadRequest = UploadDirectoryRequest.builder()
+                    .source(directory.toPath())
+                    .bucket(awsProperties.getS3().getBucketName())
+                    .s3Prefix(prefix)
+                    .uploadFileRequestTransformer(builder -> {
+                        UploadFileRequest current = builder.build();
+                        String fileName = current.source().getFileName().toString();
+                        builder.putObjectRequest(current.putObjectRequest().toBuilder()
+                                .contentType(resolveContentType(fileName))
+                                .build());
+                    })
+                    .build();
+
+            DirectoryUpload directoryUpload = s3TransferManager.uploadDirectory(uploadRequest);
+            CompletedDirectoryUpload completedUpload = directoryUpload.completionFuture().join();
+
+            if (!completedUpload.failedTransfers().isEmpty()) {
+                completedUpload.failedTransfers().forEach(failed ->
+                        log.error("Upload thất bại file '{}': {}",
+                                failed.request().source(), failed.exception().getMessage()));
+                throw new AppException(ErrorCode.UPLOAD_FAILED);
+            }
+
+            log.info("Upload thư mục thành công: {} -> {}", directory.getAbsolutePath(), prefix);
+
+        } catch (AppException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Lỗi khi upload thư mục '{}' lên S3: {}", directory.getAbsolutePath(), e.getMessage());
+            throw new AppException(ErrorCode.UPLOAD_FAILED);
+        }
+    }
+
     @Override
     public String generateUploadPresignedUrl(String objectKey, String contentType, long expiresInSeconds) {
         try {
@@ -364,43 +426,81 @@ public class FileStorageServiceImpl implements FileStorageService {
 
     @Override
     public void deletePrefix(String prefix) {
+        BulkDeleteResponse result;
         try {
-            log.info("Bắt đầu xóa tất cả files với prefix: {}", prefix);
-            
-            ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
-                    .bucket(awsProperties.getS3().getBucketName())
-                    .prefix(prefix)
-                    .build();
-
-            ListObjectsV2Response listResponse;
-            int totalDeleted = 0;
-            
-            do {
-                listResponse = s3Client.listObjectsV2(listRequest);
-                
-                for (S3Object s3Object : listResponse.contents()) {
-                    DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
-                            .bucket(awsProperties.getS3().getBucketName())
-                            .key(s3Object.key())
-                            .build();
-                    s3Client.deleteObject(deleteRequest);
-                    totalDeleted++;
-                    log.debug("Đã xóa: {}", s3Object.key());
-                }
-                
-                // Nếu có nhiều hơn 1000 objects, cần pagination
-                listRequest = listRequest.toBuilder()
-                        .continuationToken(listResponse.nextContinuationToken())
-                        .build();
-                        
-            } while (listResponse.isTruncated());
-            
-            log.info("Đã xóa thành công {} files với prefix: {}", totalDeleted, prefix);
-            
+            result = deletePrefixAsync(prefix).join();
         } catch (Exception e) {
             log.error("Lỗi khi xóa prefix '{}': {}", prefix, e.getMessage());
             throw new AppException(ErrorCode.DELETE_FAILED);
         }
+
+        if (!result.getFailedKeys().isEmpty()) {
+            throw new AppException(ErrorCode.DELETE_FAILED);
+        }
+    }
+
+    /**
+     * Xóa tất cả object theo prefix bằng DeleteObjects (mỗi trang list tối đa 1000 key = 1 batch).
+     * Listing và xóa chạy pipeline trên S3AsyncClient: mỗi trang vừa list xong được xóa ngay,
+     * các batch chạy song song. Lỗi từng key được trả về trong failedKeys.
+     */
+    @Override
+    public CompletableFuture<BulkDeleteResponse> deletePrefixAsync(String prefix) {
+        log.info("Bắt đầu xóa tất cả files với prefix: {}", prefix);
+
+        String bucketName = awsProperties.getS3().getBucketName();
+        List<DeleteBatch> batches = new CopyOnWriteArrayList<>();
+
+        ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .maxKeys(DELETE_BATCH_SIZE)
+                .build();
+
+        CompletableFuture<Void> listing = s3AsyncClient.listObjectsV2Paginator(listRequest)
+                .subscribe(page -> {
+                    if (page.contents().isEmpty()) {
+                        return;
+                    }
+                    List<ObjectIdentifier> identifiers = page.contents().stream()
+                            .map(s3Object -> ObjectIdentifier.builder().key(s3Object.key()).build())
+                            .toList();
+                    // Quiet mode: S3 chỉ trả về key lỗi, số key đã xóa = số key gửi đi - số lỗi
+                    batches.add(new DeleteBatch(identifiers.size(), s3AsyncClient.deleteObjects(DeleteObjectsRequest.builder()
+                            .bucket(bucketName)
+                            .delete(Delete.builder().objects(identifiers).quiet(true).build())
+                            .build())));
+                });
+
+        return listing
+                .thenCompose(ignored -> CompletableFuture.allOf(batches.stream()
+                        .map(DeleteBatch::response)
+                        .toArray(CompletableFuture[]::new)))
+                .thenApply(ignored -> {
+                    int deleted = 0;
+                    Map<String, String> failedKeys = new HashMap<>();
+                    for (DeleteBatch batch : batches) {
+                        DeleteObjectsResponse response = batch.response().join();
+                        response.errors().forEach(error -> failedKeys.put(error.key(), error.code() + ": " + error.message()));
+                        deleted += batch.requested() - response.errors().size();
+                    }
+
+                    if (failedKeys.isEmpty()) {
+                        log.info("Đã xóa thành công files với prefix: {} ({} batch)", prefix, batches.size());
+                    } else {
+                        failedKeys.forEach((key, error) -> log.error("Không thể xóa '{}': {}", key, error));
+                        log.warn("Xóa prefix {} hoàn tất với {} key lỗi", prefix, failedKeys.size());
+                    }
+
+                    return BulkDeleteResponse.builder()
+                            .prefix(prefix)
+                            .deletedCount(deleted)
+                            .failedKeys(failedKeys)
+                            .build();
+                });
+    }
+
+    private record DeleteBatch(int requested, CompletableFuture<DeleteObjectsResponse> response) {
     }
 
     @Override
@@ -427,15 +527,33 @@ public class FileStorageServiceImpl implements FileStorageService {
         return streamingUrl;
     }
 
-    private File convertMultiPartToFile(MultipartFile multipartFile) {
-        File convFile = new File(System.getProperty("java.io.tmpdir") + "/" + multipartFile.getOriginalFilename());
-        try (FileOutputStream fos = new FileOutputStream(convFile)) {
-            fos.write(multipartFile.getBytes());
-        } catch (IOException e) {
-            log.error("Lỗi chuyển đổi MultipartFile thành File: {}", e.getMessage());
+    /**
+     * Bắt đầu upload stream của MultipartFile; thread gọi sẽ block tới khi đọc hết InputStream,
+     * các part được S3AsyncClient upload song song với buffer giới hạn.
+     */
+    private CompletableFuture<CompletedUpload> streamUpload(MultipartFile multipartFile, String objectKey) {
+        BlockingInputStreamAsyncRequestBody body = AsyncRequestBody.forBlockingInputStream(multipartFile.getSize());
+
+        Upload upload = s3TransferManager.upload(UploadRequest.builder()
+                .putObjectRequest(req -> req
+                        .bucket(awsProperties.getS3().getBucketName())
+                        .key(objectKey)
+                        .contentType(multipartFile.getContentType())
+                        .contentLength(multipartFile.getSize()))
+                .requestBody(body)
+                .build());
+
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            body.writeInputStream(inputStream);
+        } catch (IOException | RuntimeException e) {
+            // Hủy upload: multipart upload đã tạo trên S3 bị abort, các part đã gửi không bị giữ lại (và tính phí)
+            upload.completionFuture().cancel(true);
+            log.error("Lỗi đọc MultipartFile '{}', đã hủy upload '{}': {}",
+                    multipartFile.getOriginalFilename(), objectKey, e.getMessage());
             throw new AppException(ErrorCode.UPLOAD_FAILED);
         }
-        return convFile;
+
+        return upload.completionFuture();
     }
 
     @Override
@@ -460,6 +578,16 @@ public class FileStorageServiceImpl implements FileStorageService {
         }
     }
 
+    private String resolveContentType(String fileName) {
+        if (fileName.endsWith(".m3u8")) {
+            return "application/vnd.apple.mpegurl";
+        } else if (fileName.endsWith(".ts")) {
+            return "video/mp2t";
+        }
+        String contentType = java.net.URLConnection.guessContentTypeFromName(fileName);
+        return contentType != null ? contentType : "application/octet-stream";
+    }
+
     private void validateUploadFile(MultipartFile file) {
         if (file.isEmpty()) {
             log.warn("Bỏ qua file rỗng: {}", file.getOriginalFilename());
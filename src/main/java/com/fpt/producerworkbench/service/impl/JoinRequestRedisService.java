@@ -10,10 +10,11 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
@@ -27,7 +28,13 @@ public class JoinRequestRedisService {
     private static final String SESSION_PENDING_KEY = "session:%s:pending-requests";
     private static final String USER_ACTIVE_REQUEST_KEY = "user:%s:active-request";
     private static final String REQUEST_PROCESSING_LOCK = "request:%s:processing";
+    // Sorted set requestId theo thời điểm cần gửi cảnh báo / hết hạn (epoch millis)
+    private static final String EXPIRY_WARNING_ZSET = "join-request:expiry-warnings";
+    private static final String EXPIRY_ZSET = "join-request:expiries";
     private static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    // Giữ dữ liệu request thêm 1 lúc sau khi hết hạn để scheduler còn đọc được và gửi thông báo
+    private static final Duration EXPIRY_GRACE = Duration.ofMinutes(1);
+    private static final Duration WARNING_BEFORE_EXPIRY = Duration.ofSeconds(60);
     private static final Duration LOCK_TTL = Duration.ofSeconds(10);
 
     /**
@@ -42,7 +49,7 @@ public class JoinRequestRedisService {
             String requestJson = objectMapper.writeValueAsString(request);
 
             // 1. Save request object
-            redisTemplate.opsForValue().set(requestKey, requestJson, DEFAULT_TTL);
+            redisTemplate.opsForValue().set(requestKey, requestJson, DEFAULT_TTL.plus(EXPIRY_GRACE));
 
             // 2. Add to session's pending set
             redisTemplate.opsForSet().add(sessionKey, request.getRequestId());
@@ -51,6 +58,14 @@ public class JoinRequestRedisService {
             // 3. Mark user has active request
             redisTemplate.opsForValue().set(userKey, request.getRequestId(), DEFAULT_TTL);
 
+            // 4. Lên lịch cảnh báo + hết hạn
+            if (request.getExpiresAt() != null) {
+                long expiresAtMillis = toEpochMillis(request.getExpiresAt());
+                redisTemplate.opsForZSet().add(EXPIRY_WARNING_ZSET, request.getRequestId(),
+                        expiresAtMillis - WARNING_BEFORE_EXPIRY.toMillis());
+                redisTemplate.opsForZSet().add(EXPIRY_ZSET, request.getRequestId(), expiresAtMillis);
+            }
+
             log.info("✅ Saved join request {} for user {} in session {}", 
                     request.getRequestId(), request.getUserId(), request.getSessionId());
 
@@ -75,10 +90,10 @@ public class JoinRequestRedisService {
 
             JoinRequest request = objectMapper.readValue(requestJson, JoinRequest.class);
             
-            // Check nếu expired
+            // Request hết hạn coi như không còn, nhưng không xóa ở đây: JoinRequestScheduler claim entry
+            // trong EXPIRY_ZSET, gửi thông báo hết hạn rồi mới gọi deleteJoinRequest
             if (request.isExpired()) {
                 log.warn("⚠️ Join request {} is expired", requestId);
-                deleteJoinRequest(requestId, request.getSessionId(), request.getUserId());
                 return null;
             }
 
@@ -130,8 +145,13 @@ public class JoinRequestRedisService {
         String userKey = String.format(USER_ACTIVE_REQUEST_KEY, userId);
 
         redisTemplate.delete(requestKey);
+        // Request hết hạn được xóa trễ bởi scheduler, lúc đó user có thể đã tạo request mới
+        if (requestId.equals(redisTemplate.opsForValue().get(userKey))) {
+            redisTemplate.delete(userKey);
+        }
         redisTemplate.opsForSet().remove(sessionKey, requestId);
-        redisTemplate.delete(userKey);
+        redisTemplate.opsForZSet().remove(EXPIRY_WARNING_ZSET, requestId);
+        redisTemplate.opsForZSet().remove(EXPIRY_ZSET, requestId);
 
         log.info("🗑️ Deleted join request {} for user {} in session {}", requestId, userId, sessionId);
     }
@@ -186,40 +206,86 @@ public class JoinRequestRedisService {
     }
 
     /**
-     * Cleanup expired requests (for scheduled job)
+     * Lấy (và claim) các request đã tới thời điểm cảnh báo sắp hết hạn
+     */
+    public List<JoinRequest> claimDueWarnings(int limit) {
+        return claimDue(EXPIRY_WARNING_ZSET, System.currentTimeMillis(), limit);
+    }
+
+    /**
+     * Lấy (và claim) các request đã hết hạn. Dữ liệu request vẫn còn trong Redis (EXPIRY_GRACE)
+     * để gửi thông báo; caller chịu trách nhiệm gọi deleteJoinRequest.
+     */
+    public List<JoinRequest> claimDueExpiries(int limit) {
+        return claimDue(EXPIRY_ZSET, System.currentTimeMillis(), limit);
+    }
+
+    /**
+     * Cleanup expired requests (manual maintenance).
+     * Chỉ xóa các request đã quá hạn hơn EXPIRY_GRACE, phần còn lại để scheduler gửi thông báo.
      */
     public int cleanupExpiredRequests() {
+        long cutoff = System.currentTimeMillis() - EXPIRY_GRACE.toMillis();
         int cleanedCount = 0;
-        
-        // Scan all join-request keys
-        Set<String> keys = redisTemplate.keys("join-request:*");
-        
-        if (keys != null) {
-            for (String key : keys) {
-                String requestId = key.replace("join-request:", "");
-                JoinRequest request = getJoinRequest(requestId);
-                
-                if (request == null || request.isExpired()) {
-                    if (request != null) {
-                        deleteJoinRequest(requestId, request.getSessionId(), request.getUserId());
-                    }
-                    cleanedCount++;
-                }
+        List<JoinRequest> expired;
+        do {
+            expired = claimDue(EXPIRY_ZSET, cutoff, 100);
+            for (JoinRequest request : expired) {
+                deleteJoinRequest(request.getRequestId(), request.getSessionId(), request.getUserId());
+                cleanedCount++;
             }
-        }
-        
+        } while (!expired.isEmpty());
+
         if (cleanedCount > 0) {
             log.info("🧹 Cleaned up {} expired join requests", cleanedCount);
         }
-        
+
         return cleanedCount;
     }
 
     /**
-     * Scan all session pending keys (for scheduler)
+     * ZRANGEBYSCORE [0, dueAt] LIMIT rồi ZREM từng phần tử: chỉ node ZREM thành công mới xử lý,
+     * nên nhiều instance chạy song song không gửi trùng thông báo.
      */
-    public Set<String> scanSessionKeys() {
-        Set<String> keys = redisTemplate.keys("session:*:pending-requests");
-        return keys != null ? keys : Set.of();
+    private List<JoinRequest> claimDue(String zsetKey, long dueAt, int limit) {
+        Set<String> dueIds = redisTemplate.opsForZSet().rangeByScore(zsetKey, 0, dueAt, 0, limit);
+        if (dueIds == null || dueIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<String> claimedIds = new ArrayList<>();
+        for (String requestId : dueIds) {
+            Long removed = redisTemplate.opsForZSet().remove(zsetKey, requestId);
+            if (removed != null && removed > 0) {
+                claimedIds.add(requestId);
+            }
+        }
+        if (claimedIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<String> keys = claimedIds.stream()
+                .map(id -> String.format(JOIN_REQUEST_KEY, id))
+                .toList();
+        List<String> values = redisTemplate.opsForValue().multiGet(keys);
+
+        List<JoinRequest> requests = new ArrayList<>();
+        for (int i = 0; i < claimedIds.size(); i++) {
+            String json = values != null ? values.get(i) : null;
+            if (json == null) {
+                continue; // Đã bị xóa (approve/reject/cancel) hoặc hết TTL
+            }
+            try {
+                requests.add(objectMapper.readValue(json, JoinRequest.class));
+            } catch (JsonProcessingException e) {
+                log.error("❌ Failed to deserialize join request {}: {}", claimedIds.get(i), e.getMessage());
+                redisTemplate.delete(keys.get(i));
+            }
+        }
+        return requests;
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
 }
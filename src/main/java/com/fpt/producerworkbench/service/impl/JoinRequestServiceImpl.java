@@ -109,6 +109,7 @@ public class JoinRequestServiceImpl implements JoinRequestService {
                 .requestedAt(now)
                 .expiresAt(expiresAt)
                 .wsSessionId(wsSessionId)
+                .hostId(session.getHost().getId())
                 .build();
 
         // 9. Save to Redis
@@ -107,6 +107,16 @@ public class JwtServiceImpl implements JwtService{
         }
     }
 
+    public Date getRevocationExpiry(SignedJWT signedJWT) throws ParseException {
+        JWTClaimsSet claims = signedJWT.getJWTClaimsSet();
+        Date expiryTime = claims.getExpirationTime();
+        Date refreshableUntil = new Date(claims.getIssueTime()
+                .toInstant()
+                .plus(refreshableDuration, ChronoUnit.DAYS)
+                .toEpochMilli());
+        return refreshableUntil.after(expiryTime) ? refreshableUntil : expiryTime;
+    }
+
     private List<String> buildScope(User user) {
         return user.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
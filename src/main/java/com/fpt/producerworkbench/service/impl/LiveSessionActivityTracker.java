@@ -0,0 +1,89 @@
+package com.fpt.producerworkbench.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thời điểm hoạt động cuối của live session theo STOMP traffic (chat, playback, typing),
+ * lưu trong Redis sorted set "live-session:last-activity" (score = epoch millis).
+ * Mỗi node chỉ ghi Redis tối đa 1 lần / {@link #WRITE_INTERVAL_MS} cho mỗi session.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j(topic = "LIVE-SESSION-ACTIVITY")
+public class LiveSessionActivityTracker {
+
+    private static final String LAST_ACTIVITY_ZSET = "live-session:last-activity";
+    private static final long WRITE_INTERVAL_MS = 30_000;
+    private static final long STALE_WRITE_MS = 30 * 60 * 1000L;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    // sessionId -> lần ghi Redis gần nhất trên node này
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public void touch(String sessionId) {
+        long now = System.currentTimeMillis();
+        Long lastWrite = lastWrites.get(sessionId);
+        if (lastWrite != null && now - lastWrite < WRITE_INTERVAL_MS) {
+            return;
+        }
+        lastWrites.put(sessionId, now);
+        try {
+            redisTemplate.opsForZSet().add(LAST_ACTIVITY_ZSET, sessionId, now);
+        } catch (Exception e) {
+            log.warn("Failed to record activity for session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Lọc ra các session có STOMP activity sau cutoff (1 lệnh ZMSCORE)
+     */
+    public List<String> findActiveSince(List<String> sessionIds, long cutoffMillis) {
+        if (sessionIds.isEmpty()) {
+            return List.of();
+        }
+        List<Double> scores = redisTemplate.opsForZSet().score(LAST_ACTIVITY_ZSET, sessionIds.toArray());
+        List<String> active = new ArrayList<>();
+        for (int i = 0; i < sessionIds.size(); i++) {
+            Double score = scores != null ? scores.get(i) : null;
+            if (score != null && score >= cutoffMillis) {
+                active.add(sessionIds.get(i));
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Xóa activity của các session đã kết thúc (gọi trên mọi đường kết thúc: end, cancel, delete, auto-end)
+     */
+    public void remove(Collection<String> sessionIds) {
+        if (sessionIds.isEmpty()) {
+            return;
+        }
+        sessionIds.forEach(lastWrites::remove);
+        try {
+            redisTemplate.opsForZSet().remove(LAST_ACTIVITY_ZSET, sessionIds.toArray());
+        } catch (Exception e) {
+            log.warn("Failed to remove activity for sessions {}: {}", sessionIds, e.getMessage());
+        }
+    }
+
+    /**
+     * lastWrites chỉ dùng để giới hạn tần suất ghi: dọn entry cũ, kể cả session kết thúc trên node khác
+     */
+    @Scheduled(fixedRate = 600000) // Dọn mỗi 10 phút
+    public void evictStaleWrites() {
+        long cutoff = System.currentTimeMillis() - STALE_WRITE_MS;
+        lastWrites.values().removeIf(lastWrite -> lastWrite < cutoff);
+    }
+}
@@ -0,0 +1,222 @@
+package com.fpt.producerworkbench.service.impl;
+
+import com.fpt.producerworkbench.entity.LiveSession;
+import com.fpt.producerworkbench.entity.User;
+import com.fpt.producerworkbench.exception.AppException;
+import com.fpt.producerworkbench.exception.ErrorCode;
+import com.fpt.producerworkbench.repository.LiveSessionRepository;
+import com.fpt.producerworkbench.repository.SessionParticipantRepository;
+import com.fpt.producerworkbench.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache thành viên của live session (host, track đang phát, danh sách participant) và tên hiển thị của user
+ * để việc phân quyền cho mỗi STOMP frame (playback, chat, typing) chỉ là tra cứu map.
+ * <p>
+ * Cache được nạp khi client gửi /connect hoặc ở frame đầu tiên, và bị invalidate khi có
+ * join/leave/kick/kết thúc session. Invalidation được publish qua Redis pub/sub để các node khác
+ * xóa bản local; TTL chỉ là lưới an toàn.
+ */
+@Service
+@Slf4j(topic = "LIVE-SESSION-MEMBERSHIP-CACHE")
+public class LiveSessionMembershipCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "live-session:membership:changed";
+
+    private static final int MAX_CACHED_USERS = 10_000;
+    // Message "track|<sessionId>|<fileId>": cập nhật track đang phát thay vì xóa entry
+    private static final String TRACK_UPDATE_PREFIX = "track|";
+
+    private final LiveSessionRepository sessionRepository;
+    private final SessionParticipantRepository participantRepository;
+    private final UserRepository userRepository;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final long ttlMs;
+
+    private final Map<String, Membership> memberships = new ConcurrentHashMap<>();
+    private final Map<Long, UserProfile> userProfiles = new ConcurrentHashMap<>();
+    private final Map<String, Timer> frameTimers = new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public LiveSessionMembershipCache(
+            LiveSessionRepository sessionRepository,
+            SessionParticipantRepository participantRepository,
+            UserRepository userRepository,
+            RedisTemplate<String, Object> redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${live-session.membership-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.sessionRepository = sessionRepository;
+        this.participantRepository = participantRepository;
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.ttlMs = ttlSeconds * 1000;
+
+        this.hitCounter = Counter.builder("live.session.membership.cache").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("live.session.membership.cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Lấy membership của session, nạp từ DB nếu chưa có hoặc đã hết TTL.
+     *
+     * @throws AppException SESSION_NOT_FOUND nếu session không tồn tại
+     */
+    public Membership getMembership(String sessionId) {
+        Membership membership = memberships.get(sessionId);
+        if (membership != null && membership.expiresAt() > System.currentTimeMillis()) {
+            hitCounter.increment();
+            return membership;
+        }
+
+        missCounter.increment();
+        LiveSession session = sessionRepository.findById(sessionId)
+                .orElseThrow(() -> new AppException(ErrorCode.SESSION_NOT_FOUND));
+        membership = new Membership(
+                session.getHost().getId(),
+                session.getCurrentPlayingFileId(),
+                Set.copyOf(participantRepository.findUserIdsBySessionId(sessionId)),
+                System.currentTimeMillis() + ttlMs);
+        memberships.put(sessionId, membership);
+        return membership;
+    }
+
+    /**
+     * Tên hiển thị ("firstName lastName") và avatar của user, cache cùng TTL.
+     *
+     * @throws AppException USER_NOT_FOUND nếu user không tồn tại
+     */
+    public UserProfile getUserProfile(Long userId) {
+        UserProfile profile = userProfiles.get(userId);
+        if (profile != null && profile.expiresAt() > System.currentTimeMillis()) {
+            hitCounter.increment();
+            return profile;
+        }
+
+        missCounter.increment();
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+        profile = new UserProfile(user.getId(), user.getFirstName() + " " + user.getLastName(),
+                user.getAvatarUrl(), System.currentTimeMillis() + ttlMs);
+        if (userProfiles.size() < MAX_CACHED_USERS) {
+            userProfiles.put(userId, profile);
+        }
+        return profile;
+    }
+
+    /**
+     * Cập nhật track đang phát khi host chọn track mới: node local cập nhật ngay, node khác nhận giá trị mới
+     * qua Redis pub/sub (không xóa entry, vì DB chỉ được PlaybackSyncEngine ghi sau đó theo kiểu write-behind
+     * nên nạp lại lúc này vẫn ra track cũ). Trong khoảng trễ của pub/sub, node khác vẫn có thể đọc track cũ.
+     */
+    public void updateCurrentTrack(String sessionId, Long fileId) {
+        applyCurrentTrack(sessionId, fileId);
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, TRACK_UPDATE_PREFIX + sessionId + "|" + fileId);
+        } catch (Exception e) {
+            log.error("Failed to publish current track update for session {}. Error: {}", sessionId, e.getMessage());
+        }
+    }
+
+    private void applyCurrentTrack(String sessionId, Long fileId) {
+        memberships.computeIfPresent(sessionId, (id, m) ->
+                new Membership(m.hostId(), fileId, m.participantIds(), m.expiresAt()));
+    }
+
+    /**
+     * Xóa cache của session trên tất cả các node (gọi khi join/leave/kick/kết thúc session)
+     */
+    public void invalidate(String sessionId) {
+        // Trong transaction: chờ commit để node khác không nạp lại dữ liệu cũ
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    memberships.remove(sessionId);
+                    publishInvalidation(sessionId);
+                }
+            });
+            return;
+        }
+        memberships.remove(sessionId);
+        publishInvalidation(sessionId);
+    }
+
+    /**
+     * Đo thời gian xử lý 1 frame theo loại (chat, playback, typing)
+     */
+    public Timer frameTimer(String frameType) {
+        return frameTimers.computeIfAbsent(frameType, type -> Timer.builder("live.session.frame.duration")
+                .tag("type", type)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.startsWith(TRACK_UPDATE_PREFIX)) {
+            int separator = body.lastIndexOf('|');
+            String sessionId = body.substring(TRACK_UPDATE_PREFIX.length(), separator);
+            String fileId = body.substring(separator + 1);
+            if ("null".equals(fileId)) {
+                applyCurrentTrack(sessionId, null);
+            } else {
+                try {
+                    applyCurrentTrack(sessionId, Long.valueOf(fileId));
+                } catch (NumberFormatException e) {
+                    memberships.remove(sessionId);
+                }
+            }
+            return;
+        }
+        memberships.remove(body);
+    }
+
+    @Scheduled(fixedRate = 600000) // Dọn các entry hết hạn mỗi 10 phút
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        memberships.values().removeIf(m -> m.expiresAt() <= now);
+        userProfiles.values().removeIf(p -> p.expiresAt() <= now);
+    }
+
+    private void publishInvalidation(String sessionId) {
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, sessionId);
+        } catch (Exception e) {
+            log.error("Failed to publish membership invalidation for session {}. Error: {}", sessionId, e.getMessage());
+        }
+    }
+
+    public record Membership(Long hostId, Long currentPlayingFileId, Set<Long> participantIds, long expiresAt) {
+
+        public boolean isHost(Long userId) {
+            return hostId.equals(userId);
+        }
+
+        public boolean isMember(Long userId) {
+            return isHost(userId) || participantIds.contains(userId);
+        }
+    }
+
+    public record UserProfile(Long userId, String displayName, String avatarUrl, long expiresAt) {
+    }
+}
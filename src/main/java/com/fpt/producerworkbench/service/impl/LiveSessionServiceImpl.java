@@ -54,6 +54,9 @@ public class LiveSessionServiceImpl implements LiveSessionService {
     private final com.fpt.producerworkbench.utils.SecurityUtils securityUtils; // ✅ Add SecurityUtils
     private final EmailService emailService; // ✅ Add Email service
     private final NotificationService notificationService;
+    private final LiveSessionMembershipCache membershipCache;
+    private final LiveSessionActivityTracker activityTracker;
+    private final PlaybackSyncEngine playbackSyncEngine;
     
     @Override
     @Transactional
@@ -275,6 +278,7 @@ public class LiveSessionServiceImpl implements LiveSessionService {
 
         // Delete session
         sessionRepository.delete(session);
+        clearSessionState(sessionId);
 
         log.info("Session {} deleted successfully", sessionId);
     }
@@ -365,6 +369,7 @@ public class LiveSessionServiceImpl implements LiveSessionService {
                 participantRepository.save(p);
             }
         });
+        clearSessionState(sessionId);
 
         // Build summary
         SessionSummaryResponse summary = buildSessionSummary(session);
@@ -417,6 +422,7 @@ public class LiveSessionServiceImpl implements LiveSessionService {
         SessionStatus oldStatus = session.getStatus();
         session.setStatus(SessionStatus.CANCELLED);
         LiveSession updated = sessionRepository.save(session);
+        clearSessionState(sessionId);
 
         // ✅ Broadcast session cancelled
         webSocketService.broadcastSessionStateChange(sessionId,
@@ -526,6 +532,16 @@ public class LiveSessionServiceImpl implements LiveSessionService {
 
     // ========== Private Helper Methods ==========
 
+    /**
+     * Dọn trạng thái runtime của session đã kết thúc / hủy / xóa:
+     * membership cache (mọi node, sau commit), activity tracker và trạng thái phát trên node này
+     */
+    private void clearSessionState(String sessionId) {
+        membershipCache.invalidate(sessionId);
+        activityTracker.remove(List.of(sessionId));
+        playbackSyncEngine.remove(List.of(sessionId));
+    }
+
     private LiveSession getSessionEntity(String sessionId) {
         return sessionRepository.findById(sessionId)
                 .orElseThrow(() -> new AppException(ErrorCode.SESSION_NOT_FOUND));
@@ -696,6 +712,9 @@ public class LiveSessionServiceImpl implements LiveSessionService {
             newMemberEmails.add(projectMember.getUser().getEmail());
             invitedCount++;
         }
+        if (invitedCount > 0) {
+            membershipCache.invalidate(sessionId);
+        }
 
         // ✅ Send email to newly invited members
         if (!newMemberEmails.isEmpty()) {
@@ -1,19 +1,26 @@
 package com.fpt.producerworkbench.service.impl;
 
 import com.fpt.producerworkbench.common.ProjectStatus;
+import com.fpt.producerworkbench.dto.response.CursorPageResponse;
 import com.fpt.producerworkbench.dto.response.ProjectSummaryResponse;
 import com.fpt.producerworkbench.entity.User;
+import com.fpt.producerworkbench.exception.AppException;
+import com.fpt.producerworkbench.exception.ErrorCode;
 import com.fpt.producerworkbench.repository.ProjectRepository;
 import com.fpt.producerworkbench.service.MyProjectsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,37 +30,55 @@ public class MyProjectsServiceImpl implements MyProjectsService {
 
     @Override
     public Page<ProjectSummaryResponse> getMyProjects(User currentUser, String search, ProjectStatus status, Pageable pageable) {
-        // Lấy projects mà user là owner
-        Page<ProjectSummaryResponse> ownedProjects = projectRepository.findProjectSummariesByOwnerId(
-                currentUser.getId(), search, status, pageable);
-        
-        // Lấy projects mà user là member
-        Page<ProjectSummaryResponse> memberProjects = projectRepository.findProjectSummariesByMemberId(
-                currentUser.getId(), search, status, pageable);
-        
-        // Merge và loại bỏ duplicate (nếu user vừa là owner vừa là member)
-        List<ProjectSummaryResponse> allProjects = new ArrayList<>();
-        allProjects.addAll(ownedProjects.getContent());
-        
-        // Chỉ thêm member projects không trùng với owned projects
-        List<Long> ownedProjectIds = ownedProjects.getContent().stream()
-                .map(ProjectSummaryResponse::getId)
-                .collect(Collectors.toList());
-        
-        List<ProjectSummaryResponse> uniqueMemberProjects = memberProjects.getContent().stream()
-                .filter(project -> !ownedProjectIds.contains(project.getId()))
-                .collect(Collectors.toList());
-        
-        allProjects.addAll(uniqueMemberProjects);
-        
-        // Sort theo updatedAt desc (giả định pageable đã có sort)
-        allProjects.sort((p1, p2) -> p2.getCreatedAt().compareTo(p1.getCreatedAt()));
-        
-        // Tạo Page mới với tất cả projects
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), allProjects.size());
-        List<ProjectSummaryResponse> pageContent = allProjects.subList(start, end);
-        
-        return new PageImpl<>(pageContent, pageable, allProjects.size());
+        // Giữ thứ tự cũ của "My Projects": mới tạo trước, bỏ qua sort của client. id là tie-breaker để phân trang ổn định
+        Pageable newestFirst = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                Sort.by(Sort.Direction.DESC, "createdAt", "id"));
+        // Owner + member trong 1 query, phân trang và đếm ở DB
+        return projectRepository.findMyProjectSummaries(currentUser.getId(), search, status, newestFirst);
     }
-}
\ No newline at end of file
+
+    @Override
+    public CursorPageResponse<ProjectSummaryResponse> getMyProjectsByCursor(User currentUser, String search,
+            ProjectStatus status, String cursor, int size) {
+        Cursor after = cursor != null && !cursor.isBlank() ? decodeCursor(cursor) : new Cursor(null, null);
+
+        // Lấy dư 1 phần tử để biết còn trang sau hay không (không cần COUNT)
+        List<ProjectSummaryResponse> rows = projectRepository.findMyProjectSummariesAfter(
+                currentUser.getId(), search, status, after.createdAt(), after.id(), PageRequest.of(0, size + 1));
+
+        boolean hasNext = rows.size() > size;
+        List<ProjectSummaryResponse> content = hasNext ? rows.subList(0, size) : rows;
+
+        return CursorPageResponse.<ProjectSummaryResponse>builder()
+                .content(content)
+                .size(content.size())
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? encodeCursor(content.get(content.size() - 1)) : null)
+                .build();
+    }
+
+    /**
+     * Cursor = base64url("createdAt|id") của project cuối trang.
+     * createdAt giữ độ chính xác nano giây để không bỏ sót project tạo cùng millisecond.
+     */
+    private String encodeCursor(ProjectSummaryResponse last) {
+        String raw = last.getCreatedAt().toInstant() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Cursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Cursor sai định dạng");
+            }
+            return new Cursor(Timestamp.from(Instant.parse(parts[0])), Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            throw new AppException(ErrorCode.INVALID_PARAMETER_FORMAT, "Cursor không hợp lệ");
+        }
+    }
+
+    private record Cursor(Date createdAt, Long id) {
+    }
+}
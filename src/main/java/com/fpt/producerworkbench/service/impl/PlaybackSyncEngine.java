@@ -0,0 +1,248 @@
+package com.fpt.producerworkbench.service.impl;
+
+import com.fpt.producerworkbench.dto.websocket.PlaybackEvent;
+import com.fpt.producerworkbench.repository.LiveSessionRepository;
+import com.fpt.producerworkbench.service.WebSocketService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trạng thái phát nhạc của từng live session, giữ trong bộ nhớ:
+ * - Các event play/pause/seek dồn dập trong 1 tick được gộp thành 1 snapshot duy nhất rồi mới broadcast.
+ * - Server là đồng hồ chuẩn: mỗi event mang serverTimestamp, vị trí hiện tại được ngoại suy khi cần.
+ * - Người vào sau nhận snapshot hiện tại khi /connect.
+ * - currentPlayingFileId/playbackStartedAt được ghi DB theo kiểu write-behind.
+ */
+@Service
+@Slf4j(topic = "PLAYBACK-SYNC")
+public class PlaybackSyncEngine {
+
+    private static final long IDLE_EVICTION_MS = 30 * 60 * 1000L;
+
+    private final WebSocketService webSocketService;
+    private final LiveSessionRepository sessionRepository;
+    private final LiveSessionMembershipCache membershipCache;
+    private final long tickMs;
+    private final long persistIntervalMs;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "pwb-playback-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, PlaybackState> states = new ConcurrentHashMap<>();
+
+    private final Counter receivedCounter;
+    private final Counter broadcastCounter;
+
+    public PlaybackSyncEngine(
+            WebSocketService webSocketService,
+            LiveSessionRepository sessionRepository,
+            LiveSessionMembershipCache membershipCache,
+            MeterRegistry meterRegistry,
+            @Value("${live-session.playback.tick-ms:100}") long tickMs,
+            @Value("${live-session.playback.persist-interval-ms:2000}") long persistIntervalMs) {
+        this.webSocketService = webSocketService;
+        this.sessionRepository = sessionRepository;
+        this.membershipCache = membershipCache;
+        this.tickMs = Math.max(10, tickMs);
+        this.persistIntervalMs = Math.max(100, persistIntervalMs);
+
+        this.receivedCounter = Counter.builder("live.session.playback.events").tag("result", "received").register(meterRegistry);
+        this.broadcastCounter = Counter.builder("live.session.playback.events").tag("result", "broadcast").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleAtFixedRate(this::broadcastPending, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::persistDirty, persistIntervalMs, persistIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        persistDirty();
+    }
+
+    /**
+     * Ghi nhận event đã được phân quyền. Event sẽ được broadcast ở tick kế tiếp (gộp với các event cùng tick).
+     *
+     * @param trackChanged host vừa chọn track mới (cần lưu DB)
+     */
+    public void submit(String sessionId, PlaybackEvent event, boolean trackChanged) {
+        receivedCounter.increment();
+        PlaybackState state = states.computeIfAbsent(sessionId, id -> new PlaybackState());
+        synchronized (state) {
+            state.apply(event, trackChanged, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Snapshot hiện tại cho người vào sau, vị trí được ngoại suy theo đồng hồ server
+     */
+    public PlaybackEvent getSnapshot(String sessionId) {
+        PlaybackState state = states.get(sessionId);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            return state.snapshot(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Bỏ trạng thái phát của session đã kết thúc trên node này
+     */
+    public void remove(Collection<String> sessionIds) {
+        sessionIds.forEach(states::remove);
+    }
+
+    private void broadcastPending() {
+        long now = System.currentTimeMillis();
+        states.forEach((sessionId, state) -> {
+            PlaybackEvent pending;
+            synchronized (state) {
+                pending = state.pending;
+                state.pending = null;
+                if (pending == null && !state.persistDirty && now - state.lastUpdatedAt > IDLE_EVICTION_MS) {
+                    states.remove(sessionId);
+                    return;
+                }
+            }
+            if (pending != null) {
+                try {
+                    webSocketService.broadcastPlaybackEvent(sessionId, pending);
+                    broadcastCounter.increment();
+                } catch (Exception e) {
+                    log.error("Broadcast playback thất bại cho session {}: {}", sessionId, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void persistDirty() {
+        states.forEach((sessionId, state) -> {
+            Long fileId;
+            LocalDateTime startedAt;
+            synchronized (state) {
+                if (!state.persistDirty) {
+                    return;
+                }
+                state.persistDirty = false;
+                fileId = state.currentFileId;
+                startedAt = state.trackStartedAt;
+            }
+            try {
+                sessionRepository.updateCurrentPlayback(sessionId, fileId, startedAt);
+                // Node khác nạp lại membership (track hiện tại) từ DB
+                membershipCache.invalidate(sessionId);
+            } catch (Exception e) {
+                log.error("Lưu track đang phát thất bại cho session {}: {}", sessionId, e.getMessage());
+                synchronized (state) {
+                    state.persistDirty = true;
+                }
+            }
+        });
+    }
+
+    /**
+     * Trạng thái phát của 1 session, truy cập trong synchronized(state)
+     */
+    private static class PlaybackState {
+        PlaybackEvent current;  // snapshot đầy đủ
+        PlaybackEvent pending;  // gộp các event chưa broadcast trong tick
+        boolean playing;
+        long positionMs;
+        long clockMs;           // thời điểm (server) positionMs hợp lệ
+        Long currentFileId;
+        LocalDateTime trackStartedAt;
+        boolean persistDirty;
+        long lastUpdatedAt;
+
+        void apply(PlaybackEvent event, boolean trackChanged, long now) {
+            event.setServerTimestamp(now);
+            current = current == null ? event.toBuilder().build() : merge(current, event);
+            pending = pending == null ? event.toBuilder().build() : merge(pending, event);
+
+            String action = event.getAction() != null ? event.getAction().toUpperCase() : "";
+            if (event.getPosition() != null) {
+                positionMs = event.getPosition();
+            } else if (trackChanged || "STOP".equals(action)) {
+                positionMs = 0;
+            } else {
+                positionMs = extrapolate(now);
+            }
+            clockMs = now;
+
+            if ("PLAY".equals(action)) {
+                playing = true;
+            } else if ("PAUSE".equals(action) || "STOP".equals(action)) {
+                playing = false;
+            }
+
+            if (trackChanged) {
+                currentFileId = event.getFileId();
+                trackStartedAt = LocalDateTime.now();
+                persistDirty = true;
+            }
+            lastUpdatedAt = now;
+        }
+
+        PlaybackEvent snapshot(long now) {
+            if (current == null) {
+                return null;
+            }
+            return current.toBuilder()
+                    .position(extrapolate(now))
+                    .serverTimestamp(now)
+                    .build();
+        }
+
+        private long extrapolate(long now) {
+            if (!playing) {
+                return positionMs;
+            }
+            float rate = current != null && current.getPlaybackRate() != null ? current.getPlaybackRate() : 1.0f;
+            return positionMs + (long) ((now - clockMs) * rate);
+        }
+
+        /**
+         * Gộp event mới vào base: field nào event mới có thì ghi đè, còn lại giữ của base
+         */
+        private static PlaybackEvent merge(PlaybackEvent base, PlaybackEvent update) {
+            PlaybackEvent.PlaybackEventBuilder merged = base.toBuilder();
+            if (update.getAction() != null) merged.action(update.getAction());
+            if (update.getFileId() != null) merged.fileId(update.getFileId());
+            if (update.getFileName() != null) merged.fileName(update.getFileName());
+            if (update.getFileUrl() != null) merged.fileUrl(update.getFileUrl());
+            if (update.getPosition() != null) merged.position(update.getPosition());
+            if (update.getDuration() != null) merged.duration(update.getDuration());
+            if (update.getPlaybackRate() != null) merged.playbackRate(update.getPlaybackRate());
+            if (update.getTriggeredByUserId() != null) merged.triggeredByUserId(update.getTriggeredByUserId());
+            if (update.getTriggeredByUserName() != null) merged.triggeredByUserName(update.getTriggeredByUserName());
+            if (update.getRoomType() != null) merged.roomType(update.getRoomType());
+            if (update.getVoiceTagEnabled() != null) merged.voiceTagEnabled(update.getVoiceTagEnabled());
+            if (update.getVersion() != null) merged.version(update.getVersion());
+            if (update.getArtist() != null) merged.artist(update.getArtist());
+            if (update.getTrackId() != null) merged.trackId(update.getTrackId());
+            if (update.getTrackName() != null) merged.trackName(update.getTrackName());
+            if (update.getHlsPlaybackUrl() != null) merged.hlsPlaybackUrl(update.getHlsPlaybackUrl());
+            if (update.getServerTimestamp() != null) merged.serverTimestamp(update.getServerTimestamp());
+            return merged.build();
+        }
+    }
+}
@@ -9,9 +9,11 @@ import com.fpt.producerworkbench.repository.spec.ProducerSpecification;
 import com.fpt.producerworkbench.service.ProducerService;
 import com.fpt.producerworkbench.service.SpotifyService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import com.fpt.producerworkbench.entity.Genre;
@@ -19,7 +21,10 @@ import com.fpt.producerworkbench.repository.GenreRepository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,6 +36,23 @@ public class ProducerServiceImpl implements ProducerService {
     private final GenreRepository genreRepository;
     private final SpotifyService spotifyService;
 
+    private static final int MAX_GEO_CACHE_ENTRIES = 1_000;
+    private static final double EARTH_RADIUS_KM = 6370.986;
+
+    // Cache trang kết quả tìm theo vị trí: cache key làm tròn tâm tìm kiếm theo lưới (~1km) nên
+    // user cùng khu vực / thành phố dùng chung kết quả; TTL ngắn vì portfolio có thể thay đổi
+    @Value("${producer.search.geo-cache.enabled:true}")
+    private boolean geoCacheEnabled;
+
+    @Value("${producer.search.geo-cache.grid-degrees:0.01}")
+    private double geoGridDegrees;
+
+    @Value("${producer.search.geo-cache.ttl-seconds:120}")
+    private long geoCacheTtlSeconds;
+
+    private final Map<String, CachedPage> geoPageCache = new ConcurrentHashMap<>();
+    private final Map<String, CachedTotal> geoTotalCache = new ConcurrentHashMap<>();
+
     @Override
     public Page<ProducerSummaryResponse> searchProducers(
             String name, List<Integer> genreIds, List<String> tags,
@@ -74,19 +96,103 @@ public class ProducerServiceImpl implements ProducerService {
             spec = spec.and(ProducerSpecification.hasTags(remainingTags));
         }
 
-        // Áp dụng filter theo bán kính nếu có lat, lon và radius
-        if (lat != null && lon != null && radius != null && radius > 0) {
-            spec = spec.and(ProducerSpecification.isWithinRadius(lat, lon, radius));
-        }
-
         if (lat == null || lon == null) {
             Page<Portfolio> portfolioPage = portfolioRepository.findAll(spec, pageable);
             return portfolioPage.map(p -> portfolioMapper.toProducerSummaryResponse(p, null));
         }
 
-        Page<PortfolioWithDistanceResponse> resultPage = portfolioRepository.findWithDistance(spec, lat, lon, pageable);
+        // Áp dụng filter theo bán kính nếu có radius:
+        // bounding box (dùng index) loại trước, ST_Distance_Sphere chỉ tính cho phần còn lại
+        if (radius != null && radius > 0) {
+            spec = spec.and(ProducerSpecification.isWithinBoundingBox(lat, lon, radius))
+                    .and(ProducerSpecification.isWithinRadius(lat, lon, radius));
+        }
+
+        if (!geoCacheEnabled) {
+            Page<PortfolioWithDistanceResponse> resultPage =
+                    portfolioRepository.findWithDistance(spec, lat, lon, pageable);
+            return resultPage.map(p -> portfolioMapper.toProducerSummaryResponse(p.getPortfolio(), p.getDistanceInKm()));
+        }
+
+        // Tọa độ làm tròn theo lưới chỉ dùng cho cache key; query luôn tính từ tọa độ thật của người gọi.
+        // Trang cache được dùng chung trong 1 ô lưới nên thứ tự và biên bán kính là xấp xỉ
+        // (lệch tối đa nửa đường chéo ô), còn khoảng cách trả về được tính lại theo vị trí người gọi.
+        String searchKey = geoSearchKey(name, finalGenreIds, remainingTags, snapToGrid(lat), snapToGrid(lon), radius);
+        String pageKey = searchKey + "|" + pageable.getPageNumber() + "|" + pageable.getPageSize();
+        long now = System.currentTimeMillis();
+
+        CachedPage cachedPage = geoPageCache.get(pageKey);
+        if (cachedPage != null && cachedPage.expiresAt() > now) {
+            return cachedPage.page().map(producer -> withDistanceFrom(producer, lat, lon));
+        }
+
+        // Các trang sau của cùng 1 tìm kiếm dùng lại tổng số đã đếm, không chạy lại count query
+        CachedTotal cachedTotal = geoTotalCache.get(searchKey);
+        Long knownTotal = cachedTotal != null && cachedTotal.expiresAt() > now ? cachedTotal.total() : null;
+
+        Page<PortfolioWithDistanceResponse> resultPage =
+                portfolioRepository.findWithDistance(spec, lat, lon, pageable, knownTotal);
+        Page<ProducerSummaryResponse> page = resultPage
+                .map(p -> portfolioMapper.toProducerSummaryResponse(p.getPortfolio(), p.getDistanceInKm()));
+
+        long expiresAt = now + geoCacheTtlSeconds * 1000;
+        if (geoPageCache.size() < MAX_GEO_CACHE_ENTRIES) {
+            geoPageCache.put(pageKey, new CachedPage(page, expiresAt));
+        }
+        if (knownTotal == null && geoTotalCache.size() < MAX_GEO_CACHE_ENTRIES) {
+            geoTotalCache.put(searchKey, new CachedTotal(page.getTotalElements(), expiresAt));
+        }
+        return page;
+    }
+
+    @Scheduled(fixedRate = 300000) // Dọn cache tìm kiếm theo vị trí hết hạn mỗi 5 phút
+    public void evictExpiredGeoSearches() {
+        long now = System.currentTimeMillis();
+        geoPageCache.values().removeIf(c -> c.expiresAt() <= now);
+        geoTotalCache.values().removeIf(c -> c.expiresAt() <= now);
+    }
+
+    private Double snapToGrid(Double coordinate) {
+        if (geoGridDegrees <= 0) {
+            return coordinate;
+        }
+        return Math.round(coordinate / geoGridDegrees) * geoGridDegrees;
+    }
+
+    /**
+     * Tính lại khoảng cách (km, làm tròn 2 chữ số như findWithDistance) từ vị trí người gọi
+     * cho producer lấy từ cache. Dùng cùng bán kính trái đất với ST_Distance_Sphere của MySQL.
+     */
+    private ProducerSummaryResponse withDistanceFrom(ProducerSummaryResponse producer, double lat, double lon) {
+        if (producer.getLatitude() == null || producer.getLongitude() == null) {
+            return producer;
+        }
+        double dLat = Math.toRadians(producer.getLatitude() - lat);
+        double dLon = Math.toRadians(producer.getLongitude() - lon);
+        double a = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(lat)) * Math.cos(Math.toRadians(producer.getLatitude()))
+                * Math.pow(Math.sin(dLon / 2), 2);
+        double distanceInKm = 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+        return producer.toBuilder()
+                .distanceInKm(Math.round(distanceInKm * 100.0) / 100.0)
+                .build();
+    }
+
+    private String geoSearchKey(String name, List<Integer> genreIds, List<String> tags,
+                                Double lat, Double lon, Double radius) {
+        return String.join("|",
+                StringUtils.hasText(name) ? name.trim().toLowerCase(Locale.ROOT) : "",
+                genreIds.stream().sorted().distinct().map(String::valueOf).collect(Collectors.joining(",")),
+                tags.stream().sorted().distinct().collect(Collectors.joining(",")),
+                String.format(Locale.ROOT, "%.5f", lat),
+                String.format(Locale.ROOT, "%.5f", lon),
+                radius != null && radius > 0 ? String.valueOf(radius) : "");
+    }
+
+    private record CachedPage(Page<ProducerSummaryResponse> page, long expiresAt) {
+    }
 
-        return resultPage.map(p -> portfolioMapper.toProducerSummaryResponse(p.getPortfolio(), p.getDistanceInKm()));
+    private record CachedTotal(long total, long expiresAt) {
     }
 
     @Override
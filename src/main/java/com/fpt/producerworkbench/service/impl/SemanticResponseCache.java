@@ -0,0 +1,258 @@
+package com.fpt.producerworkbench.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Semantic cache cho câu trả lời AI (quick help, giải thích thuật ngữ).
+ * <p>
+ * Query được chuẩn hóa (lowercase, NFC, gộp khoảng trắng, bỏ dấu câu cuối) rồi:
+ * 1. Tra exact match theo query chuẩn hóa - không tốn lời gọi embedding.
+ * 2. Embed query và tìm câu hỏi gần nhất (cosine similarity >= threshold) trong index in-process
+ *    của namespace. Index nhỏ (giới hạn maxEntries) nên quét tuyến tính trên vector đã chuẩn hóa.
+ * 3. Miss: gọi loader, lưu kết quả kèm embedding và thời gian tính để đo latency tiết kiệm được.
+ * <p>
+ * Namespace bị xóa khi nội dung nguồn thay đổi (VD: user guide được index lại);
+ * invalidation được publish qua Redis pub/sub để các node khác cũng xóa bản local.
+ * Metrics: ai.semantic.cache.requests{namespace,result}, ai.semantic.cache.saved.latency{namespace}
+ */
+@Service
+@Slf4j(topic = "AI-SEMANTIC-CACHE")
+public class SemanticResponseCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "ai:semantic-cache:invalidate";
+
+    private final EmbeddingModel embeddingModel;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final long ttlMs;
+    private final int maxEntries;
+
+    private final Map<String, NamespaceIndex> namespaces = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> savedLatencyTimers = new ConcurrentHashMap<>();
+
+    public SemanticResponseCache(
+            EmbeddingModel embeddingModel,
+            RedisTemplate<String, Object> redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${ai.semantic-cache.enabled:true}") boolean enabled,
+            @Value("${ai.semantic-cache.similarity-threshold:0.92}") double similarityThreshold,
+            @Value("${ai.semantic-cache.ttl-minutes:60}") long ttlMinutes,
+            @Value("${ai.semantic-cache.max-entries-per-namespace:2000}") int maxEntries) {
+        this.embeddingModel = embeddingModel;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.ttlMs = Duration.ofMinutes(ttlMinutes).toMillis();
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Trả về câu trả lời đã cache cho query tương đương, hoặc gọi loader và cache kết quả.
+     *
+     * @param namespace nhóm cache (mỗi loại câu trả lời / tham số khác nhau dùng namespace riêng)
+     * @param query     câu hỏi gốc của user
+     * @param loader    tính câu trả lời khi miss
+     * @param cacheable chỉ cache kết quả thỏa điều kiện (VD: bỏ qua câu trả lời fallback khi lỗi)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrCompute(String namespace, String query, Supplier<T> loader, Predicate<T> cacheable) {
+        if (!enabled || query == null || query.isBlank()) {
+            return loader.get();
+        }
+
+        String normalizedQuery = normalize(query);
+        NamespaceIndex index = namespaces.computeIfAbsent(namespace, k -> new NamespaceIndex());
+        long now = System.currentTimeMillis();
+
+        Entry exact = index.findExact(normalizedQuery, now);
+        if (exact != null) {
+            recordHit(namespace, "exact", exact);
+            return (T) exact.value();
+        }
+
+        float[] embedding = embed(normalizedQuery);
+        if (embedding != null) {
+            Entry similar = index.findSimilar(embedding, similarityThreshold, now);
+            if (similar != null) {
+                log.debug("Semantic hit [{}]: '{}' ~ '{}'", namespace, normalizedQuery, similar.normalizedQuery());
+                recordHit(namespace, "semantic", similar);
+                return (T) similar.value();
+            }
+        }
+
+        counter(namespace, "miss").increment();
+        long start = System.nanoTime();
+        T value = loader.get();
+        long computeNanos = System.nanoTime() - start;
+
+        if (value != null && cacheable.test(value)) {
+            index.put(new Entry(normalizedQuery, embedding, value, computeNanos, now + ttlMs), maxEntries);
+        }
+        return value;
+    }
+
+    /**
+     * Xóa toàn bộ cache của namespace trên mọi node
+     */
+    public void invalidate(String namespace) {
+        namespaces.remove(namespace);
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, namespace);
+        } catch (Exception e) {
+            log.error("Failed to publish semantic cache invalidation for namespace {}. Error: {}", namespace, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        namespaces.remove(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    static String normalize(String query) {
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFC)
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .trim();
+        return normalized.replaceAll("[\\s?!.。,;:]+$", "");
+    }
+
+    private float[] embed(String normalizedQuery) {
+        try {
+            float[] vector = embeddingModel.embed(normalizedQuery);
+            return toUnitVector(vector);
+        } catch (Exception e) {
+            log.warn("Embedding failed, semantic lookup skipped: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static float[] toUnitVector(float[] vector) {
+        if (vector == null || vector.length == 0) {
+            return null;
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return null;
+        }
+        float inverse = (float) (1.0 / Math.sqrt(norm));
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * inverse;
+        }
+        return unit;
+    }
+
+    private void recordHit(String namespace, String result, Entry entry) {
+        counter(namespace, result).increment();
+        savedLatencyTimers.computeIfAbsent(namespace, ns -> Timer.builder("ai.semantic.cache.saved.latency")
+                        .description("Latency của lời gọi AI được bỏ qua nhờ cache hit")
+                        .tag("namespace", ns)
+                        .register(meterRegistry))
+                .record(Duration.ofNanos(entry.computeNanos()));
+    }
+
+    private Counter counter(String namespace, String result) {
+        return counters.computeIfAbsent(namespace + ":" + result, k -> Counter.builder("ai.semantic.cache.requests")
+                .tag("namespace", namespace)
+                .tag("result", result)
+                .register(meterRegistry));
+    }
+
+    private record Entry(String normalizedQuery, float[] embedding, Object value, long computeNanos, long expiresAt) {
+        boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+    }
+
+    /**
+     * Index của 1 namespace; các thao tác được bảo vệ bởi lock (this)
+     */
+    private static final class NamespaceIndex {
+
+        private final Map<String, Entry> byQuery = new HashMap<>();
+        private final List<Entry> entries = new ArrayList<>();
+
+        synchronized Entry findExact(String normalizedQuery, long now) {
+            Entry entry = byQuery.get(normalizedQuery);
+            return entry != null && !entry.isExpired(now) ? entry : null;
+        }
+
+        synchronized Entry findSimilar(float[] embedding, double threshold, long now) {
+            Entry best = null;
+            double bestScore = threshold;
+            for (Entry entry : entries) {
+                if (entry.embedding() == null || entry.isExpired(now)
+                        || entry.embedding().length != embedding.length) {
+                    continue;
+                }
+                double score = dot(entry.embedding(), embedding);
+                if (score >= bestScore) {
+                    bestScore = score;
+                    best = entry;
+                }
+            }
+            return best;
+        }
+
+        synchronized void put(Entry entry, int maxEntries) {
+            Entry previous = byQuery.put(entry.normalizedQuery(), entry);
+            if (previous != null) {
+                entries.remove(previous);
+            }
+            entries.add(entry);
+
+            if (entries.size() > maxEntries) {
+                long now = System.currentTimeMillis();
+                for (Iterator<Entry> it = entries.iterator(); it.hasNext(); ) {
+                    Entry e = it.next();
+                    if (e.isExpired(now)) {
+                        it.remove();
+                        byQuery.remove(e.normalizedQuery(), e);
+                    }
+                }
+                // Vẫn vượt giới hạn -> bỏ entry cũ nhất
+                while (entries.size() > maxEntries) {
+                    Entry oldest = entries.remove(0);
+                    byQuery.remove(oldest.normalizedQuery(), oldest);
+                }
+            }
+        }
+
+        private static double dot(float[] a, float[] b) {
+            double sum = 0;
+            for (int i = 0; i < a.length; i++) {
+                sum += a[i] * b[i];
+            }
+            return sum;
+        }
+    }
+}
@@ -46,6 +46,7 @@ public class SessionParticipantServiceImpl implements SessionParticipantService
     private final AgoraTokenService agoraTokenService;
     private final SessionParticipantMapper participantMapper;
     private final WebSocketService webSocketService; // ✅ Add WebSocket service
+    private final LiveSessionMembershipCache membershipCache;
     private static final int TOKEN_EXPIRATION_SECONDS = 86400; // 24 hours
 
     @Override
@@ -85,6 +86,7 @@ public class SessionParticipantServiceImpl implements SessionParticipantService
                 .build();
 
         SessionParticipant saved = participantRepository.save(participant);
+        membershipCache.invalidate(sessionId);
 
         // ✅ Send private notification to invited user
         webSocketService.sendToUser(request.getUserId(), "/queue/invitation",
@@ -164,6 +166,7 @@ public class SessionParticipantServiceImpl implements SessionParticipantService
         participant.markAsOnline();
 
         participantRepository.save(participant);
+        membershipCache.invalidate(sessionId);
 
         session.incrementParticipants();
         session.updateActivity(); // ✅ Update activity when user joins
@@ -219,6 +222,7 @@ public class SessionParticipantServiceImpl implements SessionParticipantService
 
         participant.markAsOffline();
         participantRepository.save(participant);
+        membershipCache.invalidate(sessionId);
 
         LiveSession session = sessionRepository.findById(sessionId)
                 .orElseThrow(() -> new AppException(ErrorCode.SESSION_NOT_FOUND));
@@ -425,6 +429,7 @@ public class SessionParticipantServiceImpl implements SessionParticipantService
         }
 
         participantRepository.delete(participant);
+        membershipCache.invalidate(sessionId);
 
         // ✅ Broadcast participant removed
         webSocketService.broadcastParticipantEvent(sessionId,
@@ -1,44 +1,83 @@
 package com.fpt.producerworkbench.service.impl;
 
 import com.fpt.producerworkbench.dto.response.SpotifyLinkInfoResponse;
+import com.fpt.producerworkbench.exception.SpotifyRateLimitedException;
+import com.fpt.producerworkbench.service.SpotifyCatalogClient;
+import com.fpt.producerworkbench.service.SpotifyCatalogClient.ArtistInfo;
+import com.fpt.producerworkbench.service.SpotifyCatalogClient.ArtistRef;
 import com.fpt.producerworkbench.service.SpotifyService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import se.michaelthelin.spotify.SpotifyApi;
-import se.michaelthelin.spotify.model_objects.credentials.ClientCredentials;
-import se.michaelthelin.spotify.model_objects.specification.Album;
-import se.michaelthelin.spotify.model_objects.specification.Artist;
-import se.michaelthelin.spotify.model_objects.specification.ArtistSimplified;
-import se.michaelthelin.spotify.model_objects.specification.Track;
-import se.michaelthelin.spotify.requests.authorization.client_credentials.ClientCredentialsRequest;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Lấy genres / thông tin artist từ link Spotify (track, artist, album).
+ * <p>
+ * Metadata được cache có TTL và giới hạn số entry (track -> artists, album -> artists, artist -> genres),
+ * nên các lần recommend lặp lại cho cùng link không gọi lại Spotify.
+ * Artist chưa có trong cache được lấy theo batch (Get Several Artists, tối đa 50 / request),
+ * các batch độc lập chạy song song trên spotifyTaskExecutor.
+ * <p>
+ * Track / album / artist không tồn tại được cache với TTL ngắn (negative cache) để không gọi lại liên tục.
+ * Entry hết hạn vẫn được giữ thêm 1 TTL: khi Spotify đang giới hạn request thì trả dữ liệu cũ này,
+ * không có dữ liệu cũ thì SpotifyRateLimitedException (SPOTIFY_RATE_LIMITED, HTTP 429) được ném ra cho caller
+ * thay vì trả kết quả rỗng như các lỗi khác.
+ */
 @Service
 @Slf4j
 public class SpotifyServiceImpl implements SpotifyService {
 
-    private final SpotifyApi spotifyApi;
     private static final Pattern TRACK_ID_PATTERN = Pattern.compile("open\\.spotify\\.com/track/([a-zA-Z0-9]+)");
     private static final Pattern ARTIST_ID_PATTERN = Pattern.compile("open\\.spotify\\.com/artist/([a-zA-Z0-9]+)");
     private static final Pattern ALBUM_ID_PATTERN = Pattern.compile("open\\.spotify\\.com/album/([a-zA-Z0-9]+)");
 
-    public SpotifyServiceImpl(@Value("${spotify.client-id}") String clientId,
-                              @Value("${spotify.client-secret}") String clientSecret) {
-        this.spotifyApi = new SpotifyApi.Builder()
-                .setClientId(clientId)
-                .setClientSecret(clientSecret)
-                .build();
+    private final SpotifyCatalogClient catalogClient;
+    private final AsyncTaskExecutor spotifyTaskExecutor;
+
+    private final ExpiringCache<List<ArtistRef>> trackArtistsCache;
+    private final ExpiringCache<List<ArtistRef>> albumArtistsCache;
+    private final ExpiringCache<ArtistInfo> artistCache;
+    private final ExpiringCache<Boolean> notFoundArtistCache;
+    private final long negativeTtlMs;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public SpotifyServiceImpl(SpotifyCatalogClient catalogClient,
+                              @Qualifier("spotifyTaskExecutor") AsyncTaskExecutor spotifyTaskExecutor,
+                              MeterRegistry meterRegistry,
+                              @Value("${spotify.cache.ttl-minutes:360}") long ttlMinutes,
+                              @Value("${spotify.cache.max-entries:10000}") int maxEntries,
+                              @Value("${spotify.cache.negative-ttl-seconds:300}") long negativeTtlSeconds) {
+        this.catalogClient = catalogClient;
+        this.spotifyTaskExecutor = spotifyTaskExecutor;
+
+        long ttlMs = ttlMinutes * 60_000;
+        this.negativeTtlMs = negativeTtlSeconds * 1000;
+        this.trackArtistsCache = new ExpiringCache<>(ttlMs, maxEntries);
+        this.albumArtistsCache = new ExpiringCache<>(ttlMs, maxEntries);
+        this.artistCache = new ExpiringCache<>(ttlMs, maxEntries);
+        this.notFoundArtistCache = new ExpiringCache<>(negativeTtlMs, maxEntries);
+
+        this.hitCounter = Counter.builder("spotify.metadata.cache").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("spotify.metadata.cache").tag("result", "miss").register(meterRegistry);
     }
 
     @Override
     public List<String> getGenresFromTrackLink(String trackLink) {
         try {
-            refreshAccessToken();
-
             // Kiểm tra loại link và xử lý tương ứng
             String trackId = extractTrackIdFromUrl(trackLink);
             if (trackId != null) {
@@ -58,6 +97,8 @@ public class SpotifyServiceImpl implements SpotifyService {
             log.warn("Không thể trích xuất ID từ link (không phải track/artist/album): {}", trackLink);
             return Collections.emptyList();
 
+        } catch (SpotifyRateLimitedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Lỗi khi lấy dữ liệu từ Spotify API cho link {}: {}", trackLink, e.getMessage());
             return Collections.emptyList();
@@ -66,19 +107,20 @@ public class SpotifyServiceImpl implements SpotifyService {
 
     private List<String> getGenresFromTrack(String trackId, String originalLink) {
         try {
-            Track track = spotifyApi.getTrack(trackId).build().execute();
-            if (track == null || track.getArtists() == null || track.getArtists().length == 0) {
+            List<ArtistRef> trackArtists = getTrackArtists(trackId);
+            if (trackArtists.isEmpty()) {
                 return Collections.emptyList();
             }
 
-            String artistId = track.getArtists()[0].getId();
-            Artist artistDetails = spotifyApi.getArtist(artistId).build().execute();
-            if (artistDetails == null || artistDetails.getGenres() == null) {
+            ArtistInfo artist = getArtists(List.of(trackArtists.get(0).id())).get(trackArtists.get(0).id());
+            if (artist == null || artist.genres().isEmpty()) {
                 return Collections.emptyList();
             }
 
-            log.info("Tìm thấy các genres từ track link {}: {}", originalLink, Arrays.toString(artistDetails.getGenres()));
-            return Arrays.asList(artistDetails.getGenres());
+            log.info("Tìm thấy các genres từ track link {}: {}", originalLink, artist.genres());
+            return artist.genres();
+        } catch (SpotifyRateLimitedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Lỗi khi lấy genres từ track {}: {}", trackId, e.getMessage());
             return Collections.emptyList();
@@ -87,13 +129,15 @@ public class SpotifyServiceImpl implements SpotifyService {
 
     private List<String> getGenresFromArtist(String artistId, String originalLink) {
         try {
-            Artist artist = spotifyApi.getArtist(artistId).build().execute();
-            if (artist == null || artist.getGenres() == null || artist.getGenres().length == 0) {
+            ArtistInfo artist = getArtists(List.of(artistId)).get(artistId);
+            if (artist == null || artist.genres().isEmpty()) {
                 return Collections.emptyList();
             }
 
-            log.info("Tìm thấy các genres từ artist link {}: {}", originalLink, Arrays.toString(artist.getGenres()));
-            return Arrays.asList(artist.getGenres());
+            log.info("Tìm thấy các genres từ artist link {}: {}", originalLink, artist.genres());
+            return artist.genres();
+        } catch (SpotifyRateLimitedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Lỗi khi lấy genres từ artist {}: {}", artistId, e.getMessage());
             return Collections.emptyList();
@@ -102,22 +146,16 @@ public class SpotifyServiceImpl implements SpotifyService {
 
     private List<String> getGenresFromAlbum(String albumId, String originalLink) {
         try {
-            Album album = spotifyApi.getAlbum(albumId).build().execute();
-            if (album == null || album.getArtists() == null || album.getArtists().length == 0) {
+            List<ArtistRef> albumArtists = getAlbumArtists(albumId);
+            if (albumArtists.isEmpty()) {
                 return Collections.emptyList();
             }
 
-            // Lấy genres từ tất cả các artists trong album
-            Set<String> allGenres = new HashSet<>();
-            for (ArtistSimplified artistSimplified : album.getArtists()) {
-                try {
-                    Artist artist = spotifyApi.getArtist(artistSimplified.getId()).build().execute();
-                    if (artist != null && artist.getGenres() != null) {
-                        allGenres.addAll(Arrays.asList(artist.getGenres()));
-                    }
-                } catch (Exception e) {
-                    log.warn("Không thể lấy genres từ artist {} trong album: {}", artistSimplified.getId(), e.getMessage());
-                }
+            // Lấy genres từ tất cả các artists trong album (1 batch request thay vì 1 request / artist)
+            Map<String, ArtistInfo> artists = getArtists(albumArtists.stream().map(ArtistRef::id).toList());
+            Set<String> allGenres = new LinkedHashSet<>();
+            for (ArtistInfo artist : artists.values()) {
+                allGenres.addAll(artist.genres());
             }
 
             if (allGenres.isEmpty()) {
@@ -127,6 +165,8 @@ public class SpotifyServiceImpl implements SpotifyService {
             List<String> genresList = new ArrayList<>(allGenres);
             log.info("Tìm thấy các genres từ album link {}: {}", originalLink, genresList);
             return genresList;
+        } catch (SpotifyRateLimitedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Lỗi khi lấy genres từ album {}: {}", albumId, e.getMessage());
             return Collections.emptyList();
@@ -151,8 +191,6 @@ public class SpotifyServiceImpl implements SpotifyService {
     @Override
     public SpotifyLinkInfoResponse getSpotifyLinkInfo(String spotifyLink) {
         try {
-            refreshAccessToken();
-
             // Kiểm tra loại link và xử lý tương ứng
             String trackId = extractTrackIdFromUrl(spotifyLink);
             if (trackId != null) {
@@ -175,6 +213,8 @@ public class SpotifyServiceImpl implements SpotifyService {
                     .genres(Collections.emptyList())
                     .build();
 
+        } catch (SpotifyRateLimitedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Lỗi khi lấy thông tin từ Spotify API cho link {}: {}", spotifyLink, e.getMessage());
             return SpotifyLinkInfoResponse.builder()
@@ -186,8 +226,8 @@ public class SpotifyServiceImpl implements SpotifyService {
 
     private SpotifyLinkInfoResponse getTrackLinkInfo(String trackId, String originalLink) {
         try {
-            Track track = spotifyApi.getTrack(trackId).build().execute();
-            if (track == null || track.getArtists() == null || track.getArtists().length == 0) {
+            List<ArtistRef> trackArtists = getTrackArtists(trackId);
+            if (trackArtists.isEmpty()) {
                 return SpotifyLinkInfoResponse.builder()
                         .linkType("TRACK")
                         .spotifyId(trackId)
@@ -195,22 +235,17 @@ public class SpotifyServiceImpl implements SpotifyService {
                         .build();
             }
 
-            String artistId = track.getArtists()[0].getId();
-            Artist artist = spotifyApi.getArtist(artistId).build().execute();
-            List<String> genres = artist != null && artist.getGenres() != null 
-                    ? Arrays.asList(artist.getGenres()) 
-                    : Collections.emptyList();
-            
-            String artistName = artist != null ? artist.getName() : null;
-            String artistImageUrl = getArtistImageUrl(artist);
+            ArtistInfo artist = getArtists(List.of(trackArtists.get(0).id())).get(trackArtists.get(0).id());
 
             return SpotifyLinkInfoResponse.builder()
                     .linkType("TRACK")
                     .spotifyId(trackId)
-                    .genres(genres)
-                    .artistName(artistName)
-                    .artistImageUrl(artistImageUrl)
+                    .genres(artist != null ? artist.genres() : Collections.emptyList())
+                    .artistName(artist != null ? artist.name() : null)
+                    .artistImageUrl(artist != null ? artist.imageUrl() : null)
                     .build();
+        } catch (SpotifyRateLimitedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Lỗi khi lấy thông tin track {}: {}", trackId, e.getMessage());
             return SpotifyLinkInfoResponse.builder()
@@ -223,7 +258,7 @@ public class SpotifyServiceImpl implements SpotifyService {
 
     private SpotifyLinkInfoResponse getArtistLinkInfo(String artistId, String originalLink) {
         try {
-            Artist artist = spotifyApi.getArtist(artistId).build().execute();
+            ArtistInfo artist = getArtists(List.of(artistId)).get(artistId);
             if (artist == null) {
                 return SpotifyLinkInfoResponse.builder()
                         .linkType("ARTIST")
@@ -232,20 +267,15 @@ public class SpotifyServiceImpl implements SpotifyService {
                         .build();
             }
 
-            List<String> genres = artist.getGenres() != null && artist.getGenres().length > 0
-                    ? Arrays.asList(artist.getGenres())
-                    : Collections.emptyList();
-            
-            String artistName = artist.getName();
-            String artistImageUrl = getArtistImageUrl(artist);
-
             return SpotifyLinkInfoResponse.builder()
                     .linkType("ARTIST")
                     .spotifyId(artistId)
-                    .genres(genres)
-                    .artistName(artistName)
-                    .artistImageUrl(artistImageUrl)
+                    .genres(artist.genres())
+                    .artistName(artist.name())
+                    .artistImageUrl(artist.imageUrl())
                     .build();
+        } catch (SpotifyRateLimitedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Lỗi khi lấy thông tin artist {}: {}", artistId, e.getMessage());
             return SpotifyLinkInfoResponse.builder()
@@ -258,8 +288,8 @@ public class SpotifyServiceImpl implements SpotifyService {
 
     private SpotifyLinkInfoResponse getAlbumLinkInfo(String albumId, String originalLink) {
         try {
-            Album album = spotifyApi.getAlbum(albumId).build().execute();
-            if (album == null || album.getArtists() == null || album.getArtists().length == 0) {
+            List<ArtistRef> albumArtists = getAlbumArtists(albumId);
+            if (albumArtists.isEmpty()) {
                 return SpotifyLinkInfoResponse.builder()
                         .linkType("ALBUM")
                         .spotifyId(albumId)
@@ -268,36 +298,24 @@ public class SpotifyServiceImpl implements SpotifyService {
             }
 
             // Lấy genres từ tất cả các artists trong album
-            Set<String> allGenres = new HashSet<>();
-            String mainArtistId = album.getArtists()[0].getId();
-            Artist mainArtist = null;
-
-            for (ArtistSimplified artistSimplified : album.getArtists()) {
-                try {
-                    Artist artist = spotifyApi.getArtist(artistSimplified.getId()).build().execute();
-                    if (artist != null && artist.getGenres() != null) {
-                        allGenres.addAll(Arrays.asList(artist.getGenres()));
-                        if (artistSimplified.getId().equals(mainArtistId)) {
-                            mainArtist = artist;
-                        }
-                    }
-                } catch (Exception e) {
-                    log.warn("Không thể lấy genres từ artist {} trong album: {}", artistSimplified.getId(), e.getMessage());
-                }
+            Map<String, ArtistInfo> artists = getArtists(albumArtists.stream().map(ArtistRef::id).toList());
+            Set<String> allGenres = new LinkedHashSet<>();
+            for (ArtistInfo artist : artists.values()) {
+                allGenres.addAll(artist.genres());
             }
 
-            List<String> genresList = new ArrayList<>(allGenres);
-            String artistName = mainArtist != null ? mainArtist.getName() : 
-                    (album.getArtists().length > 0 ? album.getArtists()[0].getName() : null);
-            String artistImageUrl = getArtistImageUrl(mainArtist);
+            ArtistRef mainArtistRef = albumArtists.get(0);
+            ArtistInfo mainArtist = artists.get(mainArtistRef.id());
 
             return SpotifyLinkInfoResponse.builder()
                     .linkType("ALBUM")
                     .spotifyId(albumId)
-                    .genres(genresList)
-                    .artistName(artistName)
-                    .artistImageUrl(artistImageUrl)
+                    .genres(new ArrayList<>(allGenres))
+                    .artistName(mainArtist != null ? mainArtist.name() : mainArtistRef.name())
+                    .artistImageUrl(mainArtist != null ? mainArtist.imageUrl() : null)
                     .build();
+        } catch (SpotifyRateLimitedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Lỗi khi lấy thông tin album {}: {}", albumId, e.getMessage());
             return SpotifyLinkInfoResponse.builder()
@@ -308,22 +326,192 @@ public class SpotifyServiceImpl implements SpotifyService {
         }
     }
 
-    private String getArtistImageUrl(Artist artist) {
-        if (artist == null || artist.getImages() == null || artist.getImages().length == 0) {
-            return null;
+    private List<ArtistRef> getTrackArtists(String trackId) throws Exception {
+        return getArtistRefs(trackArtistsCache, trackId, catalogClient::getTrackArtists);
+    }
+
+    private List<ArtistRef> getAlbumArtists(String albumId) throws Exception {
+        return getArtistRefs(albumArtistsCache, albumId, catalogClient::getAlbumArtists);
+    }
+
+    /**
+     * Artists của track / album qua cache. Kết quả rỗng (không tồn tại) chỉ cache với negative TTL.
+     */
+    private List<ArtistRef> getArtistRefs(ExpiringCache<List<ArtistRef>> cache, String id,
+                                          CatalogLookup<List<ArtistRef>> lookup) throws Exception {
+        List<ArtistRef> cached = cache.get(id);
+        if (cached != null) {
+            hitCounter.increment();
+            return cached;
+        }
+        missCounter.increment();
+
+        List<ArtistRef> artists;
+        try {
+            artists = lookup.fetch(id);
+        } catch (SpotifyRateLimitedException e) {
+            List<ArtistRef> stale = cache.getStale(id);
+            if (stale == null) {
+                throw e;
+            }
+            log.warn("Spotify đang giới hạn request, dùng dữ liệu cũ cho {}", id);
+            return stale;
         }
-        
-        // Lấy ảnh có kích thước trung bình (thường là index 1) hoặc ảnh đầu tiên
-        // Spotify API trả về ảnh theo thứ tự từ lớn đến nhỏ
-        // Thường lấy ảnh có kích thước trung bình (index 1) hoặc nhỏ nhất (index cuối)
-        // Nếu muốn ảnh lớn nhất thì lấy index 0
-        int imageIndex = artist.getImages().length > 1 ? 1 : 0;
-        return artist.getImages()[imageIndex].getUrl();
+
+        if (artists.isEmpty()) {
+            cache.put(id, artists, negativeTtlMs);
+        } else {
+            cache.put(id, artists);
+        }
+        return artists;
     }
 
-    private void refreshAccessToken() throws Exception {
-        ClientCredentialsRequest request = spotifyApi.clientCredentials().build();
-        ClientCredentials credentials = request.execute();
-        spotifyApi.setAccessToken(credentials.getAccessToken());
+    /**
+     * Lấy thông tin artists theo id: artist đã cache trả ngay, phần còn lại chia batch
+     * (tối đa 50 / request) và các batch chạy song song. Batch lỗi bị bỏ qua (artist thiếu trong kết quả),
+     * trừ SpotifyRateLimitedException của batch không có dữ liệu cũ: được ném tiếp cho caller.
+     */
+    private Map<String, ArtistInfo> getArtists(List<String> artistIds) {
+        Map<String, ArtistInfo> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String artistId : new LinkedHashSet<>(artistIds)) {
+            ArtistInfo cached = artistCache.get(artistId);
+            if (cached != null) {
+                hitCounter.increment();
+                result.put(artistId, cached);
+            } else if (notFoundArtistCache.get(artistId) != null) {
+                hitCounter.increment();
+            } else {
+                missCounter.increment();
+                missing.add(artistId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i += SpotifyCatalogClient.MAX_ARTISTS_PER_REQUEST) {
+            batches.add(missing.subList(i, Math.min(i + SpotifyCatalogClient.MAX_ARTISTS_PER_REQUEST, missing.size())));
+        }
+
+        if (batches.size() == 1) {
+            result.putAll(fetchArtistBatch(batches.get(0)));
+        } else {
+            List<CompletableFuture<Map<String, ArtistInfo>>> futures = batches.stream()
+                    .map(batch -> CompletableFuture.supplyAsync(() -> fetchArtistBatch(batch), spotifyTaskExecutor))
+                    .toList();
+            try {
+                futures.forEach(future -> result.putAll(future.join()));
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof SpotifyRateLimitedException rateLimited) {
+                    throw rateLimited;
+                }
+                throw e;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lấy 1 batch artist và cập nhật cache: artist có trong response cache với TTL thường,
+     * artist không có trong response (không tồn tại) cache với negative TTL.
+     * Khi Spotify đang giới hạn request thì trả dữ liệu cũ còn giữ trong cache, không có thì ném lại exception.
+     */
+    private Map<String, ArtistInfo> fetchArtistBatch(List<String> artistIds) {
+        Map<String, ArtistInfo> fetched = new HashMap<>();
+        try {
+            for (ArtistInfo artist : catalogClient.getArtists(artistIds)) {
+                artistCache.put(artist.id(), artist);
+                fetched.put(artist.id(), artist);
+            }
+        } catch (SpotifyRateLimitedException e) {
+            for (String artistId : artistIds) {
+                ArtistInfo stale = artistCache.getStale(artistId);
+                if (stale != null) {
+                    fetched.put(artistId, stale);
+                }
+            }
+            if (fetched.isEmpty()) {
+                throw e;
+            }
+            log.warn("Spotify đang giới hạn request (thử lại sau {} ms), dùng dữ liệu cũ cho {}/{} artist",
+                    e.getRetryAfterMs(), fetched.size(), artistIds.size());
+            return fetched;
+        } catch (Exception e) {
+            log.warn("Không thể lấy thông tin {} artist từ Spotify: {}", artistIds.size(), e.getMessage());
+            return fetched;
+        }
+
+        for (String artistId : artistIds) {
+            if (!fetched.containsKey(artistId)) {
+                notFoundArtistCache.put(artistId, Boolean.TRUE);
+            }
+        }
+        return fetched;
+    }
+
+    @Scheduled(fixedRate = 600000) // Dọn metadata hết hạn mỗi 10 phút
+    public void evictExpired() {
+        trackArtistsCache.evictExpired();
+        albumArtistsCache.evictExpired();
+        artistCache.evictExpired();
+        notFoundArtistCache.evictExpired();
+    }
+
+    @FunctionalInterface
+    private interface CatalogLookup<T> {
+        T fetch(String id) throws Exception;
+    }
+
+    /**
+     * Cache key -> value có TTL; khi đầy (sau khi dọn entry quá hạn) thì không nhận thêm entry mới.
+     * Entry hết hạn được giữ thêm 1 TTL để getStale dùng khi Spotify đang giới hạn request.
+     */
+    private static final class ExpiringCache<V> {
+
+        private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+        private final long ttlMs;
+        private final int maxEntries;
+
+        ExpiringCache(long ttlMs, int maxEntries) {
+            this.ttlMs = ttlMs;
+            this.maxEntries = maxEntries;
+        }
+
+        V get(String key) {
+            Entry<V> entry = entries.get(key);
+            return entry != null && entry.expiresAt() > System.currentTimeMillis() ? entry.value() : null;
+        }
+
+        /**
+         * Giá trị kể cả khi đã hết hạn, miễn là chưa bị dọn
+         */
+        V getStale(String key) {
+            Entry<V> entry = entries.get(key);
+            return entry != null ? entry.value() : null;
+        }
+
+        void put(String key, V value) {
+            put(key, value, ttlMs);
+        }
+
+        void put(String key, V value, long entryTtlMs) {
+            if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+                evictExpired();
+                if (entries.size() >= maxEntries) {
+                    return;
+                }
+            }
+            entries.put(key, new Entry<>(value, System.currentTimeMillis() + entryTtlMs));
+        }
+
+        void evictExpired() {
+            long staleBefore = System.currentTimeMillis() - ttlMs;
+            entries.values().removeIf(e -> e.expiresAt() <= staleBefore);
+        }
+
+        private record Entry<V>(V value, long expiresAt) {
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,163 @@
+package com.fpt.producerworkbench.service.impl;
+
+import com.fpt.producerworkbench.exception.SpotifyRateLimitedException;
+import com.fpt.producerworkbench.service.SpotifyCatalogClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import se.michaelthelin.spotify.SpotifyApi;
+import se.michaelthelin.spotify.exceptions.detailed.NotFoundException;
+import se.michaelthelin.spotify.exceptions.detailed.TooManyRequestsException;
+import se.michaelthelin.spotify.model_objects.credentials.ClientCredentials;
+import se.michaelthelin.spotify.model_objects.specification.Album;
+import se.michaelthelin.spotify.model_objects.specification.Artist;
+import se.michaelthelin.spotify.model_objects.specification.ArtistSimplified;
+import se.michaelthelin.spotify.model_objects.specification.Track;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * SpotifyCatalogClient gọi Spotify Web API.
+ * - Access token (client credentials) được giữ lại và làm mới trước khi hết hạn,
+ *   thay vì xin token mới ở mỗi request.
+ * - Khi bị Spotify trả 429, ngừng gọi API trong khoảng Retry-After và ném SpotifyRateLimitedException.
+ * - Mỗi request được đo bằng timer spotify.api.request.duration, tag theo kết quả.
+ */
+@Service
+@Slf4j(topic = "SPOTIFY-CATALOG")
+public class SpotifyWebApiCatalogClient implements SpotifyCatalogClient {
+
+    private final SpotifyApi spotifyApi;
+    private final long tokenRefreshMarginMs;
+    private final MeterRegistry meterRegistry;
+    private final Counter skippedCounter;
+
+    // Được bảo vệ bởi lock (this)
+    private long tokenExpiresAt = 0;
+
+    private volatile long rateLimitedUntil = 0;
+
+    public SpotifyWebApiCatalogClient(
+            @Value("${spotify.client-id}") String clientId,
+            @Value("${spotify.client-secret}") String clientSecret,
+            @Value("${spotify.token-refresh-margin-seconds:60}") long tokenRefreshMarginSeconds,
+            MeterRegistry meterRegistry) {
+        this.spotifyApi = new SpotifyApi.Builder()
+                .setClientId(clientId)
+                .setClientSecret(clientSecret)
+                .build();
+        this.tokenRefreshMarginMs = tokenRefreshMarginSeconds * 1000;
+        this.meterRegistry = meterRegistry;
+        // Request không được gửi vì vẫn đang trong khoảng Retry-After
+        this.skippedCounter = Counter.builder("spotify.api.request.skipped").register(meterRegistry);
+    }
+
+    @Override
+    public List<ArtistRef> getTrackArtists(String trackId) throws Exception {
+        Track track = execute(() -> spotifyApi.getTrack(trackId).build().execute());
+        return track != null ? toRefs(track.getArtists()) : Collections.emptyList();
+    }
+
+    @Override
+    public List<ArtistRef> getAlbumArtists(String albumId) throws Exception {
+        Album album = execute(() -> spotifyApi.getAlbum(albumId).build().execute());
+        return album != null ? toRefs(album.getArtists()) : Collections.emptyList();
+    }
+
+    @Override
+    public List<ArtistInfo> getArtists(List<String> artistIds) throws Exception {
+        if (artistIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (artistIds.size() > MAX_ARTISTS_PER_REQUEST) {
+            throw new IllegalArgumentException("Tối đa " + MAX_ARTISTS_PER_REQUEST + " artist / request");
+        }
+
+        Artist[] artists = execute(() -> spotifyApi.getSeveralArtists(artistIds.toArray(String[]::new))
+                .build().execute());
+        if (artists == null) {
+            return Collections.emptyList();
+        }
+
+        List<ArtistInfo> result = new ArrayList<>(artists.length);
+        for (Artist artist : artists) {
+            if (artist == null) {
+                continue;
+            }
+            List<String> genres = artist.getGenres() != null
+                    ? Arrays.asList(artist.getGenres())
+                    : Collections.emptyList();
+            result.add(new ArtistInfo(artist.getId(), artist.getName(), genres, getArtistImageUrl(artist)));
+        }
+        return result;
+    }
+
+    private <T> T execute(Callable<T> call) throws Exception {
+        long retryAfterMs = rateLimitedUntil - System.currentTimeMillis();
+        if (retryAfterMs > 0) {
+            skippedCounter.increment();
+            throw new SpotifyRateLimitedException(retryAfterMs);
+        }
+        ensureAccessToken();
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String result = "success";
+        try {
+            return call.call();
+        } catch (NotFoundException e) {
+            result = "not_found";
+            return null;
+        } catch (TooManyRequestsException e) {
+            result = "rate_limited";
+            long waitMs = e.getRetryAfter() * 1000L;
+            rateLimitedUntil = System.currentTimeMillis() + waitMs;
+            log.warn("Spotify rate limit, tạm dừng gọi API trong {} giây", e.getRetryAfter());
+            throw new SpotifyRateLimitedException(waitMs);
+        } catch (Exception e) {
+            result = "error";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("spotify.api.request.duration").tag("result", result).register(meterRegistry));
+        }
+    }
+
+    /**
+     * Làm mới token khi sắp hết hạn (trước tokenRefreshMarginMs)
+     */
+    private synchronized void ensureAccessToken() throws Exception {
+        if (System.currentTimeMillis() < tokenExpiresAt - tokenRefreshMarginMs) {
+            return;
+        }
+        ClientCredentials credentials = spotifyApi.clientCredentials().build().execute();
+        spotifyApi.setAccessToken(credentials.getAccessToken());
+        tokenExpiresAt = System.currentTimeMillis() + credentials.getExpiresIn() * 1000L;
+        log.info("Đã làm mới Spotify access token, hết hạn sau {} giây", credentials.getExpiresIn());
+    }
+
+    private static List<ArtistRef> toRefs(ArtistSimplified[] artists) {
+        if (artists == null || artists.length == 0) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(artists)
+                .map(artist -> new ArtistRef(artist.getId(), artist.getName()))
+                .toList();
+    }
+
+    private static String getArtistImageUrl(Artist artist) {
+        if (artist.getImages() == null || artist.getImages().length == 0) {
+            return null;
+        }
+
+        // Spotify API trả về ảnh theo thứ tự từ lớn đến nhỏ
+        // Lấy ảnh có kích thước trung bình (index 1), nếu không có thì lấy ảnh đầu tiên
+        int imageIndex = artist.getImages().length > 1 ? 1 : 0;
+        return artist.getImages()[imageIndex].getUrl();
+    }
+}
@@ -11,18 +11,25 @@ import com.fpt.producerworkbench.exception.AppException;
 import com.fpt.producerworkbench.exception.ErrorCode;
 import com.fpt.producerworkbench.repository.ProjectMemberRepository;
 import com.fpt.producerworkbench.repository.TrackRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
-import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
-import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelResponse;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelWithResponseStreamRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelWithResponseStreamResponseHandler;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @RequiredArgsConstructor
@@ -30,13 +37,24 @@ import java.util.*;
 public class SuggestionServiceBedrockImpl {
 
     private final TrackRepository trackRepo;
-    private final BedrockRuntimeClient bedrock;
     private final ObjectMapper mapper = new ObjectMapper();
     private final ProjectMemberRepository projectMemberRepo;
+    private final BedrockRuntimeAsyncClient bedrock;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // Client subscribe /user/queue/inspiration-suggestions để nhận lyrics đang được generate
+    private static final String SUGGESTION_STREAM_DESTINATION = "/queue/inspiration-suggestions";
 
     @Value("${bedrock.modelId:anthropic.claude-3-haiku-20240307-v1:0}")
     private String modelId;
 
+    @Value("${bedrock.stream.flush-interval-ms:250}")
+    private long streamFlushIntervalMs;
+
+    @Value("${bedrock.stream.timeout-seconds:120}")
+    private long streamTimeoutSeconds;
+
     @Value("${aws.ai.song.baseline.temperature:0.8}")
     private double temperature;
 
@@ -52,7 +70,7 @@ public class SuggestionServiceBedrockImpl {
             final String original = Optional.ofNullable(evt.getLyricsText()).orElse("").trim();
             List<String> originalSections = splitSections(original);
 
-            SongSuggestion suggestion = rewriteWholeSong(originalSections, temperature);
+            SongSuggestion suggestion = rewriteWholeSong(track.getId(), originalSections, temperature);
 
             List<String> origFlat = originalSections;
 
@@ -120,23 +138,15 @@ public class SuggestionServiceBedrockImpl {
         }
     }
 
-    private SongSuggestion rewriteWholeSong(List<String> originalSections, double temperature) throws Exception {
+    private SongSuggestion rewriteWholeSong(Long trackId, List<String> originalSections, double temperature) throws Exception {
         String prompt = buildStructureAwarePrompt(originalSections);
         int origChars = originalSections.stream().mapToInt(s -> s != null ? s.length() : 0).sum();
         int maxTokens = Math.max(1024, Math.min(6000, origChars / 3 + 512));
 
         String body = buildAnthropicMessagesBody(prompt, maxTokens, temperature);
 
-        InvokeModelRequest request = InvokeModelRequest.builder()
-                .modelId(modelId)
-                .contentType("application/json")
-                .accept("application/json")
-                .body(SdkBytes.fromString(body, StandardCharsets.UTF_8))
-                .build();
-
-        log.info("[Bedrock][whole-song] invoking modelId={}", modelId);
-        InvokeModelResponse response = bedrock.invokeModel(request);
-        String contentText = extractAnthropicContentText(response.body().asUtf8String());
+        log.info("[Bedrock][whole-song] streaming modelId={}", modelId);
+        String contentText = invokeModelStreaming(trackId, body);
 
         SongSuggestion rs = parseSongJson(contentText);
         rs.temperature = temperature;
@@ -157,17 +167,8 @@ public class SuggestionServiceBedrockImpl {
 
             String body = buildAnthropicMessagesBody(prompt, 2500, temp);
 
-            InvokeModelRequest invokeRequest = InvokeModelRequest.builder()
-                    .modelId(modelId)
-                    .contentType("application/json")
-                    .accept("application/json")
-                    .body(SdkBytes.fromString(body, StandardCharsets.UTF_8))
-                    .build();
-
             log.info("[Bedrock] Generating lyrics for trackId={}", trackId);
-            InvokeModelResponse response = bedrock.invokeModel(invokeRequest);
-
-            String contentText = extractAnthropicContentText(response.body().asUtf8String());
+            String contentText = invokeModelStreaming(trackId, body);
 
             SongSuggestion suggestion = parseSongJson(contentText);
             suggestion.temperature = temp;
@@ -420,21 +421,109 @@ public class SuggestionServiceBedrockImpl {
         return sj;
     }
 
-    private String extractAnthropicContentText(String responseJson) throws Exception {
-        JsonNode root = mapper.readTree(responseJson);
-        JsonNode content = root.path("content");
-        if (!content.isArray() || content.isEmpty()) return "";
-        StringBuilder sb = new StringBuilder();
-        for (JsonNode node : content) {
-            if ("text".equals(node.path("type").asText())) {
-                String t = node.path("text").asText("");
-                if (!t.isBlank()) {
-                    if (sb.length() > 0) sb.append("\n");
-                    sb.append(t);
-                }
-            }
+    /**
+     * Gọi Bedrock bằng InvokeModelWithResponseStream: text được đẩy dần tới uploader qua STOMP
+     * (gộp delta theo flush-interval) thay vì chờ toàn bộ response. Trả về toàn bộ text khi stream kết thúc.
+     */
+    private String invokeModelStreaming(Long trackId, String body) throws Exception {
+        String recipient = trackRepo.findUploaderEmailById(trackId).orElse(null);
+        long startNanos = System.nanoTime();
+
+        StringBuilder fullText = new StringBuilder();
+        StringBuilder unsent = new StringBuilder();
+        long[] lastFlushNanos = {startNanos};
+        boolean[] firstToken = {true};
+        int[] currentBlock = {-1};
+
+        InvokeModelWithResponseStreamRequest request = InvokeModelWithResponseStreamRequest.builder()
+                .modelId(modelId)
+                .contentType("application/json")
+                .accept("application/json")
+                .body(SdkBytes.fromString(body, StandardCharsets.UTF_8))
+                .build();
+
+        // Các chunk của 1 stream được SDK gọi tuần tự nên không cần đồng bộ thêm
+        InvokeModelWithResponseStreamResponseHandler handler = InvokeModelWithResponseStreamResponseHandler.builder()
+                .subscriber(InvokeModelWithResponseStreamResponseHandler.Visitor.builder()
+                        .onChunk(chunk -> {
+                            StreamDelta streamDelta = extractAnthropicStreamDelta(chunk.bytes().asUtf8String());
+                            if (streamDelta == null) return;
+
+                            long now = System.nanoTime();
+                            if (firstToken[0]) {
+                                firstToken[0] = false;
+                                firstTokenTimer().record(Duration.ofNanos(now - startNanos));
+                            }
+                            String delta = streamDelta.text();
+                            // Các text block được nối bằng "\n" giống bản không streaming
+                            if (streamDelta.blockIndex() != currentBlock[0]) {
+                                currentBlock[0] = streamDelta.blockIndex();
+                                if (fullText.length() > 0) {
+                                    delta = "\n" + delta;
+                                }
+                            }
+                            fullText.append(delta);
+                            unsent.append(delta);
+                            if (now - lastFlushNanos[0] >= TimeUnit.MILLISECONDS.toNanos(streamFlushIntervalMs)) {
+                                pushSuggestionDelta(recipient, trackId, unsent, false);
+                                lastFlushNanos[0] = now;
+                            }
+                        })
+                        .build())
+                .build();
+
+        CompletableFuture<Void> stream = bedrock.invokeModelWithResponseStream(request, handler);
+        try {
+            stream.get(streamTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // Hủy request để Bedrock dừng stream, không tiếp tục sinh token sau khi đã bỏ cuộc
+            stream.cancel(true);
+            throw e;
+        }
+        pushSuggestionDelta(recipient, trackId, unsent, true);
+
+        return fullText.toString().trim();
+    }
+
+    private void pushSuggestionDelta(String recipient, Long trackId, StringBuilder unsent, boolean done) {
+        if (recipient == null || (unsent.length() == 0 && !done)) return;
+        try {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("trackId", trackId);
+            payload.put("delta", unsent.toString());
+            payload.put("done", done);
+            messagingTemplate.convertAndSendToUser(recipient, SUGGESTION_STREAM_DESTINATION, payload);
+        } catch (Exception e) {
+            log.warn("[Bedrock] Failed to push suggestion delta for track {}: {}", trackId, e.getMessage());
         }
-        return sb.toString().trim();
+        unsent.setLength(0);
+    }
+
+    /**
+     * Anthropic messages streaming: chỉ event content_block_delta / text_delta chứa text.
+     * Trả về null nếu event không có text.
+     */
+    private StreamDelta extractAnthropicStreamDelta(String eventJson) {
+        try {
+            JsonNode root = mapper.readTree(eventJson);
+            if (!"content_block_delta".equals(root.path("type").asText())) return null;
+            JsonNode delta = root.path("delta");
+            if (!"text_delta".equals(delta.path("type").asText())) return null;
+            String text = delta.path("text").asText("");
+            return text.isEmpty() ? null : new StreamDelta(root.path("index").asInt(0), text);
+        } catch (Exception e) {
+            log.warn("[Bedrock] Invalid stream event: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private record StreamDelta(int blockIndex, String text) {
+    }
+
+    private Timer firstTokenTimer() {
+        return Timer.builder("ai.bedrock.stream.first.token")
+                .description("Thời gian tới token đầu tiên của Bedrock streaming")
+                .register(meterRegistry);
     }
 
     private List<String> splitSections(String lyrics) {
@@ -0,0 +1,458 @@
+package com.fpt.producerworkbench.service.impl;
+
+import com.fpt.producerworkbench.common.TaxPeriodType;
+import com.fpt.producerworkbench.dto.response.TaxSummaryJobStatusResponse;
+import com.fpt.producerworkbench.exception.AppException;
+import com.fpt.producerworkbench.exception.ErrorCode;
+import com.fpt.producerworkbench.repository.TaxPayoutRecordRepository;
+import com.fpt.producerworkbench.service.TaxSummaryJobService;
+import com.fpt.producerworkbench.service.TaxSummaryService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Job tạo tax summary theo kỳ:
+ * - Chỉ duyệt user có payout trong kỳ, keyset pagination theo user id (không load toàn bộ bảng users).
+ * - Mỗi "wave" gồm tối đa {@code workers} partition, các partition chạy song song.
+ * - Sau mỗi wave, checkpoint (lastUserId + bộ đếm) được ghi vào Redis; nếu app crash,
+ *   job được tiếp tục từ checkpoint khi khởi động lại.
+ * - Mỗi job chỉ chạy trên 1 node nhờ lease Redis (SET NX + TTL, gia hạn định kỳ khi đang chạy);
+ *   node khởi động chỉ tiếp tục job RUNNING khi lease đã hết hạn (node chạy trước đó đã chết).
+ * - Kỳ đã COMPLETED không tự chạy lại; payout đến muộn được tổng hợp bằng rerunSummaryJob
+ *   (chạy lại từ đầu, chỉ cập nhật summary còn DRAFT).
+ * - Job (kể cả job được tiếp tục khi khởi động) chạy lần lượt trên 1 thread riêng "pwb-tax-summary-job",
+ *   không chiếm thread của scheduler hay taskExecutor dùng chung.
+ */
+@Service
+@Slf4j(topic = "TAX-SUMMARY-JOB")
+public class TaxSummaryJobServiceImpl implements TaxSummaryJobService {
+
+    private static final String JOB_KEY_PREFIX = "tax:summary:job:";
+    private static final String JOB_INDEX_KEY = "tax:summary:jobs";
+
+    private static final String STATUS_RUNNING = "RUNNING";
+    private static final String STATUS_COMPLETED = "COMPLETED";
+    private static final String STATUS_FAILED = "FAILED";
+
+    private static final String LEASE_SUFFIX = ":lease";
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    // Chỉ gia hạn / xóa lease nếu node hiện tại đang giữ
+    private static final RedisScript<Long> RENEW_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end", Long.class);
+    private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    private final TaxSummaryService taxSummaryService;
+    private final TaxPayoutRecordRepository taxPayoutRecordRepository;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final int partitionSize;
+    private final int workers;
+    private final Duration leaseTtl;
+    private final int maxAttempts;
+    private final ExecutorService partitionExecutor;
+    private final ScheduledExecutorService jobExecutor;
+
+    private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+    private final Counter succeededCounter;
+    private final Counter failedCounter;
+    private final Timer partitionTimer;
+
+    public TaxSummaryJobServiceImpl(
+            TaxSummaryService taxSummaryService,
+            TaxPayoutRecordRepository taxPayoutRecordRepository,
+            RedisTemplate<String, Object> redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${tax.summary.job.partition-size:500}") int partitionSize,
+            @Value("${tax.summary.job.workers:4}") int workers,
+            @Value("${tax.summary.job.lease-seconds:90}") long leaseSeconds,
+            @Value("${tax.summary.job.max-attempts:3}") int maxAttempts) {
+        this.taxSummaryService = taxSummaryService;
+        this.taxPayoutRecordRepository = taxPayoutRecordRepository;
+        this.redisTemplate = redisTemplate;
+        this.partitionSize = Math.max(1, partitionSize);
+        this.workers = Math.max(1, workers);
+        this.leaseTtl = Duration.ofSeconds(Math.max(10, leaseSeconds));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.partitionExecutor = Executors.newFixedThreadPool(this.workers, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("pwb-tax-summary-" + thread.threadId());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.jobExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pwb-tax-summary-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.succeededCounter = Counter.builder("tax.summary.users").tag("result", "success").register(meterRegistry);
+        this.failedCounter = Counter.builder("tax.summary.users").tag("result", "failed").register(meterRegistry);
+        this.partitionTimer = Timer.builder("tax.summary.partition.duration")
+                .description("Thời gian xử lý 1 partition user")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void runSummaryJob(TaxPeriodType periodType, int year, Integer monthOrQuarter) {
+        String jobKey = jobKey(periodType, year, monthOrQuarter);
+        if (!runningJobs.add(jobKey)) {
+            log.info("Job {} đang chạy, bỏ qua", jobKey);
+            return;
+        }
+        try {
+            if (!acquireLease(jobKey)) {
+                log.info("Job {} đang chạy trên node khác, bỏ qua", jobKey);
+                return;
+            }
+            try {
+                execute(jobKey, periodType, year, monthOrQuarter);
+            } catch (Exception e) {
+                log.error("Job {} thất bại: {}", jobKey, e.getMessage(), e);
+                redisTemplate.opsForHash().putAll(jobKey, Map.of(
+                        "status", STATUS_FAILED,
+                        "finishedAt", Instant.now().toString()));
+                redisTemplate.opsForHash().increment(jobKey, "attempts", 1);
+            } finally {
+                releaseLease(jobKey);
+            }
+        } finally {
+            runningJobs.remove(jobKey);
+        }
+    }
+
+    @Override
+    public void submitSummaryJob(TaxPeriodType periodType, int year, Integer monthOrQuarter) {
+        jobExecutor.execute(() -> {
+            try {
+                runSummaryJob(periodType, year, monthOrQuarter);
+            } catch (Exception e) {
+                log.error("Không thể chạy job {}: {}", jobKey(periodType, year, monthOrQuarter), e.getMessage(), e);
+            }
+        });
+    }
+
+    @Override
+    public void rerunSummaryJob(TaxPeriodType periodType, int year, Integer monthOrQuarter) {
+        String jobKey = jobKey(periodType, year, monthOrQuarter);
+        if (runningJobs.contains(jobKey) || Boolean.TRUE.equals(redisTemplate.hasKey(jobKey + LEASE_SUFFIX))) {
+            throw new AppException(ErrorCode.BAD_REQUEST, "Job " + jobKey + " đang chạy");
+        }
+        // Xóa checkpoint: execute() khởi tạo lại và duyệt từ user đầu tiên
+        redisTemplate.delete(jobKey);
+        log.info("Chạy lại job {}", jobKey);
+        submitSummaryJob(periodType, year, monthOrQuarter);
+    }
+
+    @Override
+    public List<TaxSummaryJobStatusResponse> getJobStatuses() {
+        Set<Object> jobKeys = redisTemplate.opsForSet().members(JOB_INDEX_KEY);
+        if (jobKeys == null || jobKeys.isEmpty()) {
+            return List.of();
+        }
+
+        List<TaxSummaryJobStatusResponse> statuses = new ArrayList<>();
+        for (Object jobKey : jobKeys) {
+            Map<Object, Object> checkpoint = redisTemplate.opsForHash().entries(jobKey.toString());
+            if (!checkpoint.isEmpty()) {
+                statuses.add(toStatusResponse(checkpoint));
+            }
+        }
+        statuses.sort(Comparator.comparing(TaxSummaryJobStatusResponse::getStartedAt,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return statuses;
+    }
+
+    /**
+     * Tiếp tục các job còn dang dở khi khởi động:
+     * - RUNNING: chỉ khi lease đã hết hạn (node chạy job đã chết). Job mà lease còn hạn được thử lại
+     *   1 lần sau 1 chu kỳ lease, để job của chính node này trước khi restart cũng được tiếp tục.
+     * - FAILED: tối đa tax.summary.job.max-attempts lần, job lỗi cố định không bị chạy lại mãi.
+     * Việc tiếp tục chạy trên jobExecutor; lần thử lại được hẹn giờ, không sleep giữ thread.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        jobExecutor.execute(this::resumeJobs);
+    }
+
+    private void resumeJobs() {
+        Set<Object> jobKeys;
+        try {
+            jobKeys = redisTemplate.opsForSet().members(JOB_INDEX_KEY);
+        } catch (Exception e) {
+            log.error("Không thể đọc danh sách job tax summary: {}", e.getMessage());
+            return;
+        }
+        if (jobKeys == null) {
+            return;
+        }
+
+        List<String> leased = new ArrayList<>();
+        for (Object jobKey : jobKeys) {
+            if (!resumeIfUnclaimed(jobKey.toString())) {
+                leased.add(jobKey.toString());
+            }
+        }
+        if (leased.isEmpty()) {
+            return;
+        }
+
+        // Node đang sống gia hạn lease mỗi leaseTtl / 3 nên lease vẫn bị giữ sau 1 chu kỳ nghĩa là job thật sự đang chạy
+        jobExecutor.schedule(() -> leased.forEach(this::resumeIfUnclaimed), leaseTtl.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gia hạn lease cho các job đang chạy trên node này
+     */
+    @Scheduled(fixedDelayString = "${tax.summary.job.lease-renew-interval-ms:30000}")
+    public void renewLeases() {
+        for (String jobKey : runningJobs) {
+            if (!renewLease(jobKey)) {
+                log.warn("Mất lease của job {}", jobKey);
+            }
+        }
+    }
+
+    /**
+     * @return false nếu job RUNNING đang có lease của node khác (chưa tiếp tục được)
+     */
+    private boolean resumeIfUnclaimed(String jobKey) {
+        Map<Object, Object> checkpoint = redisTemplate.opsForHash().entries(jobKey);
+        if (checkpoint.isEmpty() || STATUS_COMPLETED.equals(checkpoint.get("status"))) {
+            return true;
+        }
+        if (STATUS_FAILED.equals(checkpoint.get("status")) && parseLong(checkpoint.get("attempts")) >= maxAttempts) {
+            log.warn("Job {} đã thất bại {} lần, không tự động chạy lại", jobKey, checkpoint.get("attempts"));
+            return true;
+        }
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(jobKey + LEASE_SUFFIX))) {
+            return false;
+        }
+
+        TaxPeriodType periodType = TaxPeriodType.valueOf(checkpoint.get("periodType").toString());
+        int year = Integer.parseInt(checkpoint.get("year").toString());
+        Integer period = parseNullableInt(checkpoint.get("period"));
+        log.info("Tiếp tục job {} ({}) từ user {}", jobKey, checkpoint.get("status"), checkpoint.get("lastUserId"));
+        // runSummaryJob tự claim lease atomic: nếu node khác vừa nhận job thì lần chạy này bị bỏ qua
+        runSummaryJob(periodType, year, period);
+        return true;
+    }
+
+    private boolean acquireLease(String jobKey) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(jobKey + LEASE_SUFFIX, NODE_ID, leaseTtl));
+    }
+
+    private boolean renewLease(String jobKey) {
+        Long renewed = redisTemplate.execute(RENEW_LEASE_SCRIPT, List.of(jobKey + LEASE_SUFFIX),
+                NODE_ID, String.valueOf(leaseTtl.toMillis()));
+        return renewed != null && renewed == 1;
+    }
+
+    private void releaseLease(String jobKey) {
+        try {
+            redisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(jobKey + LEASE_SUFFIX), NODE_ID);
+        } catch (Exception e) {
+            log.warn("Không thể giải phóng lease của job {}: {}", jobKey, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        partitionExecutor.shutdownNow();
+    }
+
+    private void execute(String jobKey, TaxPeriodType periodType, int year, Integer monthOrQuarter) {
+        Map<Object, Object> checkpoint = redisTemplate.opsForHash().entries(jobKey);
+        if (STATUS_COMPLETED.equals(checkpoint.get("status"))) {
+            log.info("Job {} đã hoàn thành trước đó, bỏ qua", jobKey);
+            return;
+        }
+
+        long lastUserId = parseLong(checkpoint.get("lastUserId"));
+        long succeeded = parseLong(checkpoint.get("succeededCount"));
+        long failed = parseLong(checkpoint.get("failedCount"));
+
+        if (checkpoint.isEmpty()) {
+            Map<String, String> init = new HashMap<>();
+            init.put("periodType", periodType.name());
+            init.put("year", String.valueOf(year));
+            init.put("period", monthOrQuarter != null ? monthOrQuarter.toString() : "");
+            init.put("startedAt", Instant.now().toString());
+            init.put("lastUserId", "0");
+            redisTemplate.opsForHash().putAll(jobKey, init);
+            redisTemplate.opsForSet().add(JOB_INDEX_KEY, jobKey);
+        }
+        redisTemplate.opsForHash().put(jobKey, "status", STATUS_RUNNING);
+
+        LocalDate[] range = periodRange(periodType, year, monthOrQuarter);
+        log.info("Bắt đầu job {} ({} -> {}) từ user {}", jobKey, range[0], range[1], lastUserId);
+
+        while (true) {
+            // Lease bị node khác nhận (node này bị treo quá TTL): dừng, không ghi đè checkpoint
+            if (!renewLease(jobKey)) {
+                log.warn("Job {} đã bị node khác nhận, dừng tại user {}", jobKey, lastUserId);
+                return;
+            }
+
+            // Đọc trước tối đa `workers` partition liên tiếp theo keyset
+            List<List<Long>> wave = new ArrayList<>(workers);
+            long cursor = lastUserId;
+            while (wave.size() < workers) {
+                List<Long> userIds = taxPayoutRecordRepository.findUserIdsWithPayoutsAfter(
+                        range[0], range[1], cursor, PageRequest.of(0, partitionSize));
+                if (userIds.isEmpty()) {
+                    break;
+                }
+                wave.add(userIds);
+                cursor = userIds.get(userIds.size() - 1);
+                if (userIds.size() < partitionSize) {
+                    break;
+                }
+            }
+            if (wave.isEmpty()) {
+                break;
+            }
+
+            List<CompletableFuture<long[]>> futures = wave.stream()
+                    .map(userIds -> CompletableFuture.supplyAsync(
+                            () -> processPartition(userIds, periodType, year, monthOrQuarter), partitionExecutor))
+                    .toList();
+            for (CompletableFuture<long[]> future : futures) {
+                long[] result = future.join();
+                succeeded += result[0];
+                failed += result[1];
+            }
+
+            // Checkpoint chỉ tiến khi toàn bộ wave đã xong
+            lastUserId = cursor;
+            redisTemplate.opsForHash().putAll(jobKey, Map.of(
+                    "lastUserId", String.valueOf(lastUserId),
+                    "succeededCount", String.valueOf(succeeded),
+                    "failedCount", String.valueOf(failed)));
+        }
+
+        redisTemplate.opsForHash().putAll(jobKey, Map.of(
+                "status", STATUS_COMPLETED,
+                "finishedAt", Instant.now().toString()));
+        log.info("Job {} hoàn thành. Success: {}, Failed: {}", jobKey, succeeded, failed);
+    }
+
+    /**
+     * Mỗi user được tính trong transaction riêng của calculateUserTaxSummary,
+     * để 1 user lỗi không rollback cả partition.
+     */
+    private long[] processPartition(List<Long> userIds, TaxPeriodType periodType, int year, Integer monthOrQuarter) {
+        return partitionTimer.record(() -> {
+            long succeeded = 0;
+            long failed = 0;
+            for (Long userId : userIds) {
+                try {
+                    taxSummaryService.calculateUserTaxSummary(userId, periodType, year, monthOrQuarter);
+                    succeeded++;
+                    succeededCounter.increment();
+                } catch (Exception e) {
+                    log.error("Failed to generate {} summary for user: {}", periodType, userId, e);
+                    failed++;
+                    failedCounter.increment();
+                }
+            }
+            return new long[]{succeeded, failed};
+        });
+    }
+
+    private TaxSummaryJobStatusResponse toStatusResponse(Map<Object, Object> checkpoint) {
+        long succeeded = parseLong(checkpoint.get("succeededCount"));
+        long failed = parseLong(checkpoint.get("failedCount"));
+        long processed = succeeded + failed;
+        Instant startedAt = parseInstant(checkpoint.get("startedAt"));
+        Instant finishedAt = parseInstant(checkpoint.get("finishedAt"));
+
+        double usersPerSecond = 0;
+        if (startedAt != null) {
+            long elapsedMs = Duration.between(startedAt, finishedAt != null ? finishedAt : Instant.now()).toMillis();
+            if (elapsedMs > 0) {
+                usersPerSecond = processed * 1000.0 / elapsedMs;
+            }
+        }
+
+        return TaxSummaryJobStatusResponse.builder()
+                .periodType(TaxPeriodType.valueOf(checkpoint.get("periodType").toString()))
+                .year(Integer.parseInt(checkpoint.get("year").toString()))
+                .period(parseNullableInt(checkpoint.get("period")))
+                .status(Objects.toString(checkpoint.get("status"), null))
+                .lastUserId(parseLong(checkpoint.get("lastUserId")))
+                .processedCount(processed)
+                .succeededCount(succeeded)
+                .failedCount(failed)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .usersPerSecond(usersPerSecond)
+                .build();
+    }
+
+    private static LocalDate[] periodRange(TaxPeriodType periodType, int year, Integer monthOrQuarter) {
+        LocalDate startDate;
+        LocalDate endDate;
+        if (periodType == TaxPeriodType.MONTHLY) {
+            startDate = LocalDate.of(year, monthOrQuarter, 1);
+            endDate = startDate.plusMonths(1).minusDays(1);
+        } else if (periodType == TaxPeriodType.QUARTERLY) {
+            startDate = LocalDate.of(year, (monthOrQuarter - 1) * 3 + 1, 1);
+            endDate = startDate.plusMonths(3).minusDays(1);
+        } else {
+            startDate = LocalDate.of(year, 1, 1);
+            endDate = LocalDate.of(year, 12, 31);
+        }
+        return new LocalDate[]{startDate, endDate};
+    }
+
+    private static String jobKey(TaxPeriodType periodType, int year, Integer monthOrQuarter) {
+        return JOB_KEY_PREFIX + periodType.name() + ":" + year + (monthOrQuarter != null ? ":" + monthOrQuarter : "");
+    }
+
+    private static long parseLong(Object value) {
+        return value == null || value.toString().isEmpty() ? 0L : Long.parseLong(value.toString());
+    }
+
+    private static Integer parseNullableInt(Object value) {
+        return value == null || value.toString().isEmpty() ? null : Integer.valueOf(value.toString());
+    }
+
+    private static Instant parseInstant(Object value) {
+        return value == null || value.toString().isEmpty() ? null : Instant.parse(value.toString());
+    }
+}
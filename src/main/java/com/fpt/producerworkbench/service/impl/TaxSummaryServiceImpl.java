@@ -48,6 +48,16 @@ public class TaxSummaryServiceImpl implements TaxSummaryService {
         
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+
+        // Chạy lại kỳ (payout đến muộn) chỉ cập nhật summary còn DRAFT, summary đã chốt / kê khai giữ nguyên
+        UserTaxSummary existing = userTaxSummaryRepository
+                .findByUserAndPeriod(userId, periodType, year, monthOrQuarter)
+                .orElse(null);
+        if (existing != null && existing.getStatus() != TaxSummaryStatus.DRAFT) {
+            log.info("Tax summary of user {} for {} {}/{} is {}, skip recalculation",
+                    userId, periodType, monthOrQuarter, year, existing.getStatus());
+            return existing;
+        }
         
         // Kiểm tra user đã xác thực CCCD chưa
         if (!Boolean.TRUE.equals(user.getIsVerified()) || user.getCccdNumber() == null) {
@@ -146,6 +156,11 @@ public class TaxSummaryServiceImpl implements TaxSummaryService {
                 .totalWithdrawalCount(withdrawalCount)
                 .status(TaxSummaryStatus.DRAFT)
                 .build();
+        if (existing != null) {
+            summary.setId(existing.getId());
+            summary.setCreatedAt(existing.getCreatedAt());
+            summary.setCreatedBy(existing.getCreatedBy());
+        }
         
         return userTaxSummaryRepository.save(summary);
     }
@@ -0,0 +1,164 @@
+package com.fpt.producerworkbench.service.impl;
+
+import com.fpt.producerworkbench.entity.InvalidatedToken;
+import com.fpt.producerworkbench.repository.InvalidatedTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Giữ danh sách JTI đã bị thu hồi (logout / refresh) trong bộ nhớ để việc xác thực
+ * JWT trên mỗi request không phải truy vấn MySQL.
+ * <p>
+ * MySQL vẫn là nơi lưu trữ chính; mỗi lần thu hồi được publish qua Redis pub/sub
+ * để các node khác cập nhật set local của mình. Pub/sub không đảm bảo giao message,
+ * nên set local còn được đồng bộ định kỳ với bảng invalidated_tokens theo watermark revoked_at.
+ */
+@Service
+@Slf4j(topic = "TOKEN-REVOCATION-SERVICE")
+public class TokenRevocationService implements MessageListener {
+
+    public static final String REVOCATION_CHANNEL = "jwt:revoked";
+    private static final String SEPARATOR = "|";
+
+    // Đọc lùi watermark một khoảng để bù lệch đồng hồ giữa các node và transaction commit muộn
+    private static final long RESYNC_OVERLAP_MS = 5 * 60 * 1000;
+
+    private final InvalidatedTokenRepository invalidatedTokenRepository;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    // jti -> expiry (epoch millis)
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    // revoked_at lớn nhất đã đồng bộ từ DB (epoch millis)
+    private volatile long resyncWatermark;
+
+    private final Counter checkCounter;
+    private final Counter resyncRecoveredCounter;
+
+    public TokenRevocationService(InvalidatedTokenRepository invalidatedTokenRepository,
+                                  RedisTemplate<String, Object> redisTemplate,
+                                  MeterRegistry meterRegistry) {
+        this.invalidatedTokenRepository = invalidatedTokenRepository;
+        this.redisTemplate = redisTemplate;
+
+        Gauge.builder("jwt.revocation.local.size", revokedTokens, Map::size).register(meterRegistry);
+        // Mỗi lần check là 1 query existsById được tránh trên request path
+        this.checkCounter = Counter.builder("jwt.revocation.check").register(meterRegistry);
+        // JTI chỉ được phát hiện qua resync, tức là message pub/sub đã bị lỡ
+        this.resyncRecoveredCounter = Counter.builder("jwt.revocation.resync.recovered").register(meterRegistry);
+    }
+
+    /**
+     * Nạp toàn bộ JTI chưa hết hạn. Lỗi sẽ làm fail startup: chạy với set rỗng
+     * đồng nghĩa với chấp nhận mọi token đã bị thu hồi.
+     */
+    @PostConstruct
+    public void loadRevokedTokens() {
+        long startedAt = System.currentTimeMillis();
+        try {
+            invalidatedTokenRepository.findAllNotExpired(new Date(startedAt))
+                    .forEach(token -> revokedTokens.put(token.getId(), token.getExpiryTime().getTime()));
+        } catch (Exception e) {
+            log.error("Failed to load revoked tokens. Error: {}", e.getMessage());
+            throw new IllegalStateException("Không thể nạp danh sách token đã thu hồi", e);
+        }
+        resyncWatermark = startedAt;
+        log.info("Loaded {} revoked tokens into local revocation set", revokedTokens.size());
+    }
+
+    public boolean isRevoked(String jti) {
+        checkCounter.increment();
+        return jti != null && revokedTokens.containsKey(jti);
+    }
+
+    /**
+     * Thu hồi token: lưu DB, cập nhật set local và thông báo cho các node khác.
+     *
+     * @return false nếu token đã bị thu hồi trước đó
+     */
+    public boolean revoke(String jti, Date expiryTime) {
+        if (invalidatedTokenRepository.existsById(jti)) {
+            revokedTokens.putIfAbsent(jti, expiryTime.getTime());
+            return false;
+        }
+
+        invalidatedTokenRepository.save(InvalidatedToken.builder()
+                .id(jti)
+                .expiryTime(expiryTime)
+                .revokedAt(new Date())
+                .build());
+        revokedTokens.put(jti, expiryTime.getTime());
+
+        try {
+            redisTemplate.convertAndSend(REVOCATION_CHANNEL, jti + SEPARATOR + expiryTime.getTime());
+        } catch (Exception e) {
+            log.error("Failed to publish revocation for jti {}. Error: {}", jti, e.getMessage());
+        }
+        return true;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int idx = body.lastIndexOf(SEPARATOR);
+        if (idx <= 0) {
+            log.warn("Ignoring malformed revocation message: {}", body);
+            return;
+        }
+        try {
+            revokedTokens.put(body.substring(0, idx), Long.parseLong(body.substring(idx + 1)));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed revocation message: {}", body);
+        }
+    }
+
+    /**
+     * Đồng bộ lại các JTI bị thu hồi kể từ watermark, phòng trường hợp node bỏ lỡ message pub/sub.
+     * Lỗi chỉ được log: set local hiện có vẫn được giữ nguyên và lần chạy sau đọc lại từ cùng watermark.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.resync-interval-ms:60000}")
+    public void resyncRevokedTokens() {
+        long startedAt = System.currentTimeMillis();
+        List<InvalidatedToken> tokens;
+        try {
+            tokens = invalidatedTokenRepository.findRevokedSince(
+                    new Date(resyncWatermark - RESYNC_OVERLAP_MS), new Date(startedAt));
+        } catch (Exception e) {
+            log.error("Failed to resync revoked tokens. Error: {}", e.getMessage());
+            return;
+        }
+
+        int recovered = 0;
+        for (InvalidatedToken token : tokens) {
+            if (revokedTokens.putIfAbsent(token.getId(), token.getExpiryTime().getTime()) == null) {
+                recovered++;
+            }
+        }
+        resyncWatermark = startedAt;
+
+        if (recovered > 0) {
+            resyncRecoveredCounter.increment(recovered);
+            log.warn("Resync recovered {} revoked tokens missed by pub/sub", recovered);
+        }
+    }
+
+    @Scheduled(fixedRate = 600000) // Dọn các JTI đã hết hạn mỗi 10 phút
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiry -> expiry <= now);
+    }
+}
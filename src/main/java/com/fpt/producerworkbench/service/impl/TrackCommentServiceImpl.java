@@ -13,6 +13,7 @@ import com.fpt.producerworkbench.dto.request.TrackCommentStatusUpdateRequest;
 import com.fpt.producerworkbench.dto.request.TrackCommentUpdateRequest;
 import com.fpt.producerworkbench.dto.response.TrackCommentResponse;
 import com.fpt.producerworkbench.dto.response.TrackCommentStatisticsResponse;
+import com.fpt.producerworkbench.dto.response.TrackCommentTimelineResponse;
 import com.fpt.producerworkbench.entity.ClientDelivery;
 import com.fpt.producerworkbench.entity.Project;
 import com.fpt.producerworkbench.entity.ProjectMember;
@@ -36,11 +37,15 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -60,6 +65,7 @@ public class TrackCommentServiceImpl implements TrackCommentService {
     private final KafkaTemplate<String, NotificationEvent> kafkaTemplate;
     private final NotificationService notificationService;
     private final EmailService emailService;
+    private final TrackCommentTimelineIndex timelineIndex;
 
     private static final String NOTIFICATION_TOPIC = "notification-delivery";
 
@@ -116,11 +122,12 @@ public class TrackCommentServiceImpl implements TrackCommentService {
 
         TrackComment savedComment = trackCommentRepository.save(comment);
         log.info("Đã tạo comment {} cho track {}", savedComment.getId(), trackId);
+        timelineIndex.onCommentAdded(savedComment);
 
         // Gửi email và thông báo cho track owner
         sendNewCommentNotification(savedComment, track);
 
-        return mapToResponse(savedComment, false);
+        return mapToResponse(savedComment);
     }
 
     @Override
@@ -137,8 +144,9 @@ public class TrackCommentServiceImpl implements TrackCommentService {
         }
 
         Page<TrackComment> comments = trackCommentRepository.findRootCommentsByTrackId(trackId, pageable);
+        Map<Long, Long> replyCounts = countReplies(comments.getContent());
 
-        return comments.map(comment -> mapToResponse(comment, false));
+        return comments.map(comment -> mapToResponse(comment, replyCounts.getOrDefault(comment.getId(), 0L)));
     }
 
     @Override
@@ -150,15 +158,15 @@ public class TrackCommentServiceImpl implements TrackCommentService {
         loadUser(auth);
 
         // Kiểm tra comment tồn tại
-        if (!trackCommentRepository.findByIdAndNotDeleted(commentId).isPresent()) {
-            throw new AppException(ErrorCode.TRACK_COMMENT_NOT_FOUND);
-        }
+        TrackComment parentComment = trackCommentRepository.findByIdAndNotDeleted(commentId)
+                .orElseThrow(() -> new AppException(ErrorCode.TRACK_COMMENT_NOT_FOUND));
 
-        List<TrackComment> replies = trackCommentRepository.findRepliesByParentCommentId(commentId);
+        // Load replies nested nhiều cấp (giống Facebook) từ cây comment Internal Room của track
+        Map<Long, List<TrackComment>> repliesByParentId = indexByParentId(
+                trackCommentRepository.findThreadByTrackIdInternal(parentComment.getTrack().getId()));
 
-        // Load replies nested nhiều cấp (giống Facebook)
-        return replies.stream()
-                .map(reply -> mapToResponse(reply, true)) // ← Đổi từ false thành true để load nested
+        return repliesByParentId.getOrDefault(commentId, List.of()).stream()
+                .map(reply -> mapToThreadResponse(reply, repliesByParentId))
                 .collect(Collectors.toList());
     }
 
@@ -173,7 +181,7 @@ public class TrackCommentServiceImpl implements TrackCommentService {
         TrackComment comment = trackCommentRepository.findByIdAndNotDeleted(commentId)
                 .orElseThrow(() -> new AppException(ErrorCode.TRACK_COMMENT_NOT_FOUND));
 
-        return mapToResponse(comment, true); // Load with replies
+        return mapToThreadResponse(comment, loadThread(comment)); // Load with replies
     }
 
     @Override
@@ -202,7 +210,7 @@ public class TrackCommentServiceImpl implements TrackCommentService {
         // Gửi email và thông báo khi comment được cập nhật
         sendCommentUpdateNotification(updatedComment);
 
-        return mapToResponse(updatedComment, false);
+        return mapToResponse(updatedComment);
     }
 
     @Override
@@ -229,6 +237,7 @@ public class TrackCommentServiceImpl implements TrackCommentService {
         // Soft delete
         comment.setIsDeleted(true);
         trackCommentRepository.save(comment);
+        timelineIndex.onCommentRemoved(comment);
 
         log.info("Đã xóa comment {}", commentId);
 
@@ -267,7 +276,7 @@ public class TrackCommentServiceImpl implements TrackCommentService {
         // Gửi email và thông báo cho comment owner
         sendStatusUpdateNotification(updatedComment, oldStatus);
 
-        return mapToResponse(updatedComment, false);
+        return mapToResponse(updatedComment);
     }
 
     @Override
@@ -301,7 +310,8 @@ public class TrackCommentServiceImpl implements TrackCommentService {
     }
 
     @Override
-    @Transactional(readOnly = true)
+    // READ_COMMITTED: timeline nạp trong transaction này mới được cache (xem TrackCommentTimelineIndex)
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public List<TrackCommentResponse> getCommentsByTimestamp(Authentication auth, Long trackId, Integer timestamp) {
         log.info("Lấy comment tại timestamp {} của track {}", timestamp, trackId);
 
@@ -313,11 +323,35 @@ public class TrackCommentServiceImpl implements TrackCommentService {
             throw new AppException(ErrorCode.TRACK_NOT_FOUND);
         }
 
+        // Timeline index không có comment tại giây này -> không cần query DB
+        if (timelineIndex.getInternalRoom(trackId).countInRange(timestamp, timestamp + 1) == 0) {
+            return List.of();
+        }
+
         List<TrackComment> comments = trackCommentRepository.findByTrackIdAndTimestamp(trackId, timestamp);
 
-        return comments.stream()
-                .map(comment -> mapToResponse(comment, false))
-                .collect(Collectors.toList());
+        return mapToResponses(comments);
+    }
+
+    @Override
+    // READ_COMMITTED: timeline nạp trong transaction này mới được cache (xem TrackCommentTimelineIndex)
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+    public TrackCommentTimelineResponse getCommentTimeline(Authentication auth, Long trackId, int buckets,
+            Integer from, Integer to) {
+        log.info("Lấy timeline comment của track {} ({} bucket, khoảng [{}, {}))", trackId, buckets, from, to);
+
+        // Lấy user hiện tại
+        loadUser(auth);
+
+        // Kiểm tra track tồn tại
+        Track track = trackRepository.findById(trackId)
+                .orElseThrow(() -> new AppException(ErrorCode.TRACK_NOT_FOUND));
+
+        TrackCommentTimelineResponse response = buildTimelineResponse(track,
+                timelineIndex.getInternalRoom(trackId), buckets, from, to,
+                (fromTs, toTs) -> trackCommentRepository.findRootCommentsByTrackIdInTimestampRange(trackId, fromTs, toTs));
+        response.setTrackId(trackId);
+        return response;
     }
 
     // ==================== Client Room Comments ====================
@@ -386,11 +420,12 @@ public class TrackCommentServiceImpl implements TrackCommentService {
 
         TrackComment savedComment = trackCommentRepository.save(comment);
         log.info("Đã tạo comment {} trong Client Room cho delivery {}", savedComment.getId(), deliveryId);
+        timelineIndex.onCommentAdded(savedComment);
 
         // 8. Gửi email và thông báo
         sendClientRoomCommentNotification(savedComment, delivery, currentUser, project);
 
-        return mapToResponse(savedComment, false);
+        return mapToResponse(savedComment);
     }
 
     @Override
@@ -415,8 +450,9 @@ public class TrackCommentServiceImpl implements TrackCommentService {
 
         // 4. Query comments
         Page<TrackComment> comments = trackCommentRepository.findRootCommentsByClientDeliveryId(deliveryId, pageable);
+        Map<Long, Long> replyCounts = countReplies(comments.getContent());
 
-        return comments.map(comment -> mapToResponse(comment, false));
+        return comments.map(comment -> mapToResponse(comment, replyCounts.getOrDefault(comment.getId(), 0L)));
     }
 
     @Override
@@ -435,16 +471,17 @@ public class TrackCommentServiceImpl implements TrackCommentService {
             throw new AppException(ErrorCode.BAD_REQUEST, "Comment này không thuộc Client Room");
         }
 
-        // 3. Query replies
-        List<TrackComment> replies = trackCommentRepository.findClientRoomRepliesByParentCommentId(commentId);
+        // 3. Dựng cây reply từ toàn bộ comment của ClientDelivery
+        Map<Long, List<TrackComment>> repliesByParentId = loadThread(parentComment);
 
-        return replies.stream()
-                .map(reply -> mapToResponse(reply, true))
+        return repliesByParentId.getOrDefault(commentId, List.of()).stream()
+                .map(reply -> mapToThreadResponse(reply, repliesByParentId))
                 .collect(Collectors.toList());
     }
 
     @Override
-    @Transactional(readOnly = true)
+    // READ_COMMITTED: timeline nạp trong transaction này mới được cache (xem TrackCommentTimelineIndex)
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public List<TrackCommentResponse> getClientRoomCommentsByTimestamp(Authentication auth, Long deliveryId,
             Integer timestamp) {
         log.info("Lấy comment tại timestamp {} trong Client Room cho delivery {}", timestamp, deliveryId);
@@ -468,12 +505,47 @@ public class TrackCommentServiceImpl implements TrackCommentService {
             throw new AppException(ErrorCode.INVALID_TIMESTAMP);
         }
 
-        // 5. Query comments
+        // 5. Timeline index không có comment tại giây này -> không cần query DB
+        if (timelineIndex.getClientRoom(deliveryId).countInRange(timestamp, timestamp + 1) == 0) {
+            return List.of();
+        }
+
+        // 6. Query comments
         List<TrackComment> comments = trackCommentRepository.findByClientDeliveryIdAndTimestamp(deliveryId, timestamp);
 
-        return comments.stream()
-                .map(comment -> mapToResponse(comment, false))
-                .collect(Collectors.toList());
+        return mapToResponses(comments);
+    }
+
+    @Override
+    // READ_COMMITTED: timeline nạp trong transaction này mới được cache (xem TrackCommentTimelineIndex)
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+    public TrackCommentTimelineResponse getClientRoomCommentTimeline(Authentication auth, Long deliveryId,
+            int buckets, Integer from, Integer to) {
+        log.info("Lấy timeline comment trong Client Room cho delivery {} ({} bucket, khoảng [{}, {}))",
+                deliveryId, buckets, from, to);
+
+        // 1. Load user
+        User currentUser = loadUser(auth);
+
+        // 2. Load ClientDelivery
+        ClientDelivery delivery = clientDeliveryRepository.findById(deliveryId)
+                .orElseThrow(() -> new AppException(ErrorCode.CLIENT_DELIVERY_NOT_FOUND));
+
+        // 3. Load project và check permission
+        Project project = delivery.getMilestone().getContract().getProject();
+        if (!canAccessClientRoom(currentUser, project)) {
+            log.warn("User {} cannot access client room of project {}", currentUser.getId(), project.getId());
+            throw new AppException(ErrorCode.FORBIDDEN);
+        }
+
+        // 4. Đếm theo bucket từ timeline index, chỉ query DB cho khoảng [from, to)
+        TrackCommentTimelineResponse response = buildTimelineResponse(delivery.getTrack(),
+                timelineIndex.getClientRoom(deliveryId), buckets, from, to,
+                (fromTs, toTs) -> trackCommentRepository.findRootCommentsByClientDeliveryIdInTimestampRange(
+                        deliveryId, fromTs, toTs));
+        response.setTrackId(delivery.getTrack().getId());
+        response.setClientDeliveryId(deliveryId);
+        return response;
     }
 
     @Override
@@ -513,6 +585,38 @@ public class TrackCommentServiceImpl implements TrackCommentService {
                 .build();
     }
 
+    /**
+     * Helper method: Dựng timeline response từ timeline index
+     * Số comment theo bucket tính hoàn toàn trong bộ nhớ; comment trong [from, to) chỉ query khi khoảng đó có comment
+     */
+    private TrackCommentTimelineResponse buildTimelineResponse(Track track, TrackCommentTimelineIndex.Timeline timeline,
+            int buckets, Integer from, Integer to,
+            BiFunction<Integer, Integer, List<TrackComment>> windowLoader) {
+        // Track chưa có duration -> chia theo timestamp lớn nhất
+        int duration = track.getDuration() != null && track.getDuration() > 0
+                ? track.getDuration()
+                : timeline.maxTimestamp() + 1;
+
+        TrackCommentTimelineResponse response = TrackCommentTimelineResponse.builder()
+                .duration(duration)
+                .totalComments(timeline.size())
+                .bucketSeconds(duration > 0 ? (double) duration / buckets : 0d)
+                .bucketCounts(duration > 0
+                        ? Arrays.stream(timeline.bucketCounts(duration, buckets)).boxed().toList()
+                        : List.of())
+                .build();
+
+        if (from != null && to != null) {
+            response.setFrom(from);
+            response.setTo(to);
+            response.setComments(timeline.countInRange(from, to) == 0
+                    ? List.of()
+                    : mapToResponses(windowLoader.apply(from, to)));
+        }
+
+        return response;
+    }
+
     /**
      * Helper method: Kiểm tra user có quyền truy cập Client Room
      */
@@ -653,10 +757,44 @@ public class TrackCommentServiceImpl implements TrackCommentService {
     }
 
     /**
-     * Helper method: Map entity sang response DTO
-     * Hỗ trợ load replies nested nhiều cấp (giống Facebook)
+     * Helper method: Map 1 comment sang response DTO (không load replies)
+     */
+    private TrackCommentResponse mapToResponse(TrackComment comment) {
+        return mapToResponse(comment, countReplies(List.of(comment)).getOrDefault(comment.getId(), 0L));
+    }
+
+    /**
+     * Helper method: Map danh sách comment, đếm reply của cả danh sách trong 1 query
+     */
+    private List<TrackCommentResponse> mapToResponses(List<TrackComment> comments) {
+        Map<Long, Long> replyCounts = countReplies(comments);
+        return comments.stream()
+                .map(comment -> mapToResponse(comment, replyCounts.getOrDefault(comment.getId(), 0L)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Helper method: Map comment kèm replies NESTED nhiều cấp (giống Facebook)
+     * Cây được dựng sẵn trong bộ nhớ nên số reply lấy từ index, không query thêm
+     */
+    private TrackCommentResponse mapToThreadResponse(TrackComment comment,
+            Map<Long, List<TrackComment>> repliesByParentId) {
+        List<TrackComment> replies = repliesByParentId.getOrDefault(comment.getId(), List.of());
+        TrackCommentResponse response = mapToResponse(comment, (long) replies.size());
+
+        if (!replies.isEmpty()) {
+            response.setReplies(replies.stream()
+                    .map(reply -> mapToThreadResponse(reply, repliesByParentId))
+                    .collect(Collectors.toList()));
+        }
+
+        return response;
+    }
+
+    /**
+     * Helper method: Map entity sang response DTO với số reply đã biết trước
      */
-    private TrackCommentResponse mapToResponse(TrackComment comment, boolean loadReplies) {
+    private TrackCommentResponse mapToResponse(TrackComment comment, Long replyCount) {
         User user = comment.getUser();
 
         TrackCommentResponse.UserBasicInfo userInfo = TrackCommentResponse.UserBasicInfo.builder()
@@ -668,17 +806,7 @@ public class TrackCommentServiceImpl implements TrackCommentService {
                 .avatarUrl(user.getAvatarUrl())
                 .build();
 
-        // Đếm số reply (phân biệt Internal Room và Client Room)
-        Long replyCount;
-        if (comment.getClientDelivery() != null) {
-            // Client Room comment
-            replyCount = trackCommentRepository.countClientRoomRepliesByParentCommentId(comment.getId());
-        } else {
-            // Internal Room comment
-            replyCount = trackCommentRepository.countRepliesByParentCommentId(comment.getId());
-        }
-
-        TrackCommentResponse response = TrackCommentResponse.builder()
+        return TrackCommentResponse.builder()
                 .id(comment.getId())
                 .trackId(comment.getTrack().getId())
                 .user(userInfo)
@@ -690,24 +818,56 @@ public class TrackCommentServiceImpl implements TrackCommentService {
                 .createdAt(comment.getCreatedAt())
                 .updatedAt(comment.getUpdatedAt())
                 .build();
+    }
 
-        // Load replies NESTED nhiều cấp nếu được yêu cầu (giống Facebook)
-        // Mỗi reply cũng sẽ load replies của nó (recursive)
-        if (loadReplies && replyCount > 0) {
-            List<TrackComment> replies;
-            if (comment.getClientDelivery() != null) {
-                // Client Room comment
-                replies = trackCommentRepository.findClientRoomRepliesByParentCommentId(comment.getId());
-            } else {
-                // Internal Room comment
-                replies = trackCommentRepository.findRepliesByParentCommentId(comment.getId());
-            }
-            response.setReplies(replies.stream()
-                    .map(reply -> mapToResponse(reply, true)) // ← Đổi từ false thành true để load nested
-                    .collect(Collectors.toList()));
+    /**
+     * Helper method: Đếm số reply của nhiều comment bằng 1 query GROUP BY
+     * (phân biệt Internal Room và Client Room: comment Client Room chỉ đếm reply trong Client Room)
+     */
+    private Map<Long, Long> countReplies(List<TrackComment> comments) {
+        if (comments.isEmpty()) {
+            return Map.of();
         }
 
-        return response;
+        Map<Long, Boolean> clientRoomById = new HashMap<>();
+        for (TrackComment comment : comments) {
+            clientRoomById.put(comment.getId(), comment.getClientDelivery() != null);
+        }
+
+        Map<Long, Long> replyCounts = new HashMap<>();
+        for (Object[] row : trackCommentRepository
+                .countRepliesGroupedByParentCommentIds(new ArrayList<>(clientRoomById.keySet()))) {
+            Long parentId = (Long) row[0];
+            long total = ((Number) row[1]).longValue();
+            long clientRoom = row[2] != null ? ((Number) row[2]).longValue() : 0L;
+            replyCounts.put(parentId, Boolean.TRUE.equals(clientRoomById.get(parentId)) ? clientRoom : total);
+        }
+        return replyCounts;
+    }
+
+    /**
+     * Helper method: Load toàn bộ comment cùng room với comment gốc (1 query, kèm user)
+     * và index theo parent id để dựng cây reply
+     */
+    private Map<Long, List<TrackComment>> loadThread(TrackComment comment) {
+        List<TrackComment> thread = comment.getClientDelivery() != null
+                ? trackCommentRepository.findThreadByClientDeliveryId(comment.getClientDelivery().getId())
+                : trackCommentRepository.findThreadByTrackIdInternal(comment.getTrack().getId());
+        return indexByParentId(thread);
+    }
+
+    /**
+     * Helper method: Gom comment theo parent id, giữ thứ tự createdAt tăng dần của query
+     */
+    private Map<Long, List<TrackComment>> indexByParentId(List<TrackComment> thread) {
+        Map<Long, List<TrackComment>> repliesByParentId = new HashMap<>();
+        for (TrackComment comment : thread) {
+            if (comment.getParentComment() != null) {
+                repliesByParentId.computeIfAbsent(comment.getParentComment().getId(), k -> new ArrayList<>())
+                        .add(comment);
+            }
+        }
+        return repliesByParentId;
     }
 
     /**
@@ -0,0 +1,272 @@
+package com.fpt.producerworkbench.service.impl;
+
+import com.fpt.producerworkbench.entity.TrackComment;
+import com.fpt.producerworkbench.repository.TrackCommentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Index timestamp của comment gốc theo từng room (Internal Room của track, hoặc Client Room của ClientDelivery)
+ * để player đếm comment theo khoảng thời gian mà không query DB mỗi giây phát nhạc.
+ * <p>
+ * Mỗi room giữ 1 mảng int[] timestamp đã sắp xếp (immutable, nạp lại cả mảng khi room thay đổi):
+ * - Đếm comment trong [from, to) bằng binary search.
+ * - Comment tạo mới / bị xóa làm room bị gỡ khỏi cache sau khi transaction commit, lần đọc sau nạp lại từ DB.
+ * - Node khác nhận invalidation qua Redis pub/sub và nạp lại khi cần; TTL chỉ là lưới an toàn.
+ * <p>
+ * Mỗi invalidation ghi lại thời điểm (nanoTime) theo từng room. Lần nạp chỉ được cache nếu room không bị
+ * invalidate kể từ lúc bắt đầu query, nên 1 lần nạp chạy song song với commit không thể ghi timeline cũ vào cache;
+ * ghi vào room khác không ảnh hưởng. Query chạy trong transaction của caller, caller phải dùng READ_COMMITTED
+ * để snapshot không cũ hơn thời điểm bắt đầu nạp (với REPEATABLE READ snapshot có thể có từ trước đó):
+ * trong transaction isolation khác, kết quả vẫn được trả về nhưng không được cache.
+ */
+@Service
+@Slf4j(topic = "TRACK-COMMENT-TIMELINE")
+public class TrackCommentTimelineIndex implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "track-comment:timeline:changed";
+
+    private static final int MAX_CACHED_ROOMS = 5_000;
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    private final TrackCommentRepository trackCommentRepository;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final long ttlMs;
+
+    private final Map<String, Timeline> timelines = new ConcurrentHashMap<>();
+    // room -> thời điểm (System.nanoTime) bị invalidate gần nhất
+    private final Map<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public TrackCommentTimelineIndex(
+            TrackCommentRepository trackCommentRepository,
+            RedisTemplate<String, Object> redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${track-comment.timeline.ttl-seconds:600}") long ttlSeconds) {
+        this.trackCommentRepository = trackCommentRepository;
+        this.redisTemplate = redisTemplate;
+        this.ttlMs = ttlSeconds * 1000;
+
+        this.hitCounter = Counter.builder("track.comment.timeline.cache").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("track.comment.timeline.cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Timeline comment gốc trong Internal Room của track
+     */
+    public Timeline getInternalRoom(Long trackId) {
+        return get(internalRoomKey(trackId),
+                () -> trackCommentRepository.findRootTimestampsByTrackIdInternal(trackId));
+    }
+
+    /**
+     * Timeline comment gốc trong Client Room của ClientDelivery
+     */
+    public Timeline getClientRoom(Long deliveryId) {
+        return get(clientRoomKey(deliveryId),
+                () -> trackCommentRepository.findRootTimestampsByClientDeliveryId(deliveryId));
+    }
+
+    /**
+     * Invalidate timeline của room có comment gốc vừa tạo (sau khi commit)
+     */
+    public void onCommentAdded(TrackComment comment) {
+        if (isIndexed(comment)) {
+            afterCommit(roomKey(comment));
+        }
+    }
+
+    /**
+     * Invalidate timeline của room có comment gốc vừa bị xóa (sau khi commit)
+     */
+    public void onCommentRemoved(TrackComment comment) {
+        if (isIndexed(comment)) {
+            afterCommit(roomKey(comment));
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator < 0 || body.substring(0, separator).equals(NODE_ID)) {
+            // Node hiện tại đã invalidate khi commit, bỏ qua message của chính mình
+            return;
+        }
+        invalidate(body.substring(separator + 1));
+    }
+
+    @Scheduled(fixedRate = 600000) // Dọn các timeline hết hạn mỗi 10 phút
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        timelines.values().removeIf(t -> t.expiresAt() <= now);
+        // Không còn lần nạp nào bắt đầu trước các invalidation cũ hơn 1 TTL
+        long staleBefore = System.nanoTime() - ttlMs * 1_000_000;
+        invalidatedAt.values().removeIf(at -> at - staleBefore < 0);
+    }
+
+    private Timeline get(String key, Supplier<List<Integer>> loader) {
+        Timeline timeline = timelines.get(key);
+        if (timeline != null && timeline.expiresAt() > System.currentTimeMillis()) {
+            hitCounter.increment();
+            return timeline;
+        }
+
+        missCounter.increment();
+        // Lấy mốc trước khi query: invalidation nào xảy ra sau mốc này đều làm lần nạp không được cache
+        long loadStartedAt = System.nanoTime();
+        // Query đã ORDER BY timestamp nên mảng đã được sắp xếp
+        int[] timestamps = loader.get().stream().mapToInt(Integer::intValue).toArray();
+        Timeline fresh = new Timeline(timestamps, System.currentTimeMillis() + ttlMs);
+        if (!hasFreshSnapshot()) {
+            return fresh;
+        }
+        // compute và remove trên cùng key được serialize, nên invalidation không thể chen giữa bước kiểm tra và bước ghi
+        timelines.compute(key, (k, existing) -> {
+            Long invalidated = invalidatedAt.get(k);
+            if ((invalidated != null && invalidated - loadStartedAt >= 0)
+                    || (existing == null && timelines.size() >= MAX_CACHED_ROOMS)) {
+                return existing;
+            }
+            return fresh;
+        });
+        return fresh;
+    }
+
+    /**
+     * Query của loader đọc dữ liệu commit mới nhất: không có transaction, hoặc transaction READ_COMMITTED
+     */
+    private static boolean hasFreshSnapshot() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return true;
+        }
+        Integer isolation = TransactionSynchronizationManager.getCurrentTransactionIsolationLevel();
+        return isolation != null && isolation == Connection.TRANSACTION_READ_COMMITTED;
+    }
+
+    private void invalidate(String key) {
+        invalidatedAt.merge(key, System.nanoTime(), Math::max);
+        timelines.remove(key);
+    }
+
+    private void afterCommit(String key) {
+        Runnable apply = () -> {
+            invalidate(key);
+            publishInvalidation(key);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+            return;
+        }
+        apply.run();
+    }
+
+    private void publishInvalidation(String key) {
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, NODE_ID + "|" + key);
+        } catch (Exception e) {
+            log.error("Failed to publish comment timeline invalidation for {}. Error: {}", key, e.getMessage());
+        }
+    }
+
+    private static boolean isIndexed(TrackComment comment) {
+        return comment.getParentComment() == null && comment.getTimestamp() != null;
+    }
+
+    private static String roomKey(TrackComment comment) {
+        return comment.getClientDelivery() != null
+                ? clientRoomKey(comment.getClientDelivery().getId())
+                : internalRoomKey(comment.getTrack().getId());
+    }
+
+    private static String internalRoomKey(Long trackId) {
+        return "track:" + trackId;
+    }
+
+    private static String clientRoomKey(Long deliveryId) {
+        return "delivery:" + deliveryId;
+    }
+
+    /**
+     * Snapshot timestamp (giây) đã sắp xếp tăng dần của 1 room
+     */
+    public record Timeline(int[] timestamps, long expiresAt) {
+
+        public int size() {
+            return timestamps.length;
+        }
+
+        /**
+         * Timestamp lớn nhất, -1 nếu room chưa có comment gắn timestamp
+         */
+        public int maxTimestamp() {
+            return timestamps.length == 0 ? -1 : timestamps[timestamps.length - 1];
+        }
+
+        /**
+         * Số comment có timestamp trong [from, to)
+         */
+        public int countInRange(int from, int to) {
+            return to <= from ? 0 : lowerBound(to) - lowerBound(from);
+        }
+
+        /**
+         * Chia [0, duration) thành bucketCount bucket bằng nhau và đếm comment trong mỗi bucket.
+         * Comment có timestamp >= duration được tính vào bucket cuối.
+         */
+        public int[] bucketCounts(int duration, int bucketCount) {
+            int[] counts = new int[bucketCount];
+            double bucketSeconds = (double) duration / bucketCount;
+            int previous = 0;
+            for (int i = 0; i < bucketCount; i++) {
+                int end = i == bucketCount - 1
+                        ? timestamps.length
+                        : lowerBound((int) Math.ceil((i + 1) * bucketSeconds));
+                counts[i] = end - previous;
+                previous = end;
+            }
+            return counts;
+        }
+
+        /**
+         * Vị trí đầu tiên có timestamp >= value
+         */
+        private int lowerBound(int value) {
+            int low = 0;
+            int high = timestamps.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timestamps[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
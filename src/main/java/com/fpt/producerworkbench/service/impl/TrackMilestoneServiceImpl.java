@@ -404,19 +404,11 @@ public class TrackMilestoneServiceImpl implements TrackMilestoneService {
                 fileStorageService.deleteFile(track.getVoiceTagAudioKey());
                 log.info("Đã xóa voice tag file: {}", track.getVoiceTagAudioKey());
             }
-            // Xóa toàn bộ thư mục HLS nếu có (bao gồm cả mixed audio nếu có)
+            // Xóa thư mục HLS và mixed audio chạy nền (bulk delete), không chặn request
             if (track.getHlsPrefix() != null) {
-                fileStorageService.deletePrefix(track.getHlsPrefix());
-                log.info("Đã xóa HLS directory: {}", track.getHlsPrefix());
-            }
-            // Xóa thư mục mixed audio nếu có (dùng pattern)
-            String mixedPrefix = "audio/mixed/" + trackId + "/";
-            try {
-                fileStorageService.deletePrefix(mixedPrefix);
-                log.info("Đã xóa mixed audio directory: {}", mixedPrefix);
-            } catch (Exception ex) {
-                log.debug("Không có mixed audio directory hoặc đã bị xóa");
+                deletePrefixInBackground(trackId, track.getHlsPrefix());
             }
+            deletePrefixInBackground(trackId, "audio/mixed/" + trackId + "/");
         } catch (Exception e) {
             log.error("Lỗi khi xóa files S3 cho track {}: {}", trackId, e.getMessage());
         }
@@ -425,6 +417,19 @@ public class TrackMilestoneServiceImpl implements TrackMilestoneService {
         log.info("Đã xóa track {}", trackId);
     }
 
+    private void deletePrefixInBackground(Long trackId, String prefix) {
+        fileStorageService.deletePrefixAsync(prefix).whenComplete((result, ex) -> {
+            if (ex != null) {
+                log.error("Lỗi khi xóa prefix {} của track {}: {}", prefix, trackId, ex.getMessage());
+            } else if (!result.getFailedKeys().isEmpty()) {
+                log.warn("Xóa prefix {} của track {}: {} file đã xóa, {} file lỗi",
+                        prefix, trackId, result.getDeletedCount(), result.getFailedKeys().size());
+            } else {
+                log.info("Đã xóa {} file trong prefix {} của track {}", result.getDeletedCount(), prefix, trackId);
+            }
+        });
+    }
+
     @Override
     public String getPlaybackUrl(Authentication auth, Long trackId) {
         log.info("Lấy playback URL cho track {}", trackId);
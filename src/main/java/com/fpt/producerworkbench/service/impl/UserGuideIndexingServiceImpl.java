@@ -21,22 +21,40 @@ import com.fpt.producerworkbench.repository.userguide.UserGuideRepository;
 import com.fpt.producerworkbench.service.FileKeyGenerator;
 import com.fpt.producerworkbench.service.FileStorageService;
 import com.fpt.producerworkbench.service.UserGuideIndexingService;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class UserGuideIndexingServiceImpl implements UserGuideIndexingService {
 
     private final UserGuideRepository userGuideRepository;
@@ -50,6 +68,64 @@ public class UserGuideIndexingServiceImpl implements UserGuideIndexingService {
     private final WebClient.Builder webClientBuilder;
     private final ObjectMapper objectMapper;
     private final jakarta.persistence.EntityManager entityManager;
+    private final SemanticResponseCache semanticResponseCache;
+    private final SimpleAsyncTaskExecutor aiTaskExecutor;
+    private final PlatformTransactionManager userGuideTransactionManager;
+
+    // Số guide mỗi lần gọi vectorStore.add (1 request batchEmbedContents, Gemini giới hạn 100 / request)
+    @Value("${user-guide.indexing.batch-size:50}")
+    private int indexingBatchSize;
+
+    // Số batch chạy song song (giữ dưới rate limit của embedding API)
+    @Value("${user-guide.indexing.parallelism:2}")
+    private int indexingParallelism;
+
+    @Value("${user-guide.indexing.max-attempts:3}")
+    private int indexingMaxAttempts;
+
+    @Value("${user-guide.indexing.initial-backoff-ms:2000}")
+    private long indexingInitialBackoffMs;
+
+    private final AtomicBoolean reindexRunning = new AtomicBoolean(false);
+    private volatile ReindexProgress reindexProgress;
+
+    // Reindex toàn bộ chạy nền trên 1 thread riêng, không giữ HTTP request hay transaction suốt cả job
+    private final ExecutorService reindexExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pwb-guide-reindex");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UserGuideIndexingServiceImpl(
+            UserGuideRepository userGuideRepository,
+            GuideStepRepository guideStepRepository,
+            FileStorageService fileStorageService,
+            FileKeyGenerator fileKeyGenerator,
+            VectorStore vectorStore,
+            UserGuideMapper userGuideMapper,
+            GeminiConfig geminiConfig,
+            PineconeNamespaceConfig pineconeNamespaceConfig,
+            WebClient.Builder webClientBuilder,
+            ObjectMapper objectMapper,
+            jakarta.persistence.EntityManager entityManager,
+            SemanticResponseCache semanticResponseCache,
+            @Qualifier("aiTaskExecutor") SimpleAsyncTaskExecutor aiTaskExecutor,
+            @Qualifier("userGuideTransactionManager") PlatformTransactionManager userGuideTransactionManager) {
+        this.userGuideRepository = userGuideRepository;
+        this.guideStepRepository = guideStepRepository;
+        this.fileStorageService = fileStorageService;
+        this.fileKeyGenerator = fileKeyGenerator;
+        this.vectorStore = vectorStore;
+        this.userGuideMapper = userGuideMapper;
+        this.geminiConfig = geminiConfig;
+        this.pineconeNamespaceConfig = pineconeNamespaceConfig;
+        this.webClientBuilder = webClientBuilder;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.semanticResponseCache = semanticResponseCache;
+        this.aiTaskExecutor = aiTaskExecutor;
+        this.userGuideTransactionManager = userGuideTransactionManager;
+    }
 
     @Override
     @Transactional(transactionManager = "userGuideTransactionManager")
@@ -62,84 +138,11 @@ public class UserGuideIndexingServiceImpl implements UserGuideIndexingService {
         log.info("📝 Indexing new user guide: '{}'", request.getTitle());
 
         try {
-            // Step 1: Upload cover image to S3 (if provided)
-            String coverImageUrl = null;
-            if (coverImage != null && !coverImage.isEmpty()) {
-                String coverImageKey = String.format("guides/cover/%s_%s",
-                        System.currentTimeMillis(),
-                        coverImage.getOriginalFilename());
-                fileStorageService.uploadFile(coverImage, coverImageKey);
-                coverImageUrl = fileStorageService.generatePermanentUrl(coverImageKey);
-                log.info("   ✅ Uploaded cover image: {}", coverImageUrl);
-            }
-
-            // Step 2: Generate Pinecone Vector ID first
-            String tempVectorId = "guide_" + UUID.randomUUID().toString().substring(0, 8);
-            
-            // Step 3: Create and save UserGuide entity (with pineconeVectorId)
-            UserGuide userGuide = UserGuide.builder()
-                    .title(request.getTitle())
-                    .shortDescription(request.getShortDescription())
-                    .category(request.getCategory())
-                    .difficulty(request.getDifficulty())
-                    .contentText(request.getContentText())
-                    .prerequisites(request.getPrerequisites())
-                    .tags(request.getTags() != null ? request.getTags().toArray(new String[0]) : new String[0])
-                    .keywords(request.getKeywords() != null ? request.getKeywords().toArray(new String[0]) : new String[0])
-                    .relatedGuideIds(request.getRelatedGuideIds() != null ? request.getRelatedGuideIds().toArray(new Long[0]) : new Long[0])
-                    .searchableQueries(request.getSearchableQueries() != null ? request.getSearchableQueries().toArray(new String[0]) : null)
-                    .coverImageUrl(coverImageUrl)
-                    .pineconeVectorId(tempVectorId)
-                    .pineconeNamespace(pineconeNamespaceConfig.getUserGuidesNamespace())
-                    .author(request.getAuthor())
-                    .version(request.getVersion() != null ? request.getVersion() : "1.0")
-                    .isActive(true)
-                    .viewCount(0)
-                    .helpfulCount(0)
-                    .build();
-
-            userGuide = userGuideRepository.save(userGuide);
-            log.info("   ✅ Saved UserGuide entity with ID: {} and vectorId: {}", userGuide.getId(), tempVectorId);
-
-            // Step 3: Create and save GuideSteps
-            List<GuideStep> steps = new ArrayList<>();
-            for (int i = 0; i < request.getSteps().size(); i++) {
-                var stepDTO = request.getSteps().get(i);
-
-                // Upload step screenshot if provided
-                String screenshotUrl = null;
-                if (stepImages != null && i < stepImages.size() && !stepImages.get(i).isEmpty()) {
-                    String stepImageKey = String.format("guides/%d/steps/%d_%s",
-                            userGuide.getId(),
-                            stepDTO.getStepOrder(),
-                            stepImages.get(i).getOriginalFilename());
-                    fileStorageService.uploadFile(stepImages.get(i), stepImageKey);
-                    screenshotUrl = fileStorageService.generatePermanentUrl(stepImageKey);
-                }
-
-                GuideStep step = GuideStep.builder()
-                        .userGuide(userGuide)
-                        .stepOrder(stepDTO.getStepOrder())
-                        .title(stepDTO.getTitle())
-                        .description(stepDTO.getDescription())
-                        .screenLocation(stepDTO.getScreenLocation())
-                        .uiElement(stepDTO.getUiElement())
-                        .expectedResult(stepDTO.getExpectedResult())
-                        .screenshotUrl(screenshotUrl)
-                        .videoUrl(stepDTO.getVideoUrl())
-                        .tips(stepDTO.getTips())
-                        .commonMistakes(stepDTO.getCommonMistakes())
-                        .build();
-
-                steps.add(step);
-            }
-
-            steps = guideStepRepository.saveAll(steps);
-            userGuide.setSteps(steps);
-            log.info("   ✅ Saved {} guide steps", steps.size());
+            UserGuide userGuide = persistGuide(request, coverImage, stepImages);
 
             // Step 4: Generate embedding and index to Pinecone (using the pre-generated vectorId)
             indexToPinecone(userGuide);
+            invalidateQuickHelpCache();
 
             long processingTime = System.currentTimeMillis() - startTime;
             log.info("✅ Successfully indexed guide '{}' in {}ms", request.getTitle(), processingTime);
@@ -149,8 +152,8 @@ public class UserGuideIndexingServiceImpl implements UserGuideIndexingService {
                     .message("Guide indexed successfully")
                     .guideId(userGuide.getId())
                     .pineconeVectorId(userGuide.getPineconeVectorId())
-                    .coverImageUrl(coverImageUrl)
-                    .totalSteps(steps.size())
+                    .coverImageUrl(userGuide.getCoverImageUrl())
+                    .totalSteps(userGuide.getSteps().size())
                     .processingTimeMs(processingTime)
                     .build();
 
@@ -161,53 +164,160 @@ public class UserGuideIndexingServiceImpl implements UserGuideIndexingService {
     }
 
     /**
-     * Index guide to Pinecone vector store with optimized content
+     * Upload ảnh + lưu UserGuide và GuideSteps vào PostgreSQL (chưa index Pinecone)
      */
-    private String indexToPinecone(UserGuide userGuide) {
-        try {
-            log.info("   🔍 Generating embedding for guide ID: {}", userGuide.getId());
+    private UserGuide persistGuide(
+            UserGuideIndexRequest request,
+            MultipartFile coverImage,
+            List<MultipartFile> stepImages) {
+
+        // Step 1: Upload cover image to S3 (if provided)
+        String coverImageUrl = null;
+        if (coverImage != null && !coverImage.isEmpty()) {
+            String coverImageKey = String.format("guides/cover/%s_%s",
+                    System.currentTimeMillis(),
+                    coverImage.getOriginalFilename());
+            fileStorageService.uploadFile(coverImage, coverImageKey);
+            coverImageUrl = fileStorageService.generatePermanentUrl(coverImageKey);
+            log.info("   ✅ Uploaded cover image: {}", coverImageUrl);
+        }
 
-            // Build optimized content for embedding (less noise, better semantic quality)
-            String contentForEmbedding = buildOptimizedContentForEmbedding(userGuide);
+        // Step 2: Generate Pinecone Vector ID first
+        String tempVectorId = "guide_" + UUID.randomUUID().toString().substring(0, 8);
+        
+        // Step 3: Create and save UserGuide entity (with pineconeVectorId)
+        UserGuide userGuide = UserGuide.builder()
+                .title(request.getTitle())
+                .shortDescription(request.getShortDescription())
+                .category(request.getCategory())
+                .difficulty(request.getDifficulty())
+                .contentText(request.getContentText())
+                .prerequisites(request.getPrerequisites())
+                .tags(request.getTags() != null ? request.getTags().toArray(new String[0]) : new String[0])
+                .keywords(request.getKeywords() != null ? request.getKeywords().toArray(new String[0]) : new String[0])
+                .relatedGuideIds(request.getRelatedGuideIds() != null ? request.getRelatedGuideIds().toArray(new Long[0]) : new Long[0])
+                .searchableQueries(request.getSearchableQueries() != null ? request.getSearchableQueries().toArray(new String[0]) : null)
+                .coverImageUrl(coverImageUrl)
+                .pineconeVectorId(tempVectorId)
+                .pineconeNamespace(pineconeNamespaceConfig.getUserGuidesNamespace())
+                .author(request.getAuthor())
+                .version(request.getVersion() != null ? request.getVersion() : "1.0")
+                .isActive(true)
+                .viewCount(0)
+                .helpfulCount(0)
+                .build();
 
-            // Use the pre-generated vector ID from entity
-            String vectorId = userGuide.getPineconeVectorId();
+        userGuide = userGuideRepository.save(userGuide);
+        log.info("   ✅ Saved UserGuide entity with ID: {} and vectorId: {}", userGuide.getId(), tempVectorId);
 
-            // Create Document with metadata
-            Map<String, Object> metadata = new HashMap<>();
-            metadata.put("id", userGuide.getId());
-            metadata.put("title", userGuide.getTitle());
-            metadata.put("category", userGuide.getCategory().name());
-            metadata.put("difficulty", userGuide.getDifficulty().name());
-            metadata.put("namespace", pineconeNamespaceConfig.getUserGuidesNamespace());
-            metadata.put("isActive", userGuide.getIsActive());
+        // Step 3: Create and save GuideSteps
+        List<GuideStep> steps = new ArrayList<>();
+        for (int i = 0; i < request.getSteps().size(); i++) {
+            var stepDTO = request.getSteps().get(i);
 
-            if (userGuide.getTags() != null && userGuide.getTags().length > 0) {
-                metadata.put("tags", String.join(",", userGuide.getTags()));
-            }
-            if (userGuide.getKeywords() != null && userGuide.getKeywords().length > 0) {
-                metadata.put("keywords", String.join(",", userGuide.getKeywords()));
+            // Upload step screenshot if provided
+            String screenshotUrl = null;
+            if (stepImages != null && i < stepImages.size() && !stepImages.get(i).isEmpty()) {
+                String stepImageKey = String.format("guides/%d/steps/%d_%s",
+                        userGuide.getId(),
+                        stepDTO.getStepOrder(),
+                        stepImages.get(i).getOriginalFilename());
+                fileStorageService.uploadFile(stepImages.get(i), stepImageKey);
+                screenshotUrl = fileStorageService.generatePermanentUrl(stepImageKey);
             }
 
-            Document document = new Document(vectorId, contentForEmbedding, metadata);
+            GuideStep step = GuideStep.builder()
+                    .userGuide(userGuide)
+                    .stepOrder(stepDTO.getStepOrder())
+                    .title(stepDTO.getTitle())
+                    .description(stepDTO.getDescription())
+                    .screenLocation(stepDTO.getScreenLocation())
+                    .uiElement(stepDTO.getUiElement())
+                    .expectedResult(stepDTO.getExpectedResult())
+                    .screenshotUrl(screenshotUrl)
+                    .videoUrl(stepDTO.getVideoUrl())
+                    .tips(stepDTO.getTips())
+                    .commonMistakes(stepDTO.getCommonMistakes())
+                    .build();
+
+            steps.add(step);
+        }
+
+        steps = guideStepRepository.saveAll(steps);
+        userGuide.setSteps(steps);
+        log.info("   ✅ Saved {} guide steps", steps.size());
+        return userGuide;
+    }
+
+    /**
+     * Index guide to Pinecone vector store with optimized content
+     */
+    private String indexToPinecone(UserGuide userGuide) {
+        try {
+            log.info("   🔍 Generating embedding for guide ID: {}", userGuide.getId());
+
+            Document document = buildDocument(userGuide, userGuide.getSteps());
 
-            // Add to vector store
+            // Add to vector store (upsert theo vector ID)
             vectorStore.add(List.of(document));
+            userGuide.setEmbeddingContentHash(contentHash(document));
 
-            log.info("   ✅ Indexed to Pinecone with vector ID: {}", vectorId);
-            return vectorId;
+            log.info("   ✅ Indexed to Pinecone with vector ID: {}", document.getId());
+            return document.getId();
 
         } catch (Exception e) {
             log.error("❌ Failed to index to Pinecone: {}", e.getMessage(), e);
             throw new AppException(ErrorCode.GUIDE_INDEXING_FAILED);
         }
     }
-    
+
+    /**
+     * Build Pinecone document (content + metadata) for a guide
+     */
+    private Document buildDocument(UserGuide userGuide, List<GuideStep> steps) {
+        // Build optimized content for embedding (less noise, better semantic quality)
+        String contentForEmbedding = buildOptimizedContentForEmbedding(userGuide, steps);
+
+        // Create Document with metadata
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("id", userGuide.getId());
+        metadata.put("title", userGuide.getTitle());
+        metadata.put("category", userGuide.getCategory().name());
+        metadata.put("difficulty", userGuide.getDifficulty().name());
+        metadata.put("namespace", pineconeNamespaceConfig.getUserGuidesNamespace());
+        metadata.put("isActive", userGuide.getIsActive());
+
+        if (userGuide.getTags() != null && userGuide.getTags().length > 0) {
+            metadata.put("tags", String.join(",", userGuide.getTags()));
+        }
+        if (userGuide.getKeywords() != null && userGuide.getKeywords().length > 0) {
+            metadata.put("keywords", String.join(",", userGuide.getKeywords()));
+        }
+
+        // Use the pre-generated vector ID from entity
+        return new Document(userGuide.getPineconeVectorId(), contentForEmbedding, metadata);
+    }
+
+    /**
+     * SHA-256 của nội dung embed + metadata: hash không đổi -> vector trên Pinecone vẫn đúng, bỏ qua re-index
+     */
+    private String contentHash(Document document) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(document.getContent().getBytes(StandardCharsets.UTF_8));
+            new TreeMap<>(document.getMetadata()).forEach((key, value) ->
+                    digest.update(("\n" + key + "=" + value).getBytes(StandardCharsets.UTF_8)));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Build optimized content for embedding - Clean, semantic-rich
      * Less noise, better structure for vector search
      */
-    private String buildOptimizedContentForEmbedding(UserGuide userGuide) {
+    private String buildOptimizedContentForEmbedding(UserGuide userGuide, List<GuideStep> steps) {
         StringBuilder content = new StringBuilder();
         
         // 1. Core content (clean, no "Title:" prefix)
@@ -229,9 +339,9 @@ public class UserGuideIndexingServiceImpl implements UserGuideIndexingService {
         }
         
         // 3. Steps (enriched with context)
-        if (userGuide.getSteps() != null && !userGuide.getSteps().isEmpty()) {
+        if (steps != null && !steps.isEmpty()) {
             content.append("Các bước thực hiện:\n");
-            for (GuideStep step : userGuide.getSteps()) {
+            for (GuideStep step : steps) {
                 content.append(String.format("%d. %s: %s\n",
                     step.getStepOrder(),
                     step.getTitle(),
@@ -489,6 +599,7 @@ public class UserGuideIndexingServiceImpl implements UserGuideIndexingService {
             // Vector can be cleaned up manually or via background job later
         }
 
+        invalidateQuickHelpCache();
         log.info("✅ Soft deleted guide ID: {} (DB + Pinecone)", guideId);
     }
 
@@ -541,6 +652,7 @@ public class UserGuideIndexingServiceImpl implements UserGuideIndexingService {
         
         // Step 4: DELETE FROM DATABASE (CASCADE will delete steps automatically)
         userGuideRepository.deleteById(guideId);
+        invalidateQuickHelpCache();
         
         log.info("✅ Permanently deleted guide ID: {} (DB + Pinecone + {} S3 files)", 
                 guideId, s3FilesToDelete.size());
@@ -620,6 +732,7 @@ public class UserGuideIndexingServiceImpl implements UserGuideIndexingService {
             }
             
             // Step 4: Handle steps update (if provided)
+            List<GuideStep> currentSteps = existingGuide.getSteps();
             if (request.getSteps() != null && !request.getSteps().isEmpty()) {
                 // Fetch old steps để map screenshots cũ
                 List<GuideStep> oldSteps = guideStepRepository.findByUserGuideIdOrderByStepOrderAsc(guideId);
@@ -721,6 +834,7 @@ public class UserGuideIndexingServiceImpl implements UserGuideIndexingService {
                 }
                 
                 newSteps = guideStepRepository.saveAll(newSteps);
+                currentSteps = newSteps;
                 log.info("   ✅ Created {} new steps", newSteps.size());
             }
             
@@ -728,42 +842,26 @@ public class UserGuideIndexingServiceImpl implements UserGuideIndexingService {
             existingGuide = userGuideRepository.save(existingGuide);
             log.info("   ✅ Updated guide in PostgreSQL");
             
-            // Step 6: ✅ CONDITIONAL RE-INDEXING (PERFORMANCE FIX!)
-            // Only re-index if searchable content changed
-            boolean needsReindex = false;
-            
-            if (request.getTitle() != null || 
-                request.getShortDescription() != null ||
-                request.getContentText() != null ||
-                request.getKeywords() != null ||
-                request.getSearchableQueries() != null || // ⭐ CRITICAL for search!
-                request.getTags() != null ||
-                request.getSteps() != null) { // Steps contain searchable content
-                needsReindex = true;
-            }
+            // Step 6: ✅ CONDITIONAL RE-INDEXING
+            // Chỉ re-index khi hash nội dung embed + metadata thay đổi (upsert cùng vector ID, không cần delete trước)
+            Document document = buildDocument(existingGuide, currentSteps);
+            String newHash = contentHash(document);
             
-            if (needsReindex) {
+            if (!newHash.equals(existingGuide.getEmbeddingContentHash())) {
                 try {
                     log.info("   🔄 Re-indexing to Pinecone (searchable content changed)...");
-                    
-                    // Delete old vector from Pinecone
-                    String vectorId = existingGuide.getPineconeVectorId();
-                    if (vectorId != null && !vectorId.isEmpty()) {
-                        vectorStore.delete(List.of(vectorId));
-                        log.info("   ✅ Deleted old vector from Pinecone: {}", vectorId);
-                    }
-                    
-                    // Index new content
-                    indexToPinecone(existingGuide);
+                    vectorStore.add(List.of(document));
+                    existingGuide.setEmbeddingContentHash(newHash);
                     log.info("   ✅ Re-indexed to Pinecone with new content");
                 } catch (Exception e) {
                     log.error("❌ Failed to re-index to Pinecone: {}", e.getMessage(), e);
                     throw new AppException(ErrorCode.GUIDE_INDEXING_FAILED);
                 }
             } else {
-                log.info("   ⏭️ Skipping Pinecone re-index (metadata-only update: author/version/etc.)");
+                log.info("   ⏭️ Skipping Pinecone re-index (embedding content unchanged)");
             }
             
+            invalidateQuickHelpCache();
             log.info("✅ Successfully updated guide ID: {}", guideId);
             return userGuideMapper.toResponse(existingGuide);
             
@@ -807,16 +905,272 @@ public class UserGuideIndexingServiceImpl implements UserGuideIndexingService {
     }
 
     @Override
-    @Transactional(transactionManager = "userGuideTransactionManager")
     public Map<String, Object> reindexAllGuides() {
-        // TODO: Implement reindex
-        throw new AppException(ErrorCode.UNCATEGORIZED_EXCEPTION);
+        if (!reindexRunning.compareAndSet(false, true)) {
+            throw new AppException(ErrorCode.GUIDE_REINDEX_IN_PROGRESS);
+        }
+        try {
+            reindexExecutor.execute(this::runReindexAll);
+        } catch (RejectedExecutionException e) {
+            reindexRunning.set(false);
+            throw new AppException(ErrorCode.GUIDE_INDEXING_FAILED);
+        }
+        log.info("🔄 Reindexing all active guides in background");
+        return Map.of("running", true);
+    }
+
+    /**
+     * Reindex toàn bộ guide active theo batch, mỗi batch 1 transaction ngắn:
+     * - Đọc: load guide + steps của batch bằng 1 query (JOIN FETCH), build Document + hash
+     * - Index: các batch chạy song song tối đa {@code indexingParallelism} trên aiTaskExecutor
+     * - Ghi: batch thành công cập nhật hash và commit ngay, job dừng giữa chừng không làm mất kết quả các batch trước
+     */
+    private void runReindexAll() {
+        long startTime = System.currentTimeMillis();
+        TransactionTemplate readTx = new TransactionTemplate(userGuideTransactionManager);
+        readTx.setReadOnly(true);
+        TransactionTemplate writeTx = new TransactionTemplate(userGuideTransactionManager);
+        try {
+            List<Long> guideIds = userGuideRepository.findActiveIds();
+            int batchSize = Math.max(1, indexingBatchSize);
+            List<List<Long>> idBatches = new ArrayList<>();
+            for (int i = 0; i < guideIds.size(); i += batchSize) {
+                idBatches.add(guideIds.subList(i, Math.min(i + batchSize, guideIds.size())));
+            }
+
+            ReindexProgress progress = new ReindexProgress(guideIds.size(), idBatches.size());
+            reindexProgress = progress;
+            log.info("   {} active guides, {} batches", guideIds.size(), idBatches.size());
+
+            int parallelism = Math.max(1, indexingParallelism);
+            for (int waveStart = 0; waveStart < idBatches.size(); waveStart += parallelism) {
+                List<List<Long>> wave = idBatches.subList(waveStart, Math.min(waveStart + parallelism, idBatches.size()));
+                List<List<PendingVector>> pendingBatches = readTx.execute(status -> wave.stream()
+                        .map(ids -> pendingVectors(userGuideRepository.findAllWithStepsByIdIn(ids), progress))
+                        .toList());
+
+                indexWave(pendingBatches, progress, batch -> writeTx.executeWithoutResult(status ->
+                        batch.forEach(p -> userGuideRepository.updateEmbeddingContentHash(p.guide().getId(), p.hash()))));
+            }
+
+            if (progress.indexed.get() > 0) {
+                invalidateQuickHelpCache();
+            }
+            log.info("✅ Reindex finished in {}ms ({} indexed, {} unchanged, {} failed)",
+                    System.currentTimeMillis() - startTime,
+                    progress.indexed.get(), progress.unchanged.get(), progress.failed.get());
+        } catch (Exception e) {
+            log.error("❌ Reindex job failed: {}", e.getMessage(), e);
+        } finally {
+            reindexRunning.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reindexExecutor.shutdownNow();
     }
 
     @Override
     @Transactional(transactionManager = "userGuideTransactionManager")
     public Map<String, Object> indexMultipleGuides(List<UserGuideIndexRequest> requests) {
-        // TODO: Implement batch index
-        throw new AppException(ErrorCode.UNCATEGORIZED_EXCEPTION);
+        log.info("📝 Batch indexing {} new guides", requests.size());
+
+        List<UserGuide> guides = new ArrayList<>();
+        for (UserGuideIndexRequest request : requests) {
+            guides.add(persistGuide(request, null, null));
+        }
+        return indexInBatches(guides);
+    }
+
+    @Override
+    public Map<String, Object> getReindexProgress() {
+        ReindexProgress progress = reindexProgress;
+        if (progress == null) {
+            return Map.of("running", false);
+        }
+        return progress.toMap(reindexRunning.get());
+    }
+
+    /**
+     * Index guides lên Pinecone theo batch (dùng cho guide vừa tạo trong transaction của caller):
+     * - Document + hash được build trên thread hiện tại (cần JPA session để load steps)
+     * - Guide có hash không đổi được bỏ qua
+     * - Các batch chạy song song tối đa {@code indexingParallelism}, mỗi batch retry với exponential backoff
+     * - Hash chỉ được cập nhật cho batch thành công, batch lỗi sẽ được index lại ở lần reindex sau
+     */
+    private Map<String, Object> indexInBatches(List<UserGuide> guides) {
+        if (!reindexRunning.compareAndSet(false, true)) {
+            throw new AppException(ErrorCode.GUIDE_REINDEX_IN_PROGRESS);
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            int batchSize = Math.max(1, indexingBatchSize);
+            List<List<UserGuide>> guideBatches = new ArrayList<>();
+            for (int i = 0; i < guides.size(); i += batchSize) {
+                guideBatches.add(guides.subList(i, Math.min(i + batchSize, guides.size())));
+            }
+
+            ReindexProgress progress = new ReindexProgress(guides.size(), guideBatches.size());
+            reindexProgress = progress;
+            log.info("   {} guides, {} batches", guides.size(), guideBatches.size());
+
+            int parallelism = Math.max(1, indexingParallelism);
+            for (int waveStart = 0; waveStart < guideBatches.size(); waveStart += parallelism) {
+                List<List<PendingVector>> wave = guideBatches
+                        .subList(waveStart, Math.min(waveStart + parallelism, guideBatches.size()))
+                        .stream()
+                        .map(batch -> pendingVectors(batch, progress))
+                        .toList();
+                // Guide đang được quản lý bởi transaction của caller, hash được flush khi commit
+                indexWave(wave, progress, batch -> batch.forEach(p -> p.guide().setEmbeddingContentHash(p.hash())));
+            }
+
+            if (progress.indexed.get() > 0) {
+                invalidateQuickHelpCache();
+            }
+
+            long processingTime = System.currentTimeMillis() - startTime;
+            log.info("✅ Batch indexing finished in {}ms", processingTime);
+
+            Map<String, Object> result = new LinkedHashMap<>(progress.toMap(false));
+            result.put("guideIds", guides.stream().map(UserGuide::getId).toList());
+            result.put("processingTimeMs", processingTime);
+            return result;
+        } finally {
+            reindexRunning.set(false);
+        }
+    }
+
+    /**
+     * Xóa cache câu trả lời quick help sau khi transaction hiện tại commit (ngay lập tức nếu không có transaction),
+     * để request chạy song song không nạp lại cache từ dữ liệu guide chưa commit / bị rollback
+     */
+    private void invalidateQuickHelpCache() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    semanticResponseCache.invalidate(AIContextServiceImpl.QUICK_HELP_CACHE_NAMESPACE);
+                }
+            });
+            return;
+        }
+        semanticResponseCache.invalidate(AIContextServiceImpl.QUICK_HELP_CACHE_NAMESPACE);
+    }
+
+    /**
+     * Build Document + hash cho các guide, guide có hash không đổi được bỏ qua (đếm vào unchanged)
+     */
+    private List<PendingVector> pendingVectors(List<UserGuide> guides, ReindexProgress progress) {
+        List<PendingVector> pending = new ArrayList<>();
+        for (UserGuide guide : guides) {
+            Document document = buildDocument(guide, guide.getSteps());
+            String hash = contentHash(document);
+            if (hash.equals(guide.getEmbeddingContentHash())) {
+                progress.unchanged.incrementAndGet();
+            } else {
+                pending.add(new PendingVector(guide, document, hash));
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Index song song các batch trong 1 wave, gọi onIndexed cho từng batch thành công (trên thread hiện tại)
+     */
+    private void indexWave(List<List<PendingVector>> wave, ReindexProgress progress,
+                           Consumer<List<PendingVector>> onIndexed) {
+        List<CompletableFuture<Boolean>> futures = wave.stream()
+                .map(batch -> batch.isEmpty() ? CompletableFuture.completedFuture(true) : submitIndexBatch(batch))
+                .toList();
+
+        for (int i = 0; i < wave.size(); i++) {
+            List<PendingVector> batch = wave.get(i);
+            if (futures.get(i).join()) {
+                onIndexed.accept(batch);
+                progress.indexed.addAndGet(batch.size());
+            } else {
+                batch.forEach(p -> progress.failedGuideIds.add(p.guide().getId()));
+                progress.failed.addAndGet(batch.size());
+            }
+            progress.completedBatches.incrementAndGet();
+        }
+        log.info("   📊 Reindex progress: {}/{} batches ({} indexed, {} failed)",
+                progress.completedBatches.get(), progress.totalBatches, progress.indexed.get(), progress.failed.get());
+    }
+
+    /**
+     * aiTaskExecutor từ chối task khi đạt concurrency limit: chạy batch ngay trên thread hiện tại thay vì bỏ qua
+     */
+    private CompletableFuture<Boolean> submitIndexBatch(List<PendingVector> batch) {
+        try {
+            return CompletableFuture.supplyAsync(() -> indexBatchWithRetry(batch), aiTaskExecutor);
+        } catch (TaskRejectedException e) {
+            log.warn("⚠️ aiTaskExecutor is at its concurrency limit, indexing batch of {} guides inline", batch.size());
+            return CompletableFuture.completedFuture(indexBatchWithRetry(batch));
+        }
+    }
+
+    private boolean indexBatchWithRetry(List<PendingVector> batch) {
+        List<Document> documents = batch.stream().map(PendingVector::document).toList();
+        int maxAttempts = Math.max(1, indexingMaxAttempts);
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                vectorStore.add(documents);
+                return true;
+            } catch (Exception e) {
+                if (attempt == maxAttempts) {
+                    log.error("❌ Failed to index batch of {} guides after {} attempts: {}",
+                            batch.size(), attempt, e.getMessage());
+                    return false;
+                }
+                long backoffMs = indexingInitialBackoffMs * (1L << (attempt - 1));
+                log.warn("⚠️ Index batch failed (attempt {}/{}): {}. Retry in {} ms",
+                        attempt, maxAttempts, e.getMessage(), backoffMs);
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private record PendingVector(UserGuide guide, Document document, String hash) {
+    }
+
+    private static final class ReindexProgress {
+        private final int totalGuides;
+        private final int totalBatches;
+        private final long startedAt = System.currentTimeMillis();
+        private final AtomicInteger completedBatches = new AtomicInteger();
+        private final AtomicInteger unchanged = new AtomicInteger();
+        private final AtomicInteger indexed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final List<Long> failedGuideIds = new CopyOnWriteArrayList<>();
+
+        ReindexProgress(int totalGuides, int totalBatches) {
+            this.totalGuides = totalGuides;
+            this.totalBatches = totalBatches;
+        }
+
+        Map<String, Object> toMap(boolean running) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("running", running);
+            map.put("totalGuides", totalGuides);
+            map.put("unchanged", unchanged.get());
+            map.put("indexed", indexed.get());
+            map.put("failed", failed.get());
+            map.put("failedGuideIds", List.copyOf(failedGuideIds));
+            map.put("completedBatches", completedBatches.get());
+            map.put("totalBatches", totalBatches);
+            map.put("startedAt", startedAt);
+            return map;
+        }
     }
 }
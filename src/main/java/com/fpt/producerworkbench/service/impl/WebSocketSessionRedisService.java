@@ -3,25 +3,41 @@ package com.fpt.producerworkbench.service.impl;
 import com.fpt.producerworkbench.entity.WebSocketSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j(topic = "WEB-SOCKET-SESSION-SERVICE")
-public class WebSocketSessionRedisService {
+public class WebSocketSessionRedisService implements MessageListener {
 
+    public static final String PRESENCE_CHANNEL = "presence:changed";
     private static final String SESSION_KEY_PREFIX = "websocket_session:";
     private static final String USER_SESSIONS_KEY_PREFIX = "user:sessions:";
     private static final Duration SESSION_TIMEOUT = Duration.ofHours(24);
+    // Near-cache trạng thái online; bị invalidate qua PRESENCE_CHANNEL khi user connect / disconnect
+    private static final long PRESENCE_CACHE_TTL_MS = 5_000;
 
     private final RedisTemplate<String, Object> redisTemplate;
 
+    private final Map<String, CachedPresence> presenceCache = new ConcurrentHashMap<>();
+
     public void saveWebSocketSession(WebSocketSession session) {
         Assert.notNull(session, "WebSocketSession must not be null");
         Assert.hasText(session.getUserId().toString(), "UserId must not be empty");
@@ -40,6 +56,7 @@ public class WebSocketSessionRedisService {
             if (added != null && added > 0) {
                 redisTemplate.expire(userSessionsKey, SESSION_TIMEOUT);
                 log.info("Saved WebSocket session - UserId: {}, SessionId: {}", userId, socketSessionId);
+                publishPresenceChange(userId);
             } else {
                 log.warn("Session ID {} already exists for user {}", socketSessionId, userId);
             }
@@ -64,6 +81,7 @@ public class WebSocketSessionRedisService {
                 String userSessionsKey = USER_SESSIONS_KEY_PREFIX + userId;
                 redisTemplate.opsForSet().remove(userSessionsKey, websocketSessionId);
                 log.info("Deleted WebSocket session - SessionId: {}", websocketSessionId);
+                publishPresenceChange(userId);
             } else {
                 log.warn("No session found for SessionId: {}", websocketSessionId);
             }
@@ -73,42 +91,132 @@ public class WebSocketSessionRedisService {
         }
     }
 
+    /**
+     * Lấy các session còn hiệu lực của danh sách user.
+     * Dùng pipeline: 1 round trip SMEMBERS cho tất cả user + 1 MGET kiểm tra session key,
+     * thay vì SMEMBERS + GET cho từng user / session.
+     */
     public Set<WebSocketSession> getSessionByUserIds(Set<String> userIds) {
         if(userIds == null || userIds.isEmpty()) {
             return new HashSet<>();
         }
+
+        List<String> orderedUserIds = new ArrayList<>(userIds);
+        List<Object> memberResults = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String userId : orderedUserIds) {
+                connection.setCommands().sMembers(rawKey(USER_SESSIONS_KEY_PREFIX + userId));
+            }
+            return null;
+        });
+
+        List<String> sessionKeys = new ArrayList<>();
+        List<WebSocketSession> candidates = new ArrayList<>();
+        for (int i = 0; i < orderedUserIds.size(); i++) {
+            Object members = memberResults.get(i);
+            if (!(members instanceof Collection<?> sessionIds)) {
+                continue;
+            }
+            for (Object sessionId : sessionIds) {
+                sessionKeys.add(SESSION_KEY_PREFIX + sessionId);
+                candidates.add(WebSocketSession.builder()
+                        .socketSessionId(sessionId.toString())
+                        .userId(orderedUserIds.get(i))
+                        .build());
+            }
+        }
+
         Set<WebSocketSession> sessions = new HashSet<>();
-        userIds.forEach(userId -> {
-            String userIdKey = USER_SESSIONS_KEY_PREFIX + userId;
-            Set<Object> sessionIds = redisTemplate.opsForSet().members(userIdKey);
-
-            if(sessionIds != null && !sessionIds.isEmpty()) {
-                log.debug("Found {} session IDs for user {}: {}", sessionIds.size(), userId, sessionIds);
-                sessionIds.forEach(sessionId -> {
-                    // Verify that the session actually exists in Redis
-                    String sessionKey = SESSION_KEY_PREFIX + sessionId.toString();
-                    Object sessionUserId = redisTemplate.opsForValue().get(sessionKey);
-
-                    if(sessionUserId != null) {
-                        WebSocketSession session = WebSocketSession.builder()
-                                .socketSessionId(sessionId.toString())
-                                .userId(userId)
-                                .build();
-                        sessions.add(session);
-                        log.debug("Valid session found: {} for user {}", sessionId, userId);
-                    } else {
-                        // Session key doesn't exist, clean up the orphaned entry
-                        log.warn("Orphaned session ID {} found for user {}, cleaning up", sessionId, userId);
-                        redisTemplate.opsForSet().remove(userIdKey, sessionId);
-                    }
-                });
+        if (candidates.isEmpty()) {
+            log.debug("No sessions found for {} users", userIds.size());
+            return sessions;
+        }
+
+        // Verify that the sessions actually exist in Redis
+        List<Object> sessionOwners = redisTemplate.opsForValue().multiGet(sessionKeys);
+        Map<String, List<Object>> orphans = new HashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            WebSocketSession candidate = candidates.get(i);
+            if (sessionOwners != null && sessionOwners.get(i) != null) {
+                sessions.add(candidate);
             } else {
-                log.debug("No sessions found for user {}", userId);
+                orphans.computeIfAbsent(candidate.getUserId(), k -> new ArrayList<>())
+                        .add(candidate.getSocketSessionId());
             }
+        }
+
+        // Session key doesn't exist, clean up the orphaned entries
+        orphans.forEach((userId, sessionIds) -> {
+            log.warn("Orphaned session IDs {} found for user {}, cleaning up", sessionIds, userId);
+            redisTemplate.opsForSet().remove(USER_SESSIONS_KEY_PREFIX + userId, sessionIds.toArray());
         });
 
-        log.info("Retrieved {} active sessions for {} users", sessions.size(), userIds.size());
+        log.debug("Retrieved {} active sessions for {} users", sessions.size(), userIds.size());
         return sessions;
     }
 
-}
\ No newline at end of file
+    /**
+     * Trả về tập user đang online trong số các user truyền vào.
+     * Đọc từ near-cache của node, chỉ các user chưa có trong cache (hoặc đã hết hạn)
+     * mới được resolve từ Redis trong 1 lần pipeline.
+     */
+    public Set<String> getOnlineUserIds(Collection<String> userIds) {
+        Set<String> online = new HashSet<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return online;
+        }
+
+        long now = System.currentTimeMillis();
+        Set<String> misses = new HashSet<>();
+        for (String userId : userIds) {
+            CachedPresence cached = presenceCache.get(userId);
+            if (cached != null && cached.expiresAt() > now) {
+                if (cached.online()) {
+                    online.add(userId);
+                }
+            } else {
+                misses.add(userId);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            Set<String> resolvedOnline = new HashSet<>();
+            getSessionByUserIds(misses).forEach(session -> resolvedOnline.add(session.getUserId()));
+
+            long expiresAt = System.currentTimeMillis() + PRESENCE_CACHE_TTL_MS;
+            for (String userId : misses) {
+                boolean isOnline = resolvedOnline.contains(userId);
+                presenceCache.put(userId, new CachedPresence(isOnline, expiresAt));
+                if (isOnline) {
+                    online.add(userId);
+                }
+            }
+        }
+
+        log.debug("Online users: {}/{} ({} resolved from Redis)", online.size(), userIds.size(), misses.size());
+        return online;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String userId = new String(message.getBody(), StandardCharsets.UTF_8);
+        presenceCache.remove(userId);
+    }
+
+    private void publishPresenceChange(String userId) {
+        presenceCache.remove(userId);
+        try {
+            redisTemplate.convertAndSend(PRESENCE_CHANNEL, userId);
+        } catch (Exception e) {
+            log.error("Failed to publish presence change for user {}. Error: {}", userId, e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+
+    private record CachedPresence(boolean online, long expiresAt) {
+    }
+
+}
@@ -1,101 +1,151 @@
 package com.fpt.producerworkbench.websocket;
 
 import com.fpt.producerworkbench.configuration.JwtDecoderCustomizer;
-import com.fpt.producerworkbench.repository.UserRepository;
 import io.micrometer.common.util.StringUtils;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
-import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Component;
 
+import java.security.Principal;
+import java.util.EnumMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Interceptor cho clientInboundChannel.
+ * - Hot path (SEND, SUBSCRIBE...) không format chuỗi/log, chỉ tăng counter theo command.
+ * - Debug log dạng key=value, lấy mẫu 1/{@code sampleEvery} frame, chỉ khi bật DEBUG.
+ * - Principal xác thực lúc CONNECT được lưu trong session attributes và gắn lại cho các frame sau.
+ * - Metrics: websocket.inbound.frames (counter) và websocket.inbound.duration (histogram) theo command.
+ */
 @Component
-@RequiredArgsConstructor
 @Slf4j
-public class ChannelInterceptorConfiguration implements ChannelInterceptor {
+public class ChannelInterceptorConfiguration implements ExecutorChannelInterceptor {
+
+    private static final String PRINCIPAL_ATTRIBUTE = "stompPrincipal";
 
     private final JwtDecoderCustomizer jwtDecoderCustomizer;
+    private final long sampleEvery;
+
+    private final AtomicLong frameSequence = new AtomicLong();
+    private final ThreadLocal<Long> handleStartNanos = new ThreadLocal<>();
+
+    private final Map<StompCommand, Counter> frameCounters = new EnumMap<>(StompCommand.class);
+    private final Map<StompCommand, Timer> handleTimers = new EnumMap<>(StompCommand.class);
+
+    public ChannelInterceptorConfiguration(
+            JwtDecoderCustomizer jwtDecoderCustomizer,
+            MeterRegistry meterRegistry,
+            @Value("${websocket.inbound.debug-sample-every:100}") long sampleEvery) {
+        this.jwtDecoderCustomizer = jwtDecoderCustomizer;
+        this.sampleEvery = Math.max(1, sampleEvery);
+
+        for (StompCommand command : StompCommand.values()) {
+            frameCounters.put(command, Counter.builder("websocket.inbound.frames")
+                    .tag("command", command.name())
+                    .register(meterRegistry));
+            handleTimers.put(command, Timer.builder("websocket.inbound.duration")
+                    .tag("command", command.name())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
 
     @Override
     public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
-
-        log.info("🚨 ChannelInterceptor: Message received");
-        log.info("🚨 Message type: {}", message.getClass().getSimpleName());
-        log.info("🚨 Message payload: {}", message.getPayload());
-        log.info("🚨 Message headers: {}", message.getHeaders());
-
         StompHeaderAccessor accessor = StompHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
-
-        if (accessor == null) {
-            log.warn("⚠️ StompHeaderAccessor is null - non-STOMP message?");
+        if (accessor == null || accessor.getCommand() == null) {
             return message;
         }
 
-        log.info("🚨 STOMP Command: {}", accessor.getCommand());
+        StompCommand command = accessor.getCommand();
+        frameCounters.get(command).increment();
 
-        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
-            log.info("🔌 WebSocket STOMP CONNECT received");
+        if (log.isDebugEnabled() && frameSequence.incrementAndGet() % sampleEvery == 0) {
+            log.debug("stomp_inbound command={} destination={} session={} payloadBytes={}",
+                    command, accessor.getDestination(), accessor.getSessionId(),
+                    message.getPayload() instanceof byte[] bytes ? bytes.length : -1);
+        }
+
+        if (StompCommand.CONNECT.equals(command)) {
+            authenticate(accessor);
+        } else if (accessor.getUser() == null) {
+            Map<String, Object> attributes = accessor.getSessionAttributes();
+            if (attributes != null && attributes.get(PRINCIPAL_ATTRIBUTE) instanceof Principal principal) {
+                accessor.setUser(principal);
+            }
+        }
+        return message;
+    }
 
-            try {
-                String authorizationHeader = accessor.getFirstNativeHeader("Authorization");
-                String userIdHeader = accessor.getFirstNativeHeader("userId");
-                String liveSessionIdHeader = accessor.getFirstNativeHeader("liveSessionId");
+    @Override
+    public Message<?> beforeHandle(@NonNull Message<?> message, @NonNull MessageChannel channel,
+                                   @NonNull MessageHandler handler) {
+        handleStartNanos.set(System.nanoTime());
+        return message;
+    }
 
-                if (StringUtils.isNotBlank(authorizationHeader)) {
-                    try {
-                        String token = authorizationHeader.replace("Bearer ", "");
-                        log.info("🔍 Attempting JWT validation...");
-                        Jwt jwtDecoder = jwtDecoderCustomizer.decode(token);
-                        log.info("✅ JWT validation successful for: {}", jwtDecoder.getSubject());
+    @Override
+    public void afterMessageHandled(@NonNull Message<?> message, @NonNull MessageChannel channel,
+                                    @NonNull MessageHandler handler, Exception ex) {
+        Long start = handleStartNanos.get();
+        if (start == null) {
+            return;
+        }
+        handleStartNanos.remove();
 
-                        UsernamePasswordAuthenticationToken jwtAuth = new UsernamePasswordAuthenticationToken(
-                                jwtDecoder.getSubject(), null, List.of());
-                        accessor.setUser(jwtAuth);
+        StompHeaderAccessor accessor = StompHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor != null && accessor.getCommand() != null) {
+            handleTimers.get(accessor.getCommand()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
 
-                    } catch (Exception e) {
-                        log.warn("⚠️ JWT validation failed, using basic auth: {}", e.getMessage());
-                        log.warn("⚠️ JWT error details: {}", e.getClass().getSimpleName());
-                    }
+    private void authenticate(StompHeaderAccessor accessor) {
+        try {
+            String authorizationHeader = accessor.getFirstNativeHeader("Authorization");
+            String userIdHeader = accessor.getFirstNativeHeader("userId");
+            String liveSessionIdHeader = accessor.getFirstNativeHeader("liveSessionId");
+
+            if (StringUtils.isNotBlank(authorizationHeader)) {
+                try {
+                    // JwtDecoderCustomizer cache token đã verify nên reconnect không phải decode lại
+                    Jwt jwt = jwtDecoderCustomizer.decode(authorizationHeader.replace("Bearer ", ""));
+                    accessor.setUser(new UsernamePasswordAuthenticationToken(jwt.getSubject(), null, List.of()));
+                } catch (Exception e) {
+                    log.warn("⚠️ JWT validation failed, using basic auth: {}", e.getMessage());
                 }
+            }
 
-                if (userIdHeader != null && liveSessionIdHeader != null) {
-                    try {
-                        Long userId = Long.parseLong(userIdHeader);
-                        accessor.getSessionAttributes().put("userId", userId);
-                        accessor.getSessionAttributes().put("liveSessionId", liveSessionIdHeader);
-
-                        log.info("✅ Stored session attributes - userId: {}, liveSessionId: {}",
-                                userId, liveSessionIdHeader);
-
-                        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                                userIdHeader, null, List.of());
-                        accessor.setUser(authentication);
-                        log.info("✅ Created authentication for userId: {}", userIdHeader);
-
-                    } catch (NumberFormatException e) {
-                        log.error("❌ Invalid userId format: {}", userIdHeader);
-                    }
-                } else {
-                    log.warn("⚠️ Missing userId or sessionId headers");
+            if (userIdHeader != null && liveSessionIdHeader != null) {
+                try {
+                    Long userId = Long.parseLong(userIdHeader);
+                    accessor.getSessionAttributes().put("userId", userId);
+                    accessor.getSessionAttributes().put("liveSessionId", liveSessionIdHeader);
+                    accessor.setUser(new UsernamePasswordAuthenticationToken(userIdHeader, null, List.of()));
+                } catch (NumberFormatException e) {
+                    log.error("❌ Invalid userId format: {}", userIdHeader);
                 }
+            }
 
-                log.info("✅ STOMP CONNECT processing completed successfully");
-
-            } catch (Exception e) {
-                log.error("❌ CRITICAL: Exception in ChannelInterceptor: {}", e.getMessage(), e);
+            if (accessor.getUser() != null && accessor.getSessionAttributes() != null) {
+                accessor.getSessionAttributes().put(PRINCIPAL_ATTRIBUTE, accessor.getUser());
             }
+        } catch (Exception e) {
+            log.error("❌ CRITICAL: Exception in ChannelInterceptor: {}", e.getMessage(), e);
         }
-
-        log.info("✅ ChannelInterceptor: Returning message");
-        return message;
     }
 }
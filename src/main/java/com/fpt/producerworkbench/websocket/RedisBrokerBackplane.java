@@ -0,0 +1,206 @@
+package com.fpt.producerworkbench.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Backplane cho simple broker khi chạy nhiều node (websocket.broker.mode=redis).
+ * - Message gửi tới /topic/** và /user/** trên brokerChannel vẫn được deliver local như cũ,
+ *   đồng thời được gom theo destination trong cửa sổ batch-window-ms rồi publish lên Redis.
+ * - Node khác nhận batch và đẩy lại vào brokerChannel của mình: /topic tới subscriber local,
+ *   /user được UserDestinationMessageHandler resolve theo session local.
+ * Mode mặc định (simple) không tạo bean này, broker chỉ chạy trong JVM (dùng cho dev/test).
+ */
+@Component
+@ConditionalOnProperty(name = "websocket.broker.mode", havingValue = "redis")
+@Slf4j(topic = "WS-BACKPLANE")
+public class RedisBrokerBackplane implements ChannelInterceptor, MessageListener {
+
+    public static final String BACKPLANE_CHANNEL = "ws:broker";
+    private static final String RELAYED_HEADER = "pwbRelayed";
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final MessageChannel brokerChannel;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final long batchWindowMs;
+    private final int maxPendingPerDestination;
+
+    private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "pwb-ws-backplane");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Frame đang chờ publish theo destination, được bảo vệ bởi lock (this)
+    private Map<String, List<Frame>> pending = new LinkedHashMap<>();
+
+    private final Counter publishedCounter;
+    private final Counter receivedCounter;
+    private final Counter droppedCounter;
+    private final Timer fanoutLatency;
+
+    public RedisBrokerBackplane(
+            @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel,
+            RedisTemplate<String, Object> redisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${websocket.broker.batch-window-ms:5}") long batchWindowMs,
+            @Value("${websocket.broker.max-pending-per-destination:1000}") int maxPendingPerDestination) {
+        this.brokerChannel = brokerChannel;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.batchWindowMs = Math.max(1, batchWindowMs);
+        this.maxPendingPerDestination = maxPendingPerDestination;
+
+        this.publishedCounter = Counter.builder("websocket.backplane.frames").tag("direction", "out").register(meterRegistry);
+        this.receivedCounter = Counter.builder("websocket.backplane.frames").tag("direction", "in").register(meterRegistry);
+        this.droppedCounter = Counter.builder("websocket.backplane.dropped")
+                .description("Số frame bị bỏ do buffer đầy hoặc lỗi publish/deliver")
+                .register(meterRegistry);
+        this.fanoutLatency = Timer.builder("websocket.backplane.fanout.latency")
+                .description("Độ trễ từ lúc node gốc nhận frame tới lúc node khác deliver")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        flushScheduler.scheduleWithFixedDelay(this::flush, batchWindowMs, batchWindowMs, TimeUnit.MILLISECONDS);
+        log.info("Redis broker backplane started (node {}, batch window {} ms)", nodeId, batchWindowMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdown();
+        flush();
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || headers.containsKey(RELAYED_HEADER)
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null || !(destination.startsWith("/topic/") || destination.startsWith("/user/"))) {
+            return message;
+        }
+
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        Frame frame = new Frame(destination, contentType != null ? contentType.toString() : null,
+                payload, System.currentTimeMillis());
+
+        synchronized (this) {
+            List<Frame> frames = pending.computeIfAbsent(destination, k -> new ArrayList<>());
+            if (frames.size() >= maxPendingPerDestination) {
+                droppedCounter.increment();
+                log.warn("Backplane buffer đầy cho {}, bỏ frame", destination);
+                return message;
+            }
+            frames.add(frame);
+        }
+        return message;
+    }
+
+    @Override
+    public void onMessage(@NonNull org.springframework.data.redis.connection.Message message, byte[] pattern) {
+        Batch batch;
+        try {
+            batch = objectMapper.readValue(message.getBody(), Batch.class);
+        } catch (Exception e) {
+            log.warn("Không đọc được batch từ backplane: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(batch.nodeId())) {
+            return;
+        }
+
+        for (Frame frame : batch.frames()) {
+            receivedCounter.increment();
+            try {
+                if (!brokerChannel.send(toBrokerMessage(frame))) {
+                    droppedCounter.increment();
+                }
+            } catch (Exception e) {
+                droppedCounter.increment();
+                log.warn("Không deliver được frame tới {}: {}", frame.destination(), e.getMessage());
+            }
+            fanoutLatency.record(Math.max(0, System.currentTimeMillis() - frame.publishedAt()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        Map<String, List<Frame>> toPublish;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            toPublish = pending;
+            pending = new LinkedHashMap<>();
+        }
+
+        // Mỗi destination 1 message Redis, giữ nguyên thứ tự frame trong destination
+        toPublish.forEach((destination, frames) -> {
+            try {
+                String body = objectMapper.writeValueAsString(new Batch(nodeId, frames));
+                redisTemplate.convertAndSend(BACKPLANE_CHANNEL, body);
+                publishedCounter.increment(frames.size());
+            } catch (Exception e) {
+                droppedCounter.increment(frames.size());
+                log.error("Publish backplane thất bại cho {}: {}", destination, e.getMessage());
+            }
+        });
+    }
+
+    private Message<byte[]> toBrokerMessage(Frame frame) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(frame.destination());
+        if (frame.contentType() != null) {
+            MimeType mimeType = MimeTypeUtils.parseMimeType(frame.contentType());
+            accessor.setContentType(mimeType);
+        }
+        accessor.setHeader(RELAYED_HEADER, Boolean.TRUE);
+        return MessageBuilder.createMessage(frame.payload(), accessor.getMessageHeaders());
+    }
+
+    record Frame(String destination, String contentType, byte[] payload, long publishedAt) {
+    }
+
+    record Batch(String nodeId, List<Frame> frames) {
+    }
+}
@@ -2,6 +2,7 @@ package com.fpt.producerworkbench.websocket;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.NonNull;
@@ -21,6 +22,7 @@ import java.util.List;
 public class WebsocketConfiguration implements WebSocketMessageBrokerConfigurer {
 
     private final ChannelInterceptorConfiguration channelInterceptor;
+    private final ObjectProvider<RedisBrokerBackplane> brokerBackplane;
 
     @Override
     public void registerStompEndpoints(@NonNull StompEndpointRegistry registry) {
@@ -42,6 +44,12 @@ public class WebsocketConfiguration implements WebSocketMessageBrokerConfigurer
         registry.setUserDestinationPrefix("/user");
         log.info("✅ Message broker configured: /topic, /queue, /app, /user");
 
+        // websocket.broker.mode=redis: fan-out /topic và /user qua Redis cho nhiều node
+        brokerBackplane.ifAvailable(backplane -> {
+            registry.configureBrokerChannel().interceptors(backplane);
+            log.info("✅ Broker backplane enabled: Redis channel {}", RedisBrokerBackplane.BACKPLANE_CHANNEL);
+        });
+
     }
 
     @Override
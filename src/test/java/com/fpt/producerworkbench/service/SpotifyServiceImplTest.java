@@ -0,0 +1,88 @@
+package com.fpt.producerworkbench.service;
+
+import com.fpt.producerworkbench.exception.SpotifyRateLimitedException;
+import com.fpt.producerworkbench.service.impl.SpotifyServiceImpl;
+import com.fpt.producerworkbench.service.impl.StubSpotifyCatalogClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test cache / batch của SpotifyServiceImpl với StubSpotifyCatalogClient (không gọi Spotify thật)
+ */
+@DisplayName("Spotify Metadata Cache Test")
+class SpotifyServiceImplTest {
+
+    private static final String ALBUM_LINK = "https://open.spotify.com/album/";
+    private static final String ARTIST_LINK = "https://open.spotify.com/artist/";
+    private static final String TRACK_LINK = "https://open.spotify.com/track/";
+
+    private StubSpotifyCatalogClient catalogClient;
+
+    @BeforeEach
+    void setUp() {
+        catalogClient = new StubSpotifyCatalogClient();
+    }
+
+    private SpotifyServiceImpl spotifyService(long ttlMinutes) {
+        return new SpotifyServiceImpl(catalogClient, new SimpleAsyncTaskExecutor("spotify-test-"),
+                new SimpleMeterRegistry(), ttlMinutes, 10_000, 300);
+    }
+
+    @Test
+    @DisplayName("Artist chưa cache được lấy theo batch tối đa 50, lần sau dùng cache")
+    void albumArtists_fetchedInBatchesThenCached() {
+        SpotifyServiceImpl service = spotifyService(360);
+        String link = ALBUM_LINK + StubSpotifyCatalogClient.BIG_ALBUM_ID;
+
+        List<String> genres = service.getGenresFromTrackLink(link);
+
+        assertThat(genres).containsExactly("pop");
+        assertThat(catalogClient.getArtistRequests())
+                .extracting(List::size)
+                .containsExactlyInAnyOrder(50, 50, 20);
+
+        service.getGenresFromTrackLink(link);
+
+        assertThat(catalogClient.getRefRequests()).hasSize(1);
+        assertThat(catalogClient.getArtistRequests()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("Artist / track không tồn tại được negative cache")
+    void missingIds_areNegativeCached() {
+        SpotifyServiceImpl service = spotifyService(360);
+
+        assertThat(service.getGenresFromTrackLink(ARTIST_LINK + "missingArtist")).isEmpty();
+        assertThat(service.getGenresFromTrackLink(ARTIST_LINK + "missingArtist")).isEmpty();
+        assertThat(service.getGenresFromTrackLink(TRACK_LINK + "missingTrack")).isEmpty();
+        assertThat(service.getGenresFromTrackLink(TRACK_LINK + "missingTrack")).isEmpty();
+
+        assertThat(catalogClient.getArtistRequests()).containsExactly(List.of("missingArtist"));
+        assertThat(catalogClient.getRefRequests()).containsExactly("missingTrack");
+    }
+
+    @Test
+    @DisplayName("Khi bị rate limit: trả dữ liệu cũ nếu còn, không có thì ném SpotifyRateLimitedException")
+    void rateLimited_servesStaleOrThrows() {
+        // TTL 0: entry hết hạn ngay nhưng vẫn được giữ làm dữ liệu cũ
+        SpotifyServiceImpl service = spotifyService(0);
+        String link = TRACK_LINK + "stubTrack";
+
+        assertThat(service.getGenresFromTrackLink(link)).containsExactly("pop", "v-pop");
+
+        catalogClient.setRateLimited(true);
+
+        assertThat(service.getGenresFromTrackLink(link)).containsExactly("pop", "v-pop");
+        assertThat(service.getSpotifyLinkInfo(link).getArtistName()).isEqualTo("Stub Artist stubArtistPop");
+        assertThatThrownBy(() -> service.getGenresFromTrackLink(ARTIST_LINK + "stubArtistEdm"))
+                .isInstanceOf(SpotifyRateLimitedException.class);
+    }
+}
@@ -10,6 +10,7 @@ import com.fpt.producerworkbench.repository.TrackCommentRepository;
 import com.fpt.producerworkbench.repository.TrackMilestoneRepository;
 import com.fpt.producerworkbench.repository.UserRepository;
 import com.fpt.producerworkbench.service.impl.TrackCommentServiceImpl;
+import com.fpt.producerworkbench.service.impl.TrackCommentTimelineIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -48,6 +49,9 @@ class TrackCommentNestedTest {
     @Mock
     private KafkaTemplate<String, Object> kafkaTemplate;
 
+    @Mock
+    private TrackCommentTimelineIndex timelineIndex;
+
     @InjectMocks
     private TrackCommentServiceImpl trackCommentService;
 
@@ -117,16 +121,10 @@ class TrackCommentNestedTest {
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
         when(trackCommentRepository.findByIdAndNotDeleted(1L)).thenReturn(Optional.of(rootComment));
         
-        // Root comment có 1 reply
-        when(trackCommentRepository.countRepliesByParentCommentId(1L)).thenReturn(1L);
-        when(trackCommentRepository.findRepliesByParentCommentId(1L)).thenReturn(Arrays.asList(reply1));
-        
-        // Reply1 có 1 reply (nested)
-        when(trackCommentRepository.countRepliesByParentCommentId(2L)).thenReturn(1L);
-        when(trackCommentRepository.findRepliesByParentCommentId(2L)).thenReturn(Arrays.asList(reply2));
-        
-        // Reply2 không có reply
-        when(trackCommentRepository.countRepliesByParentCommentId(3L)).thenReturn(0L);
+        // Toàn bộ comment của track được load 1 lần, cây reply dựng trong bộ nhớ:
+        // root -> reply1 -> reply2
+        when(trackCommentRepository.findThreadByTrackIdInternal(1L))
+                .thenReturn(Arrays.asList(rootComment, reply1, reply2));
 
         // Act: Lấy comment với replies nested
         TrackCommentResponse response = trackCommentService.getCommentById(authentication, 1L);
@@ -156,6 +154,11 @@ class TrackCommentNestedTest {
         assertThat(level3Reply.getReplyCount()).isEqualTo(0L);
         assertThat(level3Reply.getReplies()).isNull(); // Không có reply nữa
 
+        // Số query không phụ thuộc độ sâu của cây: 1 query comment gốc + 1 query cả thread
+        verify(trackCommentRepository, times(1)).findByIdAndNotDeleted(1L);
+        verify(trackCommentRepository, times(1)).findThreadByTrackIdInternal(1L);
+        verifyNoMoreInteractions(trackCommentRepository);
+
         System.out.println("✅ Test passed: Nested comments work correctly!");
     }
 
@@ -191,7 +194,7 @@ class TrackCommentNestedTest {
             saved.setId(3L); // Set ID sau khi save
             return saved;
         });
-        when(trackCommentRepository.countRepliesByParentCommentId(3L)).thenReturn(0L);
+        when(trackCommentRepository.countRepliesGroupedByParentCommentIds(List.of(3L))).thenReturn(List.of());
 
         // Act: Tạo nested reply
         TrackCommentResponse response = trackCommentService.createComment(authentication, 1L, request);
@@ -203,6 +206,7 @@ class TrackCommentNestedTest {
         
         // Verify save được gọi
         verify(trackCommentRepository, times(1)).save(any(TrackComment.class));
+        verify(timelineIndex, times(1)).onCommentAdded(any(TrackComment.class));
         
         System.out.println("✅ Test passed: Can create reply to reply (nested)!");
     }
@@ -211,7 +215,7 @@ class TrackCommentNestedTest {
     @DisplayName("Should get replies with nested structure when calling getRepliesByComment")
     void testGetRepliesWithNestedStructure() {
         // Arrange
-        TrackComment parentComment = TrackComment.builder().build();
+        TrackComment parentComment = TrackComment.builder().track(testTrack).build();
         parentComment.setId(1L);
         
         TrackComment reply1 = TrackComment.builder()
@@ -237,10 +241,8 @@ class TrackCommentNestedTest {
         when(authentication.getName()).thenReturn("test@example.com");
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
         when(trackCommentRepository.findByIdAndNotDeleted(1L)).thenReturn(Optional.of(parentComment));
-        when(trackCommentRepository.findRepliesByParentCommentId(1L)).thenReturn(Arrays.asList(reply1));
-        when(trackCommentRepository.countRepliesByParentCommentId(2L)).thenReturn(1L);
-        when(trackCommentRepository.findRepliesByParentCommentId(2L)).thenReturn(Arrays.asList(nestedReply));
-        when(trackCommentRepository.countRepliesByParentCommentId(3L)).thenReturn(0L);
+        when(trackCommentRepository.findThreadByTrackIdInternal(1L))
+                .thenReturn(Arrays.asList(reply1, nestedReply));
 
         // Act
         List<TrackCommentResponse> replies = trackCommentService.getRepliesByComment(authentication, 1L);
@@ -254,6 +256,11 @@ class TrackCommentNestedTest {
         assertThat(firstReply.getReplies()).hasSize(1);
         assertThat(firstReply.getReplies().get(0).getContent()).isEqualTo("Nested reply");
 
+        // 1 query comment cha + 1 query cả thread, không query riêng cho từng reply
+        verify(trackCommentRepository, times(1)).findByIdAndNotDeleted(1L);
+        verify(trackCommentRepository, times(1)).findThreadByTrackIdInternal(1L);
+        verifyNoMoreInteractions(trackCommentRepository);
+
         System.out.println("✅ Test passed: getRepliesByComment returns nested structure!");
     }
 }
@@ -0,0 +1,101 @@
+package com.fpt.producerworkbench.service.impl;
+
+import com.fpt.producerworkbench.exception.SpotifyRateLimitedException;
+import com.fpt.producerworkbench.service.SpotifyCatalogClient;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+/**
+ * SpotifyCatalogClient dữ liệu giả cho test, không gọi mạng.
+ * - Album {@link #BIG_ALBUM_ID} có {@link #BIG_ALBUM_ARTIST_COUNT} artist (nhiều hơn 1 batch Get Several Artists)
+ * - Id bắt đầu bằng "missing" không tồn tại (track / album không có artist, artist không có trong response)
+ * - {@link #setRateLimited(boolean)} giả lập Spotify đang trả 429
+ * - Ghi lại các request để test đếm số lần gọi Spotify
+ */
+@TestComponent
+public class StubSpotifyCatalogClient implements SpotifyCatalogClient {
+
+    public static final String BIG_ALBUM_ID = "stubBigAlbum";
+    public static final int BIG_ALBUM_ARTIST_COUNT = 120;
+
+    private static final Map<String, List<String>> GENRES_BY_ARTIST = Map.of(
+            "stubArtistPop", List.of("pop", "v-pop"),
+            "stubArtistHiphop", List.of("hip hop", "rap"),
+            "stubArtistEdm", List.of("edm", "house"));
+
+    private static final List<String> DEFAULT_GENRES = List.of("pop");
+
+    private final List<String> refRequests = new CopyOnWriteArrayList<>();
+    private final List<List<String>> artistRequests = new CopyOnWriteArrayList<>();
+    private volatile boolean rateLimited;
+
+    @Override
+    public List<ArtistRef> getTrackArtists(String trackId) {
+        checkRateLimit();
+        refRequests.add(trackId);
+        if (isMissing(trackId)) {
+            return List.of();
+        }
+        return List.of(new ArtistRef("stubArtistPop", "Stub Pop Artist"));
+    }
+
+    @Override
+    public List<ArtistRef> getAlbumArtists(String albumId) {
+        checkRateLimit();
+        refRequests.add(albumId);
+        if (isMissing(albumId)) {
+            return List.of();
+        }
+        if (BIG_ALBUM_ID.equals(albumId)) {
+            return IntStream.range(0, BIG_ALBUM_ARTIST_COUNT)
+                    .mapToObj(i -> new ArtistRef("stubArtist" + i, "Stub Artist " + i))
+                    .toList();
+        }
+        return List.of(
+                new ArtistRef("stubArtistPop", "Stub Pop Artist"),
+                new ArtistRef("stubArtistHiphop", "Stub Hip Hop Artist"));
+    }
+
+    @Override
+    public List<ArtistInfo> getArtists(List<String> artistIds) {
+        checkRateLimit();
+        artistRequests.add(List.copyOf(artistIds));
+        return artistIds.stream()
+                .filter(id -> !isMissing(id))
+                .map(id -> new ArtistInfo(id, "Stub Artist " + id,
+                        GENRES_BY_ARTIST.getOrDefault(id, DEFAULT_GENRES), null))
+                .toList();
+    }
+
+    public void setRateLimited(boolean rateLimited) {
+        this.rateLimited = rateLimited;
+    }
+
+    /**
+     * Các request track / album đã nhận (theo id)
+     */
+    public List<String> getRefRequests() {
+        return refRequests;
+    }
+
+    /**
+     * Các request Get Several Artists đã nhận (mỗi phần tử là danh sách id của 1 request)
+     */
+    public List<List<String>> getArtistRequests() {
+        return artistRequests;
+    }
+
+    private void checkRateLimit() {
+        if (rateLimited) {
+            throw new SpotifyRateLimitedException(30_000);
+        }
+    }
+
+    private static boolean isMissing(String id) {
+        return id.startsWith("missing");
+    }
+}